@@ -0,0 +1,90 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.adriano.minhasfinancas.dto.CategoriaDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.service.CategoriaService;
+import com.adriano.minhasfinancas.service.UsuarioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/categorias")
+@RequiredArgsConstructor
+public class CategoriaResource {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CategoriaResource.class);
+
+	private final CategoriaService service;
+	private final UsuarioService usuarioService;
+
+	@GetMapping
+	public ResponseEntity listar(@RequestParam("usuario") Long idUsuario) {
+		
+		LOGGER.info("#### Método: CategoriaResource.listar(), status: INICIO, idUsuario: "+ idUsuario);
+		
+		List<CategoriaDTO> categorias = service.listar(idUsuario).stream().map(this::converter).collect(Collectors.toList());
+		return ResponseEntity.ok(categorias);
+	}
+
+	@PostMapping
+	public ResponseEntity salvar(@RequestBody CategoriaDTO dto) {
+		
+		LOGGER.info("#### Método: CategoriaResource.salvar(), status: INICIO, idUsuario: "+ dto.getUsuario() + ", nome: "+ dto.getNome());
+		
+		try {
+			Usuario usuario = usuarioService.obterPorId(dto.getUsuario())
+					.orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para id informado."));
+			Categoria categoria = service.salvar(Categoria.builder().usuario(usuario).nome(dto.getNome()).build());
+			
+			LOGGER.info("#### Método: CategoriaResource.salvar(), status: SUCESSO, idCategoria: "+ categoria.getId());
+			
+			return new ResponseEntity(converter(categoria), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: CategoriaResource.salvar(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@DeleteMapping("{id}")
+	public ResponseEntity deletar(@PathVariable("id") Long id) {
+		
+		LOGGER.info("#### Método: CategoriaResource.deletar(), status: INICIO, idCategoria: "+ id);
+		
+		Optional<Categoria> categoria = service.obterPorId(id);
+		if (!categoria.isPresent()) {
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		service.deletar(categoria.get());
+		
+		LOGGER.info("#### Método: CategoriaResource.deletar(), status: SUCESSO");
+		
+		return ResponseEntity.noContent().build();
+	}
+
+	private CategoriaDTO converter(Categoria categoria) {
+		return CategoriaDTO.builder().id(categoria.getId()).nome(categoria.getNome())
+				.usuario(categoria.getUsuario().getId()).build();
+	}
+
+}
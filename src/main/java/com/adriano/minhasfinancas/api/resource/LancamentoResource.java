@@ -1,12 +1,25 @@
 package com.adriano.minhasfinancas.api.resource;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,15 +30,30 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.adriano.minhasfinancas.diario.RegistroDiario;
 import com.adriano.minhasfinancas.dto.AtualizaStatusDTO;
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.dto.ImportacaoExtratoDTO;
+import com.adriano.minhasfinancas.dto.IngestaoDTO;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.IngestaoSaturadaException;
+import com.adriano.minhasfinancas.importacao.FormatoExtrato;
 import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
 import com.adriano.minhasfinancas.model.entity.Lancamento;
 import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
 import com.adriano.minhasfinancas.model.entity.Usuario;
 import com.adriano.minhasfinancas.model.enums.StatusLancamento;
 import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.service.CategoriaService;
+import com.adriano.minhasfinancas.service.DiarioLancamentoService;
+import com.adriano.minhasfinancas.service.ImportacaoExtratoService;
+import com.adriano.minhasfinancas.service.IngestaoLancamentoService;
 import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.OrcamentoService;
 import com.adriano.minhasfinancas.service.UsuarioService;
 
 @RestController
@@ -36,36 +64,93 @@ public class LancamentoResource {
 
 	private final UsuarioService usuarioService;
 
+	private final IngestaoLancamentoService ingestaoService;
+
+	private final CategoriaService categoriaService;
+
+	private final ImportacaoExtratoService importacaoService;
+
+	private final OrcamentoService orcamentoService;
+
+	private final DiarioLancamentoService diarioService;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(LancamentoResource.class);
 
+	// ids dos orçamentos do mês cujo limite a gravação ultrapassou
+	static final String CABECALHO_ORCAMENTOS_EXCEDIDOS = "X-Orcamentos-Excedidos";
+
 	@GetMapping
 	public ResponseEntity buscar(
 
 			@RequestParam(value = "descricao", required = false) String descricao,
 			@RequestParam(value = "mes", required = false) Integer mes,
 			@RequestParam(value = "ano", required = false) Integer ano, 
+			@RequestParam(value = "de", required = false) String de,
+			@RequestParam(value = "ate", required = false) String ate,
+			@RequestParam(value = "valorMinimo", required = false) BigDecimal valorMinimo,
+			@RequestParam(value = "valorMaximo", required = false) BigDecimal valorMaximo,
+			@RequestParam(value = "cadastradoDe", required = false) String cadastradoDe,
+			@RequestParam(value = "cadastradoAte", required = false) String cadastradoAte,
+			@RequestParam(value = "tipo", required = false) Set<TipoLancamento> tipos,
+			@RequestParam(value = "status", required = false) Set<StatusLancamento> status,
+			@RequestParam(value = "categoria", required = false) Set<Long> categorias,
+			@RequestParam(value = "todasCategorias", defaultValue = "false") boolean todasCategorias,
+			@RequestParam(value = "ordenacao", required = false) List<String> ordenacao,
+			@RequestParam(value = "fields", required = false) List<String> campos,
 			@RequestParam("usuario") Long idUsuario
 
 	) {
-		LOGGER.info("#### Método: LancamentoResource.buscar(), status: INICIO, idUsuario: "+ idUsuario + ", mes: "+ mes + ", ano: "+ ano + ", descricao: "+ descricao);
+		LOGGER.info("#### Método: LancamentoResource.buscar(), status: INICIO, idUsuario: "+ idUsuario + ", mes: "+ mes + ", ano: "+ ano + ", de: "+ de + ", ate: "+ ate + ", descricao: "+ descricao);
 		
-		Lancamento lancamentoFiltro = new Lancamento();
-		lancamentoFiltro.setDescricao(descricao);
-		lancamentoFiltro.setMes(mes);
-		lancamentoFiltro.setAno(ano);
-
 		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
 		if (!usuario.isPresent()) {
 			return ResponseEntity.badRequest().body("Usuario não encontrado para o Id informado");
-		} else {
-			lancamentoFiltro.setUsuario(usuario.get());
 		}
 		
-		List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
+		try {
+			FiltroLancamentoDTO filtro = FiltroLancamentoDTO.builder().usuario(idUsuario).descricao(descricao)
+					.mes(mes).ano(ano)
+					.de(de == null ? null : YearMonth.parse(de)).ate(ate == null ? null : YearMonth.parse(ate))
+					.valorMinimo(valorMinimo).valorMaximo(valorMaximo)
+					.cadastradoDe(cadastradoDe == null ? null : LocalDate.parse(cadastradoDe))
+					.cadastradoAte(cadastradoAte == null ? null : LocalDate.parse(cadastradoAte))
+					.tipos(tipos).status(status).categorias(categorias).todasCategorias(todasCategorias)
+					.ordenacao(ordenacao).build();
+			
+			// com fields= a consulta e a resposta trazem só as colunas pedidas
+			List<?> lancamentos = campos == null ? service.buscar(filtro) : service.buscarCampos(filtro, campos);
+			
+			LOGGER.info("#### Método: LancamentoResource.buscar(), status: SUCESSO, quantidadeLancamentos: "+ lancamentos.size());
+			
+			return ResponseEntity.ok(lancamentos);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe os meses no formato AAAA-MM e as datas no formato AAAA-MM-DD");
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.buscar(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping("/lote")
+	public ResponseEntity buscarPorIds(@RequestParam("usuario") Long idUsuario, @RequestParam("ids") List<Long> ids,
+			@RequestParam(value = "fields", required = false) List<String> campos) {
 		
-		LOGGER.info("#### Método: LancamentoResource.buscar(), status: SUCESSO, quantidadeLancamentos: "+ lancamentos.size());
+		LOGGER.info("#### Método: LancamentoResource.buscarPorIds(), status: INICIO, idUsuario: "+ idUsuario + ", quantidadeIds: "+ ids.size() + ", campos: "+ campos);
 		
-		return ResponseEntity.ok(lancamentos);
+		try {
+			List<?> lancamentos = campos == null ? service.buscarPorIds(idUsuario, ids) : service.buscarCamposPorIds(idUsuario, ids, campos);
+			
+			LOGGER.info("#### Método: LancamentoResource.buscarPorIds(), status: SUCESSO, quantidadeLancamentos: "+ lancamentos.size());
+			
+			return ResponseEntity.ok(lancamentos);
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.buscarPorIds(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
 	}
 
 	@GetMapping("{id}/saldo")
@@ -80,6 +165,45 @@ public class LancamentoResource {
 		return ResponseEntity.ok().body(saldo);
 	}
 
+	@GetMapping("{id}/saldo/historico")
+	public ResponseEntity obterSaldoEm(@PathVariable("id") Long id, @RequestParam("em") String em) {
+		
+		LOGGER.info("#### Método: LancamentoResource.obterSaldoEm(), status: INICIO, idUsuario: "+ id + ", em: "+ em);
+
+		try {
+			BigDecimal saldo = diarioService.obterSaldoEm(id, Instant.parse(em));
+			
+			LOGGER.info("#### Método: LancamentoResource.obterSaldoEm(), status: SUCESSO, saldo: "+ saldo);
+			
+			return ResponseEntity.ok().body(saldo);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe o instante no formato ISO-8601, por exemplo 2021-01-31T23:59:59Z");
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.obterSaldoEm(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping("{id}/diario")
+	public ResponseEntity obterDiario(@PathVariable("id") Long id,
+			@RequestParam("de") String de,
+			@RequestParam(value = "ate", required = false) String ate) {
+		
+		LOGGER.info("#### Método: LancamentoResource.obterDiario(), status: INICIO, idUsuario: "+ id + ", de: "+ de + ", ate: "+ ate);
+
+		try {
+			List<RegistroDiario> registros = diarioService.obterRegistros(id, Instant.parse(de), ate == null ? Instant.now() : Instant.parse(ate));
+			
+			LOGGER.info("#### Método: LancamentoResource.obterDiario(), status: SUCESSO, quantidadeRegistros: "+ registros.size());
+			
+			return ResponseEntity.ok(registros);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe os instantes no formato ISO-8601, por exemplo 2021-01-31T23:59:59Z");
+		}
+	}
+
 	@PostMapping
 	public ResponseEntity salvar(@RequestBody LancamentoDTO dto) {
 		
@@ -88,10 +212,11 @@ public class LancamentoResource {
 		try {
 			Lancamento entidade = converter(dto);
 			entidade = service.salvar(entidade);
+			List<Orcamento> excedidos = orcamentoService.verificar(null, entidade);
 			
-			LOGGER.info("#### Método: LancamentoResource.salvar(), status: SUCESSO, idNovoLancamento: "+ entidade.getId());
+			LOGGER.info("#### Método: LancamentoResource.salvar(), status: SUCESSO, idNovoLancamento: "+ entidade.getId() + ", orcamentosExcedidos: "+ excedidos.size());
 			
-			return new ResponseEntity(entidade, HttpStatus.CREATED);
+			return new ResponseEntity(entidade, alertas(excedidos), HttpStatus.CREATED);
 		} catch (RegraNegocioException e) {
 			
 			LOGGER.info("#### Método: LancamentoResource.salvar(), status: ERROR, mensagemError: "+ e.getMessage());
@@ -100,6 +225,81 @@ public class LancamentoResource {
 		}
 	}
 
+	@PostMapping("/assincrono")
+	public ResponseEntity salvarAssincrono(@RequestBody LancamentoDTO dto) {
+		
+		LOGGER.info("#### Método: LancamentoResource.salvarAssincrono(), status: INICIO, idUsuario: "+ dto.getUsuario() + ", valor: "+ dto.getValor()+ ", tipo: "+ dto.getTipo());
+		
+		try {
+			Lancamento entidade = converter(dto);
+			IngestaoDTO ingestao = ingestaoService.enfileirar(entidade);
+			
+			LOGGER.info("#### Método: LancamentoResource.salvarAssincrono(), status: SUCESSO, protocolo: "+ ingestao.getProtocolo());
+			
+			return new ResponseEntity(ingestao, HttpStatus.ACCEPTED);
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.salvarAssincrono(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (IngestaoSaturadaException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.salvarAssincrono(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+		}
+	}
+
+	@PostMapping(value = "/importacao", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity importar(@RequestParam("usuario") Long idUsuario,
+			@RequestParam("arquivo") MultipartFile arquivo,
+			@RequestParam(value = "formato", required = false) String formato,
+			@RequestParam(value = "charset", required = false) String charset) {
+		
+		LOGGER.info("#### Método: LancamentoResource.importar(), status: INICIO, idUsuario: "+ idUsuario + ", arquivo: "+ arquivo.getOriginalFilename() + ", tamanho: "+ arquivo.getSize());
+		
+		try {
+			Usuario usuario = usuarioService.obterPorId(idUsuario)
+					.orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para id informado."));
+			FormatoExtrato formatoExtrato = FormatoExtrato.de(formato, arquivo.getOriginalFilename());
+			Charset codificacao = charset == null ? null : Charset.forName(charset);
+			
+			// o multipart fica em disco e é lido como fluxo
+			ImportacaoExtratoDTO resultado;
+			try (InputStream entrada = arquivo.getInputStream()) {
+				resultado = importacaoService.importar(usuario, entrada, formatoExtrato, codificacao);
+			}
+			
+			LOGGER.info("#### Método: LancamentoResource.importar(), status: SUCESSO, importadas: "+ resultado.getImportadas());
+			
+			return ResponseEntity.ok(resultado);
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: LancamentoResource.importar(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+			return ResponseEntity.badRequest().body("Charset não suportado: " + charset);
+		} catch (IOException e) {
+			
+			LOGGER.error("#### Método: LancamentoResource.importar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+			
+			return ResponseEntity.badRequest().body("Não foi possível ler o arquivo enviado");
+		}
+	}
+
+	@GetMapping("/assincrono/{protocolo}")
+	public ResponseEntity obterSituacaoIngestao(@PathVariable("protocolo") String protocolo) {
+		
+		LOGGER.info("#### Método: LancamentoResource.obterSituacaoIngestao(), status: INICIO, protocolo: "+ protocolo);
+		
+		Optional<IngestaoDTO> ingestao = ingestaoService.obterSituacao(protocolo);
+		if (!ingestao.isPresent()) {
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(ingestao.get());
+	}
+
 	@PutMapping("{id}")
 	public ResponseEntity<Object> atualizar(@PathVariable("id") Long id, @RequestBody LancamentoDTO dto) {
 		
@@ -107,16 +307,22 @@ public class LancamentoResource {
 		
 		try {
 			
-			Lancamento atualLancamento = service.obterPorId(id).orElseThrow(() -> new RegraNegocioException("Lancamento não encontrado na base de Dados"));
+			// cópia desligada da sessão: o merge da atualização sobrescreve a entidade carregada aqui
+			Lancamento atualLancamento = LancamentoAlteradoEvent.copiar(service.obterPorId(id)
+					.orElseThrow(() -> new RegraNegocioException("Lancamento não encontrado na base de Dados")));
 			
 			Lancamento novoLancamento = converter(dto);
 			novoLancamento.setId(atualLancamento.getId());
+			if (dto.getCategorias() == null) {
+				novoLancamento.setCategorias(atualLancamento.getCategorias());
+			}
 			
 			novoLancamento = service.atualizar(novoLancamento);
+			List<Orcamento> excedidos = orcamentoService.verificar(atualLancamento, novoLancamento);
 			
-			LOGGER.info("#### Método: LancamentoResource.atualizar(), status: SUCESSO, idLancamentoAtualizado: "+ id);
+			LOGGER.info("#### Método: LancamentoResource.atualizar(), status: SUCESSO, idLancamentoAtualizado: "+ id + ", orcamentosExcedidos: "+ excedidos.size());
 			
-			return ResponseEntity.ok(novoLancamento);
+			return ResponseEntity.ok().headers(alertas(excedidos)).body(novoLancamento);
 		} catch (RegraNegocioException e) {
 			return ResponseEntity.badRequest().body(e.getMessage());
 		}
@@ -135,13 +341,13 @@ public class LancamentoResource {
 			
 			Lancamento lancamento = service.obterPorId(id).orElseThrow(() -> new RegraNegocioException("Lancamento não encontrado na base de Dados"));
 			
-			lancamento.setStatus(statusSelecionado);
-			
-			service.atualizar(lancamento);
+			Lancamento anterior = LancamentoAlteradoEvent.copiar(lancamento);
+			service.atualizarStatus(lancamento, statusSelecionado);
+			List<Orcamento> excedidos = orcamentoService.verificar(anterior, lancamento);
 			
 			LOGGER.info("#### Método: LancamentoResource.atualizarStatus(), status: SUCESSO, novoStatus: "+ statusSelecionado);
 			
-			return ResponseEntity.ok(lancamento);
+			return ResponseEntity.ok().headers(alertas(excedidos)).body(lancamento);
 		} catch (RegraNegocioException e) {
 			return ResponseEntity.badRequest().body(e.getMessage());
 		}
@@ -167,11 +373,78 @@ public class LancamentoResource {
 		}
 	}
 
+	@PostMapping("{id}/restauracao")
+	public ResponseEntity restaurar(@PathVariable("id") Long id, @RequestParam("usuario") Long idUsuario) {
+		
+		LOGGER.info("#### Método: LancamentoResource.restaurar(), status: INICIO, idLancamento: "+ id + ", idUsuario: "+ idUsuario);
+		
+		try {
+			
+			Lancamento lancamento = service.restaurar(idUsuario, id);
+			
+			LOGGER.info("#### Método: LancamentoResource.restaurar(), status: SUCESSO");
+			
+			return ResponseEntity.ok(converter(lancamento));
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@DeleteMapping
+	public ResponseEntity deletarPorFiltro(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "status", required = false) String status) {
+		
+		LOGGER.info("#### Método: LancamentoResource.deletarPorFiltro(), status: INICIO, idUsuario: "+ idUsuario + ", ano: "+ ano + ", mes: "+ mes + ", status: "+ status);
+		
+		try {
+			StatusLancamento statusFiltro = status == null ? null : StatusLancamento.valueOf(status.toUpperCase());
+			
+			int removidos = service.deletarPorFiltro(idUsuario, ano, mes, statusFiltro);
+			
+			LOGGER.info("#### Método: LancamentoResource.deletarPorFiltro(), status: SUCESSO, quantidadeRemovidos: "+ removidos);
+			
+			return ResponseEntity.ok(removidos);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Informe um status válido");
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@DeleteMapping("/lote")
+	public ResponseEntity deletarPorIds(@RequestParam("usuario") Long idUsuario, @RequestParam("ids") List<Long> ids) {
+		
+		LOGGER.info("#### Método: LancamentoResource.deletarPorIds(), status: INICIO, idUsuario: "+ idUsuario + ", quantidadeIds: "+ ids.size());
+		
+		try {
+			int removidos = service.deletarPorIds(idUsuario, ids);
+			
+			LOGGER.info("#### Método: LancamentoResource.deletarPorIds(), status: SUCESSO, quantidadeRemovidos: "+ removidos);
+			
+			return ResponseEntity.ok(removidos);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	private HttpHeaders alertas(List<Orcamento> excedidos) {
+		HttpHeaders headers = new HttpHeaders();
+		if (!excedidos.isEmpty()) {
+			headers.add(CABECALHO_ORCAMENTOS_EXCEDIDOS, excedidos.stream().map(orcamento -> orcamento.getId().toString())
+					.collect(Collectors.joining(",")));
+		}
+		return headers;
+	}
+
 	private LancamentoDTO converter(Lancamento lancamento) {
 		return LancamentoDTO.builder().id(lancamento.getId()).descricao(lancamento.getDescricao())
 				.valor(lancamento.getValor()).mes(lancamento.getMes()).ano(lancamento.getAno())
 				.status(lancamento.getStatus().name()).tipo(lancamento.getTipo().name())
-				.usuario(lancamento.getUsuario().getId()).build();
+				.usuario(lancamento.getUsuario().getId())
+				.categorias(Categoria.idsDe(lancamento.getUsuario().getId(), lancamento.getCategorias())).build();
 	}
 
 	private Lancamento converter(LancamentoDTO dto) {
@@ -187,6 +460,7 @@ public class LancamentoResource {
 				.orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para id informado."));
 
 		lancamento.setUsuario(usuario);
+		lancamento.setCategorias(categoriaService.obterMascara(usuario.getId(), dto.getCategorias()));
 		if (dto.getTipo() != null) {
 			lancamento.setTipo(TipoLancamento.valueOf(dto.getTipo().toUpperCase()));
 		}
@@ -196,10 +470,17 @@ public class LancamentoResource {
 		return lancamento;
 	}
 
-	public LancamentoResource(LancamentoService service, UsuarioService usuarioService) {
+	public LancamentoResource(LancamentoService service, UsuarioService usuarioService, IngestaoLancamentoService ingestaoService,
+			CategoriaService categoriaService, ImportacaoExtratoService importacaoService, OrcamentoService orcamentoService,
+			DiarioLancamentoService diarioService) {
 		super();
 		this.service = service;
 		this.usuarioService = usuarioService;
+		this.ingestaoService = ingestaoService;
+		this.categoriaService = categoriaService;
+		this.importacaoService = importacaoService;
+		this.orcamentoService = orcamentoService;
+		this.diarioService = diarioService;
 	}
 
 }
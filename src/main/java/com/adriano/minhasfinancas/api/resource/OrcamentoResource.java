@@ -0,0 +1,94 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.adriano.minhasfinancas.dto.OrcamentoDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.service.OrcamentoService;
+import com.adriano.minhasfinancas.service.UsuarioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/orcamentos")
+@RequiredArgsConstructor
+public class OrcamentoResource {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrcamentoResource.class);
+
+	private final OrcamentoService service;
+	private final UsuarioService usuarioService;
+
+	@GetMapping
+	public ResponseEntity listar(@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes) {
+
+		LOGGER.info("#### Método: OrcamentoResource.listar(), status: INICIO, idUsuario: "+ idUsuario + ", ano: "+ ano + ", mes: "+ mes);
+
+		List<OrcamentoDTO> orcamentos = service.listar(idUsuario, ano, mes).stream().map(this::converter).collect(Collectors.toList());
+		return ResponseEntity.ok(orcamentos);
+	}
+
+	@PostMapping
+	public ResponseEntity salvar(@RequestBody OrcamentoDTO dto) {
+
+		LOGGER.info("#### Método: OrcamentoResource.salvar(), status: INICIO, idUsuario: "+ dto.getUsuario() + ", ano: "+ dto.getAno() + ", mes: "+ dto.getMes() + ", limite: "+ dto.getLimite());
+
+		try {
+			Usuario usuario = usuarioService.obterPorId(dto.getUsuario())
+					.orElseThrow(() -> new RegraNegocioException("Usuario não encontrado para id informado."));
+			Orcamento orcamento = service.salvar(Orcamento.builder().usuario(usuario).ano(dto.getAno()).mes(dto.getMes())
+					.idCategoria(dto.getCategoria()).limite(dto.getLimite()).build());
+
+			LOGGER.info("#### Método: OrcamentoResource.salvar(), status: SUCESSO, idOrcamento: "+ orcamento.getId());
+
+			return new ResponseEntity(converter(orcamento), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+
+			LOGGER.info("#### Método: OrcamentoResource.salvar(), status: ERROR, mensagemError: "+ e.getMessage());
+
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@DeleteMapping("{id}")
+	public ResponseEntity deletar(@PathVariable("id") Long id) {
+
+		LOGGER.info("#### Método: OrcamentoResource.deletar(), status: INICIO, idOrcamento: "+ id);
+
+		Optional<Orcamento> orcamento = service.obterPorId(id);
+		if (!orcamento.isPresent()) {
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		service.deletar(orcamento.get());
+
+		LOGGER.info("#### Método: OrcamentoResource.deletar(), status: SUCESSO");
+
+		return ResponseEntity.noContent().build();
+	}
+
+	private OrcamentoDTO converter(Orcamento orcamento) {
+		return OrcamentoDTO.builder().id(orcamento.getId()).usuario(orcamento.getUsuario().getId())
+				.ano(orcamento.getAno()).mes(orcamento.getMes()).categoria(orcamento.getIdCategoria())
+				.limite(orcamento.getLimite()).gasto(service.obterGasto(orcamento)).build();
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.adriano.minhasfinancas.dto.RebalanceamentoDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.shard.RoteadorShard;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/shards")
+@Profile("sharding")
+@RequiredArgsConstructor
+public class ShardResource {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardResource.class);
+
+	private final RoteadorShard roteador;
+
+	@GetMapping
+	public ResponseEntity obterSituacao() {
+		
+		LOGGER.info("#### Método: ShardResource.obterSituacao(), status: INICIO");
+		
+		return ResponseEntity.ok(roteador.obterProgresso());
+	}
+
+	@PostMapping("/rebalanceamento")
+	public ResponseEntity rebalancear(@RequestParam("ativos") List<String> ativos) {
+		
+		LOGGER.info("#### Método: ShardResource.rebalancear(), status: INICIO, ativos: "+ ativos);
+		
+		try {
+			RebalanceamentoDTO progresso = roteador.rebalancear(ativos);
+			return ResponseEntity.status(HttpStatus.ACCEPTED).body(progresso);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+}
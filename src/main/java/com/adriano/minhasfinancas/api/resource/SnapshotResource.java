@@ -0,0 +1,66 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.adriano.minhasfinancas.dto.ProgressoSnapshotDTO;
+import com.adriano.minhasfinancas.service.SnapshotSaldoService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/snapshots/saldo")
+@RequiredArgsConstructor
+public class SnapshotResource {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotResource.class);
+
+	private final SnapshotSaldoService service;
+
+	@PostMapping
+	public ResponseEntity gerar(@RequestParam(value = "data", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate data) {
+		
+		if (data == null) {
+			data = LocalDate.now();
+		}
+		
+		LOGGER.info("#### Método: SnapshotResource.gerar(), status: INICIO, dataReferencia: "+ data);
+		
+		if (!service.iniciar(data)) {
+			
+			LOGGER.info("#### Método: SnapshotResource.gerar(), status: WARNING, mensagemWarning: geração já em andamento");
+			
+			return ResponseEntity.status(HttpStatus.CONFLICT).body("Já existe uma geração de snapshot de saldo em andamento.");
+		}
+		return new ResponseEntity(HttpStatus.ACCEPTED);
+	}
+
+	@GetMapping
+	public ResponseEntity obterProgresso(@RequestParam(value = "data", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate data) {
+		
+		if (data == null) {
+			data = LocalDate.now();
+		}
+		
+		LOGGER.info("#### Método: SnapshotResource.obterProgresso(), status: INICIO, dataReferencia: "+ data);
+		
+		Optional<ProgressoSnapshotDTO> progresso = service.obterProgresso(data);
+		if (!progresso.isPresent()) {
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(progresso.get());
+	}
+
+}
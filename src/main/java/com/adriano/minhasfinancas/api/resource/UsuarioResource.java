@@ -1,24 +1,49 @@
 package com.adriano.minhasfinancas.api.resource;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.adriano.minhasfinancas.coalescencia.ChamadasUnicas;
+import com.adriano.minhasfinancas.dto.ArquivoExtratoDTO;
+import com.adriano.minhasfinancas.dto.PainelDTO;
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
 import com.adriano.minhasfinancas.dto.UsuarioDTO;
 import com.adriano.minhasfinancas.exception.ErroAutenticacao;
 import com.adriano.minhasfinancas.exception.RegraNegocioException;
 import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+import com.adriano.minhasfinancas.service.CategoriaService;
+import com.adriano.minhasfinancas.service.ExtratoMensalService;
 import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.NotificacaoService;
+import com.adriano.minhasfinancas.service.PainelService;
+import com.adriano.minhasfinancas.service.ResumoLancamentoService;
 import com.adriano.minhasfinancas.service.UsuarioService;
 
 import lombok.RequiredArgsConstructor;
@@ -30,8 +55,20 @@ public class UsuarioResource {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UsuarioResource.class);
 	
+	private static final int MAXIMO_ULTIMOS_LANCAMENTOS = 100;
+	
+	// limites dos anos aceitos num lançamento (quatro dígitos)
+	private static final YearMonth PRIMEIRO_MES = YearMonth.of(1000, 1);
+	private static final YearMonth ULTIMO_MES = YearMonth.of(9999, 12);
+	
 	private final UsuarioService service;
 	private final LancamentoService lancamentoService;
+	private final ResumoLancamentoService resumoService;
+	private final NotificacaoService notificacaoService;
+	private final CategoriaService categoriaService;
+	private final ChamadasUnicas chamadasUnicas;
+	private final PainelService painelService;
+	private final ExtratoMensalService extratoService;
 
 	@PostMapping("/autenticar")
 	public ResponseEntity autenticar(@RequestBody UsuarioDTO dto) {
@@ -72,10 +109,13 @@ public class UsuarioResource {
 		}
 	}
 
+	// sem "de" e "ate" é o saldo de todo o período; com um só deles o período fica aberto do outro lado
 	@GetMapping("{id}/saldo")
-	public ResponseEntity obterSaldo(@PathVariable("id") Long id) {
+	public ResponseEntity obterSaldo(@PathVariable("id") Long id,
+			@RequestParam(value = "de", required = false) String de,
+			@RequestParam(value = "ate", required = false) String ate) {
 		
-		LOGGER.info("#### Método: UsuarioResource.obterSaldo(), status: INICIO, idUsuario: "+ id);
+		LOGGER.info("#### Método: UsuarioResource.obterSaldo(), status: INICIO, idUsuario: "+ id + ", de: "+ de + ", ate: "+ ate);
 		
 		Optional<Usuario> usuario = service.obterPorId(id);
 
@@ -85,11 +125,192 @@ public class UsuarioResource {
 			return new ResponseEntity(HttpStatus.NOT_FOUND);
 		}
 
-		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
+		try {
+			BigDecimal saldo = de == null && ate == null
+					? lancamentoService.obterSaldoPorUsuario(id)
+					: resumoService.obterSaldoDoPeriodo(id, de == null ? PRIMEIRO_MES : YearMonth.parse(de),
+							ate == null ? ULTIMO_MES : YearMonth.parse(ate));
+			
+			LOGGER.info("#### Método: UsuarioResource.obterSaldo(), status: SUCESSO, saldo: "+ saldo);
+			
+			return ResponseEntity.ok(saldo);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe os meses no formato AAAA-MM");
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: UsuarioResource.obterSaldo(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// quantas chamadas de saldo e totais foram atendidas por um cálculo já em andamento
+	@GetMapping("/coalescencia")
+	public ResponseEntity obterCoalescencia() {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterCoalescencia(), status: INICIO");
+		
+		return ResponseEntity.ok(chamadasUnicas.obterEstatisticas());
+	}
+
+	@GetMapping("{id}/saldo/serie")
+	public ResponseEntity obterSerieSaldo(@PathVariable("id") Long id,
+			@RequestParam("de") String de,
+			@RequestParam("ate") String ate) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterSerieSaldo(), status: INICIO, idUsuario: "+ id + ", de: "+ de + ", ate: "+ ate);
+		
+		Optional<Usuario> usuario = service.obterPorId(id);
+
+		if (!usuario.isPresent()) {
+			
+			LOGGER.info("#### Método: UsuarioResource.obterSerieSaldo(), status: WARNING, mensagemWarning: usuário não encontrado para o id "+id);
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		
+		try {
+			List<SaldoMensalDTO> serie = lancamentoService.obterSerieSaldo(id, YearMonth.parse(de), YearMonth.parse(ate));
+			
+			LOGGER.info("#### Método: UsuarioResource.obterSerieSaldo(), status: SUCESSO, quantidadeMeses: "+ serie.size());
+			
+			return ResponseEntity.ok(serie);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe os meses no formato AAAA-MM");
+		} catch (RegraNegocioException e) {
+			
+			LOGGER.info("#### Método: UsuarioResource.obterSerieSaldo(), status: ERROR, mensagemError: "+ e.getMessage());
+			
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// tela inicial numa só chamada; as seções que não respondem a tempo vêm vazias
+	@GetMapping("{id}/painel")
+	public ResponseEntity obterPainel(@PathVariable("id") Long id,
+			@RequestParam(value = "mes", required = false) String mes,
+			@RequestParam(value = "ultimos", defaultValue = "10") int ultimos) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterPainel(), status: INICIO, idUsuario: "+ id + ", mes: "+ mes + ", ultimos: "+ ultimos);
+		
+		if (!service.obterPorId(id).isPresent()) {
+			
+			LOGGER.info("#### Método: UsuarioResource.obterPainel(), status: WARNING, mensagemWarning: usuário não encontrado para o id "+id);
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		if (ultimos < 1 || ultimos > MAXIMO_ULTIMOS_LANCAMENTOS) {
+			return ResponseEntity.badRequest().body("Informe de 1 a " + MAXIMO_ULTIMOS_LANCAMENTOS + " últimos lançamentos.");
+		}
+		try {
+			PainelDTO painel = painelService.obterPainel(id, mes == null ? YearMonth.now() : YearMonth.parse(mes), ultimos);
+			return ResponseEntity.ok(painel);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe o mês no formato AAAA-MM");
+		}
+	}
+
+	// extrato gerado uma vez por versão do mês; o arquivo já comprimido vai direto a quem aceita gzip
+	@GetMapping("{id}/extratos/{mes}")
+	public ResponseEntity obterExtrato(@PathVariable("id") Long id, @PathVariable("mes") String mes,
+			@RequestParam(value = "formato", defaultValue = "csv") String formato,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacoesAceitas,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String etagCliente) throws IOException {
 		
-		LOGGER.info("#### Método: UsuarioResource.obterSaldo(), status: SUCESSO, saldo: "+ saldo);
+		LOGGER.info("#### Método: UsuarioResource.obterExtrato(), status: INICIO, idUsuario: "+ id + ", mes: "+ mes + ", formato: "+ formato);
 		
-		return ResponseEntity.ok(saldo);
+		if (!service.obterPorId(id).isPresent()) {
+			
+			LOGGER.info("#### Método: UsuarioResource.obterExtrato(), status: WARNING, mensagemWarning: usuário não encontrado para o id "+id);
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		YearMonth mesExtrato;
+		FormatoExtratoMensal formatoExtrato;
+		try {
+			mesExtrato = YearMonth.parse(mes);
+			formatoExtrato = FormatoExtratoMensal.valueOf(formato.toUpperCase());
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body("Informe o mês no formato AAAA-MM");
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Informe o formato csv ou html");
+		}
+		boolean gzip = codificacoesAceitas != null && codificacoesAceitas.contains("gzip");
+		// uma regeração pode apagar o arquivo entre a consulta e a abertura; nesse caso vale o novo
+		for (int tentativa = 0; tentativa < 2; tentativa++) {
+			Optional<ArquivoExtratoDTO> arquivo = extratoService.obter(id, mesExtrato, formatoExtrato);
+			if (!arquivo.isPresent()) {
+				return ResponseEntity.status(HttpStatus.ACCEPTED).header(HttpHeaders.RETRY_AFTER, "2")
+						.body("Extrato em geração, tente novamente em instantes.");
+			}
+			String hash = arquivo.get().getHash();
+			String etag = "\"" + hash + (gzip ? "-gzip" : "") + "\"";
+			if (etagCliente != null && etagCliente.contains(hash)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+			}
+			InputStream conteudo;
+			try {
+				conteudo = Files.newInputStream(arquivo.get().getArquivo());
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+			ResponseEntity.BodyBuilder resposta = ResponseEntity.ok().eTag(etag)
+					.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+					.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + arquivo.get().getNome() + "\"")
+					.contentType(MediaType.parseMediaType(formatoExtrato.getTipoConteudo()));
+			if (gzip) {
+				return resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(new InputStreamResource(conteudo));
+			}
+			return resposta.body(new InputStreamResource(new GZIPInputStream(conteudo)));
+		}
+		return ResponseEntity.status(HttpStatus.ACCEPTED).header(HttpHeaders.RETRY_AFTER, "2")
+				.body("Extrato em geração, tente novamente em instantes.");
+	}
+
+	@GetMapping("{id}/totais/tipo")
+	public ResponseEntity obterTotaisPorTipo(@PathVariable("id") Long id) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterTotaisPorTipo(), status: INICIO, idUsuario: "+ id);
+		
+		return ResponseEntity.ok(resumoService.obterTotaisPorTipo(id));
+	}
+
+	@GetMapping("{id}/totais/status")
+	public ResponseEntity obterTotaisPorStatus(@PathVariable("id") Long id) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterTotaisPorStatus(), status: INICIO, idUsuario: "+ id);
+		
+		return ResponseEntity.ok(resumoService.obterTotaisPorStatus(id));
+	}
+
+	@GetMapping("{id}/totais/mes")
+	public ResponseEntity obterTotaisPorMes(@PathVariable("id") Long id,
+			@RequestParam(value = "ano", required = false) Integer ano) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterTotaisPorMes(), status: INICIO, idUsuario: "+ id + ", ano: "+ ano);
+		
+		if (ano == null) {
+			ano = LocalDate.now().getYear();
+		}
+		return ResponseEntity.ok(resumoService.obterTotaisPorMes(id, ano));
+	}
+
+	@GetMapping("{id}/totais/categoria")
+	public ResponseEntity obterTotaisPorCategoria(@PathVariable("id") Long id) {
+		
+		LOGGER.info("#### Método: UsuarioResource.obterTotaisPorCategoria(), status: INICIO, idUsuario: "+ id);
+		
+		return ResponseEntity.ok(categoriaService.obterTotais(id));
+	}
+
+	@GetMapping(value = "{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> assinarEventos(@PathVariable("id") Long id) {
+		
+		LOGGER.info("#### Método: UsuarioResource.assinarEventos(), status: INICIO, idUsuario: "+ id);
+		
+		if (!service.obterPorId(id).isPresent()) {
+			
+			LOGGER.info("#### Método: UsuarioResource.assinarEventos(), status: WARNING, mensagemWarning: usuário não encontrado para o id "+id);
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(notificacaoService.assinar(id));
 	}
 
 }
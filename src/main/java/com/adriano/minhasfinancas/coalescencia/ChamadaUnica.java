@@ -0,0 +1,103 @@
+package com.adriano.minhasfinancas.coalescencia;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.adriano.minhasfinancas.dto.CoalescenciaDTO;
+
+/**
+ * Junta chamadas simultâneas com a mesma chave num único cálculo: a primeira calcula na própria
+ * thread e as que chegam enquanto isso esperam pelo mesmo resultado (ou pela mesma exceção).
+ * O mapa de cálculos em andamento é um {@link ConcurrentHashMap}, então chaves diferentes não disputam
+ * a mesma trava. Quem espera mais que {@code esperaMs} desiste e calcula por conta própria.
+ */
+public final class ChamadaUnica<K, V> {
+
+	private final String nome;
+
+	private final long esperaMs;
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+	private final LongAdder chamadas = new LongAdder();
+
+	private final LongAdder calculos = new LongAdder();
+
+	private final LongAdder compartilhadas = new LongAdder();
+
+	private final LongAdder expiradas = new LongAdder();
+
+	private final LongAdder erros = new LongAdder();
+
+	ChamadaUnica(String nome, long esperaMs) {
+		this.nome = nome;
+		this.esperaMs = esperaMs;
+	}
+
+	public V executar(K chave, Supplier<V> calculo) {
+		chamadas.increment();
+		CompletableFuture<V> proprio = new CompletableFuture<>();
+		CompletableFuture<V> existente = emAndamento.putIfAbsent(chave, proprio);
+		if (existente == null) {
+			return calcular(chave, proprio, calculo);
+		}
+		try {
+			V valor = existente.get(esperaMs, TimeUnit.MILLISECONDS);
+			compartilhadas.increment();
+			return valor;
+		} catch (TimeoutException e) {
+			expiradas.increment();
+			calculos.increment();
+			return calculo.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Espera pelo cálculo de " + nome + " interrompida.", e);
+		} catch (ExecutionException e) {
+			compartilhadas.increment();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Faz as próximas chamadas da chave ignorarem o cálculo em andamento; usado quando uma escrita
+	 * confirmada torna o resultado dele possivelmente desatualizado.
+	 */
+	public void esquecer(K chave) {
+		emAndamento.remove(chave);
+	}
+
+	public CoalescenciaDTO obterEstatisticas() {
+		long total = chamadas.sum();
+		long juntas = compartilhadas.sum();
+		return CoalescenciaDTO.builder().nome(nome).chamadas(total).calculos(calculos.sum())
+				.compartilhadas(juntas).expiradas(expiradas.sum()).erros(erros.sum())
+				.taxaCoalescencia(total == 0 ? 0d : (double) juntas / total).build();
+	}
+
+	private V calcular(K chave, CompletableFuture<V> proprio, Supplier<V> calculo) {
+		calculos.increment();
+		try {
+			V valor = calculo.get();
+			proprio.complete(valor);
+			return valor;
+		} catch (RuntimeException | Error e) {
+			erros.increment();
+			proprio.completeExceptionally(e);
+			throw e;
+		} finally {
+			emAndamento.remove(chave, proprio);
+		}
+	}
+
+}
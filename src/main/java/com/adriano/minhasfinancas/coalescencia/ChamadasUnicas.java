@@ -0,0 +1,34 @@
+package com.adriano.minhasfinancas.coalescencia;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.adriano.minhasfinancas.dto.CoalescenciaDTO;
+
+/** Cria as {@link ChamadaUnica} dos serviços e reúne as estatísticas de todas elas. */
+@Component
+public class ChamadasUnicas {
+
+	private final long esperaMs;
+
+	private final List<ChamadaUnica<?, ?>> criadas = new CopyOnWriteArrayList<>();
+
+	public ChamadasUnicas(@Value("${minhasfinancas.coalescencia.espera-ms:2000}") long esperaMs) {
+		this.esperaMs = esperaMs;
+	}
+
+	public <K, V> ChamadaUnica<K, V> criar(String nome) {
+		ChamadaUnica<K, V> chamada = new ChamadaUnica<>(nome, esperaMs);
+		criadas.add(chamada);
+		return chamada;
+	}
+
+	public List<CoalescenciaDTO> obterEstatisticas() {
+		return criadas.stream().map(ChamadaUnica::obterEstatisticas).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.adriano.minhasfinancas.config;
+
+import java.util.List;
+
+import org.hibernate.QueryException;
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+
+/**
+ * Funções SQL usadas nas consultas JPQL/Criteria que não existem igualmente em todos os bancos.
+ * Registrado por hibernate.metadata_builder_contributor.
+ */
+public class FuncoesSqlContributor implements MetadataBuilderContributor {
+
+	@Override
+	public void contribute(MetadataBuilder metadataBuilder) {
+		metadataBuilder.applySqlFunction("bitand", new BitAnd());
+	}
+
+	/** E bit a bit: operador &amp; no PostgreSQL, função bitand no H2 e no Oracle. */
+	static class BitAnd implements SQLFunction {
+
+		@Override
+		public boolean hasArguments() {
+			return true;
+		}
+
+		@Override
+		public boolean hasParenthesesIfNoArguments() {
+			return true;
+		}
+
+		@Override
+		public Type getReturnType(Type firstArgumentType, Mapping mapping) {
+			return StandardBasicTypes.LONG;
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public String render(Type firstArgumentType, List arguments, SessionFactoryImplementor factory) {
+			if (arguments.size() != 2) {
+				throw new QueryException("bitand exige dois argumentos");
+			}
+			if (factory.getJdbcServices().getDialect() instanceof PostgreSQL81Dialect) {
+				return "(" + arguments.get(0) + " & " + arguments.get(1) + ")";
+			}
+			return "bitand(" + arguments.get(0) + ", " + arguments.get(1) + ")";
+		}
+	}
+
+}
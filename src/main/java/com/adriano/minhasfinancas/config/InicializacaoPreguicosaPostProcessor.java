@@ -0,0 +1,64 @@
+package com.adriano.minhasfinancas.config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Marca como lazy os beans da aplicação, adiando a criação para o primeiro uso.
+ * Beans com métodos @Scheduled e SmartInitializingSingleton continuam eager, pois só
+ * funcionam se forem criados na subida do contexto.
+ */
+public class InicializacaoPreguicosaPostProcessor implements BeanFactoryPostProcessor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InicializacaoPreguicosaPostProcessor.class);
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		int preguicosos = 0;
+		for (String nome : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition definicao = beanFactory.getBeanDefinition(nome);
+			if (definicao.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || !definicao.isSingleton()
+					|| definicao.isLazyInit() || precisaSerEager(definicao, beanFactory.getBeanClassLoader())) {
+				continue;
+			}
+			definicao.setLazyInit(true);
+			preguicosos++;
+		}
+
+		LOGGER.info("#### Método: InicializacaoPreguicosaPostProcessor.postProcessBeanFactory(), status: SUCESSO, beansLazy: "+ preguicosos);
+	}
+
+	static boolean precisaSerEager(BeanDefinition definicao, ClassLoader classLoader) {
+		String nomeClasse = definicao.getBeanClassName();
+		if (definicao instanceof AnnotatedBeanDefinition) {
+			MethodMetadata fabrica = ((AnnotatedBeanDefinition) definicao).getFactoryMethodMetadata();
+			if (fabrica != null) {
+				nomeClasse = fabrica.getReturnTypeName();
+			}
+		}
+		if (nomeClasse == null || !ClassUtils.isPresent(nomeClasse, classLoader)) {
+			return false;
+		}
+		Class<?> classe = ClassUtils.resolveClassName(nomeClasse, classLoader);
+		if (SmartInitializingSingleton.class.isAssignableFrom(classe)) {
+			return true;
+		}
+		AtomicBoolean agendado = new AtomicBoolean();
+		ReflectionUtils.doWithMethods(classe, metodo -> agendado.set(true),
+				metodo -> metodo.isAnnotationPresent(Scheduled.class));
+		return agendado.get();
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.adriano.minhasfinancas.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.Filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Perfil "rapido": usado pelos nós adicionados pelo autoscaler, prioriza o tempo de subida.
+ */
+@Configuration
+@Profile("rapido")
+public class InicializacaoRapidaConfig {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InicializacaoRapidaConfig.class);
+
+	@Bean
+	public static InicializacaoPreguicosaPostProcessor inicializacaoPreguicosaPostProcessor() {
+		return new InicializacaoPreguicosaPostProcessor();
+	}
+
+	@Bean
+	public Filter primeiraRequisicaoFilter() {
+		AtomicBoolean registrado = new AtomicBoolean();
+		return (request, response, chain) -> {
+			chain.doFilter(request, response);
+			if (!registrado.get() && registrado.compareAndSet(false, true)) {
+
+				LOGGER.info("#### Inicialização: fase: primeira-requisicao, duracaoMs: "+ ManagementFactory.getRuntimeMXBean().getUptime());
+
+			}
+		};
+	}
+
+	/** Execução de treino do arquivo CDS: sobe o contexto, carrega as classes e encerra. */
+	@Bean
+	@ConditionalOnProperty("minhasfinancas.inicializacao.encerrar-apos-iniciar")
+	public ApplicationListener<ApplicationReadyEvent> encerrarAposIniciar() {
+		return evento -> {
+
+			LOGGER.info("#### Método: InicializacaoRapidaConfig.encerrarAposIniciar(), status: SUCESSO, mensagem: execução de treino concluída");
+
+			System.exit(SpringApplication.exit(evento.getApplicationContext()));
+		};
+	}
+
+}
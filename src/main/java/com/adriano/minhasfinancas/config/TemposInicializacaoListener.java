@@ -0,0 +1,75 @@
+package com.adriano.minhasfinancas.config;
+
+import java.lang.management.ManagementFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Registra a duração de cada fase da subida, usada no CI para acompanhar o tempo até a primeira requisição.
+ * Registrado em META-INF/spring.factories para pegar as fases anteriores à criação do contexto.
+ */
+public class TemposInicializacaoListener implements SpringApplicationRunListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TemposInicializacaoListener.class);
+
+	private long inicioFase = System.nanoTime();
+
+	private long jvmMs;
+
+	public TemposInicializacaoListener(SpringApplication application, String[] args) {
+	}
+
+	@Override
+	public void starting() {
+		jvmMs = ManagementFactory.getRuntimeMXBean().getUptime();
+	}
+
+	@Override
+	public void environmentPrepared(ConfigurableEnvironment environment) {
+		// o logging só é configurado nesta fase, então o tempo da JVM é registrado aqui
+		registrar("jvm", jvmMs);
+		registrarFase("ambiente");
+	}
+
+	@Override
+	public void contextPrepared(ConfigurableApplicationContext context) {
+		registrarFase("contexto-preparado");
+	}
+
+	@Override
+	public void contextLoaded(ConfigurableApplicationContext context) {
+		registrarFase("definicoes-carregadas");
+	}
+
+	@Override
+	public void started(ConfigurableApplicationContext context) {
+		registrarFase("contexto-atualizado");
+	}
+
+	@Override
+	public void running(ConfigurableApplicationContext context) {
+		registrarFase("runners");
+		registrar("total", ManagementFactory.getRuntimeMXBean().getUptime());
+	}
+
+	@Override
+	public void failed(ConfigurableApplicationContext context, Throwable exception) {
+		registrarFase("falha");
+	}
+
+	private void registrarFase(String fase) {
+		long agora = System.nanoTime();
+		registrar(fase, (agora - inicioFase) / 1_000_000);
+		inicioFase = agora;
+	}
+
+	private void registrar(String fase, long duracaoMs) {
+		LOGGER.info("#### Inicialização: fase: "+ fase + ", duracaoMs: "+ duracaoMs);
+	}
+
+}
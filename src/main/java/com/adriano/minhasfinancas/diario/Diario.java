@@ -0,0 +1,259 @@
+package com.adriano.minhasfinancas.diario;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+
+/**
+ * Diário de alterações de lançamentos, só de acréscimo, em segmentos mapeados em memória.
+ * <ul>
+ * <li>uma única thread grava ({@link #acrescentar}) e decide quando forçar para o disco ({@link #forcar}),
+ * o que permite confirmar um lote inteiro de registros com uma só sincronização;</li>
+ * <li>retratos periódicos guardam o saldo de todos os usuários numa sequência; o saldo num instante
+ * é o do último retrato anterior mais a reprodução dos registros seguintes até o instante;</li>
+ * <li>a compactação remove os segmentos e retratos mais antigos que os retratos mantidos.</li>
+ * </ul>
+ */
+public class Diario implements AutoCloseable {
+
+	private static final String PREFIXO_SEGMENTO = "segmento-";
+
+	private static final String PREFIXO_RETRATO = "retrato-";
+
+	private static final String EXTENSAO = ".diario";
+
+	private final Path diretorio;
+
+	private final int registrosPorSegmento;
+
+	private final FileChannel canalTrava;
+
+	private final FileLock trava;
+
+	private final List<SegmentoDiario> segmentos = new CopyOnWriteArrayList<>();
+
+	private final List<RetratoDiario> retratos = new CopyOnWriteArrayList<>();
+
+	private long ultimoInstante;
+
+	public Diario(Path diretorio, int registrosPorSegmento) throws IOException {
+		this.diretorio = diretorio;
+		this.registrosPorSegmento = registrosPorSegmento;
+		Files.createDirectories(diretorio);
+		canalTrava = FileChannel.open(diretorio.resolve("diario.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		trava = canalTrava.tryLock();
+		if (trava == null) {
+			canalTrava.close();
+			throw new IllegalStateException("O diário em " + diretorio + " já está aberto por outro processo.");
+		}
+		for (Path arquivo : arquivos(PREFIXO_RETRATO)) {
+			retratos.add(RetratoDiario.abrir(arquivo));
+		}
+		for (Path arquivo : arquivos(PREFIXO_SEGMENTO)) {
+			segmentos.add(SegmentoDiario.abrir(arquivo, numero(arquivo, PREFIXO_SEGMENTO), registrosPorSegmento));
+		}
+		SegmentoDiario ultimo = ultimoSegmento();
+		if (ultimo != null && ultimo.quantidade() > 0) {
+			ultimoInstante = ultimo.instante(ultimo.quantidade() - 1);
+		}
+	}
+
+	public boolean vazio() {
+		return retratos.isEmpty();
+	}
+
+	public long proximaSequencia() {
+		SegmentoDiario ultimo = ultimoSegmento();
+		if (ultimo != null) {
+			return ultimo.proximaSequencia();
+		}
+		return retratos.isEmpty() ? 1 : retratos.get(retratos.size() - 1).sequencia() + 1;
+	}
+
+	/**
+	 * Acrescenta o registro com a próxima sequência e um instante nunca anterior ao do registro
+	 * anterior. Deve ser chamado sempre pela mesma thread.
+	 */
+	public RegistroDiario acrescentar(RegistroDiario registro) throws IOException {
+		SegmentoDiario segmento = ultimoSegmento();
+		if (segmento == null || segmento.cheio()) {
+			if (segmento != null) {
+				segmento.forcar();
+			}
+			long sequencia = proximaSequencia();
+			segmento = SegmentoDiario.abrir(diretorio.resolve(nome(PREFIXO_SEGMENTO, sequencia)), sequencia, registrosPorSegmento);
+			segmentos.add(segmento);
+		}
+		ultimoInstante = Math.max(ultimoInstante, registro.getInstante().toEpochMilli());
+		registro.setSequencia(segmento.proximaSequencia());
+		registro.setInstante(Instant.ofEpochMilli(ultimoInstante));
+		segmento.gravar(registro);
+		return registro;
+	}
+
+	public void forcar() {
+		SegmentoDiario segmento = ultimoSegmento();
+		if (segmento != null) {
+			segmento.forcar();
+		}
+	}
+
+	/** Retrato dos saldos (em centavos) depois do último registro acrescentado. */
+	public void gravarRetrato(Map<Long, Long> saldos, Instant instante) throws IOException {
+		forcar();
+		long sequencia = proximaSequencia() - 1;
+		long momento = Math.max(ultimoInstante, instante.toEpochMilli());
+		ultimoInstante = momento;
+		retratos.add(RetratoDiario.gravar(diretorio.resolve(nome(PREFIXO_RETRATO, sequencia)), sequencia, momento, saldos));
+	}
+
+	/** Carrega os saldos do último retrato e reproduz os registros seguintes, para retomar a gravação. */
+	public void reproduzir(Map<Long, Long> saldos) {
+		if (retratos.isEmpty()) {
+			return;
+		}
+		RetratoDiario retrato = retratos.get(retratos.size() - 1);
+		retrato.carregar(saldos);
+		for (SegmentoDiario segmento : segmentos) {
+			for (int i = indiceApos(segmento, retrato.sequencia()); i < segmento.quantidade(); i++) {
+				long idUsuario = segmento.usuario(i);
+				long variacao = segmento.variacaoSaldo(i);
+				saldos.put(idUsuario, segmento.saldoAbsoluto(i) ? variacao : saldos.getOrDefault(idUsuario, 0L) + variacao);
+			}
+		}
+	}
+
+	/** Saldo do usuário em centavos no instante informado. */
+	public long saldoEm(long idUsuario, Instant instante) {
+		long momento = instante.toEpochMilli();
+		RetratoDiario retrato = null;
+		for (RetratoDiario candidato : retratos) {
+			if (candidato.instante() <= momento) {
+				retrato = candidato;
+			}
+		}
+		if (retrato == null) {
+			throw new RegraNegocioException("O diário só tem o histórico a partir de "
+					+ (retratos.isEmpty() ? Instant.now() : Instant.ofEpochMilli(retratos.get(0).instante())));
+		}
+		long saldo = retrato.saldo(idUsuario);
+		for (SegmentoDiario segmento : segmentos) {
+			if (segmento.proximaSequencia() <= retrato.sequencia() + 1) {
+				continue;
+			}
+			int fim = segmento.posteriorA(momento);
+			for (int i = indiceApos(segmento, retrato.sequencia()); i < fim; i++) {
+				if (segmento.usuario(i) == idUsuario) {
+					long variacao = segmento.variacaoSaldo(i);
+					saldo = segmento.saldoAbsoluto(i) ? variacao : saldo + variacao;
+				}
+			}
+			if (fim < segmento.quantidade()) {
+				break;
+			}
+		}
+		return saldo;
+	}
+
+	/** Registros do usuário com instante entre {@code de} e {@code ate}, na ordem de gravação. */
+	public List<RegistroDiario> registros(long idUsuario, Instant de, Instant ate, int limite) {
+		List<RegistroDiario> encontrados = new ArrayList<>();
+		long inicio = de.toEpochMilli();
+		long fim = ate.toEpochMilli();
+		for (SegmentoDiario segmento : segmentos) {
+			int quantidade = segmento.quantidade();
+			if (quantidade == 0 || segmento.instante(quantidade - 1) < inicio) {
+				continue;
+			}
+			for (int i = segmento.posteriorA(inicio - 1); i < quantidade; i++) {
+				if (segmento.instante(i) > fim) {
+					return encontrados;
+				}
+				if (segmento.usuario(i) == idUsuario) {
+					encontrados.add(segmento.ler(i));
+					if (encontrados.size() == limite) {
+						return encontrados;
+					}
+				}
+			}
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Mantém só os {@code retratosMantidos} retratos mais recentes e remove os segmentos inteiramente
+	 * cobertos pelo mais antigo deles; o histórico anterior deixa de poder ser consultado.
+	 */
+	public int compactar(int retratosMantidos) throws IOException {
+		if (retratosMantidos <= 0 || retratos.size() <= retratosMantidos) {
+			return 0;
+		}
+		List<RetratoDiario> antigos = new ArrayList<>(retratos.subList(0, retratos.size() - retratosMantidos));
+		long coberto = retratos.get(retratos.size() - retratosMantidos).sequencia();
+		retratos.removeAll(antigos);
+		for (RetratoDiario retrato : antigos) {
+			retrato.excluir();
+		}
+		List<SegmentoDiario> removidos = new ArrayList<>();
+		for (SegmentoDiario segmento : segmentos) {
+			if (segmento != ultimoSegmento() && segmento.proximaSequencia() - 1 <= coberto) {
+				removidos.add(segmento);
+			}
+		}
+		segmentos.removeAll(removidos);
+		for (SegmentoDiario segmento : removidos) {
+			segmento.excluir();
+		}
+		return removidos.size();
+	}
+
+	public int quantidadeSegmentos() {
+		return segmentos.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		forcar();
+		trava.release();
+		canalTrava.close();
+	}
+
+	private SegmentoDiario ultimoSegmento() {
+		return segmentos.isEmpty() ? null : segmentos.get(segmentos.size() - 1);
+	}
+
+	private static int indiceApos(SegmentoDiario segmento, long sequencia) {
+		return (int) Math.max(0, Math.min(segmento.quantidade(), sequencia + 1 - segmento.primeiraSequencia()));
+	}
+
+	private List<Path> arquivos(String prefixo) throws IOException {
+		List<Path> arquivos = new ArrayList<>();
+		try (DirectoryStream<Path> conteudo = Files.newDirectoryStream(diretorio, prefixo + "*" + EXTENSAO)) {
+			conteudo.forEach(arquivos::add);
+		}
+		arquivos.sort(Comparator.comparingLong(arquivo -> numero(arquivo, prefixo)));
+		return arquivos;
+	}
+
+	private static long numero(Path arquivo, String prefixo) {
+		String nome = arquivo.getFileName().toString();
+		return Long.parseLong(nome.substring(prefixo.length(), nome.length() - EXTENSAO.length()));
+	}
+
+	private static String nome(String prefixo, long sequencia) {
+		return String.format("%s%020d%s", prefixo, sequencia, EXTENSAO);
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.adriano.minhasfinancas.diario;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoRegistroDiario;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Uma alteração de lançamento como gravada no diário: o estado depois da alteração e a variação
+ * que ela causou no saldo do usuário (ou o saldo absoluto, nos registros {@link TipoRegistroDiario#SALDO}).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroDiario {
+
+	private long sequencia;
+	private Instant instante;
+	private TipoRegistroDiario tipo;
+	private Long idUsuario;
+	private Long idLancamento;
+	private BigDecimal valor;
+	private TipoLancamento tipoLancamento;
+	private StatusLancamento status;
+	private Integer ano;
+	private Integer mes;
+	private BigDecimal variacaoSaldo;
+}
@@ -0,0 +1,119 @@
+package com.adriano.minhasfinancas.diario;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Saldo de todos os usuários depois do registro {@link #sequencia()}. O arquivo tem um cabeçalho
+ * (sequência, instante, quantidade) e pares (idUsuario, centavos) ordenados por usuário, então o
+ * saldo de um usuário é uma busca binária no arquivo mapeado, sem carregá-lo inteiro.
+ */
+class RetratoDiario {
+
+	private static final int TAMANHO_CABECALHO = 20;
+
+	private static final int TAMANHO_PAR = 16;
+
+	private final Path arquivo;
+
+	private final long sequencia;
+
+	private final long instante;
+
+	private final int quantidade;
+
+	private final MappedByteBuffer buffer;
+
+	private RetratoDiario(Path arquivo, MappedByteBuffer buffer) {
+		this.arquivo = arquivo;
+		this.buffer = buffer;
+		this.sequencia = buffer.getLong(0);
+		this.instante = buffer.getLong(8);
+		this.quantidade = buffer.getInt(16);
+	}
+
+	static RetratoDiario gravar(Path arquivo, long sequencia, long instante, Map<Long, Long> saldos) throws IOException {
+		long[] usuarios = new long[saldos.size()];
+		int posicao = 0;
+		for (Long idUsuario : saldos.keySet()) {
+			usuarios[posicao++] = idUsuario;
+		}
+		Arrays.sort(usuarios);
+		ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_CABECALHO + usuarios.length * TAMANHO_PAR);
+		conteudo.putLong(sequencia).putLong(instante).putInt(usuarios.length);
+		for (long idUsuario : usuarios) {
+			conteudo.putLong(idUsuario).putLong(saldos.get(idUsuario));
+		}
+		conteudo.flip();
+		// grava num temporário e renomeia, para nunca deixar um retrato pela metade
+		Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+		try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			while (conteudo.hasRemaining()) {
+				canal.write(conteudo);
+			}
+			canal.force(true);
+		}
+		Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		return abrir(arquivo);
+	}
+
+	static RetratoDiario abrir(Path arquivo) throws IOException {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+			return new RetratoDiario(arquivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+		}
+	}
+
+	long sequencia() {
+		return sequencia;
+	}
+
+	long instante() {
+		return instante;
+	}
+
+	int quantidade() {
+		return quantidade;
+	}
+
+	Path arquivo() {
+		return arquivo;
+	}
+
+	/** Centavos do usuário no retrato; zero para quem ainda não tinha lançamentos. */
+	long saldo(long idUsuario) {
+		int inicio = 0;
+		int fim = quantidade - 1;
+		while (inicio <= fim) {
+			int meio = (inicio + fim) >>> 1;
+			long atual = buffer.getLong(TAMANHO_CABECALHO + meio * TAMANHO_PAR);
+			if (atual < idUsuario) {
+				inicio = meio + 1;
+			} else if (atual > idUsuario) {
+				fim = meio - 1;
+			} else {
+				return buffer.getLong(TAMANHO_CABECALHO + meio * TAMANHO_PAR + 8);
+			}
+		}
+		return 0;
+	}
+
+	void carregar(Map<Long, Long> saldos) {
+		for (int i = 0; i < quantidade; i++) {
+			saldos.put(buffer.getLong(TAMANHO_CABECALHO + i * TAMANHO_PAR), buffer.getLong(TAMANHO_CABECALHO + i * TAMANHO_PAR + 8));
+		}
+	}
+
+	void excluir() throws IOException {
+		Files.deleteIfExists(arquivo);
+	}
+
+}
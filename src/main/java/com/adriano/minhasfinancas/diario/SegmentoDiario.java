@@ -0,0 +1,185 @@
+package com.adriano.minhasfinancas.diario;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoRegistroDiario;
+
+/**
+ * Arquivo de tamanho fixo mapeado em memória com registros de {@value #TAMANHO_REGISTRO} bytes.
+ * Só a thread de gravação escreve; leitores enxergam os registros até {@link #quantidade()}.
+ * Um registro com CRC inválido marca o fim (gravação interrompida por queda do processo).
+ */
+class SegmentoDiario {
+
+	static final int TAMANHO_REGISTRO = 64;
+
+	private static final byte NULO = -1;
+
+	private final Path arquivo;
+
+	private final long primeiraSequencia;
+
+	private final int capacidade;
+
+	private final MappedByteBuffer buffer;
+
+	private volatile int quantidade;
+
+	private SegmentoDiario(Path arquivo, long primeiraSequencia, int capacidade, MappedByteBuffer buffer) {
+		this.arquivo = arquivo;
+		this.primeiraSequencia = primeiraSequencia;
+		this.capacidade = capacidade;
+		this.buffer = buffer;
+	}
+
+	static SegmentoDiario abrir(Path arquivo, long primeiraSequencia, int capacidade) throws IOException {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// o tamanho de um segmento existente prevalece sobre a configuração atual
+			long tamanho = Math.max(canal.size(), (long) capacidade * TAMANHO_REGISTRO);
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+			SegmentoDiario segmento = new SegmentoDiario(arquivo, primeiraSequencia, (int) (tamanho / TAMANHO_REGISTRO), buffer);
+			segmento.recuperar();
+			return segmento;
+		}
+	}
+
+	private void recuperar() {
+		int validos = 0;
+		while (validos < capacidade && valido(validos)) {
+			validos++;
+		}
+		quantidade = validos;
+	}
+
+	private boolean valido(int indice) {
+		ByteBuffer registro = registro(indice);
+		long sequencia = registro.getLong(0);
+		return sequencia == primeiraSequencia + indice && registro.getInt(60) == crc(registro);
+	}
+
+	boolean cheio() {
+		return quantidade == capacidade;
+	}
+
+	int quantidade() {
+		return quantidade;
+	}
+
+	long primeiraSequencia() {
+		return primeiraSequencia;
+	}
+
+	long proximaSequencia() {
+		return primeiraSequencia + quantidade;
+	}
+
+	Path arquivo() {
+		return arquivo;
+	}
+
+	void gravar(RegistroDiario registro) {
+		ByteBuffer destino = registro(quantidade);
+		destino.putLong(0, registro.getSequencia());
+		destino.putLong(8, registro.getInstante().toEpochMilli());
+		destino.putLong(16, registro.getIdUsuario());
+		destino.putLong(24, registro.getIdLancamento() == null ? 0 : registro.getIdLancamento());
+		destino.putLong(32, centavos(registro.getValor()));
+		destino.putLong(40, centavos(registro.getVariacaoSaldo()));
+		destino.putInt(48, registro.getAno() == null || registro.getMes() == null ? -1 : registro.getAno() * 12 + registro.getMes() - 1);
+		destino.put(52, (byte) registro.getTipo().ordinal());
+		destino.put(53, registro.getTipoLancamento() == null ? NULO : (byte) registro.getTipoLancamento().ordinal());
+		destino.put(54, registro.getStatus() == null ? NULO : (byte) registro.getStatus().ordinal());
+		destino.putInt(60, crc(destino));
+		quantidade++;
+	}
+
+	void forcar() {
+		buffer.force();
+	}
+
+	RegistroDiario ler(int indice) {
+		ByteBuffer origem = registro(indice);
+		int anoMes = origem.getInt(48);
+		byte tipoLancamento = origem.get(53);
+		byte status = origem.get(54);
+		long idLancamento = origem.getLong(24);
+		return RegistroDiario.builder().sequencia(origem.getLong(0))
+				.instante(Instant.ofEpochMilli(origem.getLong(8)))
+				.idUsuario(origem.getLong(16))
+				.idLancamento(idLancamento == 0 ? null : idLancamento)
+				.valor(BigDecimal.valueOf(origem.getLong(32), 2))
+				.variacaoSaldo(BigDecimal.valueOf(origem.getLong(40), 2))
+				.ano(anoMes < 0 ? null : anoMes / 12).mes(anoMes < 0 ? null : anoMes % 12 + 1)
+				.tipo(TipoRegistroDiario.values()[origem.get(52)])
+				.tipoLancamento(tipoLancamento == NULO ? null : TipoLancamento.values()[tipoLancamento])
+				.status(status == NULO ? null : StatusLancamento.values()[status])
+				.build();
+	}
+
+	// leitura sem montar o registro inteiro, para a reprodução do saldo
+	long usuario(int indice) {
+		return buffer.getLong(indice * TAMANHO_REGISTRO + 16);
+	}
+
+	long instante(int indice) {
+		return buffer.getLong(indice * TAMANHO_REGISTRO + 8);
+	}
+
+	long variacaoSaldo(int indice) {
+		return buffer.getLong(indice * TAMANHO_REGISTRO + 40);
+	}
+
+	boolean saldoAbsoluto(int indice) {
+		return buffer.get(indice * TAMANHO_REGISTRO + 52) == TipoRegistroDiario.SALDO.ordinal();
+	}
+
+	/** Primeiro índice com instante posterior a {@code instante}; os instantes do diário não decrescem. */
+	int posteriorA(long instante) {
+		int inicio = 0;
+		int fim = quantidade;
+		while (inicio < fim) {
+			int meio = (inicio + fim) >>> 1;
+			if (instante(meio) <= instante) {
+				inicio = meio + 1;
+			} else {
+				fim = meio;
+			}
+		}
+		return inicio;
+	}
+
+	void excluir() throws IOException {
+		Files.deleteIfExists(arquivo);
+	}
+
+	private ByteBuffer registro(int indice) {
+		ByteBuffer registro = buffer.duplicate();
+		registro.position(indice * TAMANHO_REGISTRO).limit((indice + 1) * TAMANHO_REGISTRO);
+		return registro.slice();
+	}
+
+	private static int crc(ByteBuffer registro) {
+		ByteBuffer conteudo = registro.duplicate();
+		conteudo.position(0).limit(60);
+		CRC32 crc = new CRC32();
+		crc.update(conteudo);
+		return (int) crc.getValue();
+	}
+
+	static long centavos(BigDecimal valor) {
+		return valor == null ? 0 : valor.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValue();
+	}
+
+}
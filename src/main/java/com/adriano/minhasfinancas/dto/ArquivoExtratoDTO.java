@@ -0,0 +1,24 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.nio.file.Path;
+
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArquivoExtratoDTO {
+
+	private FormatoExtratoMensal formato;
+	// conteúdo comprimido com gzip
+	private Path arquivo;
+	// SHA-256 do conteúdo sem compressão; serve de ETag
+	private String hash;
+	private String nome;
+}
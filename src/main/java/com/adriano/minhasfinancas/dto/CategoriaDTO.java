@@ -0,0 +1,17 @@
+package com.adriano.minhasfinancas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoriaDTO {
+
+	private Long id;
+	private String nome;
+	private Long usuario;
+}
@@ -0,0 +1,22 @@
+package com.adriano.minhasfinancas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoalescenciaDTO {
+
+	private String nome;
+	private Long chamadas;
+	private Long calculos;
+	private Long compartilhadas;
+	private Long expiradas;
+	private Long erros;
+	// fração das chamadas atendidas por um cálculo já em andamento
+	private Double taxaCoalescencia;
+}
@@ -0,0 +1,21 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.math.BigDecimal;
+
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoLancamentoDTO {
+
+	private String tipo;
+	private LancamentoDTO lancamento;
+	private BigDecimal saldo;
+}
@@ -0,0 +1,40 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroLancamentoDTO {
+
+	private Long usuario;
+	private String descricao;
+	private Integer mes;
+	private Integer ano;
+	private YearMonth de;
+	private YearMonth ate;
+	private BigDecimal valorMinimo;
+	private BigDecimal valorMaximo;
+	private LocalDate cadastradoDe;
+	private LocalDate cadastradoAte;
+	private Set<TipoLancamento> tipos;
+	private Set<StatusLancamento> status;
+	// ids de Categoria; com todasCategorias exige todas, senão basta uma
+	private Set<Long> categorias;
+	private boolean todasCategorias;
+	// propriedades de ordenação, prefixo "-" para decrescente (ex.: -valor, ano)
+	private List<String> ordenacao;
+}
@@ -0,0 +1,22 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoExtratoDTO {
+
+	private long lidas;
+	private long importadas;
+	private long duplicadas;
+	private long rejeitadas;
+	// primeiras mensagens de rejeição, com o número da linha
+	private List<String> erros;
+}
@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestaoDTO {
+
+	private String protocolo;
+	private String situacao;
+	private Long idLancamento;
+	private String mensagem;
+}
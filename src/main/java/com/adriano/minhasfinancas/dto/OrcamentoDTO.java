@@ -0,0 +1,23 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrcamentoDTO {
+
+	private Long id;
+	private Long usuario;
+	private Integer ano;
+	private Integer mes;
+	private Long categoria;
+	private BigDecimal limite;
+	private BigDecimal gasto;
+}
@@ -0,0 +1,31 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PainelDTO {
+
+	private Long usuario;
+	private Integer ano;
+	private Integer mes;
+	private BigDecimal saldo;
+	// receitas e despesas do mês, por tipo
+	private Map<String, BigDecimal> resumoMes;
+	private List<LancamentoDTO> ultimosLancamentos;
+	// quantidade de lançamentos pendentes, por tipo
+	private Map<String, Long> pendentes;
+	// seções que não ficaram prontas dentro do prazo e vieram vazias
+	private List<String> secoesAusentes;
+}
@@ -0,0 +1,21 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgressoSnapshotDTO {
+
+	private LocalDate dataReferencia;
+	private String situacao;
+	private Long ultimoId;
+	private Long maximoId;
+	private Integer percentual;
+}
@@ -0,0 +1,21 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebalanceamentoDTO {
+
+	private List<String> shardsAtivos;
+	private List<String> shardsDestino;
+	private String situacao;
+	private Long usuariosMigrados;
+	private String mensagem;
+}
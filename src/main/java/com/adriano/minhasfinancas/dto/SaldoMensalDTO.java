@@ -0,0 +1,20 @@
+package com.adriano.minhasfinancas.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoMensalDTO {
+
+	private Integer ano;
+	private Integer mes;
+	private BigDecimal liquido;
+	private BigDecimal acumulado;
+}
@@ -0,0 +1,23 @@
+package com.adriano.minhasfinancas.event;
+
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+import lombok.Getter;
+
+/**
+ * Alteração confirmada em outro nó: os dados do usuário guardados em memória neste nó devem ser
+ * descartados e lidos de novo do banco. Não traz o lançamento, só o escopo atingido.
+ */
+@Getter
+public class CacheInvalidadoEvent {
+
+	private final EscopoInvalidacao escopo;
+
+	private final Long idUsuario;
+
+	public CacheInvalidadoEvent(EscopoInvalidacao escopo, Long idUsuario) {
+		this.escopo = escopo;
+		this.idUsuario = idUsuario;
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.adriano.minhasfinancas.event;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+
+import lombok.Getter;
+
+@Getter
+public class LancamentoAlteradoEvent {
+
+	private final TipoAlteracao tipo;
+
+	private final Long idUsuario;
+
+	// cópia do estado gravado; nulo quando a alteração atinge vários lançamentos do usuário
+	private final Lancamento lancamento;
+
+	// estado antes da atualização, quando conhecido; permite aplicar só a diferença nos contadores
+	private final Lancamento anterior;
+
+	public LancamentoAlteradoEvent(TipoAlteracao tipo, Lancamento lancamento) {
+		this(tipo, null, lancamento);
+	}
+
+	public LancamentoAlteradoEvent(TipoAlteracao tipo, Lancamento anterior, Lancamento lancamento) {
+		this.tipo = tipo;
+		this.idUsuario = lancamento.getUsuario().getId();
+		this.lancamento = copiar(lancamento);
+		this.anterior = anterior == null ? null : copiar(anterior);
+	}
+
+	public LancamentoAlteradoEvent(TipoAlteracao tipo, Long idUsuario) {
+		this.tipo = tipo;
+		this.idUsuario = idUsuario;
+		this.lancamento = null;
+		this.anterior = null;
+	}
+
+	public static Lancamento copiar(Lancamento lancamento) {
+		return Lancamento.builder().id(lancamento.getId()).descricao(lancamento.getDescricao())
+				.mes(lancamento.getMes()).ano(lancamento.getAno()).usuario(lancamento.getUsuario())
+				.valor(lancamento.getValor()).dataCadastro(lancamento.getDataCadastro())
+				.tipo(lancamento.getTipo()).status(lancamento.getStatus()).categorias(lancamento.getCategorias()).build();
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.adriano.minhasfinancas.event;
+
+import lombok.Getter;
+
+@Getter
+public class UsuarioAlteradoEvent {
+
+	private final Long idUsuario;
+
+	public UsuarioAlteradoEvent(Long idUsuario) {
+		this.idUsuario = idUsuario;
+	}
+
+}
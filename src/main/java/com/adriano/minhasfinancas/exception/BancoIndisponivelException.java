@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.exception;
+
+public class BancoIndisponivelException extends RuntimeException {
+
+	public BancoIndisponivelException(String msg) {
+		super(msg);
+	}
+	
+}
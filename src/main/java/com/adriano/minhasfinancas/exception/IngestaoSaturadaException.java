@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.exception;
+
+public class IngestaoSaturadaException extends RuntimeException {
+
+	public IngestaoSaturadaException(String msg) {
+		super(msg);
+	}
+	
+}
@@ -0,0 +1,15 @@
+package com.adriano.minhasfinancas.exception;
+
+import lombok.Getter;
+
+@Getter
+public class LinhaExtratoInvalidaException extends RuntimeException {
+
+	private final long numeroLinha;
+
+	public LinhaExtratoInvalidaException(long numeroLinha, String msg) {
+		super("Linha " + numeroLinha + ": " + msg);
+		this.numeroLinha = numeroLinha;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+
+public enum FormatoExtrato {
+
+	CSV,
+	OFX;
+
+	public static FormatoExtrato de(String formato, String nomeArquivo) {
+		String referencia = formato;
+		if (referencia == null && nomeArquivo != null && nomeArquivo.contains(".")) {
+			referencia = nomeArquivo.substring(nomeArquivo.lastIndexOf('.') + 1);
+		}
+		if (referencia != null) {
+			for (FormatoExtrato valor : values()) {
+				if (valor.name().equalsIgnoreCase(referencia.trim())) {
+					return valor;
+				}
+			}
+		}
+		throw new RegraNegocioException("Informe um arquivo CSV ou OFX");
+	}
+
+	public LeitorExtrato abrir(InputStream entrada, Charset charset) {
+		return this == OFX ? new LeitorOfx(entrada, charset) : new LeitorCsv(entrada, charset);
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.adriano.minhasfinancas.exception.LinhaExtratoInvalidaException;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+
+/**
+ * CSV com cabeçalho contendo as colunas de data, descrição e valor (em qualquer ordem).
+ * O separador (; , ou tab) é deduzido do cabeçalho; valores aceitam vírgula ou ponto decimal.
+ */
+public class LeitorCsv implements LeitorExtrato {
+
+	private static final String[] COLUNAS_DATA = { "data", "date", "dt", "data lancamento", "data movimento" };
+	private static final String[] COLUNAS_DESCRICAO = { "descricao", "historico", "description", "memo", "lancamento" };
+	private static final String[] COLUNAS_VALOR = { "valor", "value", "amount", "quantia", "valor (r$)" };
+
+	// STRICT para recusar datas como 31/02 em vez de ajustá-las para o fim do mês
+	private static final DateTimeFormatter[] FORMATOS_DATA = { estrito("dd/MM/uuuu"), DateTimeFormatter.ISO_LOCAL_DATE,
+			estrito("dd-MM-uuuu"), estrito("dd/MM/uu") };
+
+	private final BufferedReader leitor;
+
+	private char separador;
+
+	private int colunaData = -1;
+	private int colunaDescricao = -1;
+	private int colunaValor = -1;
+
+	private long numeroLinha;
+
+	public LeitorCsv(InputStream entrada, Charset charset) {
+		this.leitor = new BufferedReader(new InputStreamReader(entrada, charset == null ? StandardCharsets.UTF_8 : charset));
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		String linha;
+		do {
+			linha = leitor.readLine();
+			numeroLinha++;
+			if (linha == null) {
+				return null;
+			}
+		} while (linha.trim().isEmpty());
+		if (colunaData < 0) {
+			lerCabecalho(linha);
+			return proxima();
+		}
+		List<String> campos = dividir(linha);
+		int necessarias = Math.max(colunaData, Math.max(colunaDescricao, colunaValor)) + 1;
+		if (campos.size() < necessarias) {
+			throw new LinhaExtratoInvalidaException(numeroLinha, "esperadas " + necessarias + " colunas, encontradas " + campos.size());
+		}
+		return LinhaExtrato.builder().numero(numeroLinha)
+				.data(data(campos.get(colunaData)))
+				.descricao(campos.get(colunaDescricao).trim())
+				.valor(valor(campos.get(colunaValor)))
+				.build();
+	}
+
+	@Override
+	public void close() throws IOException {
+		leitor.close();
+	}
+
+	private void lerCabecalho(String linha) {
+		if (linha.charAt(0) == '\uFEFF') {
+			linha = linha.substring(1);
+		}
+		separador = contar(linha, ';') > 0 ? ';' : contar(linha, '\t') > 0 ? '\t' : ',';
+		List<String> colunas = dividir(linha);
+		for (int i = 0; i < colunas.size(); i++) {
+			String coluna = normalizar(colunas.get(i));
+			if (colunaData < 0 && contem(COLUNAS_DATA, coluna)) {
+				colunaData = i;
+			} else if (colunaDescricao < 0 && contem(COLUNAS_DESCRICAO, coluna)) {
+				colunaDescricao = i;
+			} else if (colunaValor < 0 && contem(COLUNAS_VALOR, coluna)) {
+				colunaValor = i;
+			}
+		}
+		if (colunaData < 0 || colunaDescricao < 0 || colunaValor < 0) {
+			throw new RegraNegocioException("O cabeçalho do CSV deve ter as colunas data, descricao e valor");
+		}
+	}
+
+	private List<String> dividir(String linha) {
+		List<String> campos = new ArrayList<>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreAspas = false;
+		for (int i = 0; i < linha.length(); i++) {
+			char c = linha.charAt(i);
+			if (c == '"') {
+				if (entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+					campo.append('"');
+					i++;
+				} else {
+					entreAspas = !entreAspas;
+				}
+			} else if (c == separador && !entreAspas) {
+				campos.add(campo.toString());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add(campo.toString());
+		return campos;
+	}
+
+	private LocalDate data(String texto) {
+		String data = texto.trim();
+		for (DateTimeFormatter formato : FORMATOS_DATA) {
+			try {
+				return LocalDate.parse(data, formato);
+			} catch (DateTimeParseException e) {
+				// tenta o próximo formato
+			}
+		}
+		throw new LinhaExtratoInvalidaException(numeroLinha, "data inválida: " + texto);
+	}
+
+	private BigDecimal valor(String texto) {
+		String valor = texto.replace("R$", "").replace(" ", "").replace("\u00A0", "");
+		boolean negativo = valor.startsWith("(") && valor.endsWith(")");
+		if (negativo) {
+			valor = valor.substring(1, valor.length() - 1);
+		}
+		// o separador decimal é o último entre vírgula e ponto; o outro é de milhar
+		int virgula = valor.lastIndexOf(',');
+		int ponto = valor.lastIndexOf('.');
+		if (virgula > ponto) {
+			valor = valor.replace(".", "").replace(',', '.');
+		} else if (virgula >= 0) {
+			valor = valor.replace(",", "");
+		}
+		try {
+			BigDecimal numero = new BigDecimal(valor);
+			return negativo ? numero.negate() : numero;
+		} catch (NumberFormatException e) {
+			throw new LinhaExtratoInvalidaException(numeroLinha, "valor inválido: " + texto);
+		}
+	}
+
+	private static String normalizar(String coluna) {
+		String semAcento = Normalizer.normalize(coluna.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		return semAcento.toLowerCase(Locale.ROOT);
+	}
+
+	private static DateTimeFormatter estrito(String padrao) {
+		return DateTimeFormatter.ofPattern(padrao).withResolverStyle(ResolverStyle.STRICT);
+	}
+
+	private static boolean contem(String[] opcoes, String valor) {
+		for (String opcao : opcoes) {
+			if (opcao.equals(valor)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int contar(String texto, char c) {
+		int total = 0;
+		for (int i = 0; i < texto.length(); i++) {
+			if (texto.charAt(i) == c) {
+				total++;
+			}
+		}
+		return total;
+	}
+
+}
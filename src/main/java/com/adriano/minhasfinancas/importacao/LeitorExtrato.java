@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Lê um extrato uma transação por vez, sem carregar o arquivo em memória.
+ */
+public interface LeitorExtrato extends Closeable {
+
+	/**
+	 * @return a próxima transação ou null no fim do arquivo
+	 * @throws com.adriano.minhasfinancas.exception.LinhaExtratoInvalidaException se a transação não puder ser lida;
+	 *         o leitor continua posicionado na seguinte
+	 */
+	LinhaExtrato proxima() throws IOException;
+
+}
@@ -0,0 +1,189 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.adriano.minhasfinancas.exception.LinhaExtratoInvalidaException;
+
+/**
+ * OFX 1.x (SGML, sem tags de fechamento) e 2.x (XML). Lê tag a tag, guardando só a transação corrente.
+ */
+public class LeitorOfx implements LeitorExtrato {
+
+	private static final int TAMANHO_CABECALHO = 4096;
+
+	private static final Pattern CHARSET_SGML = Pattern.compile("CHARSET:\\s*([\\w-]+)");
+	private static final Pattern ENCODING_SGML = Pattern.compile("ENCODING:\\s*([\\w-]+)");
+	private static final Pattern ENCODING_XML = Pattern.compile("encoding=\"([\\w-]+)\"");
+
+	private final BufferedReader leitor;
+
+	private final StringBuilder texto = new StringBuilder();
+
+	private long numeroTransacao;
+
+	public LeitorOfx(InputStream entrada, Charset charset) {
+		BufferedInputStream bufferizada = new BufferedInputStream(entrada);
+		Charset efetivo = charset != null ? charset : charsetDoCabecalho(bufferizada);
+		this.leitor = new BufferedReader(new InputStreamReader(bufferizada, efetivo));
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		String tag;
+		while ((tag = proximaTag()) != null && !"STMTTRN".equals(tag)) {
+			// avança até a próxima transação
+		}
+		if (tag == null) {
+			return null;
+		}
+		numeroTransacao++;
+		String data = null;
+		String valor = null;
+		String memo = null;
+		String nome = null;
+		String identificador = null;
+		while ((tag = proximaTag()) != null && !"/STMTTRN".equals(tag)) {
+			if (tag.startsWith("/")) {
+				continue;
+			}
+			String conteudo = lerConteudo();
+			switch (tag) {
+			case "DTPOSTED":
+				data = conteudo;
+				break;
+			case "TRNAMT":
+				valor = conteudo;
+				break;
+			case "MEMO":
+				memo = conteudo;
+				break;
+			case "NAME":
+				nome = conteudo;
+				break;
+			case "FITID":
+				identificador = conteudo;
+				break;
+			default:
+				break;
+			}
+		}
+		String descricao = memo != null && !memo.isEmpty() ? memo : nome;
+		return LinhaExtrato.builder().numero(numeroTransacao).data(data(data)).valor(valor(valor))
+				.descricao(descricao == null ? null : descricao.trim())
+				.identificador(identificador == null || identificador.isEmpty() ? null : identificador)
+				.build();
+	}
+
+	@Override
+	public void close() throws IOException {
+		leitor.close();
+	}
+
+	private String proximaTag() throws IOException {
+		int c;
+		while ((c = leitor.read()) != -1 && c != '<') {
+			// ignora o texto fora das tags conhecidas
+		}
+		if (c == -1) {
+			return null;
+		}
+		texto.setLength(0);
+		while ((c = leitor.read()) != -1 && c != '>') {
+			texto.append((char) c);
+		}
+		return texto.toString().trim().toUpperCase();
+	}
+
+	// o valor vai até a próxima tag; o '<' seguinte é devolvido ao fluxo
+	private String lerConteudo() throws IOException {
+		texto.setLength(0);
+		leitor.mark(1);
+		int c;
+		while ((c = leitor.read()) != -1 && c != '<') {
+			texto.append((char) c);
+			leitor.mark(1);
+		}
+		if (c == '<') {
+			leitor.reset();
+		}
+		return decodificar(texto.toString().trim());
+	}
+
+	private LocalDate data(String data) {
+		if (data == null || data.length() < 8) {
+			throw new LinhaExtratoInvalidaException(numeroTransacao, "DTPOSTED ausente ou inválido: " + data);
+		}
+		try {
+			return LocalDate.of(Integer.parseInt(data.substring(0, 4)), Integer.parseInt(data.substring(4, 6)),
+					Integer.parseInt(data.substring(6, 8)));
+		} catch (NumberFormatException | DateTimeException e) {
+			throw new LinhaExtratoInvalidaException(numeroTransacao, "DTPOSTED inválido: " + data);
+		}
+	}
+
+	private BigDecimal valor(String valor) {
+		if (valor == null) {
+			throw new LinhaExtratoInvalidaException(numeroTransacao, "TRNAMT ausente");
+		}
+		try {
+			// alguns bancos exportam o TRNAMT com vírgula decimal
+			return new BigDecimal(valor.replace(',', '.'));
+		} catch (NumberFormatException e) {
+			throw new LinhaExtratoInvalidaException(numeroTransacao, "TRNAMT inválido: " + valor);
+		}
+	}
+
+	private static String decodificar(String valor) {
+		if (valor.indexOf('&') < 0) {
+			return valor;
+		}
+		return valor.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+				.replace("&nbsp;", " ").replace("&amp;", "&");
+	}
+
+	// OFX 1.x declara o charset no cabeçalho SGML (CHARSET:1252); o 2.x, na declaração XML
+	private static Charset charsetDoCabecalho(BufferedInputStream entrada) {
+		try {
+			entrada.mark(TAMANHO_CABECALHO);
+			byte[] bytes = new byte[TAMANHO_CABECALHO];
+			int lidos = 0;
+			int n;
+			while (lidos < bytes.length && (n = entrada.read(bytes, lidos, bytes.length - lidos)) > 0) {
+				lidos += n;
+			}
+			entrada.reset();
+			String cabecalho = new String(bytes, 0, lidos, StandardCharsets.ISO_8859_1);
+			Matcher xml = ENCODING_XML.matcher(cabecalho);
+			if (xml.find()) {
+				return Charset.forName(xml.group(1));
+			}
+			Matcher charset = CHARSET_SGML.matcher(cabecalho);
+			if (charset.find() && charset.group(1).matches("\\d+")) {
+				return Charset.forName("windows-" + charset.group(1));
+			}
+			if (charset.find(0) && Charset.isSupported(charset.group(1))) {
+				return Charset.forName(charset.group(1));
+			}
+			Matcher encoding = ENCODING_SGML.matcher(cabecalho);
+			if (encoding.find() && "UTF-8".equalsIgnoreCase(encoding.group(1))) {
+				return StandardCharsets.UTF_8;
+			}
+			return Charset.forName("windows-1252");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
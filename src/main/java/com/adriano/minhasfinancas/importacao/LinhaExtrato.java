@@ -0,0 +1,24 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinhaExtrato {
+
+	private long numero;
+	private LocalDate data;
+	private String descricao;
+	// negativo para saídas
+	private BigDecimal valor;
+	// identificador da transação no banco (FITID do OFX), quando houver
+	private String identificador;
+}
@@ -0,0 +1,213 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.event.UsuarioAlteradoEvent;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+/**
+ * Leva para os outros nós as alterações confirmadas neste, para que descartem o que guardam em memória
+ * do usuário. Enquanto espera o envio, a fila guarda só a versão mais nova de cada usuário e escopo,
+ * então várias gravações seguidas viram uma invalidação; o envio é em lotes. Do lado de quem recebe,
+ * versão igual ou menor que a última aplicada da mesma origem chegou repetida ou fora de ordem e é descartada.
+ * O envio tem thread própria: no agendador do Spring ele esperaria atrás do snapshot, do extrato e do expurgo.
+ * Como {@link SmartInitializingSingleton}, continua eager no perfil "rapido": criado só no primeiro uso, o nó
+ * não assinaria o canal e deixaria de receber as invalidações dos outros.
+ */
+public class BarramentoInvalidacao implements SmartInitializingSingleton {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BarramentoInvalidacao.class);
+
+	private final TransporteInvalidacao transporte;
+
+	private final ApplicationEventPublisher publisher;
+
+	private final int tamanhoLote;
+
+	private final long retencaoMs;
+
+	private final long intervaloEnvioMs;
+
+	private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "invalidacao-envio");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final String origem = UUID.randomUUID().toString();
+
+	private final AtomicLong sequencia = new AtomicLong();
+
+	// invalidações ainda não enviadas: versão mais nova por chave
+	private final Map<ChaveInvalidacao, Long> pendentes = new ConcurrentHashMap<>();
+
+	// última versão aplicada de cada chave, por nó de origem
+	private final Map<String, VersoesOrigem> origens = new ConcurrentHashMap<>();
+
+	public BarramentoInvalidacao(TransporteInvalidacao transporte, ApplicationEventPublisher publisher, int tamanhoLote,
+			long retencaoMs, long intervaloEnvioMs) {
+		this.transporte = transporte;
+		this.publisher = publisher;
+		this.tamanhoLote = tamanhoLote;
+		this.retencaoMs = retencaoMs;
+		this.intervaloEnvioMs = intervaloEnvioMs;
+		transporte.assinar(this::receber);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		agendador.scheduleWithFixedDelay(() -> {
+			try {
+				enviar();
+			} catch (RuntimeException e) {
+				// uma exceção aqui cancelaria os envios seguintes
+				LOGGER.error("#### Método: BarramentoInvalidacao.enviar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+			}
+		}, intervaloEnvioMs, intervaloEnvioMs, TimeUnit.MILLISECONDS);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		invalidar(EscopoInvalidacao.LANCAMENTOS, evento.getIdUsuario());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarUsuario(UsuarioAlteradoEvent evento) {
+		invalidar(EscopoInvalidacao.USUARIO, evento.getIdUsuario());
+	}
+
+	public void invalidar(EscopoInvalidacao escopo, Long idUsuario) {
+		pendentes.merge(new ChaveInvalidacao(escopo, idUsuario), sequencia.incrementAndGet(), Math::max);
+	}
+
+	// o que ficou na fila ainda sai antes de o nó parar
+	@PreDestroy
+	public void encerrar() throws InterruptedException {
+		agendador.shutdown();
+		agendador.awaitTermination(5, TimeUnit.SECONDS);
+		enviar();
+	}
+
+	public void enviar() {
+		long agora = System.currentTimeMillis();
+		origens.values().removeIf(versoes -> agora - versoes.vistaEm > retencaoMs);
+		List<Invalidacao> lote = new ArrayList<>();
+		for (ChaveInvalidacao chave : pendentes.keySet()) {
+			Long versao = pendentes.remove(chave);
+			if (versao == null) {
+				continue;
+			}
+			lote.add(Invalidacao.builder().origem(origem).escopo(chave.escopo).idUsuario(chave.idUsuario).versao(versao).build());
+			if (lote.size() == tamanhoLote) {
+				if (!publicar(lote)) {
+					return;
+				}
+				lote = new ArrayList<>();
+			}
+		}
+		if (!lote.isEmpty()) {
+			publicar(lote);
+		}
+	}
+
+	public String getOrigem() {
+		return origem;
+	}
+
+	void receber(List<Invalidacao> lote) {
+		long agora = System.currentTimeMillis();
+		Set<ChaveInvalidacao> aplicar = new LinkedHashSet<>();
+		for (Invalidacao invalidacao : lote) {
+			if (origem.equals(invalidacao.getOrigem())) {
+				continue;
+			}
+			VersoesOrigem versoes = origens.computeIfAbsent(invalidacao.getOrigem(), o -> new VersoesOrigem());
+			versoes.vistaEm = agora;
+			ChaveInvalidacao chave = new ChaveInvalidacao(invalidacao.getEscopo(), invalidacao.getIdUsuario());
+			if (versoes.atualizar(chave, invalidacao.getVersao())) {
+				aplicar.add(chave);
+			}
+		}
+		for (ChaveInvalidacao chave : aplicar) {
+			publisher.publishEvent(new CacheInvalidadoEvent(chave.escopo, chave.idUsuario));
+		}
+	}
+
+	private boolean publicar(List<Invalidacao> lote) {
+		try {
+			transporte.publicar(lote);
+			return true;
+		} catch (RuntimeException e) {
+			// volta para a fila; se a chave foi invalidada de novo nesse meio tempo, fica a versão mais nova
+			lote.forEach(invalidacao -> pendentes.merge(new ChaveInvalidacao(invalidacao.getEscopo(), invalidacao.getIdUsuario()),
+					invalidacao.getVersao(), Math::max));
+
+			LOGGER.error("#### Método: BarramentoInvalidacao.enviar(), status: ERROR, quantidade: "+ lote.size() + ", mensagemError: "+ e.getMessage(), e);
+			return false;
+		}
+	}
+
+	private static final class VersoesOrigem {
+
+		private final Map<ChaveInvalidacao, Long> versoes = new ConcurrentHashMap<>();
+
+		// origem sem mensagens por mais que a retenção é esquecida; uma repetição tardia só invalida de novo
+		private volatile long vistaEm;
+
+		boolean atualizar(ChaveInvalidacao chave, long versao) {
+			boolean[] nova = { false };
+			versoes.compute(chave, (c, atual) -> {
+				nova[0] = atual == null || versao > atual;
+				return nova[0] ? versao : atual;
+			});
+			return nova[0];
+		}
+	}
+
+	private static final class ChaveInvalidacao {
+
+		private final EscopoInvalidacao escopo;
+		private final Long idUsuario;
+
+		ChaveInvalidacao(EscopoInvalidacao escopo, Long idUsuario) {
+			this.escopo = escopo;
+			this.idUsuario = idUsuario;
+		}
+
+		@Override
+		public boolean equals(Object outro) {
+			if (!(outro instanceof ChaveInvalidacao)) {
+				return false;
+			}
+			ChaveInvalidacao chave = (ChaveInvalidacao) outro;
+			return escopo == chave.escopo && idUsuario.equals(chave.idUsuario);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(escopo, idUsuario);
+		}
+	}
+
+}
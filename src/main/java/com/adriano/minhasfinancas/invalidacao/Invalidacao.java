@@ -0,0 +1,24 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aviso de que os dados de um usuário mudaram no nó de origem. A versão vem de uma sequência
+ * crescente daquele nó e só é comparável com outras versões da mesma origem.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Invalidacao {
+
+	private String origem;
+	private EscopoInvalidacao escopo;
+	private Long idUsuario;
+	private long versao;
+}
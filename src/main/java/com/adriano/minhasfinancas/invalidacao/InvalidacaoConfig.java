@@ -0,0 +1,43 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Barramento de invalidação de cache entre nós. O transporte é escolhido por
+ * {@code minhasfinancas.invalidacao.transporte}: "tabela" (padrão) usa o próprio banco e "local" fica
+ * dentro da JVM. Outro transporte é mais um {@link TransporteInvalidacao} com o seu valor aqui.
+ */
+@Configuration
+public class InvalidacaoConfig {
+
+	@Bean(destroyMethod = "encerrar")
+	@ConditionalOnProperty(name = "minhasfinancas.invalidacao.transporte", havingValue = "local")
+	public TransporteLocal transporteInvalidacaoLocal(
+			@Value("${minhasfinancas.invalidacao.canal:minhasfinancas}") String canal) {
+		return new TransporteLocal(canal);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "minhasfinancas.invalidacao.transporte", havingValue = "tabela", matchIfMissing = true)
+	public TransporteTabela transporteInvalidacaoTabela(JdbcTemplate jdbcTemplate,
+			@Value("${minhasfinancas.invalidacao.tabela.janela-ms:5000}") long janelaMs,
+			@Value("${minhasfinancas.invalidacao.tabela.retencao-ms:3600000}") long retencaoMs,
+			@Value("${minhasfinancas.invalidacao.tabela.linhas-por-consulta:5000}") int linhasPorConsulta,
+			@Value("${minhasfinancas.invalidacao.tabela.intervalo-consulta-ms:1000}") long intervaloConsultaMs) {
+		return new TransporteTabela(jdbcTemplate, janelaMs, retencaoMs, linhasPorConsulta, intervaloConsultaMs);
+	}
+
+	@Bean
+	public BarramentoInvalidacao barramentoInvalidacao(TransporteInvalidacao transporte, ApplicationEventPublisher publisher,
+			@Value("${minhasfinancas.invalidacao.tamanho-lote:500}") int tamanhoLote,
+			@Value("${minhasfinancas.invalidacao.tabela.retencao-ms:3600000}") long retencaoMs,
+			@Value("${minhasfinancas.invalidacao.intervalo-envio-ms:100}") long intervaloEnvioMs) {
+		return new BarramentoInvalidacao(transporte, publisher, tamanhoLote, retencaoMs, intervaloEnvioMs);
+	}
+
+}
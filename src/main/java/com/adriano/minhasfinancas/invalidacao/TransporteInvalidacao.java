@@ -0,0 +1,16 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Meio por onde as invalidações chegam aos outros nós. Pode entregar um lote mais de uma vez ou
+ * fora de ordem; o {@link BarramentoInvalidacao} descarta o que já foi aplicado pela versão.
+ */
+public interface TransporteInvalidacao {
+
+	void publicar(List<Invalidacao> lote);
+
+	void assinar(Consumer<List<Invalidacao>> receptor);
+
+}
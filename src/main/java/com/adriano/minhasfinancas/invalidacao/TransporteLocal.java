@@ -0,0 +1,50 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transporte dentro da mesma JVM: entrega cada lote na hora a todos os assinantes do canal, inclusive
+ * ao próprio remetente. Serve para um nó só e para simular vários nós nos testes.
+ */
+public class TransporteLocal implements TransporteInvalidacao {
+
+	private static final Map<String, List<Consumer<List<Invalidacao>>>> CANAIS = new ConcurrentHashMap<>();
+
+	private final String canal;
+
+	private final List<Consumer<List<Invalidacao>>> receptores = new CopyOnWriteArrayList<>();
+
+	public TransporteLocal(String canal) {
+		this.canal = canal;
+	}
+
+	@Override
+	public void publicar(List<Invalidacao> lote) {
+		for (Consumer<List<Invalidacao>> receptor : CANAIS.getOrDefault(canal, receptores)) {
+			receptor.accept(lote);
+		}
+	}
+
+	@Override
+	public void assinar(Consumer<List<Invalidacao>> receptor) {
+		receptores.add(receptor);
+		CANAIS.computeIfAbsent(canal, c -> new CopyOnWriteArrayList<>()).add(receptor);
+	}
+
+	public String getCanal() {
+		return canal;
+	}
+
+	public void encerrar() {
+		CANAIS.computeIfPresent(canal, (c, assinantes) -> {
+			assinantes.removeAll(receptores);
+			return assinantes.isEmpty() ? null : assinantes;
+		});
+		receptores.clear();
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+
+/**
+ * Transporte pela tabela financas.invalidacao_cache, sem nada além do banco: cada lote vira um insert
+ * em lote e cada nó consulta periodicamente as linhas novas. Com inserts simultâneos de nós diferentes
+ * um id menor pode aparecer depois de um maior, então o cursor só passa das linhas mais antigas que a
+ * janela; as mais novas são lidas de novo na consulta seguinte e as repetidas caem pela versão.
+ * A consulta tem thread própria para não esperar atrás dos jobs longos do agendador do Spring; o expurgo
+ * não tem pressa e fica lá.
+ */
+public class TransporteTabela implements TransporteInvalidacao {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransporteTabela.class);
+
+	private static final String INSERT = "insert into financas.invalidacao_cache (origem, escopo, id_usuario, versao, data_cadastro)"
+			+ " values (?, ?, ?, ?, current_timestamp)";
+
+	private static final String CONSULTA = "select id, origem, escopo, id_usuario, versao, data_cadastro"
+			+ " from financas.invalidacao_cache where id > ? order by id";
+
+	private static final String MAIOR_ID = "select coalesce(max(id), 0) from financas.invalidacao_cache";
+
+	private static final String AGORA = "select current_timestamp";
+
+	private static final String EXPURGO = "delete from financas.invalidacao_cache where data_cadastro < ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final long janelaMs;
+
+	private final long retencaoMs;
+
+	private final int linhasPorConsulta;
+
+	private final long intervaloConsultaMs;
+
+	private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "invalidacao-consulta");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final List<Consumer<List<Invalidacao>>> receptores = new CopyOnWriteArrayList<>();
+
+	// -1 até a primeira consulta: o que foi publicado antes deste nó subir não interessa a ele
+	private volatile long cursor = -1;
+
+	public TransporteTabela(JdbcTemplate jdbcTemplate, long janelaMs, long retencaoMs, int linhasPorConsulta, long intervaloConsultaMs) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.janelaMs = janelaMs;
+		this.retencaoMs = retencaoMs;
+		this.linhasPorConsulta = linhasPorConsulta;
+		this.intervaloConsultaMs = intervaloConsultaMs;
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		agendador.scheduleWithFixedDelay(this::consultar, intervaloConsultaMs, intervaloConsultaMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void encerrar() throws InterruptedException {
+		agendador.shutdown();
+		agendador.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void publicar(List<Invalidacao> lote) {
+		jdbcTemplate.batchUpdate(INSERT, lote, lote.size(), (ps, invalidacao) -> {
+			ps.setString(1, invalidacao.getOrigem());
+			ps.setString(2, invalidacao.getEscopo().name());
+			ps.setLong(3, invalidacao.getIdUsuario());
+			ps.setLong(4, invalidacao.getVersao());
+		});
+	}
+
+	@Override
+	public void assinar(Consumer<List<Invalidacao>> receptor) {
+		receptores.add(receptor);
+	}
+
+	public void consultar() {
+		try {
+			List<Invalidacao> lote = ContextoCompartimento.executar(Compartimento.LOTE, this::lerNovas);
+			if (!lote.isEmpty()) {
+				receptores.forEach(receptor -> receptor.accept(lote));
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: TransporteTabela.consultar(), status: ERROR, cursor: "+ cursor + ", mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.invalidacao.tabela.intervalo-expurgo-ms:600000}")
+	public void expurgar() {
+		try {
+			int removidas = ContextoCompartimento.executar(Compartimento.LOTE, () -> {
+				Timestamp agora = jdbcTemplate.queryForObject(AGORA, Timestamp.class);
+				return jdbcTemplate.update(EXPURGO, new Timestamp(agora.getTime() - retencaoMs));
+			});
+
+			LOGGER.info("#### Método: TransporteTabela.expurgar(), status: SUCESSO, removidas: "+ removidas);
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: TransporteTabela.expurgar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	private List<Invalidacao> lerNovas() {
+		List<Invalidacao> lote = new ArrayList<>();
+		if (cursor < 0) {
+			cursor = jdbcTemplate.queryForObject(MAIOR_ID, Long.class);
+			return lote;
+		}
+		long limite = jdbcTemplate.queryForObject(AGORA, Timestamp.class).getTime() - janelaMs;
+		long[] novoCursor = { cursor };
+		boolean[] avancando = { true };
+		jdbcTemplate.query(conexao -> {
+			PreparedStatement ps = conexao.prepareStatement(CONSULTA);
+			ps.setLong(1, cursor);
+			ps.setMaxRows(linhasPorConsulta);
+			return ps;
+		}, linha -> {
+			lote.add(Invalidacao.builder().origem(linha.getString("origem"))
+					.escopo(EscopoInvalidacao.valueOf(linha.getString("escopo")))
+					.idUsuario(linha.getLong("id_usuario")).versao(linha.getLong("versao")).build());
+			avancando[0] = avancando[0] && linha.getTimestamp("data_cadastro").getTime() < limite;
+			if (avancando[0]) {
+				novoCursor[0] = linha.getLong("id");
+			}
+		});
+		cursor = novoCursor[0];
+		return lote;
+	}
+
+}
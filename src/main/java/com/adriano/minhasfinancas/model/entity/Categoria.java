@@ -0,0 +1,82 @@
+package com.adriano.minhasfinancas.model.entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Categoria (ou etiqueta) definida pelo usuário. Cada uma ocupa um bit da máscara
+ * {@link Lancamento#getCategorias()}, então um lançamento pode ter várias.
+ * O id é derivado do usuário e do bit (idUsuario * 64 + bit): não depende de sequência
+ * e permite converter a máscara em ids sem consultar a tabela.
+ */
+@Entity
+@Table(name = "categoria", schema = "financas",
+		uniqueConstraints = @UniqueConstraint(name = "uk_categoria_usuario_nome", columnNames = { "id_usuario", "nome" }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Categoria {
+
+	/** Bits 0 a 62; o bit de sinal não é usado para a máscara continuar positiva. */
+	public static final int MAXIMO_POR_USUARIO = 63;
+
+	@Id
+	@Column(name = "id")
+	private Long id;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "nome")
+	private String nome;
+
+	@Column(name = "bit")
+	private Integer bit;
+
+	public static long idDe(long idUsuario, int bit) {
+		return idUsuario * 64 + bit;
+	}
+
+	public static long usuarioDe(long idCategoria) {
+		return idCategoria / 64;
+	}
+
+	public static int bitDe(long idCategoria) {
+		return (int) (idCategoria % 64);
+	}
+
+	public static long mascaraDe(Collection<Long> idsCategoria) {
+		long mascara = 0;
+		for (Long id : idsCategoria) {
+			mascara |= 1L << bitDe(id);
+		}
+		return mascara;
+	}
+
+	public static List<Long> idsDe(long idUsuario, Long mascara) {
+		List<Long> ids = new ArrayList<>();
+		long restante = mascara == null ? 0 : mascara;
+		while (restante != 0) {
+			ids.add(idDe(idUsuario, Long.numberOfTrailingZeros(restante)));
+			restante &= restante - 1;
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.adriano.minhasfinancas.model.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "saldo_snapshot_execucao", schema = "financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecucaoSnapshot {
+
+	@Id
+	@Column(name = "data_referencia")
+	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
+	private LocalDate dataReferencia;
+	
+	// último id de lançamento já somado ao snapshot; a retomada continua daqui
+	@Column(name = "ultimo_id")
+	private Long ultimoId;
+	
+	@Column(name = "maximo_id")
+	private Long maximoId;
+	
+	@Column(name = "situacao")
+	@Enumerated(value = EnumType.STRING)
+	private SituacaoExecucao situacao;
+	
+	@Column(name = "inicio")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime inicio;
+	
+	@Column(name = "fim")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime fim;
+	
+}
@@ -0,0 +1,92 @@
+package com.adriano.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import com.adriano.minhasfinancas.model.enums.SituacaoIngestao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lançamento recebido pela ingestão assíncrona. A linha é gravada antes do 202 e só sai de PENDENTE na
+ * mesma transação que insere o lançamento, então o que foi aceito sobrevive a uma queda do processo.
+ */
+@Entity
+@Table(name = "ingestao_lancamento", schema = "financas",
+		indexes = { @Index(name = "ix_ingestao_lancamento_situacao", columnList = "situacao, id"),
+				@Index(name = "ix_ingestao_lancamento_concluido_em", columnList = "concluido_em") },
+		uniqueConstraints = @UniqueConstraint(name = "uk_ingestao_lancamento_protocolo", columnNames = "protocolo"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestaoLancamento {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "protocolo", length = 36, nullable = false)
+	private String protocolo;
+
+	@Column(name = "situacao", nullable = false)
+	@Enumerated(value = EnumType.STRING)
+	private SituacaoIngestao situacao;
+
+	@Column(name = "id_usuario", nullable = false)
+	private Long idUsuario;
+
+	@Column(name = "descricao")
+	private String descricao;
+
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoLancamento tipo;
+
+	@Column(name = "categorias")
+	private Long categorias;
+
+	@Column(name = "id_lancamento")
+	private Long idLancamento;
+
+	@Column(name = "mensagem")
+	private String mensagem;
+
+	@Column(name = "data_cadastro", nullable = false)
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataCadastro;
+
+	// marca o fim do processamento; a linha fica para consulta até passar a retenção
+	@Column(name = "concluido_em")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime concluidoEm;
+
+}
@@ -2,6 +2,7 @@ package com.adriano.minhasfinancas.model.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 import javax.persistence.Column;
@@ -12,10 +13,13 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
+import org.hibernate.annotations.Where;
 import org.springframework.data.convert.Jsr310Converters;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
@@ -29,7 +33,12 @@ import lombok.NoArgsConstructor;
 
 
 @Entity
-@Table(name = "lancamento", schema = "financas")
+@Table(name = "lancamento", schema = "financas",
+		indexes = { @Index(name = "idx_lancamento_usuario_ano_mes", columnList = "id_usuario, ano, mes"),
+				@Index(name = "idx_lancamento_deletado_em", columnList = "deletado_em") },
+		uniqueConstraints = @UniqueConstraint(name = "uk_lancamento_usuario_chave_importacao", columnNames = { "id_usuario", "chave_importacao" }))
+// excluídos ficam na tabela até o expurgo; nenhuma consulta da entidade os enxerga
+@Where(clause = "deletado_em is null")
 @Data
 @Builder
 @NoArgsConstructor
@@ -69,6 +78,19 @@ public class Lancamento {
 	@Column(name = "status")
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
+	
+	// um bit por Categoria do usuário
+	@Column(name = "categorias")
+	private Long categorias;
+	
+	// hash de (usuario, valor, data, descricao) dos lançamentos importados de extrato; evita duplicar reimportações
+	@Column(name = "chave_importacao", length = 32)
+	private String chaveImportacao;
+	
+	// marca da exclusão: dentro do prazo pode ser desfeita, depois o expurgo apaga a linha
+	@Column(name = "deletado_em")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime deletadoEm;
 
 	public Long getId() {
 		return id;
@@ -141,10 +163,34 @@ public class Lancamento {
 	public void setStatus(StatusLancamento status) {
 		this.status = status;
 	}
+
+	public Long getCategorias() {
+		return categorias;
+	}
+
+	public void setCategorias(Long categorias) {
+		this.categorias = categorias;
+	}
+
+	public String getChaveImportacao() {
+		return chaveImportacao;
+	}
+
+	public void setChaveImportacao(String chaveImportacao) {
+		this.chaveImportacao = chaveImportacao;
+	}
+
+	public LocalDateTime getDeletadoEm() {
+		return deletadoEm;
+	}
+
+	public void setDeletadoEm(LocalDateTime deletadoEm) {
+		this.deletadoEm = deletadoEm;
+	}
 	
 @Override
 	public int hashCode() {
-		return Objects.hash(ano, dataCadastro, descricao, id, mes, status, tipo, usuario, valor);
+		return Objects.hash(ano, categorias, chaveImportacao, dataCadastro, descricao, id, mes, status, tipo, usuario, valor);
 	}
 
 	@Override
@@ -159,14 +205,15 @@ public class Lancamento {
 		return Objects.equals(ano, other.ano) && Objects.equals(dataCadastro, other.dataCadastro)
 				&& Objects.equals(descricao, other.descricao) && id == other.id && Objects.equals(mes, other.mes)
 				&& status == other.status && tipo == other.tipo && Objects.equals(usuario, other.usuario)
-				&& Objects.equals(valor, other.valor);
+				&& Objects.equals(valor, other.valor) && Objects.equals(categorias, other.categorias)
+				&& Objects.equals(chaveImportacao, other.chaveImportacao);
 	}
 
 	@Override
 	public String toString() {
 		return "Lancamento [id=" + id + ", descricao=" + descricao + ", mes=" + mes + ", ano=" + ano + ", usuario="
 				+ usuario + ", valor=" + valor + ", dataCadastro=" + dataCadastro + ", tipo=" + tipo + ", status="
-				+ status + "]";
+				+ status + ", categorias=" + categorias + "]";
 	}
 	
 	
@@ -1,6 +1,10 @@
 package com.adriano.minhasfinancas.model.entity;
 
 import java.math.BigDecimal;
+import java.util.List;
+
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,6 +22,12 @@ public class LancamentoDTO {
 	public LancamentoDTO() {
 	}
 
+	public LancamentoDTO(Long id, String descricao, Integer mes, Integer ano, BigDecimal valor, Long usuario,
+			TipoLancamento tipo, StatusLancamento status, Long categorias) {
+		this(id, descricao, mes, ano, valor, usuario, tipo == null ? null : tipo.name(),
+				status == null ? null : status.name(), Categoria.idsDe(usuario, categorias));
+	}
+
 	private Long id;
 	private String descricao;
 	private Integer mes;
@@ -26,4 +36,5 @@ public class LancamentoDTO {
 	private Long usuario;
 	private String tipo;
 	private String status;
+	private List<Long> categorias;
 }
@@ -0,0 +1,54 @@
+package com.adriano.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Limite de despesas do usuário num mês, para todas as despesas ou só para as de uma {@link Categoria}.
+ */
+@Entity
+@Table(name = "orcamento", schema = "financas",
+		uniqueConstraints = @UniqueConstraint(name = "uk_orcamento_usuario_mes_categoria", columnNames = { "id_usuario", "ano", "mes", "id_categoria" }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Orcamento {
+
+	@Id
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@ManyToOne
+	@JoinColumn(name = "id_usuario")
+	private Usuario usuario;
+
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Column(name = "mes")
+	private Integer mes;
+
+	// nulo quando o limite vale para todas as despesas do mês
+	@Column(name = "id_categoria")
+	private Long idCategoria;
+
+	@Column(name = "limite")
+	private BigDecimal limite;
+
+}
@@ -0,0 +1,60 @@
+package com.adriano.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Linha da tabela por onde os nós trocam invalidações de cache quando o transporte é o banco.
+ * Gravada e lida só por JDBC; a entidade existe para o esquema.
+ */
+@Entity
+@Table(name = "invalidacao_cache", schema = "financas", indexes = @Index(name = "ix_invalidacao_cache_data", columnList = "data_cadastro"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroInvalidacao {
+
+	@Id
+	@Column(name = "id")
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "origem", length = 36, nullable = false)
+	private String origem;
+
+	@Column(name = "escopo", nullable = false)
+	@Enumerated(value = EnumType.STRING)
+	private EscopoInvalidacao escopo;
+
+	@Column(name = "id_usuario", nullable = false)
+	private Long idUsuario;
+
+	@Column(name = "versao", nullable = false)
+	private Long versao;
+
+	// relógio do banco, o mesmo para todos os nós
+	@Column(name = "data_cadastro", nullable = false)
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataCadastro;
+
+}
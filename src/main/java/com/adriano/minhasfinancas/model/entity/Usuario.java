@@ -6,6 +6,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +18,8 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
-@Table(name = "usuario", schema ="financas")
+@Table(name = "usuario", schema ="financas",
+		uniqueConstraints = @UniqueConstraint(name = "uk_usuario_email", columnNames = "email"))
 @Builder
 @Data
 @NoArgsConstructor
@@ -0,0 +1,10 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum Compartimento {
+
+	// consultas das telas (transações somente leitura)
+	LEITURA,
+	ESCRITA,
+	// importações, snapshots, expurgo e aquecimento de caches
+	LOTE
+}
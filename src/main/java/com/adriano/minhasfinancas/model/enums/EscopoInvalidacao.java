@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum EscopoInvalidacao {
+
+	// retratos, saldos, contadores de orçamento e extratos de um usuário
+	LANCAMENTOS,
+	// dados do próprio usuário, como o filtro de e-mails cadastrados
+	USUARIO
+}
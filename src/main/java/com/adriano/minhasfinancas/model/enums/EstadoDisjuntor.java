@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum EstadoDisjuntor {
+
+	FECHADO,
+	ABERTO,
+	// uma tentativa liberada depois do tempo aberto; o resultado dela fecha ou reabre o disjuntor
+	MEIO_ABERTO
+}
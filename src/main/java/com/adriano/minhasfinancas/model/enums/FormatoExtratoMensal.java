@@ -0,0 +1,24 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum FormatoExtratoMensal {
+
+	CSV("text/csv;charset=UTF-8", "csv"),
+	HTML("text/html;charset=UTF-8", "html");
+
+	private final String tipoConteudo;
+
+	private final String extensao;
+
+	FormatoExtratoMensal(String tipoConteudo, String extensao) {
+		this.tipoConteudo = tipoConteudo;
+		this.extensao = extensao;
+	}
+
+	public String getTipoConteudo() {
+		return tipoConteudo;
+	}
+
+	public String getExtensao() {
+		return extensao;
+	}
+}
@@ -0,0 +1,8 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum SituacaoExecucao {
+
+	EM_ANDAMENTO,
+	CONCLUIDO,
+	ERRO
+}
@@ -0,0 +1,8 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum SituacaoIngestao {
+
+	PENDENTE,
+	PROCESSADO,
+	ERRO
+}
@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum TipoAlteracao {
+
+	CRIADO,
+	ATUALIZADO,
+	DELETADO,
+	STATUS_ALTERADO
+}
@@ -0,0 +1,11 @@
+package com.adriano.minhasfinancas.model.enums;
+
+public enum TipoRegistroDiario {
+
+	CRIADO,
+	ATUALIZADO,
+	DELETADO,
+	STATUS_ALTERADO,
+	// saldo absoluto do usuário, relido do banco depois de uma alteração em lote
+	SALDO
+}
@@ -0,0 +1,14 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.shard.ChaveShard;
+
+public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
+
+	List<Categoria> findByUsuarioIdOrderByBit(@ChaveShard Long idUsuario);
+
+}
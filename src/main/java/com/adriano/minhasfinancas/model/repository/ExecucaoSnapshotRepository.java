@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.adriano.minhasfinancas.model.entity.ExecucaoSnapshot;
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+
+public interface ExecucaoSnapshotRepository extends JpaRepository<ExecucaoSnapshot, LocalDate> {
+
+	List<ExecucaoSnapshot> findBySituacaoOrderByDataReferencia(SituacaoExecucao situacao);
+	
+	Optional<ExecucaoSnapshot> findTopByOrderByDataReferenciaDesc();
+	
+}
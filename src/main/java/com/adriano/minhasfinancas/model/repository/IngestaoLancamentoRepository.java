@@ -0,0 +1,44 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.adriano.minhasfinancas.model.entity.IngestaoLancamento;
+import com.adriano.minhasfinancas.model.enums.SituacaoIngestao;
+
+public interface IngestaoLancamentoRepository extends JpaRepository<IngestaoLancamento, Long> {
+
+	Optional<IngestaoLancamento> findByProtocolo(String protocolo);
+
+	long countBySituacao(SituacaoIngestao situacao);
+
+	// a trava segura as linhas até o commit: outro nó que drene a mesma tabela espera e já não as vê pendentes
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select i from IngestaoLancamento i where i.situacao = :situacao order by i.id")
+	List<IngestaoLancamento> reservar(@Param("situacao") SituacaoIngestao situacao, Pageable pagina);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select i from IngestaoLancamento i where i.id = :id and i.situacao = :situacao")
+	Optional<IngestaoLancamento> reservar(@Param("id") Long id, @Param("situacao") SituacaoIngestao situacao);
+
+	@Modifying
+	@Query("update IngestaoLancamento i set i.situacao = :situacao, i.mensagem = :mensagem, i.concluidoEm = :concluidoEm"
+			+ " where i.id = :id and i.situacao = :anterior")
+	int concluir(@Param("id") Long id, @Param("anterior") SituacaoIngestao anterior, @Param("situacao") SituacaoIngestao situacao,
+			@Param("mensagem") String mensagem, @Param("concluidoEm") LocalDateTime concluidoEm);
+
+	@Modifying
+	@Query("delete from IngestaoLancamento i where i.concluidoEm < :limite")
+	int removerConcluidosAntesDe(@Param("limite") LocalDateTime limite);
+
+}
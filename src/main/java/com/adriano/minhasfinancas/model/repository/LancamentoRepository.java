@@ -1,21 +1,226 @@
 package com.adriano.minhasfinancas.model.repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
 import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.shard.ChaveShard;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryCustom {
 
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select sum(case when l.tipo = :receita then l.valor else -l.valor end) from Lancamento l "
+			+" where l.usuario.id = :idUsuario ")
+	BigDecimal obterSaldoPorUsuario(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("receita") TipoLancamento receita);
+	
+	// retrato inicial do diário: saldo de todos os usuários de uma vez, com o maior id que cada saldo já inclui
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( value =
+			" select l.usuario.id, sum(case when l.tipo = :receita then l.valor else -l.valor end), max(l.id) from Lancamento l "
+			+" group by l.usuario.id ")
+	List<Object[]> obterSaldosPorUsuario(@Param("receita") TipoLancamento receita);
+	
+	// comparação por ano e mês separados, para aproveitar o índice de (ano, mes)
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select sum(case when l.tipo = :receita then l.valor else -l.valor end) from Lancamento l "
+			+" where l.usuario.id = :idUsuario "
+			+" and (l.ano > :anoDe or (l.ano = :anoDe and l.mes >= :mesDe)) "
+			+" and (l.ano < :anoAte or (l.ano = :anoAte and l.mes <= :mesAte)) ")
+	BigDecimal obterSaldoDoPeriodo(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("anoDe") Integer anoDe,
+			@Param("mesDe") Integer mesDe,
+			@Param("anoAte") Integer anoAte,
+			@Param("mesAte") Integer mesAte,
+			@Param("receita") TipoLancamento receita);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( value =
+			" select l.id, l.ano, l.mes, l.valor, l.tipo, l.status from Lancamento l "
+			+" where l.usuario.id = :idUsuario order by l.id ")
+	List<Object[]> obterColunasPorUsuario(@ChaveShard @Param("idUsuario") Long idUsuario);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.tipo, sum(l.valor) from Lancamento l "
+			+" where l.usuario.id = :idUsuario group by l.tipo ")
+	List<Object[]> obterTotaisPorTipo(@ChaveShard @Param("idUsuario") Long idUsuario);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.status, sum(l.valor) from Lancamento l "
+			+" where l.usuario.id = :idUsuario group by l.status ")
+	List<Object[]> obterTotaisPorStatus(@ChaveShard @Param("idUsuario") Long idUsuario);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.mes, sum(case when l.tipo = :receita then l.valor else -l.valor end) from Lancamento l "
+			+" where l.usuario.id = :idUsuario and l.ano = :ano group by l.mes order by l.mes ")
+	List<Object[]> obterTotaisPorMes(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("receita") TipoLancamento receita);
+	
+	// uma linha por combinação de categorias; o total de cada categoria é somado a partir dos bits
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.categorias, sum(case when l.tipo = :receita then l.valor else -l.valor end) from Lancamento l "
+			+" where l.usuario.id = :idUsuario and l.categorias <> 0 group by l.categorias ")
+	List<Object[]> obterTotaisPorCategorias(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("receita") TipoLancamento receita);
+	
+	// carga inicial dos contadores de orçamento: despesas não canceladas do mês por combinação de categorias
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.categorias, sum(l.valor) from Lancamento l "
+			+" where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes and l.tipo = :despesa "
+			+" and (l.status is null or l.status <> :cancelado) group by l.categorias ")
+	List<Object[]> obterDespesasDoMesPorCategorias(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes,
+			@Param("despesa") TipoLancamento despesa,
+			@Param("cancelado") StatusLancamento cancelado);
+	
+	// consultas do painel do usuário
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.tipo, sum(l.valor) from Lancamento l "
+			+" where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes group by l.tipo ")
+	List<Object[]> obterTotaisDoMesPorTipo(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select l.tipo, count(l) from Lancamento l "
+			+" where l.usuario.id = :idUsuario and l.status = :status group by l.tipo ")
+	List<Object[]> obterQuantidadesPorTipoNoStatus(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("status") StatusLancamento status);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
+	@Query( value =
+			" select new com.adriano.minhasfinancas.model.entity.LancamentoDTO("
+			+" l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.categorias) "
+			+" from Lancamento l where l.usuario.id = :idUsuario order by l.id desc ")
+	List<LancamentoDTO> buscarUltimos(@ChaveShard @Param("idUsuario") Long idUsuario, Pageable pagina);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( value =
+			" select new com.adriano.minhasfinancas.model.entity.LancamentoDTO("
+			+" l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.categorias) "
+			+" from Lancamento l where l.usuario.id = :idUsuario and l.ano = :ano and l.mes = :mes order by l.id ")
+	List<LancamentoDTO> buscarDoMes(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( value =
+			" select distinct l.usuario.id from Lancamento l where l.ano = :ano and l.mes = :mes ")
+	List<Long> obterUsuariosComLancamentosNoMes(@Param("ano") Integer ano, @Param("mes") Integer mes);
+	
+	// nativa para enxergar também os excluídos ainda não expurgados, que continuam ocupando a chave única
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( nativeQuery = true, value =
+			" select l.chave_importacao from financas.lancamento l "
+			+" where l.id_usuario = :idUsuario and l.chave_importacao in :chaves ")
+	List<String> obterChavesImportacao(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("chaves") Collection<String> chaves);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.ESCRITA))
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query( value =
+			" update Lancamento l set l.categorias = function('bitand', l.categorias, :restante) "
+			+" where l.usuario.id = :idUsuario and function('bitand', l.categorias, :bit) <> 0 ")
+	int removerCategoria(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("bit") Long bit,
+			@Param("restante") Long restante);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.ESCRITA))
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query( value =
+			" update Lancamento l set l.deletadoEm = :agora "
+			+" where l.usuario.id = :idUsuario and l.id = :id and l.deletadoEm is null ")
+	int marcarComoDeletado(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("id") Long id,
+			@Param("agora") LocalDateTime agora);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.ESCRITA))
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query( value =
+			" update Lancamento l set l.deletadoEm = :agora "
+			+" where l.usuario.id = :idUsuario and l.id in :ids and l.deletadoEm is null ")
+	int deletarPorIds(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ids") List<Long> ids,
+			@Param("agora") LocalDateTime agora);
+	
+	// nativas: a marca de exclusão esconde as linhas de qualquer consulta sobre a entidade
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.ESCRITA))
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query( nativeQuery = true, value =
+			" update financas.lancamento set deletado_em = null "
+			+" where id_usuario = :idUsuario and id = :id and deletado_em >= :limite ")
+	int restaurar(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("id") Long id,
+			@Param("limite") LocalDateTime limite);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( nativeQuery = true, value =
+			" select distinct l.id_usuario from financas.lancamento l where l.deletado_em < :limite ")
+	List<Number> obterUsuariosComExcluidosAntesDe(@Param("limite") LocalDateTime limite);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query( nativeQuery = true, value =
+			" select l.id from financas.lancamento l "
+			+" where l.id_usuario = :idUsuario and l.deletado_em < :limite order by l.id limit :quantidade ")
+	List<Number> obterIdsExcluidosAntesDe(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("limite") LocalDateTime limite,
+			@Param("quantidade") int quantidade);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Modifying
+	@Query( nativeQuery = true, value =
+			" delete from financas.lancamento "
+			+" where id_usuario = :idUsuario and id in :ids and deletado_em is not null ")
+	int expurgar(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ids") List<Long> ids);
+	
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
 	@Query( value =
-			" select sum(l.valor) from Lancamento l  join l.usuario u "
-			+" where u.id = :idUsuario and l.tipo =:tipo group by u ")
-	BigDecimal obterSaldoPorTipoLancamentoEUsuario(
-			@Param("idUsuario") Long idUsuario,
-			@Param("tipo") TipoLancamento tipo);
+			" select new com.adriano.minhasfinancas.model.entity.LancamentoDTO("
+			+" l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.categorias) "
+			+" from Lancamento l where l.usuario.id = :idUsuario and l.id in :ids order by l.id ")
+	List<LancamentoDTO> buscarPorIds(
+			@ChaveShard @Param("idUsuario") Long idUsuario,
+			@Param("ids") List<Long> ids);
 	
 }
@@ -0,0 +1,30 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.shard.ChaveShard;
+
+public interface LancamentoRepositoryCustom {
+
+	List<Lancamento> inserirEmLote(List<Lancamento> lancamentos);
+	
+	List<SaldoMensalDTO> obterSerieSaldo(@ChaveShard Long idUsuario, YearMonth de, YearMonth ate);
+	
+	int deletarPorFiltro(@ChaveShard Long idUsuario, Integer ano, Integer mes, StatusLancamento status, LocalDateTime agora);
+	
+	List<Lancamento> buscar(@ChaveShard Long idUsuario, Specification<Lancamento> especificacao, Sort ordenacao);
+	
+	List<Map<String, Object>> buscarCampos(@ChaveShard Long idUsuario, Specification<Lancamento> especificacao, Sort ordenacao, ProjecaoLancamento projecao);
+	
+	List<Map<String, Object>> buscarCamposPorIds(@ChaveShard Long idUsuario, List<Long> ids, ProjecaoLancamento projecao);
+	
+}
@@ -0,0 +1,286 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+
+public class LancamentoRepositoryImpl implements LancamentoRepositoryCustom {
+
+	private static final String INSERT_LANCAMENTO = "insert into financas.lancamento "
+			+ "(descricao, mes, ano, id_usuario, valor, data_cadastro, tipo, status, categorias, chave_importacao) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String VALOR_ASSINADO = "case when l.tipo = 'RECEITA' then l.valor else -l.valor end";
+
+	private static final String ATE_ANO_MES = " (l.ano < ? or (l.ano = ? and l.mes <= ?)) ";
+
+	private static final String NAO_DELETADO = " and l.deletado_em is null ";
+
+	private static final String SERIE_SALDO_JANELA = "select t.ano, t.mes, t.liquido, t.acumulado from ("
+			+ " select l.ano as ano, l.mes as mes, sum(" + VALOR_ASSINADO + ") as liquido,"
+			+ " sum(sum(" + VALOR_ASSINADO + ")) over (order by l.ano, l.mes) as acumulado"
+			+ " from financas.lancamento l where l.id_usuario = ? and" + ATE_ANO_MES + NAO_DELETADO
+			+ " group by l.ano, l.mes) t"
+			+ " where t.ano > ? or (t.ano = ? and t.mes >= ?) order by t.ano, t.mes";
+
+	private static final String SERIE_SALDO_SEQUENCIAL = "select l.ano, l.mes, sum(" + VALOR_ASSINADO + ")"
+			+ " from financas.lancamento l where l.id_usuario = ? and" + ATE_ANO_MES + NAO_DELETADO
+			+ " group by l.ano, l.mes order by l.ano, l.mes";
+
+	private static final String SALDO_ATE = "select sum(" + VALOR_ASSINADO + ")"
+			+ " from financas.lancamento l where l.id_usuario = ? and" + ATE_ANO_MES + NAO_DELETADO;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	// mesma conexão, mas com o tempo limite das consultas interativas; o insert em lote segue sem limite
+	private final JdbcTemplate consultas;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private volatile Boolean funcaoJanelaSuportada;
+
+	public LancamentoRepositoryImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.consultas = new JdbcTemplate(jdbcTemplate.getDataSource());
+		this.consultas.setQueryTimeout(Integer.parseInt(TemposLimite.INTERATIVO) / 1000);
+	}
+
+	@Override
+	public List<Lancamento> inserirEmLote(List<Lancamento> lancamentos) {
+		if (lancamentos.isEmpty()) {
+			return lancamentos;
+		}
+		// IDENTITY impede o batch do Hibernate, então o insert em lote é feito direto no JDBC
+		// (na mesma conexão da transação JPA) recuperando os ids gerados
+		return jdbcTemplate.execute((ConnectionCallback<List<Lancamento>>) conexao -> {
+			try (PreparedStatement ps = conexao.prepareStatement(INSERT_LANCAMENTO, new String[] { "id" })) {
+				for (Lancamento lancamento : lancamentos) {
+					ps.setString(1, lancamento.getDescricao());
+					ps.setInt(2, lancamento.getMes());
+					ps.setInt(3, lancamento.getAno());
+					ps.setLong(4, lancamento.getUsuario().getId());
+					ps.setBigDecimal(5, lancamento.getValor());
+					if (lancamento.getDataCadastro() != null) {
+						ps.setDate(6, Date.valueOf(lancamento.getDataCadastro()));
+					} else {
+						ps.setNull(6, Types.DATE);
+					}
+					ps.setString(7, lancamento.getTipo().name());
+					ps.setString(8, lancamento.getStatus().name());
+					ps.setLong(9, lancamento.getCategorias() == null ? 0L : lancamento.getCategorias());
+					ps.setString(10, lancamento.getChaveImportacao());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				try (ResultSet chaves = ps.getGeneratedKeys()) {
+					int i = 0;
+					while (chaves.next() && i < lancamentos.size()) {
+						lancamentos.get(i++).setId(chaves.getLong(1));
+					}
+				}
+			}
+			return lancamentos;
+		});
+	}
+
+	@Override
+	public List<SaldoMensalDTO> obterSerieSaldo(Long idUsuario, YearMonth de, YearMonth ate) {
+		SerieSaldo serie = new SerieSaldo(de, ate);
+		if (suportaFuncaoJanela()) {
+			consultas.query(SERIE_SALDO_JANELA, rs -> {
+				BigDecimal liquido = rs.getBigDecimal(3);
+				BigDecimal acumulado = rs.getBigDecimal(4);
+				if (serie.vazia()) {
+					serie.abrir(acumulado.subtract(liquido));
+				}
+				serie.adicionar(YearMonth.of(rs.getInt(1), rs.getInt(2)), liquido, acumulado);
+			}, idUsuario, ate.getYear(), ate.getYear(), ate.getMonthValue(),
+					de.getYear(), de.getYear(), de.getMonthValue());
+			if (serie.vazia()) {
+				BigDecimal saldo = consultas.queryForObject(SALDO_ATE, BigDecimal.class,
+						idUsuario, ate.getYear(), ate.getYear(), ate.getMonthValue());
+				serie.abrir(saldo == null ? BigDecimal.ZERO : saldo);
+			}
+		} else {
+			// passada única sobre os meses já agregados, acumulando o saldo anterior ao período
+			BigDecimal[] acumulado = { BigDecimal.ZERO };
+			consultas.query(SERIE_SALDO_SEQUENCIAL, rs -> {
+				YearMonth mes = YearMonth.of(rs.getInt(1), rs.getInt(2));
+				BigDecimal liquido = rs.getBigDecimal(3);
+				acumulado[0] = acumulado[0].add(liquido);
+				if (mes.isBefore(de)) {
+					serie.abrir(acumulado[0]);
+				} else {
+					serie.adicionar(mes, liquido, acumulado[0]);
+				}
+			}, idUsuario, ate.getYear(), ate.getYear(), ate.getMonthValue());
+		}
+		return serie.concluir();
+	}
+
+	@Override
+	public int deletarPorFiltro(Long idUsuario, Integer ano, Integer mes, StatusLancamento status, LocalDateTime agora) {
+		// só marca: a remoção física fica para o expurgo em lotes, fora do caminho da requisição
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Lancamento> update = cb.createCriteriaUpdate(Lancamento.class);
+		Root<Lancamento> lancamento = update.from(Lancamento.class);
+		update.set(lancamento.<LocalDateTime>get("deletadoEm"), agora);
+		List<Predicate> predicados = new ArrayList<>();
+		predicados.add(cb.equal(lancamento.get("usuario").get("id"), idUsuario));
+		predicados.add(cb.isNull(lancamento.get("deletadoEm")));
+		if (ano != null) {
+			predicados.add(cb.equal(lancamento.get("ano"), ano));
+		}
+		if (mes != null) {
+			predicados.add(cb.equal(lancamento.get("mes"), mes));
+		}
+		if (status != null) {
+			predicados.add(cb.equal(lancamento.get("status"), status));
+		}
+		update.where(predicados.toArray(new Predicate[0]));
+		entityManager.flush();
+		int removidos = entityManager.createQuery(update).setHint(TemposLimite.DICA, Integer.valueOf(TemposLimite.ESCRITA)).executeUpdate();
+		entityManager.clear();
+		return removidos;
+	}
+
+	@Override
+	public List<Lancamento> buscar(Long idUsuario, Specification<Lancamento> especificacao, Sort ordenacao) {
+		// o usuário é sempre o primeiro predicado: chave de roteamento do shard e prefixo do índice
+		Specification<Lancamento> completa = LancamentoSpecifications.doUsuario(idUsuario).and(especificacao);
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> query = cb.createQuery(Lancamento.class);
+		Root<Lancamento> lancamento = query.from(Lancamento.class);
+		// o usuário é serializado com cada lançamento: vem no mesmo select em vez de uma leitura à parte
+		lancamento.fetch("usuario");
+		query.where(completa.toPredicate(lancamento, query, cb));
+		if (ordenacao != null && ordenacao.isSorted()) {
+			query.orderBy(QueryUtils.toOrders(ordenacao, lancamento, cb));
+		}
+		return entityManager.createQuery(query).setHint(TemposLimite.DICA, Integer.valueOf(TemposLimite.INTERATIVO)).getResultList();
+	}
+
+	@Override
+	public List<Map<String, Object>> buscarCampos(Long idUsuario, Specification<Lancamento> especificacao, Sort ordenacao, ProjecaoLancamento projecao) {
+		Specification<Lancamento> completa = LancamentoSpecifications.doUsuario(idUsuario).and(especificacao);
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Lancamento> lancamento = query.from(Lancamento.class);
+		query.multiselect(projecao.selecionar(lancamento));
+		query.where(completa.toPredicate(lancamento, query, cb));
+		if (ordenacao != null && ordenacao.isSorted()) {
+			query.orderBy(QueryUtils.toOrders(ordenacao, lancamento, cb));
+		}
+		return entityManager.createQuery(query).setHint(TemposLimite.DICA, Integer.valueOf(TemposLimite.INTERATIVO)).getResultList()
+				.stream().map(projecao::converter).collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Map<String, Object>> buscarCamposPorIds(Long idUsuario, List<Long> ids, ProjecaoLancamento projecao) {
+		return entityManager.createQuery(projecao.getConsultaPorIds(), Tuple.class)
+				.setParameter("idUsuario", idUsuario).setParameter("ids", ids)
+				.setHint(TemposLimite.DICA, Integer.valueOf(TemposLimite.INTERATIVO)).getResultList()
+				.stream().map(projecao::converter).collect(Collectors.toList());
+	}
+
+	void usarFuncaoJanela(boolean suportada) {
+		this.funcaoJanelaSuportada = suportada;
+	}
+
+	private boolean suportaFuncaoJanela() {
+		Boolean suportada = funcaoJanelaSuportada;
+		if (suportada == null) {
+			suportada = jdbcTemplate.execute((ConnectionCallback<Boolean>) conexao -> {
+				DatabaseMetaData metaData = conexao.getMetaData();
+				String banco = metaData.getDatabaseProductName();
+				int versao = metaData.getDatabaseMajorVersion();
+				if (banco.contains("PostgreSQL")) {
+					return versao >= 9;
+				}
+				if (banco.contains("H2")) {
+					// funções de janela a partir do 1.4.198
+					String[] partes = metaData.getDatabaseProductVersion().split("[. ]");
+					int menor = Integer.parseInt(partes[1]);
+					return versao > 1 || menor > 4 || (menor == 4 && Integer.parseInt(partes[2]) >= 198);
+				}
+				if (banco.contains("MySQL")) {
+					return versao >= 8;
+				}
+				return banco.contains("Oracle") || banco.contains("Microsoft SQL Server");
+			});
+			funcaoJanelaSuportada = suportada;
+		}
+		return suportada;
+	}
+
+	private static class SerieSaldo {
+
+		private final List<SaldoMensalDTO> meses = new ArrayList<>();
+		private final YearMonth ate;
+		private YearMonth proximo;
+		private BigDecimal acumulado = BigDecimal.ZERO;
+
+		SerieSaldo(YearMonth de, YearMonth ate) {
+			this.proximo = de;
+			this.ate = ate;
+		}
+
+		boolean vazia() {
+			return meses.isEmpty();
+		}
+
+		void abrir(BigDecimal saldoAnterior) {
+			this.acumulado = saldoAnterior;
+		}
+
+		void adicionar(YearMonth mes, BigDecimal liquido, BigDecimal acumuladoMes) {
+			preencherAte(mes);
+			meses.add(SaldoMensalDTO.builder().ano(mes.getYear()).mes(mes.getMonthValue())
+					.liquido(liquido).acumulado(acumuladoMes).build());
+			acumulado = acumuladoMes;
+			proximo = mes.plusMonths(1);
+		}
+
+		List<SaldoMensalDTO> concluir() {
+			preencherAte(ate.plusMonths(1));
+			return meses;
+		}
+
+		private void preencherAte(YearMonth limite) {
+			while (proximo.isBefore(limite)) {
+				meses.add(SaldoMensalDTO.builder().ano(proximo.getYear()).mes(proximo.getMonthValue())
+						.liquido(BigDecimal.ZERO).acumulado(acumulado).build());
+				proximo = proximo.plusMonths(1);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+
+import javax.persistence.criteria.Expression;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+/**
+ * Predicados da busca de lançamentos. Cada método devolve null quando o filtro não foi informado,
+ * o que o {@link Specification#and(Specification)} ignora.
+ */
+public final class LancamentoSpecifications {
+
+	private LancamentoSpecifications() {
+	}
+
+	public static Specification<Lancamento> de(FiltroLancamentoDTO filtro) {
+		return Specification.where(descricaoContem(filtro.getDescricao()))
+				.and(noAno(filtro.getAno()))
+				.and(noMes(filtro.getMes()))
+				.and(noPeriodo(filtro.getDe(), filtro.getAte()))
+				.and(valorEntre(filtro.getValorMinimo(), filtro.getValorMaximo()))
+				.and(cadastradoEntre(filtro.getCadastradoDe(), filtro.getCadastradoAte()))
+				.and(tipoEm(filtro.getTipos()))
+				.and(statusEm(filtro.getStatus()))
+				.and(filtro.getCategorias() == null || filtro.getCategorias().isEmpty() ? null
+						: comCategorias(Categoria.mascaraDe(filtro.getCategorias()), filtro.isTodasCategorias()));
+	}
+
+	public static Specification<Lancamento> doUsuario(Long idUsuario) {
+		return (lancamento, query, cb) -> cb.equal(lancamento.get("usuario").get("id"), idUsuario);
+	}
+
+	public static Specification<Lancamento> descricaoContem(String texto) {
+		if (texto == null || texto.trim().isEmpty()) {
+			return null;
+		}
+		String padrao = "%" + texto.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+		return (lancamento, query, cb) -> cb.like(cb.lower(lancamento.<String>get("descricao")), padrao, '\\');
+	}
+
+	public static Specification<Lancamento> noAno(Integer ano) {
+		return ano == null ? null : (lancamento, query, cb) -> cb.equal(lancamento.<Integer>get("ano"), ano);
+	}
+
+	public static Specification<Lancamento> noMes(Integer mes) {
+		return mes == null ? null : (lancamento, query, cb) -> cb.equal(lancamento.<Integer>get("mes"), mes);
+	}
+
+	/**
+	 * Intervalo de meses que pode atravessar anos. O limite em "ano" vem primeiro para que o índice
+	 * (id_usuario, ano, mes) seja percorrido por faixa; o "mes" só refina os anos das pontas.
+	 */
+	public static Specification<Lancamento> noPeriodo(YearMonth de, YearMonth ate) {
+		Specification<Lancamento> desde = de == null ? null : (lancamento, query, cb) -> cb.and(
+				cb.ge(lancamento.<Integer>get("ano"), de.getYear()),
+				cb.or(cb.gt(lancamento.<Integer>get("ano"), de.getYear()), cb.ge(lancamento.<Integer>get("mes"), de.getMonthValue())));
+		Specification<Lancamento> ateMes = ate == null ? null : (lancamento, query, cb) -> cb.and(
+				cb.le(lancamento.<Integer>get("ano"), ate.getYear()),
+				cb.or(cb.lt(lancamento.<Integer>get("ano"), ate.getYear()), cb.le(lancamento.<Integer>get("mes"), ate.getMonthValue())));
+		return desde == null && ateMes == null ? null : Specification.where(desde).and(ateMes);
+	}
+
+	public static Specification<Lancamento> valorEntre(BigDecimal minimo, BigDecimal maximo) {
+		if (minimo == null && maximo == null) {
+			return null;
+		}
+		return (lancamento, query, cb) -> {
+			if (maximo == null) {
+				return cb.greaterThanOrEqualTo(lancamento.<BigDecimal>get("valor"), minimo);
+			}
+			if (minimo == null) {
+				return cb.lessThanOrEqualTo(lancamento.<BigDecimal>get("valor"), maximo);
+			}
+			return cb.between(lancamento.<BigDecimal>get("valor"), minimo, maximo);
+		};
+	}
+
+	public static Specification<Lancamento> cadastradoEntre(LocalDate de, LocalDate ate) {
+		if (de == null && ate == null) {
+			return null;
+		}
+		return (lancamento, query, cb) -> {
+			if (ate == null) {
+				return cb.greaterThanOrEqualTo(lancamento.<LocalDate>get("dataCadastro"), de);
+			}
+			if (de == null) {
+				return cb.lessThanOrEqualTo(lancamento.<LocalDate>get("dataCadastro"), ate);
+			}
+			return cb.between(lancamento.<LocalDate>get("dataCadastro"), de, ate);
+		};
+	}
+
+	public static Specification<Lancamento> tipoEm(Collection<TipoLancamento> tipos) {
+		return tipos == null || tipos.isEmpty() ? null : (lancamento, query, cb) -> lancamento.get("tipo").in(tipos);
+	}
+
+	public static Specification<Lancamento> statusEm(Collection<StatusLancamento> status) {
+		return status == null || status.isEmpty() ? null : (lancamento, query, cb) -> lancamento.get("status").in(status);
+	}
+
+	/** Predicado bit a bit sobre a máscara: alguma das categorias ou, com todas, todas elas. */
+	public static Specification<Lancamento> comCategorias(long mascara, boolean todas) {
+		return (lancamento, query, cb) -> {
+			Expression<Long> comuns = cb.function("bitand", Long.class, lancamento.get("categorias"), cb.literal(mascara));
+			return todas ? cb.equal(comuns, mascara) : cb.notEqual(comuns, 0L);
+		};
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.shard.ChaveShard;
+
+public interface OrcamentoRepository extends JpaRepository<Orcamento, Long> {
+
+	List<Orcamento> findByUsuarioId(@ChaveShard Long idUsuario);
+
+	@Query("select distinct o.usuario.id from Orcamento o")
+	List<Long> obterUsuariosComOrcamento();
+
+	@Modifying
+	@Query("delete from Orcamento o where o.usuario.id = :idUsuario and o.idCategoria = :idCategoria")
+	int deletarPorCategoria(@ChaveShard @Param("idUsuario") Long idUsuario, @Param("idCategoria") Long idCategoria);
+
+}
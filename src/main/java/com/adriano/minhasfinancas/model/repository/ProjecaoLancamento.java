@@ -0,0 +1,114 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+
+/**
+ * Colunas de lançamento pedidas pelo cliente ({@code fields=}), validadas contra os campos permitidos.
+ * Os campos seguem sempre a ordem de {@link #CAMPOS}, então cada conjunto de campos tem uma só
+ * projeção, compilada na primeira vez em que é pedido e reaproveitada daí em diante.
+ */
+public final class ProjecaoLancamento {
+
+	// campo da resposta -> caminho na entidade; o usuário sai só como id, sem carregar a entidade
+	private static final Map<String, String> CAMPOS = new LinkedHashMap<>();
+
+	static {
+		CAMPOS.put("id", "id");
+		CAMPOS.put("descricao", "descricao");
+		CAMPOS.put("mes", "mes");
+		CAMPOS.put("ano", "ano");
+		CAMPOS.put("valor", "valor");
+		CAMPOS.put("usuario", "usuario.id");
+		CAMPOS.put("dataCadastro", "dataCadastro");
+		CAMPOS.put("tipo", "tipo");
+		CAMPOS.put("status", "status");
+		CAMPOS.put("categorias", "categorias");
+	}
+
+	private static final List<String> NOMES = new ArrayList<>(CAMPOS.keySet());
+
+	// chave: um bit por campo de NOMES; no máximo 2^10 - 1 projeções
+	private static final Map<Integer, ProjecaoLancamento> COMPILADAS = new ConcurrentHashMap<>();
+
+	private final List<String> campos;
+
+	private final List<String[]> caminhos;
+
+	private final String consultaPorIds;
+
+	private ProjecaoLancamento(int mascara) {
+		List<String> nomes = new ArrayList<>();
+		List<String[]> partes = new ArrayList<>();
+		StringBuilder selecao = new StringBuilder();
+		for (int i = 0; i < NOMES.size(); i++) {
+			if ((mascara & (1 << i)) == 0) {
+				continue;
+			}
+			String nome = NOMES.get(i);
+			nomes.add(nome);
+			partes.add(CAMPOS.get(nome).split("\\."));
+			selecao.append(selecao.length() == 0 ? "" : ", ").append("l.").append(CAMPOS.get(nome)).append(" as ").append(nome);
+		}
+		this.campos = Collections.unmodifiableList(nomes);
+		this.caminhos = partes;
+		this.consultaPorIds = "select " + selecao + " from Lancamento l where l.usuario.id = :idUsuario and l.id in :ids order by l.id";
+	}
+
+	public static ProjecaoLancamento de(Collection<String> nomes) {
+		int mascara = 0;
+		for (String nome : nomes) {
+			int indice = NOMES.indexOf(nome.trim());
+			if (indice < 0) {
+				throw new RegraNegocioException("Campo não suportado: " + nome);
+			}
+			mascara |= 1 << indice;
+		}
+		if (mascara == 0) {
+			throw new RegraNegocioException("Informe ao menos um campo.");
+		}
+		return COMPILADAS.computeIfAbsent(mascara, ProjecaoLancamento::new);
+	}
+
+	public List<String> getCampos() {
+		return campos;
+	}
+
+	String getConsultaPorIds() {
+		return consultaPorIds;
+	}
+
+	List<Selection<?>> selecionar(Root<Lancamento> lancamento) {
+		List<Selection<?>> selecoes = new ArrayList<>(campos.size());
+		for (int i = 0; i < campos.size(); i++) {
+			Path<?> caminho = lancamento;
+			for (String parte : caminhos.get(i)) {
+				caminho = caminho.get(parte);
+			}
+			selecoes.add(caminho.alias(campos.get(i)));
+		}
+		return selecoes;
+	}
+
+	Map<String, Object> converter(Tuple linha) {
+		Map<String, Object> valores = new LinkedHashMap<>();
+		for (int i = 0; i < campos.size(); i++) {
+			valores.put(campos.get(i), linha.get(i));
+		}
+		return valores;
+	}
+
+}
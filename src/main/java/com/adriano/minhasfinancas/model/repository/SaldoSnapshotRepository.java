@@ -0,0 +1,14 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.adriano.minhasfinancas.model.entity.SaldoSnapshot;
+
+public interface SaldoSnapshotRepository extends JpaRepository<SaldoSnapshot, Long> {
+
+	List<SaldoSnapshot> findByDataReferenciaAndIdUsuario(LocalDate dataReferencia, Long idUsuario);
+	
+}
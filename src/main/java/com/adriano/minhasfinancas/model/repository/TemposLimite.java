@@ -0,0 +1,22 @@
+package com.adriano.minhasfinancas.model.repository;
+
+/**
+ * Tempo limite de cada comando dos repositórios, em ms (dica {@code javax.persistence.query.timeout},
+ * arredondada para segundos pelo driver). Um comando que passa disso é cancelado no banco e libera a conexão.
+ */
+public final class TemposLimite {
+
+	public static final String DICA = "javax.persistence.query.timeout";
+
+	// consultas das telas: depois disso o usuário já desistiu da resposta
+	public static final String INTERATIVO = "3000";
+
+	public static final String ESCRITA = "5000";
+
+	// cargas de cache, importação e expurgo
+	public static final String LOTE = "60000";
+
+	private TemposLimite() {
+	}
+
+}
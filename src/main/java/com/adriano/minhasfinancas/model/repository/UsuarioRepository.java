@@ -1,8 +1,13 @@
 package com.adriano.minhasfinancas.model.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.adriano.minhasfinancas.model.entity.Usuario;
 
@@ -11,8 +16,14 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long>{
 	
 	
 
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
 	boolean existsByEmail(String email);
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.INTERATIVO))
 	Optional<Usuario>findByEmail(String email);
+
+	@QueryHints(@QueryHint(name = TemposLimite.DICA, value = TemposLimite.LOTE))
+	@Query("select u.email from Usuario u where u.email is not null")
+	List<String> obterEmails();
 	
 	
 }
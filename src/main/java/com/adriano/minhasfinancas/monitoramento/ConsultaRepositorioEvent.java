@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("minhasfinancas.ConsultaRepositorio")
+@Label("Consulta de repositório")
+@Description("Chamada ao repositório de lançamentos mais lenta que o limite")
+@Category({ "Minhas Finanças", "Repositório" })
+@Threshold("10 ms")
+@StackTrace(false)
+public class ConsultaRepositorioEvent extends RegistroOperacaoEvent {
+
+}
@@ -0,0 +1,179 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.repository.query.Param;
+
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.shard.ChaveShard;
+
+/**
+ * Emite os eventos do JFR das operações de lançamentos e usuários. Sem gravação ativa o custo é um
+ * {@code isEnabled()}; com gravação, usuário, filtro e linhas só são extraídos das chamadas que passaram
+ * do limite do evento, as únicas que vão para o arquivo.
+ */
+@Aspect
+public class EventosJfrAspect {
+
+	private static final List<Field> CAMPOS_FILTRO = new ArrayList<>();
+
+	static {
+		for (Field campo : FiltroLancamentoDTO.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(campo.getModifiers()) && !"usuario".equals(campo.getName())) {
+				campo.setAccessible(true);
+				CAMPOS_FILTRO.add(campo);
+			}
+		}
+	}
+
+	@Around("execution(public * com.adriano.minhasfinancas.service.impl.LancamentoServiceImpl.*(..))"
+			+ " || execution(public * com.adriano.minhasfinancas.service.impl.UsuarioServiceImpl.*(..))")
+	public Object registrarServico(ProceedingJoinPoint joinPoint) throws Throwable {
+		return registrar(new OperacaoServicoEvent(), joinPoint);
+	}
+
+	@Around("target(com.adriano.minhasfinancas.model.repository.LancamentoRepository)")
+	public Object registrarRepositorio(ProceedingJoinPoint joinPoint) throws Throwable {
+		return registrar(new ConsultaRepositorioEvent(), joinPoint);
+	}
+
+	private static Object registrar(RegistroOperacaoEvent evento, ProceedingJoinPoint joinPoint) throws Throwable {
+		if (!evento.isEnabled()) {
+			return joinPoint.proceed();
+		}
+		evento.begin();
+		Object resultado = null;
+		Throwable erro = null;
+		try {
+			resultado = joinPoint.proceed();
+			return resultado;
+		} catch (Throwable e) {
+			erro = e;
+			throw e;
+		} finally {
+			evento.end();
+			if (evento.shouldCommit()) {
+				preencher(evento, (MethodSignature) joinPoint.getSignature(), joinPoint.getArgs(), resultado, erro);
+				evento.commit();
+			}
+		}
+	}
+
+	private static void preencher(RegistroOperacaoEvent evento, MethodSignature assinatura, Object[] argumentos,
+			Object resultado, Throwable erro) {
+		Method metodo = assinatura.getMethod();
+		evento.classe = assinatura.getDeclaringType().getSimpleName();
+		evento.metodo = metodo.getName();
+		Long idUsuario = idUsuario(metodo, assinatura.getParameterNames(), argumentos);
+		evento.idUsuario = idUsuario == null ? 0 : idUsuario;
+		evento.filtro = filtro(metodo, argumentos);
+		evento.linhas = erro == null ? linhas(metodo.getReturnType(), resultado) : -1;
+		evento.erro = erro == null ? null : erro.getClass().getSimpleName();
+	}
+
+	private static Long idUsuario(Method metodo, String[] nomes, Object[] argumentos) {
+		Annotation[][] anotacoes = metodo.getParameterAnnotations();
+		for (int i = 0; i < argumentos.length; i++) {
+			for (Annotation anotacao : anotacoes[i]) {
+				if (anotacao instanceof ChaveShard && argumentos[i] instanceof Long) {
+					return (Long) argumentos[i];
+				}
+			}
+			if (argumentos[i] instanceof Long && nomes != null && "idUsuario".equals(nomes[i])) {
+				return (Long) argumentos[i];
+			}
+		}
+		for (Object argumento : argumentos) {
+			if (argumento instanceof FiltroLancamentoDTO) {
+				return ((FiltroLancamentoDTO) argumento).getUsuario();
+			}
+			if (argumento instanceof Lancamento && ((Lancamento) argumento).getUsuario() != null) {
+				return ((Lancamento) argumento).getUsuario().getId();
+			}
+			if (argumento instanceof Usuario) {
+				return ((Usuario) argumento).getId();
+			}
+		}
+		return null;
+	}
+
+	// só os nomes: "ano,tipos" agrupa as buscas pelo formato sem levar os valores para a gravação
+	private static String filtro(Method metodo, Object[] argumentos) {
+		StringJoiner nomes = new StringJoiner(",");
+		for (Object argumento : argumentos) {
+			if (argumento instanceof FiltroLancamentoDTO) {
+				camposInformados((FiltroLancamentoDTO) argumento, nomes);
+				return nomes.toString();
+			}
+		}
+		if (metodo.getDeclaringClass().isInterface()) {
+			Annotation[][] anotacoes = metodo.getParameterAnnotations();
+			for (int i = 0; i < argumentos.length; i++) {
+				if (argumentos[i] != null) {
+					nomes.add(nomeParametro(anotacoes[i], argumentos[i]));
+				}
+			}
+		}
+		return nomes.length() == 0 ? null : nomes.toString();
+	}
+
+	private static void camposInformados(FiltroLancamentoDTO filtro, StringJoiner nomes) {
+		for (Field campo : CAMPOS_FILTRO) {
+			try {
+				Object valor = campo.get(filtro);
+				if (valor != null && !Boolean.FALSE.equals(valor)
+						&& !(valor instanceof Collection && ((Collection<?>) valor).isEmpty())
+						&& !(valor instanceof String && ((String) valor).isEmpty())) {
+					nomes.add(campo.getName());
+				}
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private static String nomeParametro(Annotation[] anotacoes, Object argumento) {
+		for (Annotation anotacao : anotacoes) {
+			if (anotacao instanceof Param) {
+				return ((Param) anotacao).value();
+			}
+		}
+		return argumento.getClass().getSimpleName();
+	}
+
+	private static long linhas(Class<?> tipoRetorno, Object resultado) {
+		if (resultado instanceof Collection) {
+			return ((Collection<?>) resultado).size();
+		}
+		if (resultado instanceof Map) {
+			return ((Map<?, ?>) resultado).size();
+		}
+		if (resultado instanceof Optional) {
+			return ((Optional<?>) resultado).isPresent() ? 1 : 0;
+		}
+		// contagens e comandos de alteração; valores como o saldo não são linhas
+		if (tipoRetorno == int.class || tipoRetorno == long.class || tipoRetorno == Integer.class || tipoRetorno == Long.class) {
+			return resultado == null ? -1 : ((Number) resultado).longValue();
+		}
+		if (resultado instanceof Lancamento || resultado instanceof Usuario) {
+			return 1;
+		}
+		return -1;
+	}
+
+}
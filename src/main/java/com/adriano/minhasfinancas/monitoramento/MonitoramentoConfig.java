@@ -0,0 +1,22 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Eventos do JFR das operações de lançamentos e usuários; só sobe em JVMs com o Flight Recorder
+ * (JDK 8 a partir do 8u262 ou JDK 11+). Os limites de cada evento estão em {@code jfr/minhasfinancas.jfc}.
+ */
+@Configuration
+@ConditionalOnClass(name = "jdk.jfr.Event")
+@ConditionalOnProperty(name = "minhasfinancas.jfr.eventos", matchIfMissing = true)
+public class MonitoramentoConfig {
+
+	@Bean
+	public EventosJfrAspect eventosJfrAspect() {
+		return new EventosJfrAspect();
+	}
+
+}
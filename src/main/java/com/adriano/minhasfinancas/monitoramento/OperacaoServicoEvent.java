@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("minhasfinancas.OperacaoServico")
+@Label("Operação de serviço")
+@Description("Chamada a um método de serviço de lançamentos ou usuários mais lenta que o limite")
+@Category({ "Minhas Finanças", "Serviço" })
+@Threshold("20 ms")
+@StackTrace(false)
+public class OperacaoServicoEvent extends RegistroOperacaoEvent {
+
+}
@@ -0,0 +1,33 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Campos comuns dos eventos do JFR da aplicação. A duração é a do próprio evento (begin/end);
+ * os campos só são preenchidos quando o evento vai ser gravado.
+ */
+public abstract class RegistroOperacaoEvent extends Event {
+
+	@Label("Classe")
+	String classe;
+
+	@Label("Método")
+	String metodo;
+
+	// 0 quando a chamada não é de um usuário só
+	@Label("Id do usuário")
+	long idUsuario;
+
+	// nomes dos filtros informados, não os valores: agrupa as chamadas sem expor dados do usuário
+	@Label("Filtro")
+	String filtro;
+
+	// linhas devolvidas ou alteradas; -1 quando o retorno não é uma contagem nem coleção
+	@Label("Linhas")
+	long linhas;
+
+	@Label("Erro")
+	String erro;
+
+}
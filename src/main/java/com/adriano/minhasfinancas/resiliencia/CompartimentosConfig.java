@@ -0,0 +1,129 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.Filter;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Compartimentos de conexão (leitura, escrita e lote) e o disjuntor do banco. No perfil "sharding"
+ * cada shard continua com o seu pool; lá só o disjuntor e o tempo limite dos comandos se aplicam.
+ */
+@Configuration
+public class CompartimentosConfig {
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	@Bean
+	public Disjuntor disjuntorBanco(
+			@Value("${minhasfinancas.banco.disjuntor.falhas-para-abrir:5}") int falhasParaAbrir,
+			@Value("${minhasfinancas.banco.disjuntor.janela-ms:10000}") long janelaMs,
+			@Value("${minhasfinancas.banco.disjuntor.aberto-ms:5000}") long abertoMs) {
+		return new Disjuntor(falhasParaAbrir, janelaMs, abertoMs);
+	}
+
+	@Bean
+	@Primary
+	@Profile("!sharding")
+	public DataSource dataSource(DataSourceProperties propriedades, Disjuntor disjuntorBanco,
+			@Value("${minhasfinancas.banco.compartimentos.leitura:10}") int leitura,
+			@Value("${minhasfinancas.banco.compartimentos.escrita:5}") int escrita,
+			@Value("${minhasfinancas.banco.compartimentos.lote:3}") int lote,
+			@Value("${minhasfinancas.banco.compartimentos.espera-conexao-ms:1000}") long esperaConexaoMs) {
+		Map<Compartimento, DataSource> compartimentos = new EnumMap<>(Compartimento.class);
+		compartimentos.put(Compartimento.LEITURA, criarPool(propriedades, Compartimento.LEITURA, leitura, esperaConexaoMs));
+		compartimentos.put(Compartimento.ESCRITA, criarPool(propriedades, Compartimento.ESCRITA, escrita, esperaConexaoMs));
+		compartimentos.put(Compartimento.LOTE, criarPool(propriedades, Compartimento.LOTE, lote, esperaConexaoMs));
+		return new LazyConnectionDataSourceProxy(new CompartimentosDataSource(compartimentos, disjuntorBanco));
+	}
+
+	/**
+	 * A conexão volta ao pool no fim de cada transação (hibernate.connection.handling_mode), então o dialeto
+	 * não a prepara com read-only: no fim da transação já não haveria a mesma conexão para restaurar.
+	 * O compartimento continua vindo do readOnly da transação.
+	 */
+	@Bean
+	public JpaVendorAdapter jpaVendorAdapter(JpaProperties jpa, DataSource dataSource) {
+		HibernateJpaVendorAdapter adaptador = new HibernateJpaVendorAdapter();
+		adaptador.setPrepareConnection(false);
+		adaptador.setShowSql(jpa.isShowSql());
+		adaptador.setDatabase(jpa.determineDatabase(dataSource));
+		adaptador.setDatabasePlatform(jpa.getDatabasePlatform());
+		adaptador.setGenerateDdl(jpa.isGenerateDdl());
+		return adaptador;
+	}
+
+	@Bean
+	public DisjuntorAspect disjuntorAspect(Disjuntor disjuntorBanco) {
+		return new DisjuntorAspect(disjuntorBanco);
+	}
+
+	/** Com o disjuntor aberto a API responde 503 sem esperar pelo banco; o mesmo vale para erros de saturação. */
+	@Bean
+	public FilterRegistrationBean<Filter> disjuntorFilter(Disjuntor disjuntorBanco) {
+		Filter filtro = (request, response, chain) -> {
+			if (disjuntorBanco.aberto()) {
+				indisponivel((HttpServletResponse) response);
+				return;
+			}
+			try {
+				chain.doFilter(request, response);
+			} catch (ServletException | RuntimeException e) {
+				if (!Disjuntor.saturacao(e) || response.isCommitted()) {
+					throw e;
+				}
+				indisponivel((HttpServletResponse) response);
+			}
+		};
+		FilterRegistrationBean<Filter> registro = new FilterRegistrationBean<>(filtro);
+		registro.addUrlPatterns("/api/*");
+		return registro;
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		pools.forEach(HikariDataSource::close);
+	}
+
+	private HikariDataSource criarPool(DataSourceProperties propriedades, Compartimento compartimento, int tamanho, long esperaConexaoMs) {
+		HikariDataSource pool = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		pool.setPoolName("minhasfinancas-" + compartimento.name().toLowerCase());
+		pool.setMaximumPoolSize(tamanho);
+		pool.setConnectionTimeout(esperaConexaoMs);
+		pools.add(pool);
+		return pool;
+	}
+
+	private static void indisponivel(HttpServletResponse response) throws IOException {
+		response.resetBuffer();
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentType("text/plain;charset=UTF-8");
+		response.getWriter().write("Banco de dados saturado, tente novamente em instantes.");
+	}
+
+}
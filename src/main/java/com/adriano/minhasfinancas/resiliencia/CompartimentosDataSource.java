@@ -0,0 +1,57 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.adriano.minhasfinancas.exception.BancoIndisponivelException;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+
+/**
+ * Um pool de conexões por {@link Compartimento}: uma listagem lenta ou uma carga em lote esgota só o
+ * próprio pool e não segura as conexões de login e gravação. Precisa ficar atrás de um
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, para que a escolha seja feita
+ * no primeiro comando, quando a transação já sabe se é somente leitura.
+ */
+public class CompartimentosDataSource extends AbstractRoutingDataSource {
+
+	private final Disjuntor disjuntor;
+
+	public CompartimentosDataSource(Map<Compartimento, DataSource> pools, Disjuntor disjuntor) {
+		this.disjuntor = disjuntor;
+		setTargetDataSources(new HashMap<>(pools));
+		setDefaultTargetDataSource(pools.get(Compartimento.ESCRITA));
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		Compartimento compartimento = ContextoCompartimento.atual();
+		if (compartimento != null) {
+			return compartimento;
+		}
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Compartimento.LEITURA : Compartimento.ESCRITA;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!disjuntor.permitir()) {
+			throw new BancoIndisponivelException("Banco de dados saturado, tente novamente em instantes.");
+		}
+		try {
+			return super.getConnection();
+		} catch (SQLTransientConnectionException e) {
+			// nenhuma conexão do compartimento ficou livre dentro do prazo
+			disjuntor.registrarFalha();
+			throw e;
+		}
+	}
+
+}
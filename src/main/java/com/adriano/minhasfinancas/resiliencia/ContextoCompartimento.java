@@ -0,0 +1,43 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import java.util.function.Supplier;
+
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+
+/**
+ * Compartimento escolhido explicitamente pela thread atual, lido pelo {@link CompartimentosDataSource}
+ * quando a conexão física é obtida. Sem ele a escolha vem da transação: somente leitura ou escrita.
+ */
+public final class ContextoCompartimento {
+
+	private static final ThreadLocal<Compartimento> ATUAL = new ThreadLocal<>();
+
+	private ContextoCompartimento() {
+	}
+
+	public static Compartimento atual() {
+		return ATUAL.get();
+	}
+
+	public static <T> T executar(Compartimento compartimento, Supplier<T> acao) {
+		Compartimento anterior = ATUAL.get();
+		ATUAL.set(compartimento);
+		try {
+			return acao.get();
+		} finally {
+			if (anterior == null) {
+				ATUAL.remove();
+			} else {
+				ATUAL.set(anterior);
+			}
+		}
+	}
+
+	public static void executar(Compartimento compartimento, Runnable acao) {
+		executar(compartimento, () -> {
+			acao.run();
+			return null;
+		});
+	}
+
+}
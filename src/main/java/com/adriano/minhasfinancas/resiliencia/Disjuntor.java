@@ -0,0 +1,121 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adriano.minhasfinancas.exception.BancoIndisponivelException;
+import com.adriano.minhasfinancas.model.enums.EstadoDisjuntor;
+
+/**
+ * Disjuntor do banco: com {@code falhasParaAbrir} esperas esgotadas (pela conexão do pool ou pelo
+ * tempo limite de um comando) dentro de {@code janelaMs}, abre e recusa novas conexões na hora por
+ * {@code abertoMs}. Passado esse tempo libera uma tentativa; se ela der certo fecha, senão reabre.
+ */
+public class Disjuntor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Disjuntor.class);
+
+	private final int falhasParaAbrir;
+
+	private final long janelaNanos;
+
+	private final long abertoNanos;
+
+	private final Deque<Long> falhas = new ArrayDeque<>();
+
+	private EstadoDisjuntor estado = EstadoDisjuntor.FECHADO;
+
+	private long proximaTentativa;
+
+	public Disjuntor(int falhasParaAbrir, long janelaMs, long abertoMs) {
+		this.falhasParaAbrir = falhasParaAbrir;
+		this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMs);
+		this.abertoNanos = TimeUnit.MILLISECONDS.toNanos(abertoMs);
+	}
+
+	/** Chamado antes de cada conexão física; fora do estado fechado só a tentativa da vez passa. */
+	public synchronized boolean permitir() {
+		if (estado == EstadoDisjuntor.FECHADO) {
+			return true;
+		}
+		long agora = System.nanoTime();
+		if (agora - proximaTentativa >= 0) {
+			estado = EstadoDisjuntor.MEIO_ABERTO;
+			proximaTentativa = agora + abertoNanos;
+			return true;
+		}
+		return false;
+	}
+
+	/** Se uma requisição já pode ser recusada sem nem tentar o banco. */
+	public synchronized boolean aberto() {
+		return estado != EstadoDisjuntor.FECHADO && System.nanoTime() - proximaTentativa < 0;
+	}
+
+	public synchronized void registrarSucesso() {
+		if (estado == EstadoDisjuntor.MEIO_ABERTO) {
+
+			LOGGER.info("#### Método: Disjuntor.registrarSucesso(), status: SUCESSO, mensagem: banco respondeu, disjuntor fechado");
+
+			estado = EstadoDisjuntor.FECHADO;
+			falhas.clear();
+		}
+	}
+
+	public synchronized void registrarFalha() {
+		long agora = System.nanoTime();
+		if (estado == EstadoDisjuntor.MEIO_ABERTO) {
+			abrir(agora);
+			return;
+		}
+		falhas.addLast(agora);
+		while (agora - falhas.peekFirst() > janelaNanos) {
+			falhas.removeFirst();
+		}
+		if (estado == EstadoDisjuntor.FECHADO && falhas.size() >= falhasParaAbrir) {
+			abrir(agora);
+		}
+	}
+
+	public synchronized EstadoDisjuntor obterEstado() {
+		return estado;
+	}
+
+	/** Comando interrompido pelo tempo limite: o banco está lento para todos, não só para esta consulta. */
+	public static boolean tempoEsgotado(Throwable erro) {
+		for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+			if (causa instanceof SQLTimeoutException || causa instanceof org.springframework.dao.QueryTimeoutException
+					|| causa instanceof javax.persistence.QueryTimeoutException || causa instanceof org.hibernate.QueryTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Erro que vira 503: disjuntor aberto, pool sem conexão livre no prazo ou comando interrompido pelo tempo limite. */
+	public static boolean saturacao(Throwable erro) {
+		for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+			if (causa instanceof BancoIndisponivelException || causa instanceof SQLTransientConnectionException) {
+				return true;
+			}
+		}
+		return tempoEsgotado(erro);
+	}
+
+	private void abrir(long agora) {
+
+		LOGGER.info("#### Método: Disjuntor.abrir(), status: WARNING, mensagemWarning: banco saturado, disjuntor aberto por "
+				+ TimeUnit.NANOSECONDS.toMillis(abertoNanos) + " ms");
+
+		estado = EstadoDisjuntor.ABERTO;
+		proximaTentativa = agora + abertoNanos;
+		falhas.clear();
+	}
+
+}
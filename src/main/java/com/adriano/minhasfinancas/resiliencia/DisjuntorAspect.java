@@ -0,0 +1,38 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Alimenta o {@link Disjuntor} com o resultado das chamadas de repositório: comando interrompido pelo
+ * tempo limite conta como falha e qualquer chamada concluída confirma a tentativa do meio aberto.
+ * A falta de conexão no pool é contada no próprio {@link CompartimentosDataSource}.
+ */
+@Aspect
+public class DisjuntorAspect {
+
+	private final Disjuntor disjuntor;
+
+	public DisjuntorAspect(Disjuntor disjuntor) {
+		this.disjuntor = disjuntor;
+	}
+
+	@Around("target(com.adriano.minhasfinancas.model.repository.LancamentoRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.UsuarioRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.CategoriaRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.OrcamentoRepository)")
+	public Object registrar(ProceedingJoinPoint joinPoint) throws Throwable {
+		try {
+			Object resultado = joinPoint.proceed();
+			disjuntor.registrarSucesso();
+			return resultado;
+		} catch (Throwable e) {
+			if (Disjuntor.tempoEsgotado(e)) {
+				disjuntor.registrarFalha();
+			}
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.adriano.minhasfinancas.model.entity.Categoria;
+
+public interface CategoriaService {
+
+	Categoria salvar(Categoria categoria);
+	
+	List<Categoria> listar(Long idUsuario);
+	
+	Optional<Categoria> obterPorId(Long id);
+	
+	void deletar(Categoria categoria);
+	
+	long obterMascara(Long idUsuario, Collection<Long> idsCategoria);
+	
+	Map<String, BigDecimal> obterTotais(Long idUsuario);
+	
+}
@@ -0,0 +1,16 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import com.adriano.minhasfinancas.diario.RegistroDiario;
+
+public interface DiarioLancamentoService {
+
+	/** Saldo do usuário como estava no instante informado, reconstruído a partir do diário. */
+	BigDecimal obterSaldoEm(Long idUsuario, Instant instante);
+
+	List<RegistroDiario> obterRegistros(Long idUsuario, Instant de, Instant ate);
+
+}
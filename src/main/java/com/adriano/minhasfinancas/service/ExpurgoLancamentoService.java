@@ -0,0 +1,7 @@
+package com.adriano.minhasfinancas.service;
+
+public interface ExpurgoLancamentoService {
+
+	int expurgar();
+	
+}
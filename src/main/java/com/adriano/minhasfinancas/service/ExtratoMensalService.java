@@ -0,0 +1,15 @@
+package com.adriano.minhasfinancas.service;
+
+import java.time.YearMonth;
+import java.util.Optional;
+
+import com.adriano.minhasfinancas.dto.ArquivoExtratoDTO;
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+
+public interface ExtratoMensalService {
+
+	Optional<ArquivoExtratoDTO> obter(Long idUsuario, YearMonth mes, FormatoExtratoMensal formato);
+	
+	int gerarMes(YearMonth mes);
+	
+}
@@ -0,0 +1,14 @@
+package com.adriano.minhasfinancas.service;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import com.adriano.minhasfinancas.dto.ImportacaoExtratoDTO;
+import com.adriano.minhasfinancas.importacao.FormatoExtrato;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+
+public interface ImportacaoExtratoService {
+
+	ImportacaoExtratoDTO importar(Usuario usuario, InputStream arquivo, FormatoExtrato formato, Charset charset);
+	
+}
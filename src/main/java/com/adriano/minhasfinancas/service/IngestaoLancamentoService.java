@@ -0,0 +1,14 @@
+package com.adriano.minhasfinancas.service;
+
+import java.util.Optional;
+
+import com.adriano.minhasfinancas.dto.IngestaoDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+
+public interface IngestaoLancamentoService {
+
+	IngestaoDTO enfileirar(Lancamento lancamento);
+	
+	Optional<IngestaoDTO> obterSituacao(String protocolo);
+	
+}
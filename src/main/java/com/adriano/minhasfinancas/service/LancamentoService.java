@@ -1,10 +1,15 @@
 package com.adriano.minhasfinancas.service;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
 import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
 import com.adriano.minhasfinancas.model.enums.StatusLancamento;
 
 
@@ -12,12 +17,21 @@ import com.adriano.minhasfinancas.model.enums.StatusLancamento;
 public interface LancamentoService {
 
 	Lancamento salvar(Lancamento lancamento);
+	List<Lancamento> salvarEmLote(List<Lancamento> lancamentos);
 	Lancamento atualizar(Lancamento lancamento);
 	void deletar(Lancamento lancamento);
-	List<Lancamento> buscar(Lancamento lancamentoFiltro);
+	Lancamento restaurar(Long idUsuario, Long id);
+	int deletarPorFiltro(Long idUsuario, Integer ano, Integer mes, StatusLancamento status);
+	int deletarPorIds(Long idUsuario, List<Long> ids);
+	List<Lancamento> buscar(FiltroLancamentoDTO filtro);
+	List<LancamentoDTO> buscarPorIds(Long idUsuario, List<Long> ids);
+	List<Map<String, Object>> buscarCampos(FiltroLancamentoDTO filtro, List<String> campos);
+	List<Map<String, Object>> buscarCamposPorIds(Long idUsuario, List<Long> ids, List<String> campos);
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	void validar(Lancamento lancamento);
 	Optional<Lancamento> obterPorId(Long id);
 	
 	BigDecimal obterSaldoPorUsuario(Long id);
+	
+	List<SaldoMensalDTO> obterSerieSaldo(Long idUsuario, YearMonth de, YearMonth ate);
 }
@@ -0,0 +1,9 @@
+package com.adriano.minhasfinancas.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface NotificacaoService {
+
+	SseEmitter assinar(Long idUsuario);
+	
+}
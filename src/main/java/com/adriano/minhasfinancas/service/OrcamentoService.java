@@ -0,0 +1,31 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+
+public interface OrcamentoService {
+
+	Orcamento salvar(Orcamento orcamento);
+
+	List<Orcamento> listar(Long idUsuario, Integer ano, Integer mes);
+
+	Optional<Orcamento> obterPorId(Long id);
+
+	void deletar(Orcamento orcamento);
+
+	void deletarPorCategoria(Categoria categoria);
+
+	BigDecimal obterGasto(Orcamento orcamento);
+
+	/**
+	 * Orçamentos cujo limite foi ultrapassado pela gravação já confirmada de {@code lancamento},
+	 * que antes estava como {@code anterior} (nulo numa inclusão).
+	 */
+	List<Orcamento> verificar(Lancamento anterior, Lancamento lancamento);
+
+}
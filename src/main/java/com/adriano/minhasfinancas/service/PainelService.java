@@ -0,0 +1,11 @@
+package com.adriano.minhasfinancas.service;
+
+import java.time.YearMonth;
+
+import com.adriano.minhasfinancas.dto.PainelDTO;
+
+public interface PainelService {
+
+	PainelDTO obterPainel(Long idUsuario, YearMonth mes, int quantidadeUltimos);
+
+}
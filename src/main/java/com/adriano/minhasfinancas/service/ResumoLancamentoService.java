@@ -0,0 +1,18 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Map;
+
+public interface ResumoLancamentoService {
+
+	Map<String, BigDecimal> obterTotaisPorTipo(Long idUsuario);
+	
+	Map<String, BigDecimal> obterTotaisPorStatus(Long idUsuario);
+	
+	Map<Integer, BigDecimal> obterTotaisPorMes(Long idUsuario, Integer ano);
+	
+	/** Líquido (receitas - despesas) dos meses de {@code de} a {@code ate}, inclusive. */
+	BigDecimal obterSaldoDoPeriodo(Long idUsuario, YearMonth de, YearMonth ate);
+	
+}
@@ -0,0 +1,16 @@
+package com.adriano.minhasfinancas.service;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import com.adriano.minhasfinancas.dto.ProgressoSnapshotDTO;
+
+public interface SnapshotSaldoService {
+
+	ProgressoSnapshotDTO gerar(LocalDate dataReferencia);
+	
+	boolean iniciar(LocalDate dataReferencia);
+	
+	Optional<ProgressoSnapshotDTO> obterProgresso(LocalDate dataReferencia);
+	
+}
@@ -0,0 +1,153 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.CategoriaRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.service.CategoriaService;
+import com.adriano.minhasfinancas.service.OrcamentoService;
+
+@Service
+public class CategoriaServiceImpl implements CategoriaService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CategoriaServiceImpl.class);
+
+	private final CategoriaRepository repository;
+
+	private final LancamentoRepository lancamentoRepository;
+
+	private final OrcamentoService orcamentoService;
+
+	private final ApplicationEventPublisher publisher;
+
+	public CategoriaServiceImpl(CategoriaRepository repository, LancamentoRepository lancamentoRepository,
+			OrcamentoService orcamentoService, ApplicationEventPublisher publisher) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.orcamentoService = orcamentoService;
+		this.publisher = publisher;
+	}
+
+	@Override
+	@Transactional
+	public Categoria salvar(Categoria categoria) {
+
+		LOGGER.info("#### Método: CategoriaServiceImpl.salvar(), status: INICIO, idUsuario: "+ categoria.getUsuario().getId() + ", nome: "+ categoria.getNome());
+
+		if (categoria.getNome() == null || categoria.getNome().trim().isEmpty()) {
+			throw new RegraNegocioException("Informe um nome de categoria válido");
+		}
+		String nome = categoria.getNome().trim();
+		long ocupados = 0;
+		for (Categoria existente : repository.findByUsuarioIdOrderByBit(categoria.getUsuario().getId())) {
+			if (existente.getNome().equalsIgnoreCase(nome)) {
+				throw new RegraNegocioException("Já existe uma categoria com este nome");
+			}
+			ocupados |= 1L << existente.getBit();
+		}
+		// menor bit livre; o bit de sinal fica de fora
+		int bit = Long.numberOfTrailingZeros(~ocupados);
+		if (bit >= Categoria.MAXIMO_POR_USUARIO) {
+			throw new RegraNegocioException("Limite de " + Categoria.MAXIMO_POR_USUARIO + " categorias por usuário atingido");
+		}
+		categoria.setNome(nome);
+		categoria.setBit(bit);
+		categoria.setId(Categoria.idDe(categoria.getUsuario().getId(), bit));
+		return repository.save(categoria);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Categoria> listar(Long idUsuario) {
+
+		LOGGER.info("#### Método: CategoriaServiceImpl.listar(), status: INICIO, idUsuario: "+ idUsuario);
+
+		return repository.findByUsuarioIdOrderByBit(idUsuario);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Categoria> obterPorId(Long id) {
+
+		LOGGER.info("#### Método: CategoriaServiceImpl.obterPorId(), status: INICIO, id: "+ id);
+
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional
+	public void deletar(Categoria categoria) {
+
+		LOGGER.info("#### Método: CategoriaServiceImpl.deletar(), status: INICIO, id: "+ categoria.getId());
+
+		Long idUsuario = categoria.getUsuario().getId();
+		long bit = 1L << categoria.getBit();
+		// o bit é liberado nos lançamentos antes de poder ser reaproveitado por outra categoria
+		int alterados = lancamentoRepository.removerCategoria(idUsuario, bit, ~bit);
+		orcamentoService.deletarPorCategoria(categoria);
+		repository.delete(categoria);
+		if (alterados > 0) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.ATUALIZADO, idUsuario));
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public long obterMascara(Long idUsuario, Collection<Long> idsCategoria) {
+		if (idsCategoria == null || idsCategoria.isEmpty()) {
+			return 0;
+		}
+		long existentes = 0;
+		for (Categoria categoria : repository.findByUsuarioIdOrderByBit(idUsuario)) {
+			existentes |= 1L << categoria.getBit();
+		}
+		for (Long id : idsCategoria) {
+			if (Categoria.usuarioDe(id) != idUsuario || (existentes & (1L << Categoria.bitDe(id))) == 0) {
+				throw new RegraNegocioException("Categoria não encontrada para o usuário: " + id);
+			}
+		}
+		return Categoria.mascaraDe(idsCategoria);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, BigDecimal> obterTotais(Long idUsuario) {
+
+		LOGGER.info("#### Método: CategoriaServiceImpl.obterTotais(), status: INICIO, idUsuario: "+ idUsuario);
+
+		BigDecimal[] porBit = new BigDecimal[Categoria.MAXIMO_POR_USUARIO];
+		for (Object[] linha : lancamentoRepository.obterTotaisPorCategorias(idUsuario, TipoLancamento.RECEITA)) {
+			long mascara = (Long) linha[0];
+			BigDecimal soma = (BigDecimal) linha[1];
+			// cada combinação de categorias soma em todos os seus bits
+			while (mascara != 0) {
+				int bit = Long.numberOfTrailingZeros(mascara);
+				porBit[bit] = porBit[bit] == null ? soma : porBit[bit].add(soma);
+				mascara &= mascara - 1;
+			}
+		}
+		Map<String, BigDecimal> totais = new LinkedHashMap<>();
+		for (Categoria categoria : repository.findByUsuarioIdOrderByBit(idUsuario)) {
+			BigDecimal total = porBit[categoria.getBit()];
+			totais.put(categoria.getNome(), total == null ? BigDecimal.ZERO : total);
+		}
+		return totais;
+	}
+
+}
@@ -0,0 +1,341 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.adriano.minhasfinancas.diario.Diario;
+import com.adriano.minhasfinancas.diario.RegistroDiario;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoRegistroDiario;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.DiarioLancamentoService;
+
+/**
+ * Grava no {@link Diario} cada alteração de lançamento confirmada. As alterações entram numa fila e
+ * uma única thread as acrescenta ao diário, forçando o disco uma vez por lote; a cada
+ * {@code retratoACada} registros grava um retrato dos saldos, a partir do qual a consulta de saldo
+ * num instante reproduz só os registros seguintes.
+ */
+@Service
+public class DiarioLancamentoServiceImpl implements DiarioLancamentoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DiarioLancamentoServiceImpl.class);
+
+	private static final int TAMANHO_LOTE = 1000;
+
+	private static final int MAXIMO_REGISTROS = 1000;
+
+	private static final long ESPERA_GRAVACAO_MS = 1000;
+
+	private static final int TENTATIVAS_RETRATO_INICIAL = 3;
+
+	private static final long ESPERA_TENTATIVA_MS = 1000;
+
+	private final LancamentoRepository repository;
+
+	private final String diretorio;
+
+	private final int registrosPorSegmento;
+
+	private final int retratoACada;
+
+	private final int retratosMantidos;
+
+	// sem limite: descartar uma alteração confirmada deixaria o diário inconsistente
+	private final BlockingQueue<AlteracaoDiario> fila = new LinkedBlockingQueue<>();
+
+	// o retrato inicial conta como o primeiro item, para que as consultas também esperem por ele
+	private final AtomicLong enfileirados = new AtomicLong(1);
+
+	private final Object monitorGravados = new Object();
+
+	private volatile long gravados;
+
+	// saldo atual em centavos por usuário; só a thread de gravação acessa
+	private final Map<Long, Long> saldos = new HashMap<>();
+
+	// maior id de lançamento de cada usuário já somado no retrato inicial; vale até o retrato seguinte
+	private final Map<Long, Long> ultimoIdNoRetrato = new HashMap<>();
+
+	private long registrosDesdeRetrato;
+
+	private volatile boolean ativo = true;
+
+	private Diario diario;
+
+	private Thread gravador;
+
+	public DiarioLancamentoServiceImpl(LancamentoRepository repository,
+			@Value("${minhasfinancas.diario.diretorio:diario}") String diretorio,
+			@Value("${minhasfinancas.diario.registros-por-segmento:1000000}") int registrosPorSegmento,
+			@Value("${minhasfinancas.diario.retrato-a-cada:100000}") int retratoACada,
+			@Value("${minhasfinancas.diario.retratos-mantidos:0}") int retratosMantidos) {
+		this.repository = repository;
+		this.diretorio = diretorio;
+		this.registrosPorSegmento = registrosPorSegmento;
+		this.retratoACada = retratoACada;
+		this.retratosMantidos = retratosMantidos;
+	}
+
+	@PostConstruct
+	public void iniciar() throws IOException {
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.iniciar(), status: INICIO, diretorio: "+ diretorio);
+
+		diario = new Diario(Paths.get(diretorio), registrosPorSegmento);
+		try {
+			diario.reproduzir(saldos);
+			if (diario.vazio()) {
+				gravarRetratoInicial();
+			}
+		} catch (IOException | RuntimeException e) {
+			diario.close();
+			throw e;
+		}
+		gravador = new Thread(this::gravar, "diario-lancamentos");
+		gravador.setDaemon(true);
+		gravador.start();
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.iniciar(), status: SUCESSO, proximaSequencia: "+ diario.proximaSequencia() + ", usuarios: "+ saldos.size());
+	}
+
+	@PreDestroy
+	public void encerrar() throws InterruptedException, IOException {
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.encerrar(), status: INICIO, itensNaFila: "+ fila.size());
+
+		ativo = false;
+		gravador.join(TimeUnit.SECONDS.toMillis(30));
+		diario.close();
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.encerrar(), status: SUCESSO, itensNaFila: "+ fila.size());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		enfileirados.incrementAndGet();
+		fila.add(new AlteracaoDiario(evento, System.currentTimeMillis()));
+	}
+
+	@Override
+	public BigDecimal obterSaldoEm(Long idUsuario, Instant instante) {
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.obterSaldoEm(), status: INICIO, idUsuario: "+ idUsuario + ", instante: "+ instante);
+
+		aguardarGravacao();
+		BigDecimal saldo = BigDecimal.valueOf(diario.saldoEm(idUsuario, instante), 2);
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.obterSaldoEm(), status: SUCESSO, saldo: "+ saldo);
+
+		return saldo;
+	}
+
+	@Override
+	public List<RegistroDiario> obterRegistros(Long idUsuario, Instant de, Instant ate) {
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.obterRegistros(), status: INICIO, idUsuario: "+ idUsuario + ", de: "+ de + ", ate: "+ ate);
+
+		aguardarGravacao();
+		return diario.registros(idUsuario, de, ate, MAXIMO_REGISTROS);
+	}
+
+	// alterações já confirmadas antes da consulta precisam estar no diário
+	private void aguardarGravacao() {
+		long alvo = enfileirados.get();
+		long limite = System.currentTimeMillis() + ESPERA_GRAVACAO_MS;
+		synchronized (monitorGravados) {
+			long restante;
+			while (gravados < alvo && (restante = limite - System.currentTimeMillis()) > 0) {
+				try {
+					monitorGravados.wait(restante);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void gravar() {
+		concluir(1);
+		List<AlteracaoDiario> lote = new ArrayList<>(TAMANHO_LOTE);
+		while (ativo || !fila.isEmpty()) {
+			try {
+				AlteracaoDiario primeira = fila.poll(1, TimeUnit.SECONDS);
+				if (primeira == null) {
+					continue;
+				}
+				lote.add(primeira);
+				fila.drainTo(lote, TAMANHO_LOTE - 1);
+				acrescentar(lote);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (IOException | RuntimeException e) {
+				LOGGER.error("#### Método: DiarioLancamentoServiceImpl.gravar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+			} finally {
+				concluir(lote.size());
+				lote.clear();
+			}
+		}
+		try {
+			// retrato no encerramento, para que a próxima inicialização não precise reproduzir o fim do diário
+			if (registrosDesdeRetrato > 0) {
+				diario.gravarRetrato(saldos, Instant.now());
+			}
+		} catch (IOException e) {
+			LOGGER.error("#### Método: DiarioLancamentoServiceImpl.gravar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	// sem o retrato a subida falha: um retrato parcial viraria a base de todos os saldos seguintes
+	private void gravarRetratoInicial() throws IOException {
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.gravarRetratoInicial(), status: INICIO");
+
+		for (int tentativa = 1; ; tentativa++) {
+			try {
+				for (Object[] linha : ContextoCompartimento.executar(Compartimento.LOTE, () -> repository.obterSaldosPorUsuario(TipoLancamento.RECEITA))) {
+					Long idUsuario = ((Number) linha[0]).longValue();
+					saldos.put(idUsuario, centavos((BigDecimal) linha[1]));
+					ultimoIdNoRetrato.put(idUsuario, ((Number) linha[2]).longValue());
+				}
+				break;
+			} catch (RuntimeException e) {
+				saldos.clear();
+				ultimoIdNoRetrato.clear();
+				if (tentativa == TENTATIVAS_RETRATO_INICIAL) {
+					LOGGER.error("#### Método: DiarioLancamentoServiceImpl.gravarRetratoInicial(), status: ERROR, tentativas: "+ tentativa + ", mensagemError: "+ e.getMessage(), e);
+					throw new IllegalStateException("Não foi possível ler os saldos para o retrato inicial do diário.", e);
+				}
+
+				LOGGER.warn("#### Método: DiarioLancamentoServiceImpl.gravarRetratoInicial(), status: WARNING, tentativa: "+ tentativa + ", mensagemError: "+ e.getMessage());
+
+				esperar(ESPERA_TENTATIVA_MS * tentativa);
+			}
+		}
+		diario.gravarRetrato(saldos, Instant.now());
+
+		LOGGER.info("#### Método: DiarioLancamentoServiceImpl.gravarRetratoInicial(), status: SUCESSO, usuarios: "+ saldos.size());
+	}
+
+	private static void esperar(long milissegundos) {
+		try {
+			Thread.sleep(milissegundos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Inicialização do diário interrompida.", e);
+		}
+	}
+
+	// confirmado antes da leitura do retrato inicial e entregue depois: a inclusão já está no saldo
+	private boolean jaNoRetrato(AlteracaoDiario alteracao) {
+		LancamentoAlteradoEvent evento = alteracao.evento;
+		Lancamento lancamento = evento.getLancamento();
+		return evento.getTipo() == TipoAlteracao.CRIADO && lancamento != null && lancamento.getId() != null
+				&& lancamento.getId() <= ultimoIdNoRetrato.getOrDefault(evento.getIdUsuario(), 0L);
+	}
+
+	// todo o lote é confirmado no disco de uma vez, antes de liberar quem espera por ele
+	private void acrescentar(List<AlteracaoDiario> lote) throws IOException {
+		for (AlteracaoDiario alteracao : lote) {
+			if (!ultimoIdNoRetrato.isEmpty() && jaNoRetrato(alteracao)) {
+				continue;
+			}
+			RegistroDiario registro = registro(alteracao);
+			long variacao = centavos(registro.getVariacaoSaldo());
+			Long idUsuario = registro.getIdUsuario();
+			saldos.put(idUsuario, registro.getTipo() == TipoRegistroDiario.SALDO ? variacao : saldos.getOrDefault(idUsuario, 0L) + variacao);
+			diario.acrescentar(registro);
+			if (++registrosDesdeRetrato >= retratoACada) {
+				diario.gravarRetrato(saldos, registro.getInstante());
+				registrosDesdeRetrato = 0;
+				ultimoIdNoRetrato.clear();
+				int removidos = diario.compactar(retratosMantidos);
+
+				LOGGER.info("#### Método: DiarioLancamentoServiceImpl.acrescentar(), status: SUCESSO, retratoNaSequencia: "+ registro.getSequencia() + ", segmentosRemovidos: "+ removidos);
+			}
+		}
+		diario.forcar();
+	}
+
+	private RegistroDiario registro(AlteracaoDiario alteracao) {
+		LancamentoAlteradoEvent evento = alteracao.evento;
+		Lancamento lancamento = evento.getLancamento();
+		RegistroDiario.RegistroDiarioBuilder registro = RegistroDiario.builder()
+				.instante(Instant.ofEpochMilli(alteracao.instante)).idUsuario(evento.getIdUsuario());
+		boolean diferencaConhecida = lancamento != null && (evento.getTipo() != TipoAlteracao.ATUALIZADO || evento.getAnterior() != null);
+		if (!diferencaConhecida) {
+			// alteração em lote: o saldo é relido do banco e gravado como valor absoluto
+			BigDecimal saldo = repository.obterSaldoPorUsuario(evento.getIdUsuario(), TipoLancamento.RECEITA);
+			return registro.tipo(TipoRegistroDiario.SALDO).variacaoSaldo(saldo == null ? BigDecimal.ZERO : saldo).build();
+		}
+		BigDecimal variacao;
+		if (evento.getTipo() == TipoAlteracao.CRIADO) {
+			variacao = contribuicao(lancamento);
+		} else if (evento.getTipo() == TipoAlteracao.DELETADO) {
+			variacao = contribuicao(lancamento).negate();
+		} else {
+			variacao = contribuicao(lancamento).subtract(contribuicao(evento.getAnterior()));
+		}
+		return registro.tipo(TipoRegistroDiario.valueOf(evento.getTipo().name())).idLancamento(lancamento.getId())
+				.valor(lancamento.getValor()).tipoLancamento(lancamento.getTipo()).status(lancamento.getStatus())
+				.ano(lancamento.getAno()).mes(lancamento.getMes()).variacaoSaldo(variacao).build();
+	}
+
+	// mesma regra de obterSaldoPorUsuario: receitas somam, o resto subtrai, em qualquer status
+	private static BigDecimal contribuicao(Lancamento lancamento) {
+		if (lancamento == null || lancamento.getValor() == null) {
+			return BigDecimal.ZERO;
+		}
+		return lancamento.getTipo() == TipoLancamento.RECEITA ? lancamento.getValor() : lancamento.getValor().negate();
+	}
+
+	private static long centavos(BigDecimal valor) {
+		return valor == null ? 0 : valor.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValue();
+	}
+
+	private void concluir(int quantidade) {
+		synchronized (monitorGravados) {
+			gravados += quantidade;
+			monitorGravados.notifyAll();
+		}
+	}
+
+	private static class AlteracaoDiario {
+
+		private final LancamentoAlteradoEvent evento;
+		private final long instante;
+
+		AlteracaoDiario(LancamentoAlteradoEvent evento, long instante) {
+			this.evento = evento;
+			this.instante = instante;
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.ExpurgoLancamentoService;
+
+/**
+ * Apaga de vez os lançamentos excluídos cujo prazo para desfazer já passou. Cada lote é de no máximo
+ * {@code tamanhoLote} linhas de um usuário, numa transação curta, com uma pausa entre lotes: as travas
+ * ficam pouco tempo na tabela e o banco não recebe de uma vez o trabalho de uma exclusão grande.
+ */
+@Service
+public class ExpurgoLancamentoServiceImpl implements ExpurgoLancamentoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExpurgoLancamentoServiceImpl.class);
+
+	private final LancamentoRepository repository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final long prazoDesfazerMinutos;
+
+	private final int tamanhoLote;
+
+	private final long pausaMs;
+
+	private final AtomicBoolean executando = new AtomicBoolean();
+
+	public ExpurgoLancamentoServiceImpl(LancamentoRepository repository, TransactionTemplate transactionTemplate,
+			@Value("${minhasfinancas.exclusao.prazo-desfazer-minutos:30}") long prazoDesfazerMinutos,
+			@Value("${minhasfinancas.exclusao.tamanho-lote-expurgo:500}") int tamanhoLote,
+			@Value("${minhasfinancas.exclusao.pausa-expurgo-ms:200}") long pausaMs) {
+		this.repository = repository;
+		this.transactionTemplate = transactionTemplate;
+		this.prazoDesfazerMinutos = prazoDesfazerMinutos;
+		this.tamanhoLote = tamanhoLote;
+		this.pausaMs = pausaMs;
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.exclusao.intervalo-expurgo-ms:300000}",
+			initialDelayString = "${minhasfinancas.exclusao.intervalo-expurgo-ms:300000}")
+	public void expurgarAgendado() {
+		expurgar();
+	}
+
+	@Override
+	public int expurgar() {
+		if (!executando.compareAndSet(false, true)) {
+			return 0;
+		}
+		try {
+			return ContextoCompartimento.executar(Compartimento.LOTE, this::expurgarExpirados);
+		} finally {
+			executando.set(false);
+		}
+	}
+
+	private int expurgarExpirados() {
+		LocalDateTime limite = LocalDateTime.now().minusMinutes(prazoDesfazerMinutos);
+
+		LOGGER.info("#### Método: ExpurgoLancamentoServiceImpl.expurgar(), status: INICIO, limite: "+ limite);
+
+		int removidos = 0;
+		boolean primeiroLote = true;
+		for (Number idUsuario : repository.obterUsuariosComExcluidosAntesDe(limite)) {
+			List<Long> ids;
+			do {
+				if (!primeiroLote && !pausar()) {
+					return removidos;
+				}
+				primeiroLote = false;
+				ids = repository.obterIdsExcluidosAntesDe(idUsuario.longValue(), limite, tamanhoLote).stream()
+						.map(Number::longValue).collect(Collectors.toList());
+				if (!ids.isEmpty()) {
+					List<Long> lote = ids;
+					removidos += transactionTemplate.execute(status -> repository.expurgar(idUsuario.longValue(), lote));
+				}
+			} while (ids.size() == tamanhoLote);
+		}
+
+		LOGGER.info("#### Método: ExpurgoLancamentoServiceImpl.expurgar(), status: SUCESSO, quantidadeRemovidos: "+ removidos);
+
+		return removidos;
+	}
+
+	private boolean pausar() {
+		if (pausaMs <= 0) {
+			return true;
+		}
+		try {
+			Thread.sleep(pausaMs);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
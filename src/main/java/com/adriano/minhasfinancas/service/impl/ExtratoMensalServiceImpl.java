@@ -0,0 +1,459 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.util.HtmlUtils;
+
+import com.adriano.minhasfinancas.dto.ArquivoExtratoDTO;
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.ExtratoMensalService;
+
+/**
+ * Gera o extrato mensal de um usuário (CSV e HTML para impressão) num pool próprio e guarda cada
+ * formato comprimido em disco, com o nome derivado do hash do conteúdo. O extrato gerado vale enquanto
+ * a versão do mês não muda: cada alteração confirmada de um lançamento incrementa a versão do mês dele,
+ * e as alterações em massa, a de todos os meses do usuário. As versões e os extratos de um usuário saem
+ * juntos da memória, com os arquivos, quando ele fica sem pedir extrato além da retenção.
+ */
+@Service
+public class ExtratoMensalServiceImpl implements ExtratoMensalService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExtratoMensalServiceImpl.class);
+
+	private final LancamentoRepository repository;
+
+	private final Path diretorio;
+
+	private final long retencaoMs;
+
+	private final ThreadPoolExecutor geracao;
+
+	// só usuários que pediram ou receberam extrato neste nó; os demais não têm o que invalidar
+	private final Map<Long, ExtratosUsuario> usuarios = new ConcurrentHashMap<>();
+
+	private final Map<ChaveExtrato, CompletableFuture<ExtratoGerado>> emGeracao = new ConcurrentHashMap<>();
+
+	public ExtratoMensalServiceImpl(LancamentoRepository repository,
+			@Value("${minhasfinancas.extrato.diretorio:extratos}") String diretorio,
+			@Value("${minhasfinancas.extrato.threads:2}") int threads,
+			@Value("${minhasfinancas.extrato.fila:1000}") int fila,
+			@Value("${minhasfinancas.extrato.retencao-minutos:1440}") long retencaoMinutos) {
+		this.repository = repository;
+		this.diretorio = Paths.get(diretorio);
+		this.retencaoMs = TimeUnit.MINUTES.toMillis(retencaoMinutos);
+		AtomicInteger contador = new AtomicInteger();
+		this.geracao = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(fila), r -> {
+			Thread thread = new Thread(r, "extrato-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.geracao.allowCoreThreadTimeOut(true);
+	}
+
+	@PostConstruct
+	public void iniciar() throws IOException {
+		// as versões ficam em memória: arquivos de outra execução podem não refletir alterações feitas depois
+		FileSystemUtils.deleteRecursively(diretorio);
+		Files.createDirectories(diretorio);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		geracao.shutdownNow();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		ExtratosUsuario extratos = usuarios.get(evento.getIdUsuario());
+		if (extratos == null) {
+			return;
+		}
+		if (evento.getLancamento() == null) {
+			extratos.versao.incrementAndGet();
+			return;
+		}
+		invalidar(extratos, evento.getLancamento());
+		if (evento.getAnterior() != null) {
+			invalidar(extratos, evento.getAnterior());
+		}
+	}
+
+	// de outro nó não vem o mês alterado: todos os extratos do usuário são gerados de novo
+	@EventListener
+	public void aoInvalidarCache(CacheInvalidadoEvent evento) {
+		ExtratosUsuario extratos = usuarios.get(evento.getIdUsuario());
+		if (evento.getEscopo() == EscopoInvalidacao.LANCAMENTOS && extratos != null) {
+			extratos.versao.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Optional<ArquivoExtratoDTO> obter(Long idUsuario, YearMonth mes, FormatoExtratoMensal formato) {
+
+		LOGGER.info("#### Método: ExtratoMensalServiceImpl.obter(), status: INICIO, idUsuario: "+ idUsuario + ", mes: "+ mes + ", formato: "+ formato);
+
+		ChaveExtrato chave = new ChaveExtrato(idUsuario, mes);
+		ExtratoGerado gerado = atual(chave);
+		if (gerado != null) {
+			return Optional.of(gerado.arquivos.get(formato));
+		}
+		// a requisição não espera a geração: o cliente volta depois do Retry-After e encontra o arquivo pronto
+		agendar(chave);
+
+		LOGGER.info("#### Método: ExtratoMensalServiceImpl.obter(), status: WARNING, mensagemWarning: extrato em geração");
+
+		return Optional.empty();
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.extrato.intervalo-expurgo-ms:600000}",
+			initialDelayString = "${minhasfinancas.extrato.intervalo-expurgo-ms:600000}")
+	public int expurgar() {
+		long limite = System.currentTimeMillis() - retencaoMs;
+		int removidos = 0;
+		for (Map.Entry<Long, ExtratosUsuario> entrada : usuarios.entrySet()) {
+			ExtratosUsuario extratos = entrada.getValue();
+			if (extratos.ultimoUso > limite || gerando(entrada.getKey()) || !usuarios.remove(entrada.getKey(), extratos)) {
+				continue;
+			}
+			for (ExtratoGerado gerado : extratos.gerados.values()) {
+				apagar(gerado);
+			}
+			removidos++;
+		}
+
+		LOGGER.info("#### Método: ExtratoMensalServiceImpl.expurgar(), status: SUCESSO, usuariosRemovidos: "+ removidos + ", usuariosEmMemoria: "+ usuarios.size());
+
+		return removidos;
+	}
+
+	@Scheduled(cron = "${minhasfinancas.extrato.cron:0 0 3 1 * *}")
+	public void gerarMesFechado() {
+		gerarMes(YearMonth.now().minusMonths(1));
+	}
+
+	@Override
+	public int gerarMes(YearMonth mes) {
+
+		LOGGER.info("#### Método: ExtratoMensalServiceImpl.gerarMes(), status: INICIO, mes: "+ mes);
+
+		List<Long> usuarios = ContextoCompartimento.executar(Compartimento.LOTE,
+				() -> repository.obterUsuariosComLancamentosNoMes(mes.getYear(), mes.getMonthValue()));
+		List<CompletableFuture<ExtratoGerado>> pendentes = new ArrayList<>();
+		int concluidos = 0;
+		for (Long idUsuario : usuarios) {
+			ChaveExtrato chave = new ChaveExtrato(idUsuario, mes);
+			if (atual(chave) != null) {
+				concluidos++;
+				continue;
+			}
+			CompletableFuture<ExtratoGerado> geracaoUsuario = agendar(chave);
+			if (geracaoUsuario.isCompletedExceptionally()) {
+				// fila cheia: espera o que já foi enviado antes de continuar, sem tomar a vez dos pedidos das telas
+				concluidos += aguardar(pendentes);
+				geracaoUsuario = agendar(chave);
+			}
+			pendentes.add(geracaoUsuario);
+		}
+		concluidos += aguardar(pendentes);
+
+		LOGGER.info("#### Método: ExtratoMensalServiceImpl.gerarMes(), status: SUCESSO, mes: "+ mes + ", usuarios: "+ usuarios.size() + ", gerados: "+ concluidos);
+
+		return concluidos;
+	}
+
+	private CompletableFuture<ExtratoGerado> agendar(ChaveExtrato chave) {
+		extratos(chave.idUsuario);
+		CompletableFuture<ExtratoGerado> novo = new CompletableFuture<>();
+		CompletableFuture<ExtratoGerado> existente = emGeracao.putIfAbsent(chave, novo);
+		if (existente != null) {
+			return existente;
+		}
+		try {
+			geracao.execute(() -> {
+				try {
+					novo.complete(gerar(chave));
+				} catch (Throwable e) {
+					LOGGER.error("#### Método: ExtratoMensalServiceImpl.gerar(), status: ERROR, idUsuario: "+ chave.idUsuario + ", mes: "+ chave.mes + ", mensagemError: "+ e.getMessage(), e);
+					novo.completeExceptionally(e);
+				} finally {
+					emGeracao.remove(chave, novo);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			emGeracao.remove(chave, novo);
+			novo.completeExceptionally(e);
+		}
+		return novo;
+	}
+
+	private ExtratoGerado gerar(ChaveExtrato chave) throws IOException {
+		ExtratosUsuario extratos = extratos(chave.idUsuario);
+		// a versão é lida antes da consulta: uma alteração durante a geração deixa o resultado já vencido
+		long versao = extratos.versao(chave.mes);
+		List<LancamentoDTO> lancamentos = ContextoCompartimento.executar(Compartimento.LOTE,
+				() -> repository.buscarDoMes(chave.idUsuario, chave.mes.getYear(), chave.mes.getMonthValue()));
+		Map<FormatoExtratoMensal, ArquivoExtratoDTO> arquivos = new EnumMap<>(FormatoExtratoMensal.class);
+		for (FormatoExtratoMensal formato : FormatoExtratoMensal.values()) {
+			arquivos.put(formato, gravar(chave, formato, lancamentos));
+		}
+		ExtratoGerado novo = new ExtratoGerado(versao, arquivos);
+		ExtratoGerado anterior = extratos.gerados.put(chave.mes, novo);
+		if (anterior != null) {
+			for (ArquivoExtratoDTO arquivo : anterior.arquivos.values()) {
+				if (!arquivo.getArquivo().equals(novo.arquivos.get(arquivo.getFormato()).getArquivo())) {
+					Files.deleteIfExists(arquivo.getArquivo());
+				}
+			}
+		}
+		if (usuarios.get(chave.idUsuario) != extratos) {
+			// o usuário foi expurgado durante a geração: ninguém mais aponta para estes arquivos
+			apagar(novo);
+		}
+		return novo;
+	}
+
+	private ArquivoExtratoDTO gravar(ChaveExtrato chave, FormatoExtratoMensal formato, List<LancamentoDTO> lancamentos) throws IOException {
+		Path pasta = diretorio.resolve(String.valueOf(chave.idUsuario));
+		Files.createDirectories(pasta);
+		Path temporario = Files.createTempFile(pasta, "extrato", ".tmp");
+		try {
+			MessageDigest digest = novoDigest();
+			try (OutputStream saida = new DigestOutputStream(new GZIPOutputStream(Files.newOutputStream(temporario)), digest);
+					Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8))) {
+				if (formato == FormatoExtratoMensal.CSV) {
+					escreverCsv(escritor, lancamentos);
+				} else {
+					escreverHtml(escritor, chave, lancamentos);
+				}
+			}
+			String hash = hexadecimal(digest.digest());
+			// nome pelo conteúdo: um extrato regerado sem mudança cai no mesmo arquivo
+			Path arquivo = pasta.resolve(chave.mes + "-" + hash + "." + formato.getExtensao() + ".gz");
+			Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return ArquivoExtratoDTO.builder().formato(formato).arquivo(arquivo).hash(hash)
+					.nome("extrato-" + chave.mes + "." + formato.getExtensao()).build();
+		} finally {
+			Files.deleteIfExists(temporario);
+		}
+	}
+
+	private static void escreverCsv(Writer escritor, List<LancamentoDTO> lancamentos) throws IOException {
+		escritor.write("id;descricao;tipo;status;valor\n");
+		for (LancamentoDTO lancamento : lancamentos) {
+			escritor.write(lancamento.getId() + ";" + campoCsv(lancamento.getDescricao()) + ";" + lancamento.getTipo()
+					+ ";" + lancamento.getStatus() + ";" + lancamento.getValor().toPlainString() + "\n");
+		}
+	}
+
+	private static void escreverHtml(Writer escritor, ChaveExtrato chave, List<LancamentoDTO> lancamentos) throws IOException {
+		BigDecimal receitas = BigDecimal.ZERO;
+		BigDecimal despesas = BigDecimal.ZERO;
+		String titulo = "Extrato " + String.format("%02d/%d", chave.mes.getMonthValue(), chave.mes.getYear());
+		escritor.write("<!DOCTYPE html>\n<html lang=\"pt-BR\"><head><meta charset=\"UTF-8\"><title>" + titulo + "</title>"
+				+ "<style>body{font-family:sans-serif}table{border-collapse:collapse;width:100%}"
+				+ "th,td{border:1px solid #999;padding:4px}td.valor{text-align:right}</style></head><body>\n");
+		escritor.write("<h1>" + titulo + "</h1>\n<table><thead><tr><th>Descrição</th><th>Tipo</th><th>Situação</th><th>Valor</th></tr></thead><tbody>\n");
+		for (LancamentoDTO lancamento : lancamentos) {
+			escritor.write("<tr><td>" + HtmlUtils.htmlEscape(Objects.toString(lancamento.getDescricao(), "")) + "</td><td>" + lancamento.getTipo()
+					+ "</td><td>" + lancamento.getStatus() + "</td><td class=\"valor\">" + lancamento.getValor().toPlainString() + "</td></tr>\n");
+			if (TipoLancamento.RECEITA.name().equals(lancamento.getTipo())) {
+				receitas = receitas.add(lancamento.getValor());
+			} else {
+				despesas = despesas.add(lancamento.getValor());
+			}
+		}
+		escritor.write("</tbody></table>\n<p>Receitas: " + receitas.toPlainString() + "<br>Despesas: " + despesas.toPlainString()
+				+ "<br>Saldo: " + receitas.subtract(despesas).toPlainString() + "</p>\n</body></html>\n");
+	}
+
+	private static String campoCsv(String valor) {
+		if (valor == null) {
+			return "";
+		}
+		if (valor.indexOf(';') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+			return valor;
+		}
+		return "\"" + valor.replace("\"", "\"\"") + "\"";
+	}
+
+	private static void invalidar(ExtratosUsuario extratos, Lancamento lancamento) {
+		if (lancamento.getAno() != null && lancamento.getMes() != null) {
+			extratos.versoesMes.computeIfAbsent(YearMonth.of(lancamento.getAno(), lancamento.getMes()), mes -> new AtomicLong())
+					.incrementAndGet();
+		}
+	}
+
+	private ExtratoGerado atual(ChaveExtrato chave) {
+		ExtratosUsuario extratos = usuarios.get(chave.idUsuario);
+		if (extratos == null) {
+			return null;
+		}
+		extratos.ultimoUso = System.currentTimeMillis();
+		ExtratoGerado gerado = extratos.gerados.get(chave.mes);
+		return gerado != null && gerado.versao == extratos.versao(chave.mes) ? gerado : null;
+	}
+
+	private ExtratosUsuario extratos(Long idUsuario) {
+		ExtratosUsuario extratos = usuarios.computeIfAbsent(idUsuario, id -> new ExtratosUsuario());
+		extratos.ultimoUso = System.currentTimeMillis();
+		return extratos;
+	}
+
+	private boolean gerando(Long idUsuario) {
+		for (ChaveExtrato chave : emGeracao.keySet()) {
+			if (chave.idUsuario.equals(idUsuario)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void apagar(ExtratoGerado gerado) {
+		for (ArquivoExtratoDTO arquivo : gerado.arquivos.values()) {
+			try {
+				Files.deleteIfExists(arquivo.getArquivo());
+			} catch (IOException e) {
+				LOGGER.info("#### Método: ExtratoMensalServiceImpl.apagar(), status: WARNING, arquivo: "+ arquivo.getArquivo() + ", mensagemWarning: "+ e.getMessage());
+			}
+		}
+	}
+
+	private static int aguardar(List<CompletableFuture<ExtratoGerado>> pendentes) {
+		int concluidos = 0;
+		for (CompletableFuture<ExtratoGerado> pendente : pendentes) {
+			try {
+				pendente.get();
+				concluidos++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				// já registrado pela geração; o extrato é gerado de novo no primeiro pedido
+			}
+		}
+		pendentes.clear();
+		return concluidos;
+	}
+
+	private static MessageDigest novoDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hexadecimal(byte[] bytes) {
+		StringBuilder texto = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			texto.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return texto.toString();
+	}
+
+	private static final class ChaveExtrato {
+
+		private final Long idUsuario;
+		private final YearMonth mes;
+
+		ChaveExtrato(Long idUsuario, YearMonth mes) {
+			this.idUsuario = idUsuario;
+			this.mes = mes;
+		}
+
+		@Override
+		public boolean equals(Object outro) {
+			if (!(outro instanceof ChaveExtrato)) {
+				return false;
+			}
+			ChaveExtrato chave = (ChaveExtrato) outro;
+			return idUsuario.equals(chave.idUsuario) && mes.equals(chave.mes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(idUsuario, mes);
+		}
+	}
+
+	/**
+	 * Estado de um usuário: os extratos gerados por mês e as versões que os validam. Sai inteiro da memória,
+	 * então as versões nunca voltam a zero com um extrato vencido ainda guardado.
+	 */
+	private static final class ExtratosUsuario {
+
+		// alterações em massa e as vindas de outro nó, que valem para todos os meses
+		private final AtomicLong versao = new AtomicLong();
+		private final Map<YearMonth, AtomicLong> versoesMes = new ConcurrentHashMap<>();
+		private final Map<YearMonth, ExtratoGerado> gerados = new ConcurrentHashMap<>();
+		private volatile long ultimoUso = System.currentTimeMillis();
+
+		// as duas versões só crescem, então a soma muda a cada alteração do mês ou do usuário
+		long versao(YearMonth mes) {
+			AtomicLong doMes = versoesMes.get(mes);
+			return versao.get() + (doMes == null ? 0 : doMes.get());
+		}
+	}
+
+	private static final class ExtratoGerado {
+
+		private final long versao;
+		private final Map<FormatoExtratoMensal, ArquivoExtratoDTO> arquivos;
+
+		ExtratoGerado(long versao, Map<FormatoExtratoMensal, ArquivoExtratoDTO> arquivos) {
+			this.versao = versao;
+			this.arquivos = arquivos;
+		}
+	}
+
+}
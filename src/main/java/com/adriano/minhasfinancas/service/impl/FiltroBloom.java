@@ -0,0 +1,80 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de textos: {@code talvezContenha} nunca responde falso para um valor adicionado e
+ * responde verdadeiro para um valor ausente com a probabilidade pedida, enquanto a quantidade de valores
+ * ficar dentro da capacidade. Os bits ficam num {@link AtomicLongArray}, então adicionar e consultar
+ * não precisam de trava.
+ */
+public final class FiltroBloom {
+
+	private final AtomicLongArray bits;
+
+	private final long quantidadeBits;
+
+	private final int quantidadeHashes;
+
+	public FiltroBloom(long capacidade, double taxaFalsoPositivo) {
+		if (capacidade <= 0 || taxaFalsoPositivo <= 0 || taxaFalsoPositivo >= 1) {
+			throw new IllegalArgumentException("Capacidade e taxa de falso positivo inválidas");
+		}
+		// m = -n ln p / (ln 2)^2 e k = m / n ln 2
+		long m = (long) Math.ceil(-capacidade * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2)));
+		int palavras = (int) Math.min(Integer.MAX_VALUE, (m + 63) / 64);
+		this.bits = new AtomicLongArray(palavras);
+		this.quantidadeBits = palavras * 64L;
+		this.quantidadeHashes = Math.max(1, (int) Math.round((double) quantidadeBits / capacidade * Math.log(2)));
+	}
+
+	public void adicionar(String valor) {
+		long hash = hash(valor);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= quantidadeHashes; i++) {
+			long posicao = posicao(h1 + i * h2);
+			int palavra = (int) (posicao >>> 6);
+			long mascara = 1L << posicao;
+			long atual;
+			do {
+				atual = bits.get(palavra);
+			} while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara));
+		}
+	}
+
+	public boolean talvezContenha(String valor) {
+		long hash = hash(valor);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= quantidadeHashes; i++) {
+			long posicao = posicao(h1 + i * h2);
+			if ((bits.get((int) (posicao >>> 6)) & (1L << posicao)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long posicao(int hashCombinado) {
+		// as k posições saem de dois hashes (Kirsch-Mitzenmacher): h1 + i * h2
+		return (hashCombinado & 0xFFFFFFFFL) % quantidadeBits;
+	}
+
+	// FNV-1a de 64 bits sobre os bytes UTF-8, com a mistura final do MurmurHash3 para espalhar os bits altos
+	private static long hash(String valor) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.ImportacaoExtratoDTO;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.LinhaExtratoInvalidaException;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.importacao.FormatoExtrato;
+import com.adriano.minhasfinancas.importacao.LeitorExtrato;
+import com.adriano.minhasfinancas.importacao.LinhaExtrato;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.ImportacaoExtratoService;
+import com.adriano.minhasfinancas.service.LancamentoService;
+
+@Service
+public class ImportacaoExtratoServiceImpl implements ImportacaoExtratoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImportacaoExtratoServiceImpl.class);
+
+	private static final int MAXIMO_ERROS = 100;
+
+	private static final int TAMANHO_DESCRICAO = 255;
+
+	private static final char[] HEXA = "0123456789abcdef".toCharArray();
+
+	private final LancamentoRepository repository;
+
+	private final LancamentoService lancamentoService;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ApplicationEventPublisher publisher;
+
+	private final int tamanhoLote;
+
+	public ImportacaoExtratoServiceImpl(LancamentoRepository repository, LancamentoService lancamentoService,
+			TransactionTemplate transactionTemplate, ApplicationEventPublisher publisher,
+			@Value("${minhasfinancas.importacao.tamanho-lote:1000}") int tamanhoLote) {
+		this.repository = repository;
+		this.lancamentoService = lancamentoService;
+		this.transactionTemplate = transactionTemplate;
+		this.publisher = publisher;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public ImportacaoExtratoDTO importar(Usuario usuario, InputStream arquivo, FormatoExtrato formato, Charset charset) {
+
+		LOGGER.info("#### Método: ImportacaoExtratoServiceImpl.importar(), status: INICIO, idUsuario: "+ usuario.getId() + ", formato: "+ formato);
+
+		long inicio = System.currentTimeMillis();
+		ImportacaoExtratoDTO resultado = ImportacaoExtratoDTO.builder().erros(new ArrayList<>()).build();
+		Ocorrencias ocorrencias = new Ocorrencias();
+		// cada lote é gravado em sua transação; a memória fica limitada ao lote corrente
+		Map<String, Lancamento> lote = new LinkedHashMap<>();
+		try (LeitorExtrato leitor = formato.abrir(arquivo, charset)) {
+			while (true) {
+				LinhaExtrato linha;
+				try {
+					linha = leitor.proxima();
+				} catch (LinhaExtratoInvalidaException e) {
+					resultado.setLidas(resultado.getLidas() + 1);
+					rejeitar(resultado, e.getMessage());
+					continue;
+				}
+				if (linha == null) {
+					break;
+				}
+				resultado.setLidas(resultado.getLidas() + 1);
+				Lancamento lancamento = converter(linha, usuario);
+				try {
+					lancamentoService.validar(lancamento);
+				} catch (RegraNegocioException e) {
+					rejeitar(resultado, "Linha " + linha.getNumero() + ": " + e.getMessage());
+					continue;
+				}
+				lancamento.setChaveImportacao(chave(usuario.getId(), linha, ocorrencias));
+				if (lote.putIfAbsent(lancamento.getChaveImportacao(), lancamento) != null) {
+					resultado.setDuplicadas(resultado.getDuplicadas() + 1);
+				}
+				if (lote.size() >= tamanhoLote) {
+					gravar(usuario.getId(), lote, resultado);
+				}
+			}
+			gravar(usuario.getId(), lote, resultado);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (resultado.getImportadas() > 0) {
+				// um único evento para o arquivo, em vez de um por lançamento
+				publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, usuario.getId()));
+			}
+		}
+
+		LOGGER.info("#### Método: ImportacaoExtratoServiceImpl.importar(), status: SUCESSO, idUsuario: "+ usuario.getId() + ", lidas: "+ resultado.getLidas()
+				+ ", importadas: "+ resultado.getImportadas() + ", duplicadas: "+ resultado.getDuplicadas() + ", rejeitadas: "+ resultado.getRejeitadas()
+				+ ", duracaoMs: "+ (System.currentTimeMillis() - inicio));
+
+		return resultado;
+	}
+
+	private void gravar(Long idUsuario, Map<String, Lancamento> lote, ImportacaoExtratoDTO resultado) {
+		if (lote.isEmpty()) {
+			return;
+		}
+		int gravados;
+		try {
+			gravados = gravarNovos(idUsuario, lote);
+		} catch (DataIntegrityViolationException e) {
+			// outra importação do mesmo arquivo gravou parte do lote entre a verificação e o insert
+			gravados = gravarNovos(idUsuario, lote);
+		}
+		resultado.setImportadas(resultado.getImportadas() + gravados);
+		resultado.setDuplicadas(resultado.getDuplicadas() + lote.size() - gravados);
+		lote.clear();
+	}
+
+	private int gravarNovos(Long idUsuario, Map<String, Lancamento> lote) {
+		return ContextoCompartimento.executar(Compartimento.LOTE, () -> transactionTemplate.execute(status -> {
+			Set<String> existentes = new HashSet<>(repository.obterChavesImportacao(idUsuario, lote.keySet()));
+			List<Lancamento> novos = new ArrayList<>(lote.size());
+			for (Map.Entry<String, Lancamento> item : lote.entrySet()) {
+				if (!existentes.contains(item.getKey())) {
+					novos.add(item.getValue());
+				}
+			}
+			repository.inserirEmLote(novos);
+			return novos.size();
+		}));
+	}
+
+	private Lancamento converter(LinhaExtrato linha, Usuario usuario) {
+		String descricao = linha.getDescricao();
+		if (descricao != null && descricao.length() > TAMANHO_DESCRICAO) {
+			descricao = descricao.substring(0, TAMANHO_DESCRICAO);
+		}
+		BigDecimal valor = linha.getValor();
+		return Lancamento.builder().usuario(usuario).descricao(descricao)
+				.ano(linha.getData().getYear()).mes(linha.getData().getMonthValue())
+				.valor(valor.abs()).tipo(valor.signum() < 0 ? TipoLancamento.DESPESA : TipoLancamento.RECEITA)
+				.status(StatusLancamento.EFETIVADO).dataCadastro(LocalDate.now()).categorias(0L)
+				.build();
+	}
+
+	/**
+	 * Hash de (usuario, valor, data, descricao). Transações idênticas no mesmo dia (dois cafés de mesmo valor)
+	 * recebem o número da ocorrência, então só a reimportação é tratada como duplicada. No OFX o FITID
+	 * do banco entra no lugar da ocorrência.
+	 */
+	private static String chave(Long idUsuario, LinhaExtrato linha, Ocorrencias ocorrencias) {
+		String base = idUsuario + "|" + linha.getValor().stripTrailingZeros().toPlainString() + "|" + linha.getData()
+				+ "|" + normalizar(linha.getDescricao());
+		String complemento = linha.getIdentificador() != null ? "id:" + linha.getIdentificador()
+				: "n:" + ocorrencias.proxima(base);
+		return hash(base + "|" + complemento);
+	}
+
+	private static String normalizar(String descricao) {
+		return descricao == null ? "" : descricao.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+	}
+
+	private static String hash(String texto) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8));
+			// 128 bits bastam para a unicidade por usuário e mantêm o índice pequeno
+			char[] hexa = new char[32];
+			for (int i = 0; i < 16; i++) {
+				hexa[i * 2] = HEXA[(digest[i] >> 4) & 0xF];
+				hexa[i * 2 + 1] = HEXA[digest[i] & 0xF];
+			}
+			return new String(hexa);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void rejeitar(ImportacaoExtratoDTO resultado, String mensagem) {
+		resultado.setRejeitadas(resultado.getRejeitadas() + 1);
+		if (resultado.getErros().size() < MAXIMO_ERROS) {
+			resultado.getErros().add(mensagem);
+		}
+	}
+
+	/**
+	 * Contagem de transações iguais no arquivo todo. A base já leva a data, então a chave é (data, transação);
+	 * sem reiniciar a cada data, um extrato fora de ordem numera as repetições do mesmo jeito que o ordenado.
+	 */
+	private static class Ocorrencias {
+
+		private final Map<String, Integer> contagem = new HashMap<>();
+
+		int proxima(String base) {
+			return contagem.merge(base, 1, Integer::sum);
+		}
+	}
+
+}
@@ -0,0 +1,262 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.IngestaoDTO;
+import com.adriano.minhasfinancas.exception.IngestaoSaturadaException;
+import com.adriano.minhasfinancas.model.entity.IngestaoLancamento;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.SituacaoIngestao;
+import com.adriano.minhasfinancas.model.repository.IngestaoLancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.IngestaoLancamentoService;
+import com.adriano.minhasfinancas.service.LancamentoService;
+
+/**
+ * Ingestão assíncrona com a tabela financas.ingestao_lancamento como fila: o item é gravado antes do 202
+ * e o consumidor drena as linhas pendentes em lotes. Uma queda do processo não perde o que foi aceito;
+ * as linhas pendentes são gravadas quando o consumidor voltar, neste ou em outro nó.
+ */
+@Service
+public class IngestaoLancamentoServiceImpl implements IngestaoLancamentoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IngestaoLancamentoServiceImpl.class);
+
+	private static final int TAMANHO_MENSAGEM = 255;
+
+	private final IngestaoLancamentoRepository repository;
+
+	private final LancamentoService lancamentoService;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final int capacidade;
+
+	private final int tamanhoLote;
+
+	private final long intervaloConsultaMs;
+
+	private final long retencaoMinutos;
+
+	// pendentes aceitos por este nó; limita o atraso da fila sem contar a tabela a cada requisição
+	private final AtomicInteger pendentes = new AtomicInteger();
+
+	// acorda o consumidor quando chega item novo; sem aviso ele consulta a tabela a cada intervalo
+	private final Semaphore sinal = new Semaphore(0);
+
+	private volatile boolean ativo = true;
+
+	private Thread consumidor;
+
+	public IngestaoLancamentoServiceImpl(IngestaoLancamentoRepository repository, LancamentoService lancamentoService,
+			TransactionTemplate transactionTemplate,
+			@Value("${minhasfinancas.ingestao.capacidade:10000}") int capacidade,
+			@Value("${minhasfinancas.ingestao.tamanho-lote:500}") int tamanhoLote,
+			@Value("${minhasfinancas.ingestao.intervalo-consulta-ms:1000}") long intervaloConsultaMs,
+			@Value("${minhasfinancas.ingestao.retencao-minutos:30}") long retencaoMinutos) {
+		this.repository = repository;
+		this.lancamentoService = lancamentoService;
+		this.transactionTemplate = transactionTemplate;
+		this.capacidade = capacidade;
+		this.tamanhoLote = tamanhoLote;
+		this.intervaloConsultaMs = intervaloConsultaMs;
+		this.retencaoMinutos = retencaoMinutos;
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		// o que ficou pendente antes de uma queda entra na conta da capacidade e é drenado primeiro
+		pendentes.set((int) Math.min(Integer.MAX_VALUE, repository.countBySituacao(SituacaoIngestao.PENDENTE)));
+		consumidor = new Thread(this::consumir, "ingestao-lancamentos");
+		consumidor.setDaemon(true);
+		consumidor.start();
+	}
+
+	@PreDestroy
+	public void encerrar() throws InterruptedException {
+
+		LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.encerrar(), status: INICIO, pendentes: "+ pendentes.get());
+
+		// termina o lote corrente; o restante continua na tabela para a próxima subida
+		ativo = false;
+		sinal.release();
+		if (consumidor != null) {
+			consumidor.join(TimeUnit.SECONDS.toMillis(30));
+		}
+
+		LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.encerrar(), status: SUCESSO, pendentes: "+ pendentes.get());
+	}
+
+	@Override
+	public IngestaoDTO enfileirar(Lancamento lancamento) {
+
+		LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.enfileirar(), status: INICIO, idUsuario: "+ lancamento.getUsuario().getId());
+
+		if (!ativo) {
+			throw new IngestaoSaturadaException("Ingestão de lançamentos em encerramento, tente novamente.");
+		}
+		lancamentoService.validar(lancamento);
+
+		if (pendentes.incrementAndGet() > capacidade) {
+			pendentes.decrementAndGet();
+			throw new IngestaoSaturadaException("Fila de ingestão cheia, tente novamente.");
+		}
+		IngestaoLancamento item;
+		try {
+			item = repository.save(IngestaoLancamento.builder().protocolo(UUID.randomUUID().toString())
+					.situacao(SituacaoIngestao.PENDENTE).idUsuario(lancamento.getUsuario().getId())
+					.descricao(lancamento.getDescricao()).mes(lancamento.getMes()).ano(lancamento.getAno())
+					.valor(lancamento.getValor()).tipo(lancamento.getTipo()).categorias(lancamento.getCategorias())
+					.dataCadastro(LocalDateTime.now()).build());
+		} catch (RuntimeException e) {
+			pendentes.decrementAndGet();
+			throw e;
+		}
+		sinal.release();
+		return paraDTO(item);
+	}
+
+	@Override
+	public Optional<IngestaoDTO> obterSituacao(String protocolo) {
+
+		LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.obterSituacao(), status: INICIO, protocolo: "+ protocolo);
+
+		return repository.findByProtocolo(protocolo).map(IngestaoLancamentoServiceImpl::paraDTO);
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.ingestao.intervalo-expurgo-ms:60000}",
+			initialDelayString = "${minhasfinancas.ingestao.intervalo-expurgo-ms:60000}")
+	public int expurgar() {
+		try {
+			LocalDateTime limite = LocalDateTime.now().minusMinutes(retencaoMinutos);
+			int removidos = ContextoCompartimento.executar(Compartimento.LOTE,
+					() -> transactionTemplate.execute(status -> repository.removerConcluidosAntesDe(limite)));
+
+			LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.expurgar(), status: SUCESSO, removidos: "+ removidos);
+
+			return removidos;
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: IngestaoLancamentoServiceImpl.expurgar(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+			return 0;
+		}
+	}
+
+	private void consumir() {
+		while (ativo) {
+			try {
+				if (drenar() < tamanhoLote) {
+					sinal.tryAcquire(intervaloConsultaMs, TimeUnit.MILLISECONDS);
+					sinal.drainPermits();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				LOGGER.error("#### Método: IngestaoLancamentoServiceImpl.consumir(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+				// banco fora: as linhas continuam pendentes e são tentadas de novo depois do intervalo
+				try {
+					Thread.sleep(intervaloConsultaMs);
+				} catch (InterruptedException interrompido) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private int drenar() {
+		List<Long> ids = new ArrayList<>(tamanhoLote);
+		try {
+			return ContextoCompartimento.executar(Compartimento.LOTE, () -> transactionTemplate.execute(status -> {
+				List<IngestaoLancamento> lote = repository.reservar(SituacaoIngestao.PENDENTE, PageRequest.of(0, tamanhoLote));
+				if (lote.isEmpty()) {
+					return 0;
+				}
+
+				LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.drenar(), status: INICIO, tamanhoLote: "+ lote.size());
+
+				lote.forEach(item -> ids.add(item.getId()));
+				gravar(lote);
+				return lote.size();
+			}));
+		} catch (RuntimeException e) {
+			if (ids.isEmpty()) {
+				throw e;
+			}
+
+			LOGGER.info("#### Método: IngestaoLancamentoServiceImpl.drenar(), status: WARNING, mensagemWarning: lote rejeitado, gravando item a item: "+ e.getMessage());
+
+			// isola o item problemático para não perder o restante do lote
+			for (Long id : ids) {
+				gravarItem(id);
+			}
+			return ids.size();
+		} finally {
+			liberar(ids.size());
+		}
+	}
+
+	private void gravarItem(Long id) {
+		try {
+			ContextoCompartimento.executar(Compartimento.LOTE, () -> transactionTemplate.execute(status -> {
+				repository.reservar(id, SituacaoIngestao.PENDENTE).ifPresent(item -> gravar(Collections.singletonList(item)));
+				return null;
+			}));
+		} catch (RuntimeException erroItem) {
+			String mensagem = erroItem.getMessage() == null || erroItem.getMessage().length() <= TAMANHO_MENSAGEM
+					? erroItem.getMessage() : erroItem.getMessage().substring(0, TAMANHO_MENSAGEM);
+			ContextoCompartimento.executar(Compartimento.LOTE, () -> transactionTemplate.execute(status ->
+					repository.concluir(id, SituacaoIngestao.PENDENTE, SituacaoIngestao.ERRO, mensagem, LocalDateTime.now())));
+		}
+	}
+
+	// roda na transação que reservou as linhas: o lançamento e a conclusão do item são gravados juntos
+	private void gravar(List<IngestaoLancamento> lote) {
+		List<Lancamento> lancamentos = new ArrayList<>(lote.size());
+		for (IngestaoLancamento item : lote) {
+			lancamentos.add(Lancamento.builder().usuario(Usuario.builder().id(item.getIdUsuario()).build())
+					.descricao(item.getDescricao()).mes(item.getMes()).ano(item.getAno()).valor(item.getValor())
+					.tipo(item.getTipo()).categorias(item.getCategorias()).build());
+		}
+		lancamentoService.salvarEmLote(lancamentos);
+		LocalDateTime agora = LocalDateTime.now();
+		for (int i = 0; i < lote.size(); i++) {
+			IngestaoLancamento item = lote.get(i);
+			item.setSituacao(SituacaoIngestao.PROCESSADO);
+			item.setIdLancamento(lancamentos.get(i).getId());
+			item.setConcluidoEm(agora);
+		}
+	}
+
+	private void liberar(int quantidade) {
+		// linhas de outro nó também podem passar por aqui; a conta local não fica negativa
+		pendentes.updateAndGet(atual -> Math.max(0, atual - quantidade));
+	}
+
+	private static IngestaoDTO paraDTO(IngestaoLancamento item) {
+		return IngestaoDTO.builder().protocolo(item.getProtocolo()).situacao(item.getSituacao().name())
+				.idLancamento(item.getIdLancamento()).mensagem(item.getMensagem()).build();
+	}
+
+}
@@ -1,25 +1,47 @@
 package com.adriano.minhasfinancas.service.impl;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.hibernate.cfg.annotations.Nullability;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.adriano.minhasfinancas.api.resource.LancamentoResource;
+import com.adriano.minhasfinancas.coalescencia.ChamadaUnica;
+import com.adriano.minhasfinancas.coalescencia.ChamadasUnicas;
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
 import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
 import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
 import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
 import com.adriano.minhasfinancas.model.enums.TipoLancamento;
 import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoSpecifications;
+import com.adriano.minhasfinancas.model.repository.ProjecaoLancamento;
 import com.adriano.minhasfinancas.service.LancamentoService;
 
 @Service
@@ -27,10 +49,28 @@ public class LancamentoServiceImpl implements LancamentoService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(LancamentoServiceImpl.class);
 	
+	private static final int MAXIMO_MESES_SERIE = 1200;
+	
+	private static final int TAMANHO_BLOCO_IDS = 1000;
+	
+	private static final Set<String> PROPRIEDADES_ORDENACAO = new HashSet<>(
+			Arrays.asList("id", "descricao", "mes", "ano", "valor", "dataCadastro", "tipo", "status"));
+	
 	private LancamentoRepository repository;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) {
+	private ApplicationEventPublisher publisher;
+	
+	// vários componentes da tela pedem o saldo ao mesmo tempo; um só cálculo atende todos
+	private final ChamadaUnica<Long, BigDecimal> calculosSaldo;
+	
+	private final long prazoDesfazerMinutos;
+	
+	public LancamentoServiceImpl(LancamentoRepository repository, ApplicationEventPublisher publisher, ChamadasUnicas chamadasUnicas,
+			@Value("${minhasfinancas.exclusao.prazo-desfazer-minutos:30}") long prazoDesfazerMinutos) {
 		this.repository = repository;
+		this.publisher = publisher;
+		this.calculosSaldo = chamadasUnicas.criar("saldo");
+		this.prazoDesfazerMinutos = prazoDesfazerMinutos;
 	}
 	@Override
 	@Transactional
@@ -40,7 +80,26 @@ public class LancamentoServiceImpl implements LancamentoService {
 		
 		validar(lancamento);
 		lancamento.setStatus(StatusLancamento.PENDENTE);
-		return repository.save(lancamento);
+		Lancamento salvo = repository.save(lancamento);
+		publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, salvo));
+		return salvo;
+	}
+
+	@Override
+	@Transactional
+	public List<Lancamento> salvarEmLote(List<Lancamento> lancamentos) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.salvarEmLote(), status: INICIO, quantidade: "+ lancamentos.size());
+		
+		for (Lancamento lancamento : lancamentos) {
+			validar(lancamento);
+			lancamento.setStatus(StatusLancamento.PENDENTE);
+		}
+		List<Lancamento> salvos = repository.inserirEmLote(lancamentos);
+		for (Lancamento salvo : salvos) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, salvo));
+		}
+		return salvos;
 	}
 
 	@Override
@@ -49,6 +108,15 @@ public class LancamentoServiceImpl implements LancamentoService {
 		
 		LOGGER.info("#### Método: LancamentoServiceImpl.atualizar(), status: INICIO, id: "+ lancamento.getId());
 		
+		Objects.requireNonNull(lancamento.getId());
+		// a leitura fica no contexto de persistência e é reaproveitada pelo merge do save
+		Lancamento anterior = repository.findById(lancamento.getId()).map(LancamentoAlteradoEvent::copiar).orElse(null);
+		Lancamento atualizado = gravarAtualizacao(lancamento);
+		publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.ATUALIZADO, anterior, atualizado));
+		return atualizado;
+	}
+
+	private Lancamento gravarAtualizacao(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
 		validar(lancamento);
 		//lancamento.setStatus(StatusLancamento.PENDENTE);
@@ -61,31 +129,178 @@ public class LancamentoServiceImpl implements LancamentoService {
 		LOGGER.info("#### Método: LancamentoServiceImpl.deletar(), status: INICIO, id: "+ lancamento.getId());
 		
 		Objects.requireNonNull(lancamento.getId());
-		repository.delete(lancamento);
+		// só marca a linha; quem apaga de fato é o expurgo, depois do prazo para desfazer
+		if (repository.marcarComoDeletado(lancamento.getUsuario().getId(), lancamento.getId(), LocalDateTime.now()) > 0) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.DELETADO, lancamento));
+		}
+		
+	}
+
+	@Override
+	@Transactional
+	public Lancamento restaurar(Long idUsuario, Long id) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.restaurar(), status: INICIO, idUsuario: "+ idUsuario + ", id: "+ id);
+		
+		Objects.requireNonNull(idUsuario);
+		Objects.requireNonNull(id);
+		if (repository.restaurar(idUsuario, id, LocalDateTime.now().minusMinutes(prazoDesfazerMinutos)) == 0) {
+			throw new RegraNegocioException("Lançamento excluído não encontrado ou prazo de " + prazoDesfazerMinutos + " minutos para desfazer expirado.");
+		}
+		Lancamento restaurado = repository.findById(id)
+				.orElseThrow(() -> new RegraNegocioException("Lancamento não encontrado na base de Dados"));
+		publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, restaurado));
+		return restaurado;
+	}
+
+	@Override
+	@Transactional
+	public int deletarPorFiltro(Long idUsuario, Integer ano, Integer mes, StatusLancamento status) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.deletarPorFiltro(), status: INICIO, idUsuario: "+ idUsuario + ", ano: "+ ano + ", mes: "+ mes + ", status: "+ status);
+		
+		Objects.requireNonNull(idUsuario);
+		if (ano == null && mes == null && status == null) {
+			throw new RegraNegocioException("Informe ao menos um filtro (ano, mês ou status) para a exclusão.");
+		}
+		if (mes != null && (mes < 1 || mes > 12)) {
+			throw new RegraNegocioException("Informe um mês válido");
+		}
+		int removidos = repository.deletarPorFiltro(idUsuario, ano, mes, status, LocalDateTime.now());
+		if (removidos > 0) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.DELETADO, idUsuario));
+		}
+		return removidos;
+	}
+
+	@Override
+	@Transactional
+	public int deletarPorIds(Long idUsuario, List<Long> ids) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.deletarPorIds(), status: INICIO, idUsuario: "+ idUsuario + ", quantidadeIds: "+ ids.size());
+		
+		Objects.requireNonNull(idUsuario);
+		if (ids.isEmpty()) {
+			throw new RegraNegocioException("Informe ao menos um lançamento para a exclusão.");
+		}
+		LocalDateTime agora = LocalDateTime.now();
+		int removidos = 0;
+		for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_BLOCO_IDS) {
+			removidos += repository.deletarPorIds(idUsuario, ids.subList(inicio, Math.min(inicio + TAMANHO_BLOCO_IDS, ids.size())), agora);
+		}
+		if (removidos > 0) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.DELETADO, idUsuario));
+		}
+		return removidos;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Lancamento> buscar(FiltroLancamentoDTO filtro) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.buscar(), status: INICIO, filtro: "+ filtro);
 		
+		validarFiltro(filtro);
+		return repository.buscar(filtro.getUsuario(), LancamentoSpecifications.de(filtro), ordenacao(filtro.getOrdenacao()));
 	}
 
 	@Override
 	@Transactional(readOnly = true)
-	public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
+	public List<Map<String, Object>> buscarCampos(FiltroLancamentoDTO filtro, List<String> campos) {
 		
-		LOGGER.info("#### Método: LancamentoServiceImpl.buscar(), status: INICIO, idUsuario: "+ lancamentoFiltro.getUsuario());
+		LOGGER.info("#### Método: LancamentoServiceImpl.buscarCampos(), status: INICIO, filtro: "+ filtro + ", campos: "+ campos);
+		
+		ProjecaoLancamento projecao = ProjecaoLancamento.de(campos);
+		validarFiltro(filtro);
+		return repository.buscarCampos(filtro.getUsuario(), LancamentoSpecifications.de(filtro), ordenacao(filtro.getOrdenacao()), projecao);
+	}
+
+	private void validarFiltro(FiltroLancamentoDTO filtro) {
+		Objects.requireNonNull(filtro.getUsuario());
+		if (filtro.getMes() != null && (filtro.getMes() < 1 || filtro.getMes() > 12)) {
+			throw new RegraNegocioException("Informe um mês válido");
+		}
+		if (filtro.getDe() != null && filtro.getAte() != null && filtro.getDe().isAfter(filtro.getAte())) {
+			throw new RegraNegocioException("O mês inicial deve ser anterior ou igual ao mês final.");
+		}
+		if (filtro.getValorMinimo() != null && filtro.getValorMaximo() != null
+				&& filtro.getValorMinimo().compareTo(filtro.getValorMaximo()) > 0) {
+			throw new RegraNegocioException("O valor mínimo deve ser menor ou igual ao valor máximo.");
+		}
+		if (filtro.getCadastradoDe() != null && filtro.getCadastradoAte() != null
+				&& filtro.getCadastradoDe().isAfter(filtro.getCadastradoAte())) {
+			throw new RegraNegocioException("A data de cadastro inicial deve ser anterior ou igual à final.");
+		}
+		if (filtro.getCategorias() != null) {
+			for (Long idCategoria : filtro.getCategorias()) {
+				// o id da categoria carrega o usuário e o bit, então não é preciso consultar a tabela
+				if (Categoria.usuarioDe(idCategoria) != filtro.getUsuario() || Categoria.bitDe(idCategoria) >= Categoria.MAXIMO_POR_USUARIO) {
+					throw new RegraNegocioException("Categoria não encontrada para o usuário: " + idCategoria);
+				}
+			}
+		}
+	}
+
+	private Sort ordenacao(List<String> propriedades) {
+		if (propriedades == null || propriedades.isEmpty()) {
+			return Sort.unsorted();
+		}
+		List<Sort.Order> ordens = new ArrayList<>();
+		for (String propriedade : propriedades) {
+			String nome = propriedade.trim();
+			boolean decrescente = nome.startsWith("-");
+			if (decrescente) {
+				nome = nome.substring(1);
+			}
+			if (!PROPRIEDADES_ORDENACAO.contains(nome)) {
+				throw new RegraNegocioException("Ordenação não suportada: " + propriedade);
+			}
+			ordens.add(decrescente ? Sort.Order.desc(nome) : Sort.Order.asc(nome));
+		}
+		return Sort.by(ordens);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<LancamentoDTO> buscarPorIds(Long idUsuario, List<Long> ids) {
 		
-		Example  example = Example.of(lancamentoFiltro,
-				ExampleMatcher.matching()
-				.withIgnoreCase()
-				.withStringMatcher(StringMatcher.CONTAINING));
+		LOGGER.info("#### Método: LancamentoServiceImpl.buscarPorIds(), status: INICIO, idUsuario: "+ idUsuario + ", quantidadeIds: "+ ids.size());
 		
-		return repository.findAll(example);
+		Objects.requireNonNull(idUsuario);
+		List<Long> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+		List<LancamentoDTO> lancamentos = new ArrayList<>(distintos.size());
+		for (int inicio = 0; inicio < distintos.size(); inicio += TAMANHO_BLOCO_IDS) {
+			lancamentos.addAll(repository.buscarPorIds(idUsuario, distintos.subList(inicio, Math.min(inicio + TAMANHO_BLOCO_IDS, distintos.size()))));
+		}
+		return lancamentos;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> buscarCamposPorIds(Long idUsuario, List<Long> ids, List<String> campos) {
+		
+		LOGGER.info("#### Método: LancamentoServiceImpl.buscarCamposPorIds(), status: INICIO, idUsuario: "+ idUsuario + ", quantidadeIds: "+ ids.size() + ", campos: "+ campos);
+		
+		Objects.requireNonNull(idUsuario);
+		ProjecaoLancamento projecao = ProjecaoLancamento.de(campos);
+		List<Long> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+		List<Map<String, Object>> lancamentos = new ArrayList<>(distintos.size());
+		for (int inicio = 0; inicio < distintos.size(); inicio += TAMANHO_BLOCO_IDS) {
+			lancamentos.addAll(repository.buscarCamposPorIds(idUsuario, distintos.subList(inicio, Math.min(inicio + TAMANHO_BLOCO_IDS, distintos.size())), projecao));
+		}
+		return lancamentos;
+	}
+
+	@Override
+	@Transactional
 	public void atualizarStatus(Lancamento lancamento, StatusLancamento status) {
 		
 		LOGGER.info("#### Método: LancamentoServiceImpl.atualizarStatus(), status: INICIO, novoStatus: "+ status);
 		
+		Lancamento anterior = LancamentoAlteradoEvent.copiar(lancamento);
 		lancamento.setStatus(status);
-		atualizar(lancamento);
+		Lancamento atualizado = gravarAtualizacao(lancamento);
+		publisher.publishEvent(new LancamentoAlteradoEvent(TipoAlteracao.STATUS_ALTERADO, anterior, atualizado));
 		
 	}
 	@Override
@@ -113,6 +328,7 @@ public class LancamentoServiceImpl implements LancamentoService {
 		
 	}
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Lancamento> obterPorId(Long id) {
 		
 		LOGGER.info("#### Método: LancamentoServiceImpl.obterPorId(), status: INICIO, id: "+ id);
@@ -120,23 +336,44 @@ public class LancamentoServiceImpl implements LancamentoService {
 		return repository.findById(id);
 	}
 	
+	// sem transação própria: quem espera pelo cálculo de outra chamada não segura uma conexão
 	@Override
-	@Transactional(readOnly = true)
 	public BigDecimal obterSaldoPorUsuario(Long id) {
 		
 		LOGGER.info("#### Método: LancamentoServiceImpl.obterSaldoPorUsuario(), status: INICIO, id: "+ id);
 		
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.RECEITA);
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.DESPESA);
+		return calculosSaldo.executar(id, () -> {
+			BigDecimal saldo = repository.obterSaldoPorUsuario(id, TipoLancamento.RECEITA);
+			return saldo == null ? BigDecimal.ZERO : saldo;
+		});
+	}
+	
+	// o cálculo em andamento pode ter lido o banco antes desta escrita; as próximas chamadas começam outro
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		calculosSaldo.esquecer(evento.getIdUsuario());
+	}
+	
+	@EventListener
+	public void aoInvalidarCache(CacheInvalidadoEvent evento) {
+		if (evento.getEscopo() == EscopoInvalidacao.LANCAMENTOS) {
+			calculosSaldo.esquecer(evento.getIdUsuario());
+		}
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<SaldoMensalDTO> obterSerieSaldo(Long idUsuario, YearMonth de, YearMonth ate) {
 		
-		if(receitas == null) {
-			receitas = BigDecimal.ZERO;
+		LOGGER.info("#### Método: LancamentoServiceImpl.obterSerieSaldo(), status: INICIO, idUsuario: "+ idUsuario + ", de: "+ de + ", ate: "+ ate);
+		
+		if (de.isAfter(ate)) {
+			throw new RegraNegocioException("O mês inicial deve ser anterior ou igual ao mês final.");
 		}
-		if(despesas == null) {
-			despesas = BigDecimal.ZERO;
+		if (de.plusMonths(MAXIMO_MESES_SERIE).isBefore(ate)) {
+			throw new RegraNegocioException("Informe um período de no máximo " + MAXIMO_MESES_SERIE + " meses.");
 		}
-		return receitas.subtract(despesas);
-		
+		return repository.obterSerieSaldo(idUsuario, de, ate);
 	}
 	
 	
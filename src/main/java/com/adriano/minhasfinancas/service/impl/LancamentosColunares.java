@@ -0,0 +1,156 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+/**
+ * Retrato imutável dos lançamentos de um usuário em colunas primitivas, ordenado por id.
+ * Cada escrita gera um novo retrato (cópia das colunas), então as leituras não precisam de trava.
+ */
+public final class LancamentosColunares {
+
+	static final byte NULO = -1;
+
+	private final long[] ids;
+	private final int[] anoMes;
+	private final long[] centavos;
+	private final byte[] tipos;
+	private final byte[] status;
+
+	private LancamentosColunares(long[] ids, int[] anoMes, long[] centavos, byte[] tipos, byte[] status) {
+		this.ids = ids;
+		this.anoMes = anoMes;
+		this.centavos = centavos;
+		this.tipos = tipos;
+		this.status = status;
+	}
+
+	public static LancamentosColunares deLinhas(List<Object[]> linhas) {
+		int n = linhas.size();
+		long[] ids = new long[n];
+		int[] anoMes = new int[n];
+		long[] centavos = new long[n];
+		byte[] tipos = new byte[n];
+		byte[] status = new byte[n];
+		for (int i = 0; i < n; i++) {
+			Object[] linha = linhas.get(i);
+			ids[i] = (Long) linha[0];
+			anoMes[i] = codificarAnoMes((Integer) linha[1], (Integer) linha[2]);
+			centavos[i] = paraCentavos((BigDecimal) linha[3]);
+			tipos[i] = codigo((TipoLancamento) linha[4]);
+			status[i] = codigo((StatusLancamento) linha[5]);
+		}
+		return new LancamentosColunares(ids, anoMes, centavos, tipos, status);
+	}
+
+	public int tamanho() {
+		return ids.length;
+	}
+
+	public LancamentosColunares comLancamento(Lancamento lancamento) {
+		int posicao = Arrays.binarySearch(ids, lancamento.getId());
+		if (posicao >= 0) {
+			LancamentosColunares copia = copiar(ids.length);
+			copia.preencher(posicao, lancamento);
+			return copia;
+		}
+		int insercao = -posicao - 1;
+		LancamentosColunares copia = new LancamentosColunares(new long[ids.length + 1], new int[ids.length + 1],
+				new long[ids.length + 1], new byte[ids.length + 1], new byte[ids.length + 1]);
+		copiarTrecho(this, 0, copia, 0, insercao);
+		copiarTrecho(this, insercao, copia, insercao + 1, ids.length - insercao);
+		copia.preencher(insercao, lancamento);
+		return copia;
+	}
+
+	public LancamentosColunares semLancamento(Long id) {
+		int posicao = Arrays.binarySearch(ids, id);
+		if (posicao < 0) {
+			return this;
+		}
+		LancamentosColunares copia = new LancamentosColunares(new long[ids.length - 1], new int[ids.length - 1],
+				new long[ids.length - 1], new byte[ids.length - 1], new byte[ids.length - 1]);
+		copiarTrecho(this, 0, copia, 0, posicao);
+		copiarTrecho(this, posicao + 1, copia, posicao, ids.length - posicao - 1);
+		return copia;
+	}
+
+	public long[] somarPorTipo() {
+		long[] totais = new long[TipoLancamento.values().length];
+		for (int i = 0; i < tipos.length; i++) {
+			if (tipos[i] != NULO) {
+				totais[tipos[i]] += centavos[i];
+			}
+		}
+		return totais;
+	}
+
+	public long[] somarPorStatus() {
+		long[] totais = new long[StatusLancamento.values().length];
+		for (int i = 0; i < status.length; i++) {
+			if (status[i] != NULO) {
+				totais[status[i]] += centavos[i];
+			}
+		}
+		return totais;
+	}
+
+	/** Líquido (receitas - despesas) por mês do ano informado; índice 0 = janeiro. */
+	public long[] somarLiquidoPorMes(int ano) {
+		long[] totais = new long[12];
+		int inicio = codificarAnoMes(ano, 1);
+		int fim = codificarAnoMes(ano, 12);
+		byte receita = (byte) TipoLancamento.RECEITA.ordinal();
+		for (int i = 0; i < anoMes.length; i++) {
+			int valorAnoMes = anoMes[i];
+			if (valorAnoMes >= inicio && valorAnoMes <= fim && tipos[i] != NULO) {
+				totais[valorAnoMes - inicio] += tipos[i] == receita ? centavos[i] : -centavos[i];
+			}
+		}
+		return totais;
+	}
+
+	public static int codificarAnoMes(int ano, int mes) {
+		return ano * 12 + (mes - 1);
+	}
+
+	public static long paraCentavos(BigDecimal valor) {
+		return valor == null ? 0L : valor.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValue();
+	}
+
+	public static BigDecimal deCentavos(long centavos) {
+		return BigDecimal.valueOf(centavos, 2);
+	}
+
+	private void preencher(int posicao, Lancamento lancamento) {
+		ids[posicao] = lancamento.getId();
+		anoMes[posicao] = codificarAnoMes(lancamento.getAno(), lancamento.getMes());
+		centavos[posicao] = paraCentavos(lancamento.getValor());
+		tipos[posicao] = codigo(lancamento.getTipo());
+		status[posicao] = codigo(lancamento.getStatus());
+	}
+
+	private LancamentosColunares copiar(int tamanho) {
+		return new LancamentosColunares(Arrays.copyOf(ids, tamanho), Arrays.copyOf(anoMes, tamanho),
+				Arrays.copyOf(centavos, tamanho), Arrays.copyOf(tipos, tamanho), Arrays.copyOf(status, tamanho));
+	}
+
+	private static void copiarTrecho(LancamentosColunares origem, int de, LancamentosColunares destino, int para, int quantidade) {
+		System.arraycopy(origem.ids, de, destino.ids, para, quantidade);
+		System.arraycopy(origem.anoMes, de, destino.anoMes, para, quantidade);
+		System.arraycopy(origem.centavos, de, destino.centavos, para, quantidade);
+		System.arraycopy(origem.tipos, de, destino.tipos, para, quantidade);
+		System.arraycopy(origem.status, de, destino.status, para, quantidade);
+	}
+
+	private static byte codigo(Enum<?> valor) {
+		return valor == null ? NULO : (byte) valor.ordinal();
+	}
+
+}
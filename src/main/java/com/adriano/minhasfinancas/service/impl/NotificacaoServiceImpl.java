@@ -0,0 +1,275 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.adriano.minhasfinancas.dto.EventoLancamentoDTO;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.NotificacaoService;
+
+/**
+ * Eventos de lançamento por SSE. Cada assinante tem a sua fila e no máximo um envio em andamento, numa
+ * thread do pool de envio; um cliente lento segura só a própria thread. O vigia remove quem passa do
+ * prazo num envio e reagenda as filas que ficaram sem thread quando o pool estava cheio.
+ */
+@Service
+public class NotificacaoServiceImpl implements NotificacaoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotificacaoServiceImpl.class);
+
+	private final LancamentoService lancamentoService;
+
+	private final Map<Long, List<Assinante>> assinantes = new ConcurrentHashMap<>();
+
+	private final ThreadPoolExecutor distribuicao;
+
+	private final ThreadPoolExecutor envio;
+
+	private final ScheduledExecutorService vigia = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "eventos-vigia");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final long timeoutMs;
+
+	private final long prazoEnvioMs;
+
+	private final int capacidadeAssinante;
+
+	private final int maximoAssinantesPorUsuario;
+
+	public NotificacaoServiceImpl(LancamentoService lancamentoService,
+			@Value("${minhasfinancas.eventos.timeout-ms:1800000}") long timeoutMs,
+			@Value("${minhasfinancas.eventos.capacidade-assinante:64}") int capacidadeAssinante,
+			@Value("${minhasfinancas.eventos.maximo-assinantes-por-usuario:5}") int maximoAssinantesPorUsuario,
+			@Value("${minhasfinancas.eventos.threads:4}") int threads,
+			@Value("${minhasfinancas.eventos.capacidade-distribuicao:10000}") int capacidadeDistribuicao,
+			@Value("${minhasfinancas.eventos.maximo-envios-simultaneos:64}") int maximoEnvios,
+			@Value("${minhasfinancas.eventos.prazo-envio-ms:5000}") long prazoEnvioMs) {
+		this.lancamentoService = lancamentoService;
+		this.timeoutMs = timeoutMs;
+		this.prazoEnvioMs = prazoEnvioMs;
+		this.capacidadeAssinante = capacidadeAssinante;
+		this.maximoAssinantesPorUsuario = maximoAssinantesPorUsuario;
+		AtomicInteger contador = new AtomicInteger();
+		this.distribuicao = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(capacidadeDistribuicao), r -> {
+					Thread thread = new Thread(r, "eventos-lancamento-" + contador.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		// sem fila: o envio ou ganha uma thread na hora ou espera a próxima volta do vigia
+		AtomicInteger contadorEnvio = new AtomicInteger();
+		this.envio = new ThreadPoolExecutor(0, maximoEnvios, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+			Thread thread = new Thread(r, "eventos-envio-" + contadorEnvio.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PostConstruct
+	public void iniciar() {
+		long intervalo = Math.max(10, prazoEnvioMs / 2);
+		vigia.scheduleWithFixedDelay(this::vigiarEnvios, intervalo, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		vigia.shutdownNow();
+		distribuicao.shutdownNow();
+		envio.shutdownNow();
+		assinantes.values().forEach(lista -> lista.forEach(assinante -> assinante.emitter.complete()));
+		assinantes.clear();
+	}
+
+	@Override
+	public SseEmitter assinar(Long idUsuario) {
+
+		LOGGER.info("#### Método: NotificacaoServiceImpl.assinar(), status: INICIO, idUsuario: "+ idUsuario);
+
+		SseEmitter emitter = criarEmitter(timeoutMs);
+		Assinante assinante = new Assinante(idUsuario, emitter, capacidadeAssinante);
+		List<Assinante> doUsuario = assinantes.compute(idUsuario, (id, lista) -> {
+			List<Assinante> atual = lista == null ? new CopyOnWriteArrayList<>() : lista;
+			atual.add(assinante);
+			return atual;
+		});
+		while (doUsuario.size() > maximoAssinantesPorUsuario) {
+			remover(doUsuario.get(0), "limite de conexões do usuário");
+		}
+		emitter.onCompletion(() -> remover(assinante, null));
+		emitter.onTimeout(() -> remover(assinante, null));
+		emitter.onError(erro -> remover(assinante, null));
+		return emitter;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		if (!assinantes.containsKey(evento.getIdUsuario())) {
+			return;
+		}
+		try {
+			// o saldo é calculado fora da thread da requisição, uma vez por evento e não por assinante
+			distribuicao.execute(() -> publicar(evento));
+		} catch (RejectedExecutionException e) {
+			LOGGER.info("#### Método: NotificacaoServiceImpl.aoAlterarLancamento(), status: WARNING, mensagemWarning: distribuição saturada, evento descartado para o usuário "+ evento.getIdUsuario());
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${minhasfinancas.eventos.heartbeat-ms:25000}")
+	public void enviarHeartbeat() {
+		for (List<Assinante> doUsuario : assinantes.values()) {
+			for (Assinante assinante : doUsuario) {
+				enfileirar(assinante, SseEmitter.event().comment("heartbeat"));
+			}
+		}
+	}
+
+	private void publicar(LancamentoAlteradoEvent evento) {
+		List<Assinante> doUsuario = assinantes.get(evento.getIdUsuario());
+		if (doUsuario == null || doUsuario.isEmpty()) {
+			return;
+		}
+		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(evento.getIdUsuario());
+		EventoLancamentoDTO dto = EventoLancamentoDTO.builder().tipo(evento.getTipo().name())
+				.lancamento(converter(evento.getLancamento())).saldo(saldo).build();
+		for (Assinante assinante : doUsuario) {
+			enfileirar(assinante, SseEmitter.event().name(evento.getTipo().name()).data(dto, MediaType.APPLICATION_JSON));
+		}
+	}
+
+	private void enfileirar(Assinante assinante, SseEmitter.SseEventBuilder mensagem) {
+		if (assinante.removido) {
+			return;
+		}
+		if (!assinante.fila.offer(mensagem)) {
+			remover(assinante, "consumidor lento");
+			return;
+		}
+		agendar(assinante);
+	}
+
+	private void agendar(Assinante assinante) {
+		if (assinante.agendado.compareAndSet(false, true)) {
+			try {
+				envio.execute(() -> enviar(assinante));
+			} catch (RejectedExecutionException e) {
+				assinante.agendado.set(false);
+			}
+		}
+	}
+
+	private void enviar(Assinante assinante) {
+		// repete se chegou mensagem entre o último poll e a liberação do agendamento
+		do {
+			try {
+				SseEmitter.SseEventBuilder mensagem;
+				while (!assinante.removido && (mensagem = assinante.fila.poll()) != null) {
+					assinante.enviandoDesde = System.currentTimeMillis();
+					assinante.emitter.send(mensagem);
+					assinante.enviandoDesde = 0;
+				}
+			} catch (IOException | IllegalStateException e) {
+				remover(assinante, null);
+				return;
+			} finally {
+				assinante.enviandoDesde = 0;
+				assinante.agendado.set(false);
+			}
+		} while (!assinante.removido && !assinante.fila.isEmpty() && assinante.agendado.compareAndSet(false, true));
+	}
+
+	private void vigiarEnvios() {
+		long agora = System.currentTimeMillis();
+		for (List<Assinante> doUsuario : assinantes.values()) {
+			for (Assinante assinante : doUsuario) {
+				long desde = assinante.enviandoDesde;
+				if (desde > 0 && agora - desde > prazoEnvioMs) {
+					remover(assinante, "envio excedeu o prazo");
+				} else if (!assinante.fila.isEmpty()) {
+					agendar(assinante);
+				}
+			}
+		}
+	}
+
+	private void remover(Assinante assinante, String motivo) {
+		AtomicBoolean removido = new AtomicBoolean();
+		assinantes.computeIfPresent(assinante.idUsuario, (id, lista) -> {
+			removido.set(lista.remove(assinante));
+			return lista.isEmpty() ? null : lista;
+		});
+		assinante.removido = true;
+		assinante.fila.clear();
+		if (removido.get() && motivo != null) {
+
+			LOGGER.info("#### Método: NotificacaoServiceImpl.remover(), status: WARNING, idUsuario: "+ assinante.idUsuario + ", motivo: "+ motivo);
+
+			assinante.emitter.complete();
+		}
+	}
+
+	protected SseEmitter criarEmitter(long timeoutMs) {
+		return new SseEmitter(timeoutMs);
+	}
+
+	private LancamentoDTO converter(Lancamento lancamento) {
+		if (lancamento == null) {
+			return null;
+		}
+		return LancamentoDTO.builder().id(lancamento.getId()).descricao(lancamento.getDescricao())
+				.valor(lancamento.getValor()).mes(lancamento.getMes()).ano(lancamento.getAno())
+				.status(lancamento.getStatus() == null ? null : lancamento.getStatus().name())
+				.tipo(lancamento.getTipo() == null ? null : lancamento.getTipo().name())
+				.usuario(lancamento.getUsuario().getId())
+				.categorias(Categoria.idsDe(lancamento.getUsuario().getId(), lancamento.getCategorias())).build();
+	}
+
+	private static class Assinante {
+
+		private final Long idUsuario;
+		private final SseEmitter emitter;
+		private final BlockingQueue<SseEmitter.SseEventBuilder> fila;
+		private final AtomicBoolean agendado = new AtomicBoolean();
+		private volatile long enviandoDesde;
+		private volatile boolean removido;
+
+		Assinante(Long idUsuario, SseEmitter emitter, int capacidade) {
+			this.idUsuario = idUsuario;
+			this.emitter = emitter;
+			this.fila = new ArrayBlockingQueue<>(capacidade);
+		}
+	}
+
+}
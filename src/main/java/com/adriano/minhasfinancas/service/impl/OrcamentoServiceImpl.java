@@ -0,0 +1,348 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.CategoriaRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.OrcamentoRepository;
+import com.adriano.minhasfinancas.service.OrcamentoService;
+
+/**
+ * Os gastos de cada mês com orçamento ficam em contadores na memória, carregados uma vez do banco
+ * e depois ajustados pela diferença de cada lançamento confirmado. Assim a verificação de um limite
+ * numa gravação é uma comparação, sem somar de novo as despesas do mês.
+ */
+@Service
+public class OrcamentoServiceImpl implements OrcamentoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrcamentoServiceImpl.class);
+
+	// posição do total do mês nos contadores; as posições 0 a 62 são os bits das categorias
+	private static final int TOTAL = Categoria.MAXIMO_POR_USUARIO;
+
+	private final OrcamentoRepository repository;
+
+	private final LancamentoRepository lancamentoRepository;
+
+	private final CategoriaRepository categoriaRepository;
+
+	// usuários com algum orçamento; enquanto não carregado, qualquer usuário pode ter
+	private final Set<Long> usuariosComOrcamento = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean usuariosCarregados;
+
+	// orçamentos por usuário e mês (ano * 12 + mes - 1)
+	private final Map<Long, Map<Integer, List<Orcamento>>> orcamentos = new ConcurrentHashMap<>();
+
+	// centavos de despesa já confirmados, por usuário e mês
+	private final Map<Long, Map<Integer, AtomicLongArray>> gastos = new ConcurrentHashMap<>();
+
+	// uma entrada por usuário com contadores na memória ou escrita em confirmação
+	private final VersoesUsuario versoes = new VersoesUsuario();
+
+	public OrcamentoServiceImpl(OrcamentoRepository repository, LancamentoRepository lancamentoRepository,
+			CategoriaRepository categoriaRepository) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.categoriaRepository = categoriaRepository;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void carregarUsuarios() {
+		try {
+			usuariosComOrcamento.addAll(repository.obterUsuariosComOrcamento());
+			usuariosCarregados = true;
+
+			LOGGER.info("#### Método: OrcamentoServiceImpl.carregarUsuarios(), status: SUCESSO, quantidadeUsuarios: "+ usuariosComOrcamento.size());
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: OrcamentoServiceImpl.carregarUsuarios(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	@Override
+	@Transactional
+	public Orcamento salvar(Orcamento orcamento) {
+
+		LOGGER.info("#### Método: OrcamentoServiceImpl.salvar(), status: INICIO, idUsuario: "+ orcamento.getUsuario().getId() + ", ano: "+ orcamento.getAno() + ", mes: "+ orcamento.getMes() + ", limite: "+ orcamento.getLimite());
+
+		if (orcamento.getMes() == null || orcamento.getMes() < 1 || orcamento.getMes() > 12) {
+			throw new RegraNegocioException("Informe um mês válido");
+		}
+		if (orcamento.getAno() == null || orcamento.getAno().toString().length() != 4) {
+			throw new RegraNegocioException("Informe um Ano válido.");
+		}
+		if (orcamento.getLimite() == null || orcamento.getLimite().compareTo(BigDecimal.ZERO) < 1) {
+			throw new RegraNegocioException("Informe um limite válido.");
+		}
+		Long idUsuario = orcamento.getUsuario().getId();
+		Long idCategoria = orcamento.getIdCategoria();
+		if (idCategoria != null && (Categoria.usuarioDe(idCategoria) != idUsuario || !categoriaRepository.existsById(idCategoria))) {
+			throw new RegraNegocioException("Categoria não encontrada para o usuário: " + idCategoria);
+		}
+		for (Orcamento existente : repository.findByUsuarioId(idUsuario)) {
+			if (existente.getAno().equals(orcamento.getAno()) && existente.getMes().equals(orcamento.getMes())
+					&& Objects.equals(existente.getIdCategoria(), idCategoria) && !existente.getId().equals(orcamento.getId())) {
+				throw new RegraNegocioException("Já existe um orçamento para este mês e categoria");
+			}
+		}
+		Orcamento salvo = repository.save(orcamento);
+		usuariosComOrcamento.add(idUsuario);
+		descartarAoConcluir(idUsuario);
+		return salvo;
+	}
+
+	@Override
+	public List<Orcamento> listar(Long idUsuario, Integer ano, Integer mes) {
+
+		LOGGER.info("#### Método: OrcamentoServiceImpl.listar(), status: INICIO, idUsuario: "+ idUsuario + ", ano: "+ ano + ", mes: "+ mes);
+
+		List<Orcamento> lista = new ArrayList<>();
+		for (List<Orcamento> doMes : orcamentosDoUsuario(idUsuario).values()) {
+			for (Orcamento orcamento : doMes) {
+				if ((ano == null || ano.equals(orcamento.getAno())) && (mes == null || mes.equals(orcamento.getMes()))) {
+					lista.add(orcamento);
+				}
+			}
+		}
+		lista.sort((a, b) -> Integer.compare(indice(a.getAno(), a.getMes()), indice(b.getAno(), b.getMes())));
+		return lista;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Orcamento> obterPorId(Long id) {
+
+		LOGGER.info("#### Método: OrcamentoServiceImpl.obterPorId(), status: INICIO, id: "+ id);
+
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional
+	public void deletar(Orcamento orcamento) {
+
+		LOGGER.info("#### Método: OrcamentoServiceImpl.deletar(), status: INICIO, id: "+ orcamento.getId());
+
+		repository.delete(orcamento);
+		descartarAoConcluir(orcamento.getUsuario().getId());
+	}
+
+	@Override
+	@Transactional
+	public void deletarPorCategoria(Categoria categoria) {
+		Long idUsuario = categoria.getUsuario().getId();
+		// o bit pode ser reaproveitado por outra categoria, que não deve herdar o limite
+		if (repository.deletarPorCategoria(idUsuario, categoria.getId()) > 0) {
+			descartarAoConcluir(idUsuario);
+		}
+	}
+
+	@Override
+	public BigDecimal obterGasto(Orcamento orcamento) {
+		AtomicLongArray gasto = gastoDoMes(orcamento.getUsuario().getId(), orcamento.getAno(), orcamento.getMes());
+		return LancamentosColunares.deCentavos(gasto.get(posicao(orcamento)));
+	}
+
+	@Override
+	public List<Orcamento> verificar(Lancamento anterior, Lancamento lancamento) {
+		if (!contaNoOrcamento(lancamento) || lancamento.getUsuario() == null) {
+			return Collections.emptyList();
+		}
+		Long idUsuario = lancamento.getUsuario().getId();
+		if (usuariosCarregados && !usuariosComOrcamento.contains(idUsuario)) {
+			return Collections.emptyList();
+		}
+		List<Orcamento> doMes = orcamentosDoUsuario(idUsuario).get(indice(lancamento.getAno(), lancamento.getMes()));
+		if (doMes == null) {
+			return Collections.emptyList();
+		}
+		AtomicLongArray gasto = gastoDoMes(idUsuario, lancamento.getAno(), lancamento.getMes());
+		boolean mesmoMes = anterior != null && Objects.equals(anterior.getAno(), lancamento.getAno())
+				&& Objects.equals(anterior.getMes(), lancamento.getMes());
+		List<Orcamento> excedidos = new ArrayList<>();
+		for (Orcamento orcamento : doMes) {
+			int posicao = posicao(orcamento);
+			// a gravação já está nos contadores; o valor anterior sai da diferença
+			long depois = gasto.get(posicao);
+			long antes = depois - centavos(lancamento, posicao) + (mesmoMes ? centavos(anterior, posicao) : 0);
+			long limite = LancamentosColunares.paraCentavos(orcamento.getLimite());
+			if (antes <= limite && depois > limite) {
+				excedidos.add(orcamento);
+			}
+		}
+		return excedidos;
+	}
+
+	// a escrita fica pendente até o fim da transação: uma carga lida nesse intervalo pode já conter a linha
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+	public void antesDeConfirmarLancamento(LancamentoAlteradoEvent evento) {
+		versoes.iniciarEscrita(evento.getIdUsuario());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+	public void aoConcluirLancamento(LancamentoAlteradoEvent evento) {
+		versoes.concluirEscrita(evento.getIdUsuario());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Long idUsuario = evento.getIdUsuario();
+		versoes.confirmar(idUsuario);
+		if (usuariosCarregados && !usuariosComOrcamento.contains(idUsuario)) {
+			return;
+		}
+		Map<Integer, AtomicLongArray> doUsuario = gastos.get(idUsuario);
+		if (doUsuario == null) {
+			return;
+		}
+		Lancamento lancamento = evento.getLancamento();
+		boolean diferencaConhecida = lancamento != null && (evento.getTipo() == TipoAlteracao.CRIADO
+				|| evento.getTipo() == TipoAlteracao.DELETADO || evento.getAnterior() != null);
+		if (!diferencaConhecida) {
+			descartarGastos(idUsuario);
+			return;
+		}
+		if (evento.getTipo() == TipoAlteracao.DELETADO) {
+			aplicar(doUsuario, lancamento, -1);
+		} else {
+			aplicar(doUsuario, evento.getAnterior(), -1);
+			aplicar(doUsuario, lancamento, 1);
+		}
+	}
+
+	// gasto alterado em outro nó: os contadores do usuário são recarregados na próxima verificação
+	@EventListener
+	public void aoInvalidarCache(CacheInvalidadoEvent evento) {
+		if (evento.getEscopo() != EscopoInvalidacao.LANCAMENTOS) {
+			return;
+		}
+		versoes.confirmar(evento.getIdUsuario());
+		descartarGastos(evento.getIdUsuario());
+	}
+
+	private Map<Integer, List<Orcamento>> orcamentosDoUsuario(Long idUsuario) {
+		Map<Integer, List<Orcamento>> porMes = orcamentos.get(idUsuario);
+		if (porMes != null) {
+			return porMes;
+		}
+		porMes = new HashMap<>();
+		for (Orcamento orcamento : repository.findByUsuarioId(idUsuario)) {
+			porMes.computeIfAbsent(indice(orcamento.getAno(), orcamento.getMes()), mes -> new ArrayList<>()).add(orcamento);
+		}
+		Map<Integer, List<Orcamento>> existente = orcamentos.putIfAbsent(idUsuario, porMes);
+		return existente == null ? porMes : existente;
+	}
+
+	private AtomicLongArray gastoDoMes(Long idUsuario, int ano, int mes) {
+		int indice = indice(ano, mes);
+		Map<Integer, AtomicLongArray> doUsuario = gastos.get(idUsuario);
+		AtomicLongArray gasto = doUsuario == null ? null : doUsuario.get(indice);
+		if (gasto != null) {
+			return gasto;
+		}
+		// marcado antes de criar os contadores: um descarte no meio invalida a marca
+		VersoesUsuario.Marca marca = versoes.marcar(idUsuario);
+		Map<Integer, AtomicLongArray> contadores = gastos.computeIfAbsent(idUsuario, id -> new ConcurrentHashMap<>());
+		AtomicLongArray carregado = new AtomicLongArray(TOTAL + 1);
+		for (Object[] linha : lancamentoRepository.obterDespesasDoMesPorCategorias(idUsuario, ano, mes,
+				TipoLancamento.DESPESA, StatusLancamento.CANCELADO)) {
+			somar(carregado, linha[0] == null ? 0 : (Long) linha[0], LancamentosColunares.paraCentavos((BigDecimal) linha[1]));
+		}
+		// descarta a carga se alguma escrita confirmou ou estava confirmando durante a leitura:
+		// a diferença dela ainda pode chegar e seria somada de novo sobre uma linha já lida
+		AtomicLongArray instalado = contadores.compute(indice,
+				(mesDoGasto, atual) -> atual == null && versoes.vale(idUsuario, marca) ? carregado : atual);
+		return instalado == null ? carregado : instalado;
+	}
+
+	private void descartarGastos(Long idUsuario) {
+		gastos.remove(idUsuario);
+		versoes.liberar(idUsuario);
+	}
+
+	private void aplicar(Map<Integer, AtomicLongArray> doUsuario, Lancamento lancamento, int sinal) {
+		if (!contaNoOrcamento(lancamento)) {
+			return;
+		}
+		AtomicLongArray gasto = doUsuario.get(indice(lancamento.getAno(), lancamento.getMes()));
+		if (gasto != null) {
+			long mascara = lancamento.getCategorias() == null ? 0 : lancamento.getCategorias();
+			somar(gasto, mascara, sinal * LancamentosColunares.paraCentavos(lancamento.getValor()));
+		}
+	}
+
+	private static void somar(AtomicLongArray gasto, long mascara, long centavos) {
+		gasto.addAndGet(TOTAL, centavos);
+		while (mascara != 0) {
+			gasto.addAndGet(Long.numberOfTrailingZeros(mascara), centavos);
+			mascara &= mascara - 1;
+		}
+	}
+
+	private void descartarAoConcluir(Long idUsuario) {
+		orcamentos.remove(idUsuario);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// uma leitura concorrente pode ter recarregado a lista antiga antes da confirmação
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					orcamentos.remove(idUsuario);
+				}
+			});
+		}
+	}
+
+	private static boolean contaNoOrcamento(Lancamento lancamento) {
+		return lancamento != null && lancamento.getTipo() == TipoLancamento.DESPESA
+				&& lancamento.getStatus() != StatusLancamento.CANCELADO
+				&& lancamento.getAno() != null && lancamento.getMes() != null;
+	}
+
+	private static long centavos(Lancamento lancamento, int posicao) {
+		if (!contaNoOrcamento(lancamento)) {
+			return 0;
+		}
+		long mascara = lancamento.getCategorias() == null ? 0 : lancamento.getCategorias();
+		return posicao == TOTAL || (mascara & (1L << posicao)) != 0 ? LancamentosColunares.paraCentavos(lancamento.getValor()) : 0;
+	}
+
+	private static int posicao(Orcamento orcamento) {
+		return orcamento.getIdCategoria() == null ? TOTAL : Categoria.bitDe(orcamento.getIdCategoria());
+	}
+
+	private static int indice(int ano, int mes) {
+		return ano * 12 + mes - 1;
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.adriano.minhasfinancas.dto.PainelDTO;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.PainelService;
+
+/**
+ * Monta o painel com as consultas independentes rodando ao mesmo tempo num pool limitado.
+ * O painel espera no máximo {@code prazoMs} no total; o que não ficar pronto vai vazio e o nome
+ * da seção aparece em {@link PainelDTO#getSecoesAusentes()}, em vez de atrasar a tela inteira.
+ */
+@Service
+public class PainelServiceImpl implements PainelService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PainelServiceImpl.class);
+
+	private static final String SALDO = "saldo";
+
+	private static final String RESUMO_MES = "resumoMes";
+
+	private static final String ULTIMOS_LANCAMENTOS = "ultimosLancamentos";
+
+	private static final String PENDENTES = "pendentes";
+
+	private final LancamentoService lancamentoService;
+
+	private final LancamentoRepository repository;
+
+	private final ThreadPoolExecutor consultas;
+
+	private final long prazoMs;
+
+	public PainelServiceImpl(LancamentoService lancamentoService, LancamentoRepository repository,
+			@Value("${minhasfinancas.painel.threads:8}") int threads,
+			@Value("${minhasfinancas.painel.fila:100}") int fila,
+			@Value("${minhasfinancas.painel.prazo-ms:1500}") long prazoMs) {
+		this.lancamentoService = lancamentoService;
+		this.repository = repository;
+		this.prazoMs = prazoMs;
+		AtomicInteger contador = new AtomicInteger();
+		// fila limitada: com o pool saturado a seção é recusada na hora em vez de esperar o prazo
+		this.consultas = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(fila), r -> {
+			Thread thread = new Thread(r, "painel-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.consultas.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		consultas.shutdownNow();
+	}
+
+	@Override
+	public PainelDTO obterPainel(Long idUsuario, YearMonth mes, int quantidadeUltimos) {
+
+		LOGGER.info("#### Método: PainelServiceImpl.obterPainel(), status: INICIO, idUsuario: "+ idUsuario + ", mes: "+ mes + ", quantidadeUltimos: "+ quantidadeUltimos);
+
+		long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+		List<String> ausentes = new ArrayList<>();
+
+		Future<BigDecimal> saldo = submeter(() -> lancamentoService.obterSaldoPorUsuario(idUsuario));
+		Future<Map<String, BigDecimal>> resumoMes = submeter(() -> obterResumoMes(idUsuario, mes));
+		Future<List<LancamentoDTO>> ultimos = submeter(() -> repository.buscarUltimos(idUsuario, PageRequest.of(0, quantidadeUltimos)));
+		Future<Map<String, Long>> pendentes = submeter(() -> obterPendentes(idUsuario));
+
+		PainelDTO painel = PainelDTO.builder().usuario(idUsuario).ano(mes.getYear()).mes(mes.getMonthValue())
+				.saldo(aguardar(SALDO, saldo, prazo, ausentes))
+				.resumoMes(aguardar(RESUMO_MES, resumoMes, prazo, ausentes))
+				.ultimosLancamentos(aguardar(ULTIMOS_LANCAMENTOS, ultimos, prazo, ausentes))
+				.pendentes(aguardar(PENDENTES, pendentes, prazo, ausentes))
+				.secoesAusentes(ausentes).build();
+
+		if (ausentes.isEmpty()) {
+			LOGGER.info("#### Método: PainelServiceImpl.obterPainel(), status: SUCESSO, idUsuario: "+ idUsuario);
+		} else {
+			LOGGER.info("#### Método: PainelServiceImpl.obterPainel(), status: WARNING, mensagemWarning: painel parcial, secoesAusentes: "+ ausentes);
+		}
+		return painel;
+	}
+
+	private Map<String, BigDecimal> obterResumoMes(Long idUsuario, YearMonth mes) {
+		Map<String, BigDecimal> totais = new LinkedHashMap<>();
+		for (TipoLancamento tipo : TipoLancamento.values()) {
+			totais.put(tipo.name(), BigDecimal.ZERO);
+		}
+		for (Object[] linha : repository.obterTotaisDoMesPorTipo(idUsuario, mes.getYear(), mes.getMonthValue())) {
+			if (linha[0] != null) {
+				totais.put(((TipoLancamento) linha[0]).name(), (BigDecimal) linha[1]);
+			}
+		}
+		return totais;
+	}
+
+	private Map<String, Long> obterPendentes(Long idUsuario) {
+		Map<String, Long> quantidades = new LinkedHashMap<>();
+		for (TipoLancamento tipo : TipoLancamento.values()) {
+			quantidades.put(tipo.name(), 0L);
+		}
+		for (Object[] linha : repository.obterQuantidadesPorTipoNoStatus(idUsuario, StatusLancamento.PENDENTE)) {
+			if (linha[0] != null) {
+				quantidades.put(((TipoLancamento) linha[0]).name(), (Long) linha[1]);
+			}
+		}
+		return quantidades;
+	}
+
+	private <T> Future<T> submeter(Callable<T> consulta) {
+		try {
+			return consultas.submit(consulta);
+		} catch (RejectedExecutionException e) {
+			return null;
+		}
+	}
+
+	// o prazo é do painel inteiro: cada seção espera só o que ainda resta dele
+	private <T> T aguardar(String secao, Future<T> futuro, long prazo, List<String> ausentes) {
+		if (futuro == null) {
+			ausentes.add(secao);
+			return null;
+		}
+		try {
+			return futuro.get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			futuro.cancel(true);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			futuro.cancel(true);
+		} catch (ExecutionException e) {
+
+			LOGGER.error("#### Método: PainelServiceImpl.aguardar(), status: ERROR, secao: "+ secao + ", mensagemError: "+ e.getCause().getMessage(), e.getCause());
+		}
+		ausentes.add(secao);
+		return null;
+	}
+
+}
@@ -0,0 +1,314 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.adriano.minhasfinancas.coalescencia.ChamadaUnica;
+import com.adriano.minhasfinancas.coalescencia.ChamadasUnicas;
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.ResumoLancamentoService;
+
+@Service
+public class ResumoLancamentoServiceImpl implements ResumoLancamentoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResumoLancamentoServiceImpl.class);
+
+	private final LancamentoRepository repository;
+
+	private final Map<Long, LancamentosColunares> retratos = new ConcurrentHashMap<>();
+
+	private final Map<Long, SaldosPorMes> saldosPorMes = new ConcurrentHashMap<>();
+
+	private final VersoesUsuario versoes = new VersoesUsuario();
+
+	// usuários com retrato ou saldos na memória e o seu último acesso; acima do máximo sai o menos usado
+	private final Map<Long, Long> ultimoUso = new ConcurrentHashMap<>();
+
+	private final AtomicLong acessos = new AtomicLong();
+
+	private final Set<Long> aquecendo = ConcurrentHashMap.newKeySet();
+
+	private final ExecutorService aquecimento = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "resumo-aquecimento");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final int maximoUsuarios;
+
+	// consultas ao banco enquanto o retrato não está carregado, juntando as simultâneas do mesmo usuário
+	private final ChamadaUnica<Long, List<Object[]>> totaisPorTipo;
+
+	private final ChamadaUnica<Long, List<Object[]>> totaisPorStatus;
+
+	public ResumoLancamentoServiceImpl(LancamentoRepository repository, ChamadasUnicas chamadasUnicas,
+			@Value("${minhasfinancas.resumo.maximo-usuarios:10000}") int maximoUsuarios) {
+		this.repository = repository;
+		this.maximoUsuarios = maximoUsuarios;
+		this.totaisPorTipo = chamadasUnicas.criar("totais-por-tipo");
+		this.totaisPorStatus = chamadasUnicas.criar("totais-por-status");
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		aquecimento.shutdownNow();
+	}
+
+	@Override
+	public Map<String, BigDecimal> obterTotaisPorTipo(Long idUsuario) {
+
+		LOGGER.info("#### Método: ResumoLancamentoServiceImpl.obterTotaisPorTipo(), status: INICIO, idUsuario: "+ idUsuario);
+
+		Map<String, BigDecimal> totais = new LinkedHashMap<>();
+		LancamentosColunares retrato = obterRetrato(idUsuario);
+		if (retrato != null) {
+			long[] centavos = retrato.somarPorTipo();
+			for (TipoLancamento tipo : TipoLancamento.values()) {
+				totais.put(tipo.name(), LancamentosColunares.deCentavos(centavos[tipo.ordinal()]));
+			}
+			return totais;
+		}
+		for (TipoLancamento tipo : TipoLancamento.values()) {
+			totais.put(tipo.name(), BigDecimal.ZERO);
+		}
+		for (Object[] linha : totaisPorTipo.executar(idUsuario, () -> repository.obterTotaisPorTipo(idUsuario))) {
+			if (linha[0] != null) {
+				totais.put(((TipoLancamento) linha[0]).name(), (BigDecimal) linha[1]);
+			}
+		}
+		return totais;
+	}
+
+	@Override
+	public Map<String, BigDecimal> obterTotaisPorStatus(Long idUsuario) {
+
+		LOGGER.info("#### Método: ResumoLancamentoServiceImpl.obterTotaisPorStatus(), status: INICIO, idUsuario: "+ idUsuario);
+
+		Map<String, BigDecimal> totais = new LinkedHashMap<>();
+		LancamentosColunares retrato = obterRetrato(idUsuario);
+		if (retrato != null) {
+			long[] centavos = retrato.somarPorStatus();
+			for (StatusLancamento status : StatusLancamento.values()) {
+				totais.put(status.name(), LancamentosColunares.deCentavos(centavos[status.ordinal()]));
+			}
+			return totais;
+		}
+		for (StatusLancamento status : StatusLancamento.values()) {
+			totais.put(status.name(), BigDecimal.ZERO);
+		}
+		for (Object[] linha : totaisPorStatus.executar(idUsuario, () -> repository.obterTotaisPorStatus(idUsuario))) {
+			if (linha[0] != null) {
+				totais.put(((StatusLancamento) linha[0]).name(), (BigDecimal) linha[1]);
+			}
+		}
+		return totais;
+	}
+
+	@Override
+	public Map<Integer, BigDecimal> obterTotaisPorMes(Long idUsuario, Integer ano) {
+
+		LOGGER.info("#### Método: ResumoLancamentoServiceImpl.obterTotaisPorMes(), status: INICIO, idUsuario: "+ idUsuario + ", ano: "+ ano);
+
+		Map<Integer, BigDecimal> totais = new LinkedHashMap<>();
+		LancamentosColunares retrato = obterRetrato(idUsuario);
+		if (retrato != null) {
+			long[] centavos = retrato.somarLiquidoPorMes(ano);
+			for (int mes = 1; mes <= 12; mes++) {
+				totais.put(mes, LancamentosColunares.deCentavos(centavos[mes - 1]));
+			}
+			return totais;
+		}
+		for (int mes = 1; mes <= 12; mes++) {
+			totais.put(mes, BigDecimal.ZERO);
+		}
+		for (Object[] linha : repository.obterTotaisPorMes(idUsuario, ano, TipoLancamento.RECEITA)) {
+			totais.put((Integer) linha[0], (BigDecimal) linha[1]);
+		}
+		return totais;
+	}
+
+	@Override
+	public BigDecimal obterSaldoDoPeriodo(Long idUsuario, YearMonth de, YearMonth ate) {
+
+		LOGGER.info("#### Método: ResumoLancamentoServiceImpl.obterSaldoDoPeriodo(), status: INICIO, idUsuario: "+ idUsuario + ", de: "+ de + ", ate: "+ ate);
+
+		if (de.isAfter(ate)) {
+			throw new RegraNegocioException("O mês inicial deve ser anterior ou igual ao mês final.");
+		}
+		SaldosPorMes saldos = saldosPorMes.get(idUsuario);
+		if (saldos != null) {
+			usar(idUsuario);
+			return LancamentosColunares.deCentavos(saldos.somarPeriodo(
+					LancamentosColunares.codificarAnoMes(de.getYear(), de.getMonthValue()),
+					LancamentosColunares.codificarAnoMes(ate.getYear(), ate.getMonthValue())));
+		}
+		aquecerEmSegundoPlano(idUsuario);
+		BigDecimal saldo = repository.obterSaldoDoPeriodo(idUsuario, de.getYear(), de.getMonthValue(),
+				ate.getYear(), ate.getMonthValue(), TipoLancamento.RECEITA);
+		return saldo == null ? BigDecimal.ZERO : saldo;
+	}
+
+	// a escrita fica pendente até o fim da transação: uma carga lida nesse intervalo pode já conter a linha
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+	public void antesDeConfirmarLancamento(LancamentoAlteradoEvent evento) {
+		versoes.iniciarEscrita(evento.getIdUsuario());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+	public void aoConcluirLancamento(LancamentoAlteradoEvent evento) {
+		versoes.concluirEscrita(evento.getIdUsuario());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Long idUsuario = evento.getIdUsuario();
+		versoes.confirmar(idUsuario);
+		totaisPorTipo.esquecer(idUsuario);
+		totaisPorStatus.esquecer(idUsuario);
+		if (evento.getLancamento() == null) {
+			descartar(idUsuario);
+			return;
+		}
+		retratos.computeIfPresent(idUsuario, (id, retrato) -> evento.getTipo() == TipoAlteracao.DELETADO
+				? retrato.semLancamento(evento.getLancamento().getId())
+				: retrato.comLancamento(evento.getLancamento()));
+		atualizarSaldosPorMes(evento);
+	}
+
+	// alteração feita em outro nó: sem a diferença, o retrato e os saldos do usuário são recarregados do banco
+	@EventListener
+	public void aoInvalidarCache(CacheInvalidadoEvent evento) {
+		if (evento.getEscopo() != EscopoInvalidacao.LANCAMENTOS) {
+			return;
+		}
+		Long idUsuario = evento.getIdUsuario();
+		versoes.confirmar(idUsuario);
+		totaisPorTipo.esquecer(idUsuario);
+		totaisPorStatus.esquecer(idUsuario);
+		descartar(idUsuario);
+	}
+
+	// a árvore só aceita diferenças; sem o estado anterior de uma atualização ela é descartada
+	private void atualizarSaldosPorMes(LancamentoAlteradoEvent evento) {
+		SaldosPorMes saldos = saldosPorMes.get(evento.getIdUsuario());
+		if (saldos == null) {
+			return;
+		}
+		if (evento.getTipo() == TipoAlteracao.CRIADO) {
+			somar(saldos, evento.getLancamento(), 1);
+		} else if (evento.getTipo() == TipoAlteracao.DELETADO) {
+			somar(saldos, evento.getLancamento(), -1);
+		} else if (evento.getAnterior() != null) {
+			somar(saldos, evento.getAnterior(), -1);
+			somar(saldos, evento.getLancamento(), 1);
+		} else {
+			saldosPorMes.remove(evento.getIdUsuario());
+		}
+	}
+
+	private static void somar(SaldosPorMes saldos, Lancamento lancamento, int sinal) {
+		saldos.somar(LancamentosColunares.codificarAnoMes(lancamento.getAno(), lancamento.getMes()),
+				sinal * SaldosPorMes.liquido(lancamento.getValor(), lancamento.getTipo()));
+	}
+
+	private LancamentosColunares obterRetrato(Long idUsuario) {
+		LancamentosColunares retrato = retratos.get(idUsuario);
+		if (retrato == null) {
+			aquecerEmSegundoPlano(idUsuario);
+		} else {
+			usar(idUsuario);
+		}
+		return retrato;
+	}
+
+	private void usar(Long idUsuario) {
+		// replace: um usuário descartado no meio do acesso não volta para a lista
+		ultimoUso.replace(idUsuario, acessos.incrementAndGet());
+	}
+
+	// retrato, saldos e versão saem juntos; sem eles uma leitura em curso para o usuário deixa de valer
+	private void descartar(Long idUsuario) {
+		retratos.remove(idUsuario);
+		saldosPorMes.remove(idUsuario);
+		ultimoUso.remove(idUsuario);
+		versoes.liberar(idUsuario);
+	}
+
+	// só a thread de aquecimento instala usuários, então a contagem não passa do máximo
+	private void abrirEspaco(Long idUsuario) {
+		while (ultimoUso.size() >= maximoUsuarios && !ultimoUso.containsKey(idUsuario)) {
+			Long menosUsado = null;
+			long menorAcesso = Long.MAX_VALUE;
+			for (Map.Entry<Long, Long> uso : ultimoUso.entrySet()) {
+				if (uso.getValue() < menorAcesso) {
+					menorAcesso = uso.getValue();
+					menosUsado = uso.getKey();
+				}
+			}
+			if (menosUsado == null) {
+				return;
+			}
+			descartar(menosUsado);
+		}
+	}
+
+	private void aquecerEmSegundoPlano(Long idUsuario) {
+		if (aquecendo.add(idUsuario)) {
+			aquecimento.execute(() -> aquecer(idUsuario));
+		}
+	}
+
+	private void aquecer(Long idUsuario) {
+		try {
+			VersoesUsuario.Marca marca = versoes.marcar(idUsuario);
+			List<Object[]> linhas = ContextoCompartimento.executar(Compartimento.LOTE, () -> repository.obterColunasPorUsuario(idUsuario));
+			LancamentosColunares retrato = LancamentosColunares.deLinhas(linhas);
+			SaldosPorMes saldos = SaldosPorMes.deLinhas(linhas);
+			abrirEspaco(idUsuario);
+			// descarta a carga se alguma escrita confirmou ou estava confirmando durante a leitura:
+			// a diferença dela ainda pode chegar e seria somada de novo sobre uma linha já lida
+			retratos.compute(idUsuario, (id, atual) -> versoes.vale(id, marca) ? retrato : atual);
+			saldosPorMes.compute(idUsuario, (id, atual) -> versoes.vale(id, marca) ? saldos : atual);
+			if (retratos.containsKey(idUsuario) || saldosPorMes.containsKey(idUsuario)) {
+				ultimoUso.put(idUsuario, acessos.incrementAndGet());
+			} else {
+				versoes.liberar(idUsuario);
+			}
+
+			LOGGER.info("#### Método: ResumoLancamentoServiceImpl.aquecer(), status: SUCESSO, idUsuario: "+ idUsuario + ", quantidadeLancamentos: "+ retrato.tamanho());
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: ResumoLancamentoServiceImpl.aquecer(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		} finally {
+			aquecendo.remove(idUsuario);
+		}
+	}
+
+}
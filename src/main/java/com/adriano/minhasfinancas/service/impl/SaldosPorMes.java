@@ -0,0 +1,124 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+/**
+ * Líquido (receitas - despesas) em centavos de cada mês de um usuário numa árvore de Fenwick:
+ * a soma de qualquer período e a atualização de um mês custam O(log n) no número de meses.
+ * Os meses cobertos vão do primeiro ao último lançamento e crescem quando uma escrita cai fora deles.
+ */
+public final class SaldosPorMes {
+
+	// folga ao crescer, para que lançamentos em meses vizinhos não reconstruam a árvore a cada vez
+	private static final int FOLGA_MESES = 12;
+
+	private int primeiro;
+
+	// posições 1..n; a posição i acumula os meses (i - (i & -i), i]
+	private long[] arvore;
+
+	private SaldosPorMes(int primeiro, long[] meses) {
+		this.primeiro = primeiro;
+		this.arvore = construir(meses);
+	}
+
+	/** Linhas de {@code obterColunasPorUsuario}: id, ano, mes, valor, tipo, status. */
+	public static SaldosPorMes deLinhas(List<Object[]> linhas) {
+		if (linhas.isEmpty()) {
+			return new SaldosPorMes(0, new long[0]);
+		}
+		int menor = Integer.MAX_VALUE;
+		int maior = Integer.MIN_VALUE;
+		for (Object[] linha : linhas) {
+			int anoMes = LancamentosColunares.codificarAnoMes((Integer) linha[1], (Integer) linha[2]);
+			menor = Math.min(menor, anoMes);
+			maior = Math.max(maior, anoMes);
+		}
+		long[] meses = new long[maior - menor + 1];
+		for (Object[] linha : linhas) {
+			int anoMes = LancamentosColunares.codificarAnoMes((Integer) linha[1], (Integer) linha[2]);
+			meses[anoMes - menor] += liquido((BigDecimal) linha[3], (TipoLancamento) linha[4]);
+		}
+		return new SaldosPorMes(menor, meses);
+	}
+
+	public static long liquido(BigDecimal valor, TipoLancamento tipo) {
+		long centavos = LancamentosColunares.paraCentavos(valor);
+		return tipo == TipoLancamento.RECEITA ? centavos : -centavos;
+	}
+
+	public synchronized void somar(int anoMes, long centavos) {
+		if (centavos == 0) {
+			return;
+		}
+		if (arvore.length == 1 || anoMes < primeiro || anoMes >= primeiro + arvore.length - 1) {
+			crescer(anoMes);
+		}
+		for (int i = anoMes - primeiro + 1; i < arvore.length; i += i & -i) {
+			arvore[i] += centavos;
+		}
+	}
+
+	/** Líquido dos meses de {@code de} a {@code ate}, inclusive. */
+	public synchronized long somarPeriodo(int de, int ate) {
+		if (de > ate) {
+			return 0;
+		}
+		return acumulado(ate) - acumulado(de - 1);
+	}
+
+	public synchronized int quantidadeMeses() {
+		return arvore.length - 1;
+	}
+
+	// soma do primeiro mês até anoMes
+	private long acumulado(int anoMes) {
+		int posicao = (int) Math.min((long) anoMes - primeiro + 1, arvore.length - 1);
+		long soma = 0;
+		for (int i = posicao; i > 0; i -= i & -i) {
+			soma += arvore[i];
+		}
+		return soma;
+	}
+
+	// raro: reconstrói a árvore inteira com o novo intervalo de meses
+	private void crescer(int anoMes) {
+		long[] meses = meses();
+		int novoPrimeiro = anoMes - FOLGA_MESES;
+		int novoUltimo = anoMes + FOLGA_MESES;
+		if (meses.length > 0) {
+			novoPrimeiro = Math.min(primeiro, novoPrimeiro);
+			novoUltimo = Math.max(primeiro + meses.length - 1, novoUltimo);
+		}
+		long[] novos = new long[novoUltimo - novoPrimeiro + 1];
+		if (meses.length > 0) {
+			System.arraycopy(meses, 0, novos, primeiro - novoPrimeiro, meses.length);
+		}
+		primeiro = novoPrimeiro;
+		arvore = construir(novos);
+	}
+
+	private long[] meses() {
+		long[] meses = new long[arvore.length - 1];
+		for (int i = 0; i < meses.length; i++) {
+			meses[i] = acumulado(primeiro + i) - acumulado(primeiro + i - 1);
+		}
+		return meses;
+	}
+
+	private static long[] construir(long[] meses) {
+		long[] arvore = new long[meses.length + 1];
+		for (int i = 1; i < arvore.length; i++) {
+			arvore[i] += meses[i - 1];
+			int pai = i + (i & -i);
+			if (pai < arvore.length) {
+				arvore[pai] += arvore[i];
+			}
+		}
+		return arvore;
+	}
+
+}
@@ -0,0 +1,309 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.ProgressoSnapshotDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.ExecucaoSnapshot;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+import com.adriano.minhasfinancas.model.repository.ExecucaoSnapshotRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
+import com.adriano.minhasfinancas.service.SnapshotSaldoService;
+
+@Service
+public class SnapshotSaldoServiceImpl implements SnapshotSaldoService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotSaldoServiceImpl.class);
+
+	private static final String LIMITES_LANCAMENTO = "select min(id), max(id) from financas.lancamento";
+
+	private static final String LEITURA_PARTICAO = "select id_usuario, tipo, valor from financas.lancamento where id > ? and id <= ?"
+			+ " and deletado_em is null";
+
+	private static final String SOMA_SNAPSHOT = "update financas.saldo_snapshot set receitas = receitas + ?, despesas = despesas + ?,"
+			+ " saldo = saldo + ? where data_referencia = ? and id_usuario = ?";
+
+	private static final String INSERT_SNAPSHOT = "insert into financas.saldo_snapshot"
+			+ " (receitas, despesas, saldo, data_referencia, id_usuario) values (?, ?, ?, ?, ?)";
+
+	private static final String INSERT_USUARIOS_SEM_LANCAMENTO = "insert into financas.saldo_snapshot"
+			+ " (receitas, despesas, saldo, data_referencia, id_usuario) select 0, 0, 0, ?, u.id from financas.usuario u"
+			+ " where not exists (select 1 from financas.saldo_snapshot s where s.data_referencia = ? and s.id_usuario = u.id)";
+
+	private static final String CHECKPOINT = "update financas.saldo_snapshot_execucao set ultimo_id = ? where data_referencia = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ExecucaoSnapshotRepository execucaoRepository;
+
+	private final long tamanhoJanela;
+
+	private final long tamanhoParticao;
+
+	private final AtomicBoolean executando = new AtomicBoolean();
+
+	// leitura das partições: JDBC bloqueante, então threads comuns e nunca mais que as conexões do compartimento de lote
+	private final ExecutorService particoes;
+
+	private final ExecutorService disparo = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "snapshot-saldo");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public SnapshotSaldoServiceImpl(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+			ExecucaoSnapshotRepository execucaoRepository,
+			@Value("${minhasfinancas.snapshot.tamanho-janela:200000}") long tamanhoJanela,
+			@Value("${minhasfinancas.snapshot.tamanho-particao:20000}") long tamanhoParticao,
+			@Value("${minhasfinancas.snapshot.paralelismo:0}") int paralelismo,
+			@Value("${minhasfinancas.banco.compartimentos.lote:3}") int conexoesLote) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.execucaoRepository = execucaoRepository;
+		this.tamanhoJanela = tamanhoJanela;
+		this.tamanhoParticao = tamanhoParticao;
+		// uma conexão do lote fica livre para a ingestão e o expurgo enquanto o snapshot roda
+		int limite = Math.max(1, conexoesLote - 1);
+		int threads = Math.min(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors(), limite);
+		AtomicInteger contador = new AtomicInteger();
+		this.particoes = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "snapshot-particao-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		disparo.shutdownNow();
+		particoes.shutdownNow();
+	}
+
+	@Scheduled(cron = "${minhasfinancas.snapshot.cron:0 30 2 * * *}")
+	public void gerarAgendado() {
+		retomarPendentes();
+		gerar(LocalDate.now());
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void retomarAoIniciar() {
+		disparo.execute(this::retomarPendentes);
+	}
+
+	@Override
+	public boolean iniciar(LocalDate dataReferencia) {
+		// a vaga é tomada aqui: quem recebe true tem a geração garantida, sem disputa dentro do executor
+		if (!executando.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			disparo.execute(() -> {
+				try {
+					executar(dataReferencia);
+				} catch (RuntimeException e) {
+					LOGGER.error("#### Método: SnapshotSaldoServiceImpl.iniciar(), status: ERROR, dataReferencia: "+ dataReferencia + ", mensagemError: "+ e.getMessage(), e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			executando.set(false);
+			throw e;
+		}
+		return true;
+	}
+
+	@Override
+	public ProgressoSnapshotDTO gerar(LocalDate dataReferencia) {
+		if (!executando.compareAndSet(false, true)) {
+			throw new RegraNegocioException("Já existe uma geração de snapshot de saldo em andamento.");
+		}
+		return executar(dataReferencia);
+	}
+
+	// chamado com a vaga já tomada; a libera ao terminar
+	private ProgressoSnapshotDTO executar(LocalDate dataReferencia) {
+
+		LOGGER.info("#### Método: SnapshotSaldoServiceImpl.gerar(), status: INICIO, dataReferencia: "+ dataReferencia);
+
+		try {
+			ExecucaoSnapshot execucao = execucaoRepository.findById(dataReferencia).orElseGet(() -> criarExecucao(dataReferencia));
+			if (execucao.getSituacao() == SituacaoExecucao.EM_ANDAMENTO) {
+				ContextoCompartimento.executar(Compartimento.LOTE, () -> processar(execucao));
+			}
+
+			LOGGER.info("#### Método: SnapshotSaldoServiceImpl.gerar(), status: SUCESSO, dataReferencia: "+ dataReferencia);
+
+			return paraProgresso(execucao);
+		} finally {
+			executando.set(false);
+		}
+	}
+
+	@Override
+	public Optional<ProgressoSnapshotDTO> obterProgresso(LocalDate dataReferencia) {
+		return execucaoRepository.findById(dataReferencia).map(this::paraProgresso);
+	}
+
+	private void retomarPendentes() {
+		try {
+			for (ExecucaoSnapshot pendente : execucaoRepository.findBySituacaoOrderByDataReferencia(SituacaoExecucao.EM_ANDAMENTO)) {
+
+				LOGGER.info("#### Método: SnapshotSaldoServiceImpl.retomarPendentes(), status: INICIO, dataReferencia: "+ pendente.getDataReferencia() + ", ultimoId: "+ pendente.getUltimoId());
+
+				gerar(pendente.getDataReferencia());
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: SnapshotSaldoServiceImpl.retomarPendentes(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	private ExecucaoSnapshot criarExecucao(LocalDate dataReferencia) {
+		// o maior id no início fixa o corte do snapshot; lançamentos posteriores ficam para o próximo
+		Long[] limites = jdbcTemplate.queryForObject(LIMITES_LANCAMENTO,
+				(rs, linha) -> new Long[] { rs.getLong(1), rs.getLong(2) });
+		ExecucaoSnapshot execucao = ExecucaoSnapshot.builder().dataReferencia(dataReferencia)
+				.ultimoId(Math.max(limites[0] - 1, 0)).maximoId(limites[1])
+				.situacao(SituacaoExecucao.EM_ANDAMENTO).inicio(LocalDateTime.now()).build();
+		return execucaoRepository.save(execucao);
+	}
+
+	private void processar(ExecucaoSnapshot execucao) {
+		Date data = Date.valueOf(execucao.getDataReferencia());
+		long inicio = execucao.getUltimoId();
+		long maximo = execucao.getMaximoId();
+		int percentualRegistrado = paraProgresso(execucao).getPercentual();
+		while (inicio < maximo) {
+			long fim = Math.min(inicio + tamanhoJanela, maximo);
+			Map<Long, long[]> parcial = agregar(inicio, fim);
+			// soma da janela e checkpoint na mesma transação: a retomada nunca soma duas vezes
+			transactionTemplate.execute(status -> {
+				gravarParcial(data, parcial);
+				jdbcTemplate.update(CHECKPOINT, fim, data);
+				return null;
+			});
+			execucao.setUltimoId(fim);
+			inicio = fim;
+
+			// uma linha a cada 10%; o detalhe por janela só em debug
+			int percentual = paraProgresso(execucao).getPercentual();
+			if (percentual / 10 != percentualRegistrado / 10) {
+				percentualRegistrado = percentual;
+
+				LOGGER.info("#### Método: SnapshotSaldoServiceImpl.processar(), status: PROGRESSO, dataReferencia: "+ execucao.getDataReferencia()
+						+ ", ultimoId: "+ fim + ", percentual: "+ percentual);
+			} else if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("#### Método: SnapshotSaldoServiceImpl.processar(), status: PROGRESSO, dataReferencia: "+ execucao.getDataReferencia()
+						+ ", ultimoId: "+ fim + ", percentual: "+ percentual);
+			}
+		}
+		transactionTemplate.execute(status -> {
+			jdbcTemplate.update(INSERT_USUARIOS_SEM_LANCAMENTO, data, data);
+			execucao.setSituacao(SituacaoExecucao.CONCLUIDO);
+			execucao.setFim(LocalDateTime.now());
+			return execucaoRepository.save(execucao);
+		});
+	}
+
+	/** Soma receitas/despesas em centavos por usuário na janela, com as partições lidas em paralelo. */
+	private Map<Long, long[]> agregar(long inicio, long fim) {
+		List<Callable<Map<Long, long[]>>> leituras = new ArrayList<>();
+		for (long de = inicio; de < fim; de += tamanhoParticao) {
+			long ate = Math.min(de + tamanhoParticao, fim);
+			long deParticao = de;
+			leituras.add(() -> ler(deParticao, ate));
+		}
+		Map<Long, long[]> total = new HashMap<>();
+		try {
+			for (Future<Map<Long, long[]>> leitura : particoes.invokeAll(leituras)) {
+				juntar(total, leitura.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Geração de snapshot interrompida", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+		}
+		return total;
+	}
+
+	private Map<Long, long[]> ler(long inicio, long fim) {
+		Map<Long, long[]> acumuladores = new HashMap<>();
+		// as partições rodam em threads do pool, que não herdam o compartimento de quem disparou
+		ContextoCompartimento.executar(Compartimento.LOTE, () -> jdbcTemplate.query(LEITURA_PARTICAO, rs -> {
+			long[] centavos = acumuladores.computeIfAbsent(rs.getLong(1), id -> new long[2]);
+			long valor = LancamentosColunares.paraCentavos(rs.getBigDecimal(3));
+			if ("RECEITA".equals(rs.getString(2))) {
+				centavos[0] += valor;
+			} else {
+				centavos[1] += valor;
+			}
+		}, inicio, fim));
+		return acumuladores;
+	}
+
+	private static void juntar(Map<Long, long[]> total, Map<Long, long[]> parcial) {
+		for (Map.Entry<Long, long[]> entrada : parcial.entrySet()) {
+			long[] centavos = total.computeIfAbsent(entrada.getKey(), id -> new long[2]);
+			centavos[0] += entrada.getValue()[0];
+			centavos[1] += entrada.getValue()[1];
+		}
+	}
+
+	private void gravarParcial(Date data, Map<Long, long[]> parcial) {
+		List<Object[]> somas = new ArrayList<>(parcial.size());
+		for (Map.Entry<Long, long[]> entrada : parcial.entrySet()) {
+			long[] centavos = entrada.getValue();
+			somas.add(new Object[] { LancamentosColunares.deCentavos(centavos[0]), LancamentosColunares.deCentavos(centavos[1]),
+					LancamentosColunares.deCentavos(centavos[0] - centavos[1]), data, entrada.getKey() });
+		}
+		int[] atualizados = jdbcTemplate.batchUpdate(SOMA_SNAPSHOT, somas);
+		List<Object[]> novos = new ArrayList<>();
+		for (int i = 0; i < atualizados.length; i++) {
+			if (atualizados[i] == 0) {
+				novos.add(somas.get(i));
+			}
+		}
+		if (!novos.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, novos);
+		}
+	}
+
+	private ProgressoSnapshotDTO paraProgresso(ExecucaoSnapshot execucao) {
+		long maximo = execucao.getMaximoId();
+		int percentual = execucao.getSituacao() == SituacaoExecucao.CONCLUIDO || maximo == 0 ? 100
+				: (int) Math.min(99, execucao.getUltimoId() * 100 / maximo);
+		return ProgressoSnapshotDTO.builder().dataReferencia(execucao.getDataReferencia())
+				.situacao(execucao.getSituacao().name()).ultimoId(execucao.getUltimoId())
+				.maximoId(maximo).percentual(percentual).build();
+	}
+
+}
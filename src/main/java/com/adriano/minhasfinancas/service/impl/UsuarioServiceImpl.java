@@ -1,17 +1,29 @@
 package com.adriano.minhasfinancas.service.impl;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.event.UsuarioAlteradoEvent;
 import com.adriano.minhasfinancas.exception.ErroAutenticacao;
 import com.adriano.minhasfinancas.exception.RegraNegocioException;
 import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
 import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.resiliencia.ContextoCompartimento;
 import com.adriano.minhasfinancas.service.UsuarioService;
 
 @Service
@@ -19,12 +31,48 @@ public class UsuarioServiceImpl implements UsuarioService {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(LancamentoServiceImpl.class);
 
+	private static final String EMAIL_JA_CADASTRADO = "Já existe um usuario cadastrado com este email";
+
+	private static final String INDICE_EMAIL = "uk_usuario_email";
+
 	private UsuarioRepository repository;
+
+	private ApplicationEventPublisher publisher;
+
+	// e-mails já cadastrados; até a carga terminar todo e-mail vai ao banco
+	private final FiltroBloom emailsCadastrados;
+
+	private volatile boolean emailsCarregados;
 	
 	@Autowired
-	public UsuarioServiceImpl(UsuarioRepository repository) {
+	public UsuarioServiceImpl(UsuarioRepository repository, ApplicationEventPublisher publisher,
+			@Value("${minhasfinancas.usuario.filtro-emails.capacidade:1000000}") long capacidadeFiltro,
+			@Value("${minhasfinancas.usuario.filtro-emails.taxa-falso-positivo:0.01}") double taxaFalsoPositivo) {
 		super();
 		this.repository = repository;
+		this.publisher = publisher;
+		this.emailsCadastrados = new FiltroBloom(capacidadeFiltro, taxaFalsoPositivo);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void carregarEmails() {
+		try {
+			List<String> emails = ContextoCompartimento.executar(Compartimento.LOTE, repository::obterEmails);
+			emails.forEach(emailsCadastrados::adicionar);
+			emailsCarregados = true;
+
+			LOGGER.info("#### Método: UsuarioServiceImpl.carregarEmails(), status: SUCESSO, quantidadeEmails: "+ emails.size());
+		} catch (RuntimeException e) {
+			LOGGER.error("#### Método: UsuarioServiceImpl.carregarEmails(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	// usuário cadastrado em outro nó: o e-mail entra no filtro deste também
+	@EventListener
+	public void aoInvalidarCache(CacheInvalidadoEvent evento) {
+		if (evento.getEscopo() == EscopoInvalidacao.USUARIO) {
+			repository.findById(evento.getIdUsuario()).map(Usuario::getEmail).ifPresent(emailsCadastrados::adicionar);
+		}
 	}
 	
 	
@@ -51,7 +99,21 @@ public class UsuarioServiceImpl implements UsuarioService {
 		LOGGER.info("#### Método: UsuarioServiceImpl.salvarUsuario(), status: INICIO, nomeNovoUsuario: "+ usuario.getNome());
 		
 		validarEmail(usuario.getEmail());
-		return repository.save(usuario);
+		Usuario salvo;
+		try {
+			salvo = repository.save(usuario);
+		} catch (DataIntegrityViolationException e) {
+			// outro cadastro com o mesmo e-mail passou pela validação ao mesmo tempo; o índice único decide
+			if (violouEmailUnico(e)) {
+				throw new RegraNegocioException(EMAIL_JA_CADASTRADO);
+			}
+			throw e;
+		}
+		if (usuario.getEmail() != null) {
+			emailsCadastrados.adicionar(usuario.getEmail());
+		}
+		publisher.publishEvent(new UsuarioAlteradoEvent(salvo.getId()));
+		return salvo;
 	}
 
 	@Override
@@ -59,9 +121,13 @@ public class UsuarioServiceImpl implements UsuarioService {
 		
 		LOGGER.info("#### Método: UsuarioServiceImpl.validarEmail(), status: INICIO, email: "+ email);
 		
+		if (emailsCarregados && email != null && !emailsCadastrados.talvezContenha(email)) {
+			// o filtro não erra para menos: e-mail fora dele certamente é novo
+			return;
+		}
 		boolean existe = repository.existsByEmail(email);
 		if(existe) {
-			throw new RegraNegocioException("Já existe um usuario cadastrado com este email");
+			throw new RegraNegocioException(EMAIL_JA_CADASTRADO);
 		}
 		
 	}
@@ -75,6 +141,17 @@ public class UsuarioServiceImpl implements UsuarioService {
 		return repository.findById(id);
 	}
 
+	// só o índice do e-mail vira mensagem de negócio; outra restrição violada é erro de verdade
+	private static boolean violouEmailUnico(DataIntegrityViolationException e) {
+		for (Throwable causa = e.getCause(); causa != null; causa = causa.getCause()) {
+			if (causa instanceof ConstraintViolationException) {
+				String restricao = ((ConstraintViolationException) causa).getConstraintName();
+				return restricao != null && restricao.toLowerCase().contains(INDICE_EMAIL);
+			}
+		}
+		return false;
+	}
+
 
 	
 }
@@ -0,0 +1,93 @@
+package com.adriano.minhasfinancas.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diz quando uma carga lida do banco pode entrar na memória sem contar duas vezes uma escrita. A diferença
+ * de um lançamento é aplicada depois do commit, mas uma leitura feita enquanto ele confirmava já vê a linha.
+ * Por isso a escrita é marcada como pendente antes do commit e a versão do usuário sobe depois dele: a carga
+ * só vale se, ao ser instalada, nenhuma escrita estiver pendente e a versão for a mesma do início da leitura.
+ * A entrada de um usuário só existe enquanto há escrita pendente ou carga dele na memória.
+ */
+public final class VersoesUsuario {
+
+	private final Map<Long, Versao> versoes = new ConcurrentHashMap<>();
+
+	/** Antes do commit de uma escrita do usuário. */
+	public void iniciarEscrita(Long idUsuario) {
+		versoes.compute(idUsuario, (id, versao) -> {
+			Versao atual = versao == null ? new Versao() : versao;
+			atual.pendentes++;
+			return atual;
+		});
+	}
+
+	/** Depois do commit, antes de aplicar a diferença; também para escritas sem transação e vindas de outro nó. */
+	public void confirmar(Long idUsuario) {
+		versoes.computeIfPresent(idUsuario, (id, versao) -> {
+			versao.numero++;
+			return versao;
+		});
+	}
+
+	/** Ao fim da transação que chamou {@link #iniciarEscrita}, confirmada ou desfeita. */
+	public void concluirEscrita(Long idUsuario) {
+		versoes.computeIfPresent(idUsuario, (id, versao) -> {
+			versao.pendentes--;
+			return versao.pendentes == 0 && !versao.retida ? null : versao;
+		});
+	}
+
+	/** Chamado antes da leitura; a marca volta em {@link #vale} na hora de instalar o resultado. */
+	public Marca marcar(Long idUsuario) {
+		Versao versao = versoes.compute(idUsuario, (id, atual) -> {
+			Versao retida = atual == null ? new Versao() : atual;
+			retida.retida = true;
+			return retida;
+		});
+		return new Marca(versao, versao.numero, versao.pendentes == 0);
+	}
+
+	public boolean vale(Long idUsuario, Marca marca) {
+		Versao versao = versoes.get(idUsuario);
+		return versao == marca.versao && marca.semPendentes && versao.pendentes == 0 && versao.numero == marca.numero;
+	}
+
+	/** A carga do usuário saiu da memória; uma leitura ainda em curso deixa de valer. */
+	public void liberar(Long idUsuario) {
+		versoes.computeIfPresent(idUsuario, (id, versao) -> {
+			if (versao.pendentes == 0) {
+				return null;
+			}
+			versao.retida = false;
+			return versao;
+		});
+	}
+
+	int tamanho() {
+		return versoes.size();
+	}
+
+	// alterada só dentro do compute do mapa; volatile para a leitura em vale()
+	private static final class Versao {
+
+		private volatile long numero;
+		private volatile int pendentes;
+		private volatile boolean retida;
+	}
+
+	public static final class Marca {
+
+		private final Versao versao;
+		private final long numero;
+		private final boolean semPendentes;
+
+		private Marca(Versao versao, long numero, boolean semPendentes) {
+			this.versao = versao;
+			this.numero = numero;
+			this.semPendentes = semPendentes;
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Anel de hash consistente com nós virtuais: ao incluir ou retirar um shard, só os usuários
+ * dos trechos afetados mudam de dono. Imutável; um rebalanceamento cria um novo anel.
+ */
+public final class AnelConsistente {
+
+	private final NavigableMap<Long, String> nos = new TreeMap<>();
+
+	private final List<String> shards;
+
+	public AnelConsistente(List<String> shards, int nosVirtuais) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("O anel precisa de pelo menos um shard.");
+		}
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		for (String shard : shards) {
+			for (int i = 0; i < nosVirtuais; i++) {
+				nos.put(misturar(fnv(shard + "#" + i)), shard);
+			}
+		}
+	}
+
+	public String localizar(long chave) {
+		Map.Entry<Long, String> no = nos.ceilingEntry(misturar(chave));
+		return no != null ? no.getValue() : nos.firstEntry().getValue();
+	}
+
+	public List<String> getShards() {
+		return shards;
+	}
+
+	private static long fnv(String texto) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : texto.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// finalizador do SplitMix64: ids sequenciais se espalham pelo anel
+	private static long misturar(long valor) {
+		long z = valor + 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Shard da thread atual, lido pelo {@link RoteamentoDataSource} quando a conexão é obtida.
+ * Dentro de uma transação o primeiro shard usado fica vinculado até o fim dela, pois a conexão
+ * física já foi aberta nele.
+ */
+public final class ContextoShard {
+
+	private static final ThreadLocal<String> ATUAL = new ThreadLocal<>();
+
+	private static final Object CHAVE_TRANSACAO = new Object();
+
+	private ContextoShard() {
+	}
+
+	public static String atual() {
+		String shard = ATUAL.get();
+		return shard != null ? shard : vinculadoATransacao();
+	}
+
+	public static <T> T executar(String shard, Supplier<T> acao) {
+		String anterior = ATUAL.get();
+		ATUAL.set(shard);
+		try {
+			return acao.get();
+		} finally {
+			if (anterior == null) {
+				ATUAL.remove();
+			} else {
+				ATUAL.set(anterior);
+			}
+		}
+	}
+
+	/** Vincula o shard à transação corrente; falha se ela já estiver usando outro shard. */
+	public static void vincularATransacao(String shard) {
+		if (!emTransacao()) {
+			return;
+		}
+		String vinculado = vinculadoATransacao();
+		if (vinculado == null) {
+			TransactionSynchronizationManager.bindResource(CHAVE_TRANSACAO, shard);
+			aoConcluirTransacao(() -> TransactionSynchronizationManager.unbindResourceIfPossible(CHAVE_TRANSACAO));
+		} else if (!vinculado.equals(shard)) {
+			throw new IllegalStateException("A transação já está no shard " + vinculado + " e não pode acessar o shard " + shard + ".");
+		}
+	}
+
+	public static void aoConcluirTransacao(Runnable acao) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				acao.run();
+			}
+		});
+	}
+
+	public static boolean emTransacao() {
+		return TransactionSynchronizationManager.isSynchronizationActive();
+	}
+
+	private static String vinculadoATransacao() {
+		return TransactionSynchronizationManager.isSynchronizationActive()
+				? (String) TransactionSynchronizationManager.getResource(CHAVE_TRANSACAO)
+				: null;
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Pools de conexão de cada shard, na ordem configurada. Cada shard gera ids de lançamento e de orçamento
+ * numa faixa própria, então uma linha migrada mantém o id sem colidir com o destino.
+ */
+public class DataSourcesShard implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataSourcesShard.class);
+
+	static final long TAMANHO_FAIXA_IDS = 1_000_000_000_000L;
+
+	// tabelas com id gerado pelo banco
+	private static final String[] TABELAS_IDENTIDADE = { "financas.lancamento", "financas.orcamento" };
+
+	private final Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+
+	public DataSourcesShard(PropriedadesSharding propriedades, String dialeto) {
+		if (propriedades.getShards().isEmpty()) {
+			throw new IllegalStateException("Nenhum shard configurado em minhasfinancas.sharding.shards.");
+		}
+		for (PropriedadesSharding.Shard shard : propriedades.getShards()) {
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setPoolName("shard-" + shard.getNome());
+			dataSource.setJdbcUrl(shard.getUrl());
+			dataSource.setUsername(shard.getUsuario());
+			dataSource.setPassword(shard.getSenha());
+			dataSource.setMaximumPoolSize(shard.getMaximoConexoes());
+			dataSources.put(shard.getNome(), dataSource);
+		}
+		if (propriedades.isAtualizarEsquema()) {
+			criarEsquemas(dialeto);
+		}
+	}
+
+	public String getPrincipal() {
+		return dataSources.keySet().iterator().next();
+	}
+
+	public List<String> getNomes() {
+		return Collections.unmodifiableList(new ArrayList<>(dataSources.keySet()));
+	}
+
+	public DataSource obter(String nome) {
+		DataSource dataSource = dataSources.get(nome);
+		if (dataSource == null) {
+			throw new IllegalArgumentException("Shard desconhecido: " + nome);
+		}
+		return dataSource;
+	}
+
+	public Map<Object, Object> comoDestinos() {
+		return new HashMap<>(dataSources);
+	}
+
+	@Override
+	public void close() {
+		dataSources.values().forEach(HikariDataSource::close);
+	}
+
+	private void criarEsquemas(String dialeto) {
+		JdbcTemplate principal = new JdbcTemplate(obter(getPrincipal()));
+		principal.execute("create sequence if not exists financas.usuario_id_seq");
+		// anéis e usuários já migrados do rebalanceamento, lidos pelo RoteadorShard ao subir
+		principal.execute("create table if not exists financas.shard_anel (papel varchar(10) primary key, shards varchar(1000) not null)");
+		principal.execute("create table if not exists financas.shard_migrado (id_usuario bigint primary key)");
+		int indice = 0;
+		for (Map.Entry<String, HikariDataSource> shard : dataSources.entrySet()) {
+			if (indice > 0) {
+				JdbcTemplate jdbcTemplate = new JdbcTemplate(shard.getValue());
+				List<String> novas = new ArrayList<>();
+				for (String tabela : TABELAS_IDENTIDADE) {
+					if (!existeTabela(jdbcTemplate, tabela)) {
+						novas.add(tabela);
+					}
+				}
+				atualizarTabelas(shard.getKey(), shard.getValue(), dialeto);
+				for (String tabela : novas) {
+					reiniciarIdentidade(jdbcTemplate, tabela, indice * TAMANHO_FAIXA_IDS + 1);
+				}
+
+				LOGGER.info("#### Método: DataSourcesShard.criarEsquemas(), status: SUCESSO, shard: "+ shard.getKey() + ", tabelasNovas: "+ novas);
+			}
+			indice++;
+		}
+	}
+
+	// o principal é atualizado pelo EntityManagerFactory da aplicação; os demais por um descartável
+	private void atualizarTabelas(String nome, DataSource dataSource, String dialeto) {
+		Map<String, Object> propriedades = new HashMap<>();
+		propriedades.put(AvailableSettings.HBM2DDL_AUTO, "update");
+		propriedades.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY, SpringPhysicalNamingStrategy.class.getName());
+		propriedades.put(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName());
+		if (dialeto != null) {
+			propriedades.put(AvailableSettings.DIALECT, dialeto);
+		}
+		LocalContainerEntityManagerFactoryBean fabrica = new LocalContainerEntityManagerFactoryBean();
+		fabrica.setPersistenceUnitName("shard-" + nome);
+		fabrica.setDataSource(dataSource);
+		fabrica.setPackagesToScan(Lancamento.class.getPackage().getName());
+		fabrica.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		fabrica.setJpaPropertyMap(propriedades);
+		fabrica.afterPropertiesSet();
+		fabrica.destroy();
+	}
+
+	private boolean existeTabela(JdbcTemplate jdbcTemplate, String tabela) {
+		try {
+			jdbcTemplate.queryForObject("select count(*) from " + tabela, Long.class);
+			return true;
+		} catch (DataAccessException e) {
+			return false;
+		}
+	}
+
+	private void reiniciarIdentidade(JdbcTemplate jdbcTemplate, String tabela, long inicio) {
+		String banco = jdbcTemplate.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+		if ("PostgreSQL".equals(banco)) {
+			jdbcTemplate.queryForObject("select setval(pg_get_serial_sequence(?, 'id'), ?, false)", Long.class, tabela, inicio);
+		} else {
+			jdbcTemplate.execute("alter table " + tabela + " alter column id restart with " + inicio);
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Copia as linhas de um usuário para outro shard e depois as remove da origem. As duas etapas são separadas
+ * para o roteador gravar a mudança de dono entre elas: uma queda no meio deixa no máximo linhas sobrando na
+ * origem, nunca um usuário sem dados. As colunas são lidas do próprio resultado, então novas colunas não
+ * exigem mudança aqui.
+ */
+public class MigracaoShard {
+
+	/** Tabelas particionadas por usuário, na ordem de inserção (pais antes dos filhos). */
+	private static final String[][] TABELAS = {
+			{ "financas.usuario", "id" },
+			{ "financas.categoria", "id_usuario" },
+			{ "financas.orcamento", "id_usuario" },
+			{ "financas.lancamento", "id_usuario" } };
+
+	private static final int TAMANHO_LOTE = 1000;
+
+	public void copiar(long idUsuario, DataSource origem, DataSource destino) {
+		JdbcTemplate leitura = new JdbcTemplate(origem);
+		JdbcTemplate escrita = new JdbcTemplate(destino);
+		TransactionTemplate transacaoDestino = new TransactionTemplate(new DataSourceTransactionManager(destino));
+
+		// uma tentativa anterior interrompida pode ter deixado cópias parciais no destino
+		transacaoDestino.execute(status -> {
+			remover(escrita, idUsuario);
+			return null;
+		});
+		for (String[] tabela : TABELAS) {
+			long ultimoId = 0;
+			List<Map<String, Object>> linhas;
+			do {
+				linhas = leitura.queryForList("select * from " + tabela[0] + " where " + tabela[1] + " = ? and id > ? order by id limit "
+						+ TAMANHO_LOTE, idUsuario, ultimoId);
+				if (!linhas.isEmpty()) {
+					List<Map<String, Object>> lote = linhas;
+					transacaoDestino.execute(status -> {
+						inserir(escrita, tabela[0], lote);
+						return null;
+					});
+					ultimoId = ((Number) linhas.get(linhas.size() - 1).get("id")).longValue();
+				}
+			} while (linhas.size() == TAMANHO_LOTE);
+		}
+	}
+
+	public void removerOrigem(long idUsuario, DataSource origem) {
+		new TransactionTemplate(new DataSourceTransactionManager(origem)).execute(status -> {
+			remover(new JdbcTemplate(origem), idUsuario);
+			return null;
+		});
+	}
+
+	private void inserir(JdbcTemplate jdbcTemplate, String tabela, List<Map<String, Object>> linhas) {
+		List<String> colunas = new ArrayList<>(linhas.get(0).keySet());
+		StringBuilder sql = new StringBuilder("insert into ").append(tabela).append(" (")
+				.append(String.join(", ", colunas)).append(") values (");
+		for (int i = 0; i < colunas.size(); i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		sql.append(")");
+		List<Object[]> valores = new ArrayList<>(linhas.size());
+		for (Map<String, Object> linha : linhas) {
+			valores.add(linha.values().toArray());
+		}
+		jdbcTemplate.batchUpdate(sql.toString(), valores);
+	}
+
+	private void remover(JdbcTemplate jdbcTemplate, long idUsuario) {
+		for (int i = TABELAS.length - 1; i >= 0; i--) {
+			jdbcTemplate.update("delete from " + TABELAS[i][0] + " where " + TABELAS[i][1] + " = ?", idUsuario);
+		}
+	}
+
+}
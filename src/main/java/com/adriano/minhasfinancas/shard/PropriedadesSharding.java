@@ -0,0 +1,37 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties("minhasfinancas.sharding")
+public class PropriedadesSharding {
+
+	/** Shards físicos; o primeiro é o principal (sequência de usuários e tabelas não particionadas). */
+	private List<Shard> shards = new ArrayList<>();
+
+	/** Shards que recebem usuários no anel; vazio usa todos. */
+	private List<String> ativos = new ArrayList<>();
+
+	private int nosVirtuais = 160;
+
+	private int threadsConsulta = 8;
+
+	/** Cria/atualiza as tabelas nos shards secundários (o principal fica com o ddl-auto do JPA). */
+	private boolean atualizarEsquema;
+
+	@Data
+	public static class Shard {
+
+		private String nome;
+		private String url;
+		private String usuario;
+		private String senha;
+		private int maximoConexoes = 10;
+	}
+
+}
@@ -0,0 +1,306 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.RebalanceamentoDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+
+/**
+ * Decide o shard dono de cada usuário e conduz o rebalanceamento online: durante a migração
+ * convivem o anel atual e o de destino, e cada usuário passa para o destino assim que é copiado,
+ * sob a trava de escrita dele. Os anéis e os usuários já migrados ficam gravados no shard principal,
+ * então um reinício no meio do rebalanceamento continua encontrando cada usuário onde os dados estão.
+ */
+public class RoteadorShard implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RoteadorShard.class);
+
+	private static final int QUANTIDADE_TRAVAS = 1024;
+
+	private static final int TAMANHO_PAGINA_USUARIOS = 500;
+
+	private static final String ANEL_ATIVO = "ATIVO";
+
+	private static final String ANEL_DESTINO = "DESTINO";
+
+	private final DataSourcesShard dataSources;
+
+	private final MigracaoShard migracao;
+
+	private final JdbcTemplate principal;
+
+	private final TransactionTemplate transacaoPrincipal;
+
+	private final int nosVirtuais;
+
+	private final ReentrantReadWriteLock[] travas = new ReentrantReadWriteLock[QUANTIDADE_TRAVAS];
+
+	private final ExecutorService consultas;
+
+	private final ExecutorService rebalanceamento = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "shard-rebalanceamento");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final AtomicLong usuariosMigrados = new AtomicLong();
+
+	private volatile Estado estado;
+
+	private volatile SituacaoExecucao situacao = SituacaoExecucao.CONCLUIDO;
+
+	private volatile String mensagem;
+
+	public RoteadorShard(DataSourcesShard dataSources, MigracaoShard migracao, PropriedadesSharding propriedades) {
+		this.dataSources = dataSources;
+		this.migracao = migracao;
+		this.nosVirtuais = propriedades.getNosVirtuais();
+		this.principal = new JdbcTemplate(dataSources.obter(dataSources.getPrincipal()));
+		this.transacaoPrincipal = new TransactionTemplate(new DataSourceTransactionManager(dataSources.obter(dataSources.getPrincipal())));
+		List<String> configurados = propriedades.getAtivos().isEmpty() ? dataSources.getNomes() : propriedades.getAtivos();
+		this.estado = carregarEstado(configurados);
+		for (int i = 0; i < QUANTIDADE_TRAVAS; i++) {
+			travas[i] = new ReentrantReadWriteLock();
+		}
+		AtomicInteger contador = new AtomicInteger();
+		this.consultas = Executors.newFixedThreadPool(propriedades.getThreadsConsulta(), r -> {
+			Thread thread = new Thread(r, "shard-consulta-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void close() {
+		consultas.shutdownNow();
+		rebalanceamento.shutdownNow();
+	}
+
+	public String localizar(long idUsuario) {
+		Estado atual = estado;
+		if (atual.destino != null && atual.migrados.contains(idUsuario)) {
+			return atual.destino.localizar(idUsuario);
+		}
+		return atual.anel.localizar(idUsuario);
+	}
+
+	/** Trava compartilhada do usuário: impede que ele seja migrado enquanto é acessado. */
+	public Lock travaLeitura(long idUsuario) {
+		return trava(idUsuario).readLock();
+	}
+
+	/** Reserva o id de um novo usuário na sequência global do shard principal. */
+	public long proximoIdUsuario() {
+		long id = new JdbcTemplate(dataSources.obter(dataSources.getPrincipal()))
+				.queryForObject("select nextval('financas.usuario_id_seq')", Long.class);
+		Estado atual = estado;
+		if (atual.destino != null) {
+			// durante o rebalanceamento o usuário novo já nasce no anel de destino
+			marcarMigrado(atual, id);
+		}
+		return id;
+	}
+
+	/** Executa a consulta em paralelo em todos os shards que podem ter dados, na ordem dos shards. */
+	public <T> List<T> emTodos(Function<String, T> consulta) {
+		Estado atual = estado;
+		Set<String> shards = new LinkedHashSet<>(atual.anel.getShards());
+		if (atual.destino != null) {
+			shards.addAll(atual.destino.getShards());
+		}
+		List<Future<T>> futuros = new ArrayList<>(shards.size());
+		for (String shard : shards) {
+			futuros.add(consultas.submit(() -> ContextoShard.executar(shard, () -> consulta.apply(shard))));
+		}
+		List<T> resultados = new ArrayList<>(futuros.size());
+		try {
+			for (Future<T> futuro : futuros) {
+				resultados.add(futuro.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Consulta aos shards interrompida.", e);
+		} catch (ExecutionException e) {
+			futuros.forEach(futuro -> futuro.cancel(true));
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return resultados;
+	}
+
+	public synchronized RebalanceamentoDTO rebalancear(List<String> ativos) {
+
+		LOGGER.info("#### Método: RoteadorShard.rebalancear(), status: INICIO, ativos: "+ ativos);
+
+		if (situacao == SituacaoExecucao.EM_ANDAMENTO) {
+			throw new RegraNegocioException("Já existe um rebalanceamento em andamento.");
+		}
+		if (ativos == null || ativos.isEmpty()) {
+			throw new RegraNegocioException("Informe ao menos um shard ativo.");
+		}
+		for (String shard : ativos) {
+			if (!dataSources.getNomes().contains(shard)) {
+				throw new RegraNegocioException("Shard desconhecido: " + shard);
+			}
+		}
+		Estado atual = estado;
+		if (atual.destino == null) {
+			usuariosMigrados.set(0);
+			transacaoPrincipal.execute(status -> {
+				principal.update("delete from financas.shard_migrado");
+				principal.update("insert into financas.shard_anel (papel, shards) values (?, ?)", ANEL_DESTINO, String.join(",", ativos));
+				return null;
+			});
+			estado = new Estado(atual.anel, new AnelConsistente(ativos, nosVirtuais));
+		} else if (!atual.destino.getShards().equals(ativos)) {
+			// os usuários já copiados só são encontrados pelo anel de destino pendente
+			throw new RegraNegocioException("Conclua antes o rebalanceamento pendente para " + atual.destino.getShards() + ".");
+		}
+		mensagem = null;
+		situacao = SituacaoExecucao.EM_ANDAMENTO;
+		rebalanceamento.execute(this::migrarUsuarios);
+		return obterProgresso();
+	}
+
+	public RebalanceamentoDTO obterProgresso() {
+		Estado atual = estado;
+		return RebalanceamentoDTO.builder().shardsAtivos(atual.anel.getShards())
+				.shardsDestino(atual.destino == null ? null : atual.destino.getShards())
+				.situacao(situacao.name()).usuariosMigrados(usuariosMigrados.get()).mensagem(mensagem).build();
+	}
+
+	private void migrarUsuarios() {
+		Estado inicial = estado;
+		try {
+			for (String origem : inicial.anel.getShards()) {
+				JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSources.obter(origem));
+				long ultimoId = 0;
+				List<Long> ids;
+				do {
+					ids = jdbcTemplate.queryForList("select id from financas.usuario where id > ? order by id limit "
+							+ TAMANHO_PAGINA_USUARIOS, Long.class, ultimoId);
+					for (Long idUsuario : ids) {
+						migrarSeNecessario(idUsuario, origem, inicial);
+					}
+					ultimoId = ids.isEmpty() ? ultimoId : ids.get(ids.size() - 1);
+				} while (ids.size() == TAMANHO_PAGINA_USUARIOS);
+			}
+			transacaoPrincipal.execute(status -> {
+				principal.update("update financas.shard_anel set shards = ? where papel = ?",
+						String.join(",", inicial.destino.getShards()), ANEL_ATIVO);
+				principal.update("delete from financas.shard_anel where papel = ?", ANEL_DESTINO);
+				principal.update("delete from financas.shard_migrado");
+				return null;
+			});
+			estado = new Estado(inicial.destino, null);
+			situacao = SituacaoExecucao.CONCLUIDO;
+
+			LOGGER.info("#### Método: RoteadorShard.migrarUsuarios(), status: SUCESSO, ativos: "+ inicial.destino.getShards() + ", usuariosMigrados: "+ usuariosMigrados.get());
+		} catch (RuntimeException e) {
+			// os usuários já migrados continuam roteados para o destino; um novo pedido retoma o restante
+			mensagem = e.getMessage();
+			situacao = SituacaoExecucao.ERRO;
+
+			LOGGER.error("#### Método: RoteadorShard.migrarUsuarios(), status: ERROR, mensagemError: "+ e.getMessage(), e);
+		}
+	}
+
+	private void migrarSeNecessario(long idUsuario, String origem, Estado inicial) {
+		String destino = inicial.destino.localizar(idUsuario);
+		if (destino.equals(origem)) {
+			return;
+		}
+		if (inicial.migrados.contains(idUsuario)) {
+			// já copiado; a remoção da origem pode ter sido interrompida, e ninguém mais lê estas linhas
+			migracao.removerOrigem(idUsuario, dataSources.obter(origem));
+			return;
+		}
+		Lock escrita = trava(idUsuario).writeLock();
+		escrita.lock();
+		try {
+			migracao.copiar(idUsuario, dataSources.obter(origem), dataSources.obter(destino));
+			// gravado antes de remover da origem: depois disso o usuário só existe no destino
+			marcarMigrado(inicial, idUsuario);
+			migracao.removerOrigem(idUsuario, dataSources.obter(origem));
+			usuariosMigrados.incrementAndGet();
+		} finally {
+			escrita.unlock();
+		}
+	}
+
+	private void marcarMigrado(Estado atual, long idUsuario) {
+		principal.update("insert into financas.shard_migrado (id_usuario) values (?)", idUsuario);
+		atual.migrados.add(idUsuario);
+	}
+
+	private Estado carregarEstado(List<String> configurados) {
+		Map<String, List<String>> aneis = new HashMap<>();
+		principal.query("select papel, shards from financas.shard_anel",
+				linha -> { aneis.put(linha.getString("papel"), Arrays.asList(linha.getString("shards").split(","))); });
+		List<String> ativos = aneis.get(ANEL_ATIVO);
+		if (ativos == null) {
+			ativos = configurados;
+			principal.update("insert into financas.shard_anel (papel, shards) values (?, ?)", ANEL_ATIVO, String.join(",", ativos));
+		} else if (!ativos.equals(configurados)) {
+			LOGGER.warn("#### Método: RoteadorShard.carregarEstado(), status: WARNING, ativos: "+ ativos + ", configurados: "+ configurados + ", mensagem: o anel gravado prevalece sobre a configuração");
+		}
+		ativos.forEach(dataSources::obter);
+		List<String> destino = aneis.get(ANEL_DESTINO);
+		if (destino == null) {
+			return new Estado(new AnelConsistente(ativos, nosVirtuais), null);
+		}
+		destino.forEach(dataSources::obter);
+		Estado interrompido = new Estado(new AnelConsistente(ativos, nosVirtuais), new AnelConsistente(destino, nosVirtuais));
+		interrompido.migrados.addAll(principal.queryForList("select id_usuario from financas.shard_migrado", Long.class));
+		usuariosMigrados.set(interrompido.migrados.size());
+		mensagem = "Rebalanceamento para " + destino + " interrompido; um novo pedido retoma o restante.";
+		situacao = SituacaoExecucao.ERRO;
+
+		LOGGER.warn("#### Método: RoteadorShard.carregarEstado(), status: WARNING, ativos: "+ ativos + ", destino: "+ destino + ", usuariosMigrados: "+ interrompido.migrados.size());
+		return interrompido;
+	}
+
+	private ReentrantReadWriteLock trava(long idUsuario) {
+		return travas[(int) Math.floorMod(idUsuario, (long) QUANTIDADE_TRAVAS)];
+	}
+
+	private static class Estado {
+
+		private final AnelConsistente anel;
+		private final AnelConsistente destino;
+		private final Set<Long> migrados;
+
+		Estado(AnelConsistente anel, AnelConsistente destino) {
+			this.anel = anel;
+			this.destino = destino;
+			this.migrados = destino == null ? Collections.emptySet() : ConcurrentHashMap.newKeySet();
+		}
+	}
+
+}
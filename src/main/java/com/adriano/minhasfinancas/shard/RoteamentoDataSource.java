@@ -0,0 +1,16 @@
+package com.adriano.minhasfinancas.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Entrega a conexão do shard definido em {@link ContextoShard}; sem contexto usa o shard principal,
+ * que guarda as tabelas que não são particionadas por usuário.
+ */
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ContextoShard.atual();
+	}
+
+}
@@ -0,0 +1,271 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Example;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+
+/**
+ * Roteia as chamadas de LancamentoRepository, UsuarioRepository, CategoriaRepository e OrcamentoRepository para o shard do usuário.
+ * Fica por fora das transações para que o shard esteja definido antes da conexão ser aberta.
+ * <ul>
+ * <li>com chave (parâmetro {@link ChaveShard}, Lancamento, Usuario, Categoria, Orcamento ou Example): shard do usuário;</li>
+ * <li>lote de entidades: dividido por shard (fora de transação);</li>
+ * <li>leitura sem chave (por id de lançamento, por email, findAll): em todos os shards, em paralelo;</li>
+ * <li>escrita sem chave: recusada.</li>
+ * </ul>
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardAspect {
+
+	private static final String INSERT_USUARIO = "insert into financas.usuario (id, nome, email, senha) values (?, ?, ?, ?)";
+
+	private static final String[] PREFIXOS_LEITURA = { "find", "exists", "count", "obter", "buscar" };
+
+	private final RoteadorShard roteador;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public ShardAspect(RoteadorShard roteador, JdbcTemplate jdbcTemplate) {
+		this.roteador = roteador;
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Around("execution(* com.adriano.minhasfinancas.service.LancamentoService.salvarEmLote(..))")
+	public Object salvarEmLote(ProceedingJoinPoint joinPoint) {
+		return dividirPorShard(joinPoint, 0);
+	}
+
+	@Around("target(com.adriano.minhasfinancas.model.repository.LancamentoRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.UsuarioRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.CategoriaRepository)"
+			+ " || target(com.adriano.minhasfinancas.model.repository.OrcamentoRepository)")
+	public Object rotearRepositorio(ProceedingJoinPoint joinPoint) {
+		Method metodo = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		Object[] argumentos = joinPoint.getArgs();
+		if (metodo.getDeclaringClass() == Object.class) {
+			return prosseguir(joinPoint, argumentos);
+		}
+		boolean usuarios = joinPoint.getTarget() instanceof UsuarioRepository;
+		if (usuarios && metodo.getName().startsWith("save") && argumentos.length == 1
+				&& argumentos[0] instanceof Usuario && ((Usuario) argumentos[0]).getId() == null) {
+			return inserirUsuario((Usuario) argumentos[0]);
+		}
+		Long chave = extrairChave(metodo, argumentos, usuarios);
+		if (chave != null) {
+			return noShardDoUsuario(chave, () -> prosseguir(joinPoint, argumentos));
+		}
+		for (int i = 0; i < argumentos.length; i++) {
+			if (argumentos[i] instanceof Iterable) {
+				return dividirPorShard(joinPoint, i);
+			}
+		}
+		if (leitura(metodo.getName())) {
+			Object alvo = joinPoint.getTarget();
+			return combinar(metodo.getReturnType(), roteador.emTodos(shard -> invocar(metodo, alvo, argumentos)));
+		}
+		throw new IllegalStateException("Operação sem chave de shard: " + metodo.getName());
+	}
+
+	private Object inserirUsuario(Usuario usuario) {
+		// o id vem da sequência global para que o shard seja conhecido antes do insert
+		long id = roteador.proximoIdUsuario();
+		return noShardDoUsuario(id, () -> {
+			jdbcTemplate.update(INSERT_USUARIO, id, usuario.getNome(), usuario.getEmail(), usuario.getSenha());
+			usuario.setId(id);
+			return usuario;
+		});
+	}
+
+	private Object noShardDoUsuario(long idUsuario, Supplier<Object> acao) {
+		Lock trava = roteador.travaLeitura(idUsuario);
+		trava.lock();
+		// numa transação a trava vale até o fim dela, pois as escritas só são confirmadas no commit
+		boolean emTransacao = ContextoShard.emTransacao();
+		if (emTransacao) {
+			ContextoShard.aoConcluirTransacao(trava::unlock);
+		}
+		try {
+			String shard = roteador.localizar(idUsuario);
+			ContextoShard.vincularATransacao(shard);
+			return ContextoShard.executar(shard, acao);
+		} finally {
+			if (!emTransacao) {
+				trava.unlock();
+			}
+		}
+	}
+
+	private Object dividirPorShard(ProceedingJoinPoint joinPoint, int indice) {
+		Object[] argumentos = joinPoint.getArgs();
+		Iterable<?> itens = (Iterable<?>) argumentos[indice];
+		TreeSet<Long> usuarios = new TreeSet<>();
+		for (Object item : itens) {
+			Long idUsuario = chave(item);
+			if (idUsuario == null) {
+				throw new IllegalStateException("Item de lote sem usuário para rotear: " + item);
+			}
+			usuarios.add(idUsuario);
+		}
+		if (usuarios.isEmpty()) {
+			return prosseguir(joinPoint, argumentos);
+		}
+		// as travas são tomadas em ordem de usuário e os shards calculados já com elas
+		List<Lock> travas = new ArrayList<>();
+		usuarios.forEach(idUsuario -> travas.add(roteador.travaLeitura(idUsuario)));
+		travas.forEach(Lock::lock);
+		boolean emTransacao = ContextoShard.emTransacao();
+		if (emTransacao) {
+			travas.forEach(trava -> ContextoShard.aoConcluirTransacao(trava::unlock));
+		}
+		try {
+			Map<String, List<Object>> grupos = new LinkedHashMap<>();
+			for (Object item : itens) {
+				grupos.computeIfAbsent(roteador.localizar(chave(item)), shard -> new ArrayList<>()).add(item);
+			}
+			if (grupos.size() == 1) {
+				String shard = grupos.keySet().iterator().next();
+				ContextoShard.vincularATransacao(shard);
+				return ContextoShard.executar(shard, () -> prosseguir(joinPoint, argumentos));
+			}
+			if (emTransacao) {
+				throw new IllegalStateException("Lote com usuários de shards diferentes dentro de uma transação.");
+			}
+			List<Object> resultado = new ArrayList<>();
+			for (Map.Entry<String, List<Object>> grupo : grupos.entrySet()) {
+				Object[] argumentosGrupo = argumentos.clone();
+				argumentosGrupo[indice] = grupo.getValue();
+				Object parcial = ContextoShard.executar(grupo.getKey(), () -> prosseguir(joinPoint, argumentosGrupo));
+				if (parcial instanceof Collection) {
+					resultado.addAll((Collection<?>) parcial);
+				}
+			}
+			return resultado;
+		} finally {
+			if (!emTransacao) {
+				travas.forEach(Lock::unlock);
+			}
+		}
+	}
+
+	private Long extrairChave(Method metodo, Object[] argumentos, boolean usuarios) {
+		Annotation[][] anotacoes = metodo.getParameterAnnotations();
+		for (int i = 0; i < argumentos.length; i++) {
+			for (Annotation anotacao : anotacoes[i]) {
+				if (anotacao instanceof ChaveShard) {
+					return (Long) argumentos[i];
+				}
+			}
+		}
+		for (Object argumento : argumentos) {
+			Long chave = argumento instanceof Long ? (usuarios ? (Long) argumento : null) : chave(argumento);
+			if (chave != null) {
+				return chave;
+			}
+		}
+		return null;
+	}
+
+	private Long chave(Object argumento) {
+		if (argumento instanceof Example) {
+			return chave(((Example<?>) argumento).getProbe());
+		}
+		if (argumento instanceof Lancamento) {
+			Usuario usuario = ((Lancamento) argumento).getUsuario();
+			return usuario == null ? null : usuario.getId();
+		}
+		if (argumento instanceof Usuario) {
+			return ((Usuario) argumento).getId();
+		}
+		if (argumento instanceof Categoria) {
+			Usuario usuario = ((Categoria) argumento).getUsuario();
+			return usuario == null ? null : usuario.getId();
+		}
+		if (argumento instanceof Orcamento) {
+			Usuario usuario = ((Orcamento) argumento).getUsuario();
+			return usuario == null ? null : usuario.getId();
+		}
+		return null;
+	}
+
+	private static boolean leitura(String nomeMetodo) {
+		for (String prefixo : PREFIXOS_LEITURA) {
+			if (nomeMetodo.startsWith(prefixo)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Object combinar(Class<?> tipo, List<Object> resultados) {
+		if (Optional.class.equals(tipo)) {
+			return resultados.stream().map(Optional.class::cast).filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+		}
+		if (boolean.class.equals(tipo) || Boolean.class.equals(tipo)) {
+			return resultados.stream().anyMatch(Boolean.TRUE::equals);
+		}
+		if (long.class.equals(tipo) || Long.class.equals(tipo)) {
+			return resultados.stream().mapToLong(resultado -> ((Number) resultado).longValue()).sum();
+		}
+		if (Iterable.class.isAssignableFrom(tipo)) {
+			List<Object> todos = new ArrayList<>();
+			resultados.forEach(resultado -> ((Iterable<?>) resultado).forEach(todos::add));
+			return todos;
+		}
+		return resultados.stream().filter(resultado -> resultado != null).findFirst().orElse(null);
+	}
+
+	// nas threads da consulta paralela a chamada vai direto ao repositório, sem a cadeia do proxy externo
+	private static Object invocar(Method metodo, Object alvo, Object[] argumentos) {
+		try {
+			return metodo.invoke(alvo, argumentos);
+		} catch (InvocationTargetException e) {
+			throw propagar(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Object prosseguir(ProceedingJoinPoint joinPoint, Object[] argumentos) {
+		try {
+			return joinPoint.proceed(argumentos);
+		} catch (Throwable e) {
+			throw propagar(e);
+		}
+	}
+
+	private static RuntimeException propagar(Throwable erro) {
+		if (erro instanceof RuntimeException) {
+			return (RuntimeException) erro;
+		}
+		if (erro instanceof Error) {
+			throw (Error) erro;
+		}
+		return new IllegalStateException(erro);
+	}
+
+}
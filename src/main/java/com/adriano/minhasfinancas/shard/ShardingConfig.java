@@ -0,0 +1,52 @@
+package com.adriano.minhasfinancas.shard;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Perfil "sharding": os usuários são distribuídos entre vários bancos pelo anel de hash consistente.
+ */
+@Configuration
+@Profile("sharding")
+@EnableConfigurationProperties(PropriedadesSharding.class)
+public class ShardingConfig {
+
+	@Bean
+	public DataSourcesShard dataSourcesShard(PropriedadesSharding propriedades,
+			@Value("${spring.jpa.database-platform:#{null}}") String dialeto) {
+		return new DataSourcesShard(propriedades, dialeto);
+	}
+
+	/**
+	 * A conexão só é aberta no primeiro comando, quando o aspecto já escolheu o shard;
+	 * sem isso a transação pegaria a conexão ao começar, antes do roteamento.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourcesShard dataSourcesShard) {
+		RoteamentoDataSource roteamento = new RoteamentoDataSource();
+		roteamento.setTargetDataSources(dataSourcesShard.comoDestinos());
+		roteamento.setDefaultTargetDataSource(dataSourcesShard.obter(dataSourcesShard.getPrincipal()));
+		roteamento.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(roteamento);
+	}
+
+	@Bean
+	public RoteadorShard roteadorShard(DataSourcesShard dataSourcesShard, PropriedadesSharding propriedades) {
+		return new RoteadorShard(dataSourcesShard, new MigracaoShard(), propriedades);
+	}
+
+	@Bean
+	public ShardAspect shardAspect(RoteadorShard roteadorShard, JdbcTemplate jdbcTemplate) {
+		return new ShardAspect(roteadorShard, jdbcTemplate);
+	}
+
+}
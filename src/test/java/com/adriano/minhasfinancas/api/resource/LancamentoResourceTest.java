@@ -0,0 +1,248 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.OrcamentoService;
+import com.adriano.minhasfinancas.suporte.ContadorSql;
+import com.adriano.minhasfinancas.suporte.ContadorSqlConfig;
+import com.adriano.minhasfinancas.suporte.RelatorioSql;
+import com.adriano.minhasfinancas.suporte.TipoComandoSql;
+
+/**
+ * Orçamento de comandos SQL por endpoint: falha quando uma mudança acrescenta idas ao banco.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Import(ContadorSqlConfig.class)
+public class LancamentoResourceTest {
+
+	static final String API = "/api/lancamentos";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	OrcamentoService orcamentoService;
+
+	Usuario usuario;
+
+	Lancamento lancamento;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		lancamento = lancamentoRepository.save(criarLancamento());
+		lancamentoRepository.save(criarLancamento());
+	}
+
+	@Test
+	public void deveBuscarComUmaConsultaDeLancamentos() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API).param("usuario", usuario.getId().toString()))
+				.andExpect(status().isOk()))
+				.noMaximo(TipoComandoSql.SELECT, 2).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveBuscarComFiltrosDeFaixaNoBanco() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API).param("usuario", usuario.getId().toString())
+				.param("de", "2020-06").param("ate", "2021-06").param("valorMinimo", "1").param("valorMaximo", "100")
+				.param("tipo", "RECEITA", "DESPESA").param("status", "PENDENTE").param("ordenacao", "-valor", "ano"))
+				.andExpect(status().isOk()))
+				.noMaximo(TipoComandoSql.SELECT, 2).noMaximoComandos(2);
+	}
+
+	@Test
+	public void naoDeveBuscarParaUsuarioInexistente() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API).param("usuario", "-1"))
+				.andExpect(status().isBadRequest()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void naoDeveBuscarComOrdenacaoDesconhecida() throws Exception {
+		mvc.perform(get(API).param("usuario", usuario.getId().toString()).param("ordenacao", "usuario.senha"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void deveBuscarPorIdsComUmaConsulta() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/lote").param("usuario", usuario.getId().toString())
+				.param("ids", lancamento.getId().toString()))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void deveBuscarSoOsCamposPedidos() throws Exception {
+		RelatorioSql relatorio = ContadorSql.medir(() -> mvc.perform(get(API).param("usuario", usuario.getId().toString())
+				.param("fields", "id,valor,status").param("ordenacao", "id"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").value(lancamento.getId()))
+				.andExpect(jsonPath("$[0].valor").value(10))
+				.andExpect(jsonPath("$[0].status").value("PENDENTE"))
+				.andExpect(jsonPath("$[0].descricao").doesNotExist())
+				.andExpect(jsonPath("$[0].usuario").doesNotExist()))
+				.noMaximo(TipoComandoSql.SELECT, 2).noMaximoComandos(2);
+
+		String consulta = relatorio.getSqls().get(relatorio.getSqls().size() - 1).toLowerCase();
+		Assertions.assertThat(consulta).doesNotContain("descricao").doesNotContain("join");
+	}
+
+	@Test
+	public void deveBuscarPorIdsSoOsCamposPedidos() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/lote").param("usuario", usuario.getId().toString())
+				.param("ids", lancamento.getId().toString()).param("fields", "usuario", "id"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].length()").value(2))
+				.andExpect(jsonPath("$[0].id").value(lancamento.getId()))
+				.andExpect(jsonPath("$[0].usuario").value(usuario.getId())))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void naoDeveBuscarCamposForaDaListaPermitida() throws Exception {
+		mvc.perform(get(API).param("usuario", usuario.getId().toString()).param("fields", "id,usuario.senha"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get(API + "/lote").param("usuario", usuario.getId().toString())
+				.param("ids", lancamento.getId().toString()).param("fields", "chaveImportacao"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void deveObterSaldoComUmaConsulta() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/saldo"))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void deveSalvarComUmInsert() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(post(API).contentType(MediaType.APPLICATION_JSON).content(json(null)))
+				.andExpect(status().isCreated()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.INSERT, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveSalvarAssincronoSoComOUsuarioEAGravacaoNaFila() throws Exception {
+		// o item vai para a tabela de ingestão antes do 202; o lançamento é gravado depois, fora da requisição
+		ContadorSql.medir(() -> mvc.perform(post(API + "/assincrono").contentType(MediaType.APPLICATION_JSON).content(json(null)))
+				.andExpect(status().isAccepted()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.INSERT, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveAtualizarComUmaLeituraEUmUpdate() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(put(API + "/" + lancamento.getId()).contentType(MediaType.APPLICATION_JSON)
+				.content(json("CANCELADO")))
+				.andExpect(status().isOk()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.UPDATE, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveAvisarQuandoAAtualizacaoUltrapassaOOrcamentoDoMes() throws Exception {
+		//cenario
+		Orcamento orcamento = orcamentoService.salvar(Orcamento.builder().usuario(usuario).ano(2021).mes(1)
+				.limite(new BigDecimal("100.00")).build());
+		Lancamento despesa = lancamentoService.salvar(Lancamento.builder().descricao("mercado").ano(2021).mes(1)
+				.valor(new BigDecimal("80.00")).tipo(TipoLancamento.DESPESA).usuario(usuario).build());
+
+		//acao / verificacao
+		mvc.perform(put(API + "/" + despesa.getId()).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"descricao\":\"mercado\",\"mes\":1,\"ano\":2021,\"valor\":120.00,\"tipo\":\"DESPESA\",\"usuario\":"
+						+ usuario.getId() + "}"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Orcamentos-Excedidos", orcamento.getId().toString()));
+	}
+
+	@Test
+	public void deveAtualizarStatusComUmaLeituraEUmUpdate() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(put(API + "/" + lancamento.getId() + "/atualiza-status")
+				.contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"EFETIVADO\"}"))
+				.andExpect(status().isOk()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.UPDATE, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveDeletarComUmaLeituraEUmUpdate() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(delete(API + "/" + lancamento.getId()))
+				.andExpect(status().isNoContent()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.UPDATE, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveDeletarPorFiltroComUmUpdate() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(delete(API).param("usuario", usuario.getId().toString()).param("ano", "2021"))
+				.andExpect(status().isOk()))
+				.noMaximo(TipoComandoSql.UPDATE, 1).noMaximoComandos(1);
+	}
+
+	@Test
+	public void deveDeletarPorIdsComUmUpdate() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(delete(API + "/lote").param("usuario", usuario.getId().toString())
+				.param("ids", lancamento.getId().toString()))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void naoDeveDeletarPorIdsSemNenhumId() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(delete(API + "/lote").param("usuario", usuario.getId().toString()).param("ids", ""))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Informe ao menos um lançamento para a exclusão.")))
+				.noMaximoComandos(0);
+	}
+
+	private Lancamento criarLancamento() {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.RECEITA).status(StatusLancamento.PENDENTE).usuario(usuario).build();
+	}
+
+	private String json(String status) {
+		return "{\"descricao\":\"lancamento\",\"mes\":2,\"ano\":2021,\"valor\":15.5,\"tipo\":\"DESPESA\",\"usuario\":"
+				+ usuario.getId() + (status == null ? "" : ",\"status\":\"" + status + "\"") + "}";
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.adriano.minhasfinancas.api.resource;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.suporte.ContadorSql;
+import com.adriano.minhasfinancas.suporte.ContadorSqlConfig;
+import com.adriano.minhasfinancas.suporte.TipoComandoSql;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Import(ContadorSqlConfig.class)
+public class UsuarioResourceTest {
+
+	static final String API = "/api/usuarios";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		lancamentoRepository.save(Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.RECEITA).status(StatusLancamento.PENDENTE).usuario(usuario).build());
+	}
+
+	@Test
+	public void deveAutenticarComUmaConsulta() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(post(API + "/autenticar").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"" + usuario.getEmail() + "\",\"senha\":\"senha\"}"))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void deveSalvarComUmaVerificacaoEUmInsert() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(post(API).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"nome\":\"novo\",\"email\":\"" + UUID.randomUUID() + "@email.com\",\"senha\":\"senha\"}"))
+				.andExpect(status().isCreated()))
+				.noMaximo(TipoComandoSql.SELECT, 1).noMaximo(TipoComandoSql.INSERT, 1).noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveSalvarEmailCertamenteNovoSemAVerificacaoNoBanco() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(post(API).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"nome\":\"novo\",\"email\":\"" + UUID.randomUUID() + "@novo.com\",\"senha\":\"senha\"}"))
+				.andExpect(status().isCreated()))
+				.noMaximo(TipoComandoSql.SELECT, 0).noMaximo(TipoComandoSql.INSERT, 1);
+	}
+
+	@Test
+	public void deveRecusarEmailJaCadastrado() throws Exception {
+		mvc.perform(post(API).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"nome\":\"outro\",\"email\":\"" + usuario.getEmail() + "\",\"senha\":\"senha\"}"))
+				.andExpect(status().isBadRequest());
+		Assertions.assertThatThrownBy(() -> usuarioRepository.save(Usuario.builder().nome("outro")
+				.email(usuario.getEmail()).senha("senha").build()))
+				.isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	@Test
+	public void deveObterSaldoComVerificacaoDoUsuarioEUmaConsulta() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/saldo"))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveObterSerieDeSaldoComVerificacaoDoUsuarioEUmaConsulta() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/saldo/serie").param("de", "2021-01").param("ate", "2021-12"))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(2);
+	}
+
+	@Test
+	public void deveObterTotaisComNoMaximoUmaConsultaCada() throws Exception {
+		for (String totais : new String[] { "tipo", "status", "mes?ano=2021" }) {
+			ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/totais/" + totais))
+					.andExpect(status().isOk()))
+					.noMaximoComandos(1);
+		}
+	}
+
+	@Test
+	public void deveMontarOPainelComAsConsultasForaDaThreadDaRequisicao() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/painel").param("mes", "2021-01").param("ultimos", "5"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.saldo").value(10))
+				.andExpect(jsonPath("$.resumoMes.RECEITA").value(10))
+				.andExpect(jsonPath("$.ultimosLancamentos.length()").value(1))
+				.andExpect(jsonPath("$.pendentes.RECEITA").value(1))
+				.andExpect(jsonPath("$.secoesAusentes").isEmpty()))
+				.noMaximoComandos(1);
+	}
+
+	@Test
+	public void deveBaixarOExtratoDoMesComEtag() throws Exception {
+		// o primeiro pedido só dispara a geração
+		mvc.perform(get(API + "/" + usuario.getId() + "/extratos/2021-01"))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+		String etag = aguardarExtrato("/extratos/2021-01")
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+				.andExpect(content().string(containsString(";lancamento;RECEITA;PENDENTE;10")))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/extratos/2021-01").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified()))
+				.noMaximoComandos(1);
+		mvc.perform(get(API + "/" + usuario.getId() + "/extratos/2021-01").param("formato", "html")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.ETAG, endsWith("-gzip\"")));
+		mvc.perform(get(API + "/" + usuario.getId() + "/extratos/2021-01").param("formato", "pdf"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void deveAssinarEventosApenasComVerificacaoDoUsuario() throws Exception {
+		ContadorSql.medir(() -> mvc.perform(get(API + "/" + usuario.getId() + "/eventos"))
+				.andExpect(status().isOk()))
+				.noMaximoComandos(1);
+	}
+
+	private ResultActions aguardarExtrato(String caminho) throws Exception {
+		long limite = System.currentTimeMillis() + 5000;
+		while (true) {
+			ResultActions resposta = mvc.perform(get(API + "/" + usuario.getId() + caminho));
+			if (resposta.andReturn().getResponse().getStatus() != HttpStatus.ACCEPTED.value() || System.currentTimeMillis() > limite) {
+				return resposta.andExpect(status().isOk());
+			}
+			Thread.sleep(20);
+		}
+	}
+
+}
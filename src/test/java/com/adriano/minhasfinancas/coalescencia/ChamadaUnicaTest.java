@@ -0,0 +1,144 @@
+package com.adriano.minhasfinancas.coalescencia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import com.adriano.minhasfinancas.dto.CoalescenciaDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+
+public class ChamadaUnicaTest {
+
+	ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@After
+	public void encerrar() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void deveCalcularUmaVezParaChamadasSimultaneas() throws Exception {
+		//cenario
+		ChamadaUnica<Long, Integer> chamada = new ChamadasUnicas(5000).criar("saldo");
+		AtomicInteger calculos = new AtomicInteger();
+		CountDownLatch liberar = new CountDownLatch(1);
+
+		//acao
+		List<Future<Integer>> resultados = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			resultados.add(executor.submit(() -> chamada.executar(1l, () -> {
+				calculos.incrementAndGet();
+				aguardar(liberar);
+				return 42;
+			})));
+		}
+		aguardarEmEspera(chamada, 7);
+		liberar.countDown();
+
+		//verificacao
+		for (Future<Integer> resultado : resultados) {
+			Assertions.assertThat(resultado.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+		}
+		CoalescenciaDTO estatisticas = chamada.obterEstatisticas();
+		Assertions.assertThat(calculos.get()).isEqualTo(1);
+		Assertions.assertThat(estatisticas.getCalculos()).isEqualTo(1l);
+		Assertions.assertThat(estatisticas.getCompartilhadas()).isEqualTo(7l);
+		Assertions.assertThat(estatisticas.getTaxaCoalescencia()).isEqualTo(7d / 8);
+	}
+
+	@Test
+	public void devePropagarOErroParaQuemEsperava() throws Exception {
+		//cenario
+		ChamadaUnica<Long, Integer> chamada = new ChamadasUnicas(5000).criar("saldo");
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<Integer> primeira = executor.submit(() -> chamada.executar(1l, () -> {
+			aguardar(liberar);
+			throw new RegraNegocioException("falhou");
+		}));
+		aguardarEmEspera(chamada, 0);
+
+		//acao
+		Future<Integer> segunda = executor.submit(() -> chamada.executar(1l, () -> 1));
+		aguardarEmEspera(chamada, 1);
+		liberar.countDown();
+
+		//verificacao
+		Assertions.assertThatThrownBy(() -> primeira.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RegraNegocioException.class);
+		Assertions.assertThatThrownBy(() -> segunda.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RegraNegocioException.class);
+		Assertions.assertThat(chamada.obterEstatisticas().getErros()).isEqualTo(1l);
+		Assertions.assertThat(chamada.executar(1l, () -> 2)).isEqualTo(2);
+	}
+
+	@Test
+	public void deveCalcularSozinhaQuandoAEsperaExpira() throws Exception {
+		//cenario
+		ChamadaUnica<Long, Integer> chamada = new ChamadasUnicas(50).criar("saldo");
+		CountDownLatch liberar = new CountDownLatch(1);
+		executor.submit(() -> chamada.executar(1l, () -> {
+			aguardar(liberar);
+			return 1;
+		}));
+		aguardarEmEspera(chamada, 0);
+
+		//acao
+		Integer resultado = chamada.executar(1l, () -> 2);
+		liberar.countDown();
+
+		//verificacao
+		Assertions.assertThat(resultado).isEqualTo(2);
+		Assertions.assertThat(chamada.obterEstatisticas().getExpiradas()).isEqualTo(1l);
+	}
+
+	@Test
+	public void naoDeveReaproveitarOCalculoDepoisDeEsquecido() throws Exception {
+		//cenario
+		ChamadaUnica<Long, Integer> chamada = new ChamadasUnicas(5000).criar("saldo");
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<Integer> anterior = executor.submit(() -> chamada.executar(1l, () -> {
+			aguardar(liberar);
+			return 1;
+		}));
+		aguardarEmEspera(chamada, 0);
+
+		//acao
+		chamada.esquecer(1l);
+		Integer resultado = chamada.executar(1l, () -> 2);
+		liberar.countDown();
+
+		//verificacao
+		Assertions.assertThat(resultado).isEqualTo(2);
+		Assertions.assertThat(anterior.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+	}
+
+	// espera o primeiro cálculo começar e as demais chamadas ficarem aguardando por ele
+	private void aguardarEmEspera(ChamadaUnica<Long, Integer> chamada, long aguardando) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < limite) {
+			CoalescenciaDTO estatisticas = chamada.obterEstatisticas();
+			if (estatisticas.getCalculos() >= 1 && estatisticas.getChamadas() >= aguardando + 1) {
+				Thread.sleep(20);
+				return;
+			}
+			Thread.sleep(1);
+		}
+		Assertions.fail("chamadas não chegaram");
+	}
+
+	private static void aguardar(CountDownLatch liberar) {
+		try {
+			liberar.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
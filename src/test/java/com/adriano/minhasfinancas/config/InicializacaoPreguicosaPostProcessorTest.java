@@ -0,0 +1,36 @@
+package com.adriano.minhasfinancas.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import com.adriano.minhasfinancas.invalidacao.BarramentoInvalidacao;
+import com.adriano.minhasfinancas.service.impl.LancamentoServiceImpl;
+import com.adriano.minhasfinancas.service.impl.SnapshotSaldoServiceImpl;
+
+public class InicializacaoPreguicosaPostProcessorTest {
+
+	@Test
+	public void deveMarcarComoLazyApenasBeansSemAgendamento() {
+		//cenario
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("lancamentoService", new RootBeanDefinition(LancamentoServiceImpl.class));
+		beanFactory.registerBeanDefinition("snapshotSaldoService", new RootBeanDefinition(SnapshotSaldoServiceImpl.class));
+		beanFactory.registerBeanDefinition("barramentoInvalidacao", new RootBeanDefinition(BarramentoInvalidacao.class));
+		RootBeanDefinition infraestrutura = new RootBeanDefinition(LancamentoServiceImpl.class);
+		infraestrutura.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+		beanFactory.registerBeanDefinition("infraestrutura", infraestrutura);
+
+		//acao
+		new InicializacaoPreguicosaPostProcessor().postProcessBeanFactory(beanFactory);
+
+		//verificacao
+		Assertions.assertThat(beanFactory.getBeanDefinition("lancamentoService").isLazyInit()).isTrue();
+		Assertions.assertThat(beanFactory.getBeanDefinition("snapshotSaldoService").isLazyInit()).isFalse();
+		Assertions.assertThat(beanFactory.getBeanDefinition("barramentoInvalidacao").isLazyInit()).isFalse();
+		Assertions.assertThat(beanFactory.getBeanDefinition("infraestrutura").isLazyInit()).isFalse();
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.adriano.minhasfinancas.diario;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.enums.TipoRegistroDiario;
+
+public class DiarioTest {
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void deveReconstruirOSaldoEmQualquerInstante() throws IOException {
+		//cenario
+		try (Diario diario = new Diario(pasta.getRoot().toPath(), 2)) {
+			diario.gravarRetrato(Collections.singletonMap(1L, 10000L), Instant.ofEpochMilli(1000));
+			diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "5.00", 2000));
+			diario.acrescentar(registro(2L, TipoRegistroDiario.CRIADO, "-7.00", 2000));
+			diario.acrescentar(registro(1L, TipoRegistroDiario.DELETADO, "-20.00", 3000));
+			diario.acrescentar(registro(1L, TipoRegistroDiario.SALDO, "42.00", 4000));
+
+			//acao e verificacao
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(1500))).isEqualTo(10000L);
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(2000))).isEqualTo(10500L);
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(3999))).isEqualTo(8500L);
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(5000))).isEqualTo(4200L);
+			Assertions.assertThat(diario.saldoEm(2L, Instant.ofEpochMilli(5000))).isEqualTo(-700L);
+			Assertions.assertThat(diario.registros(1L, Instant.ofEpochMilli(2000), Instant.ofEpochMilli(3000), 10))
+					.extracting(RegistroDiario::getSequencia).containsExactly(1L, 3L);
+			Assertions.assertThatThrownBy(() -> diario.saldoEm(1L, Instant.ofEpochMilli(999)))
+					.isInstanceOf(RegraNegocioException.class);
+		}
+	}
+
+	@Test
+	public void deveManterOsInstantesEmOrdemMesmoComRelogioAtrasado() throws IOException {
+		try (Diario diario = new Diario(pasta.getRoot().toPath(), 10)) {
+			diario.gravarRetrato(Collections.emptyMap(), Instant.ofEpochMilli(1000));
+			diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 3000));
+
+			RegistroDiario atrasado = diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 2000));
+
+			Assertions.assertThat(atrasado.getInstante()).isEqualTo(Instant.ofEpochMilli(3000));
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(3000))).isEqualTo(200L);
+		}
+	}
+
+	@Test
+	public void deveRecuperarAoReabrirDescartandoORegistroIncompleto() throws IOException {
+		//cenario
+		Path diretorio = pasta.getRoot().toPath();
+		try (Diario diario = new Diario(diretorio, 3)) {
+			diario.gravarRetrato(Collections.emptyMap(), Instant.ofEpochMilli(1000));
+			for (int i = 1; i <= 5; i++) {
+				diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 1000 + i));
+			}
+		}
+		// simula uma queda no meio da gravação do último registro
+		try (FileChannel canal = FileChannel.open(diretorio.resolve(String.format("segmento-%020d.diario", 4)), StandardOpenOption.WRITE)) {
+			canal.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), SegmentoDiario.TAMANHO_REGISTRO + 40);
+		}
+
+		//acao
+		try (Diario diario = new Diario(diretorio, 3)) {
+			Map<Long, Long> saldos = new HashMap<>();
+			diario.reproduzir(saldos);
+
+			//verificacao
+			Assertions.assertThat(diario.quantidadeSegmentos()).isEqualTo(2);
+			Assertions.assertThat(diario.proximaSequencia()).isEqualTo(5L);
+			Assertions.assertThat(saldos).containsEntry(1L, 400L);
+			Assertions.assertThat(diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 2000)).getSequencia()).isEqualTo(5L);
+		}
+	}
+
+	@Test
+	public void deveCompactarOsSegmentosCobertosPorRetrato() throws IOException {
+		//cenario
+		try (Diario diario = new Diario(pasta.getRoot().toPath(), 2)) {
+			Map<Long, Long> saldos = new HashMap<>();
+			diario.gravarRetrato(saldos, Instant.ofEpochMilli(1000));
+			for (int i = 1; i <= 6; i++) {
+				diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 1000 + i * 10));
+				saldos.put(1L, i * 100L);
+				if (i % 2 == 0) {
+					diario.gravarRetrato(saldos, Instant.ofEpochMilli(1000 + i * 10));
+				}
+			}
+			diario.acrescentar(registro(1L, TipoRegistroDiario.CRIADO, "1.00", 1100));
+
+			//acao
+			int removidos = diario.compactar(1);
+
+			//verificacao
+			Assertions.assertThat(removidos).isEqualTo(3);
+			Assertions.assertThat(diario.quantidadeSegmentos()).isEqualTo(1);
+			Assertions.assertThat(diario.saldoEm(1L, Instant.ofEpochMilli(1100))).isEqualTo(700L);
+			Assertions.assertThatThrownBy(() -> diario.saldoEm(1L, Instant.ofEpochMilli(1050)))
+					.isInstanceOf(RegraNegocioException.class);
+		}
+	}
+
+	private RegistroDiario registro(Long idUsuario, TipoRegistroDiario tipo, String variacao, long instante) {
+		return RegistroDiario.builder().idUsuario(idUsuario).tipo(tipo).instante(Instant.ofEpochMilli(instante))
+				.variacaoSaldo(new BigDecimal(variacao)).build();
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.adriano.minhasfinancas.exception.LinhaExtratoInvalidaException;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+
+public class LeitorCsvTest {
+
+	@Test
+	public void deveLerCsvComPontoEVirgulaEValorBrasileiro() throws IOException {
+		//cenario
+		LeitorCsv leitor = leitor("Data;Histórico;Valor\n"
+				+ "05/01/2021;\"Mercado; Centro\";-1.234,56\n"
+				+ "\n"
+				+ "06/01/2021;Salário;5000,00\n");
+
+		//acao
+		LinhaExtrato primeira = leitor.proxima();
+		LinhaExtrato segunda = leitor.proxima();
+
+		//verificacao
+		Assertions.assertThat(primeira.getData()).isEqualTo(LocalDate.of(2021, 1, 5));
+		Assertions.assertThat(primeira.getDescricao()).isEqualTo("Mercado; Centro");
+		Assertions.assertThat(primeira.getValor()).isEqualByComparingTo("-1234.56");
+		Assertions.assertThat(segunda.getNumero()).isEqualTo(4);
+		Assertions.assertThat(segunda.getValor()).isEqualByComparingTo("5000");
+		Assertions.assertThat(leitor.proxima()).isNull();
+	}
+
+	@Test
+	public void deveLerCsvComVirgulaEColunasEmOutraOrdem() throws IOException {
+		LeitorCsv leitor = leitor("amount,date,description\n\"1,250.00\",2021-02-10,Refund\n");
+
+		LinhaExtrato linha = leitor.proxima();
+
+		Assertions.assertThat(linha.getValor()).isEqualByComparingTo("1250.00");
+		Assertions.assertThat(linha.getData()).isEqualTo(LocalDate.of(2021, 2, 10));
+		Assertions.assertThat(linha.getDescricao()).isEqualTo("Refund");
+	}
+
+	@Test
+	public void deveContinuarAposLinhaInvalida() throws IOException {
+		//cenario
+		LeitorCsv leitor = leitor("data;descricao;valor\n31/02/2021;x;1,00\n01/03/2021;y;2,00\n");
+
+		//acao
+		Throwable erro = Assertions.catchThrowable(leitor::proxima);
+
+		//verificacao
+		Assertions.assertThat(erro).isInstanceOf(LinhaExtratoInvalidaException.class).hasMessageStartingWith("Linha 2");
+		Assertions.assertThat(leitor.proxima().getDescricao()).isEqualTo("y");
+	}
+
+	@Test(expected = RegraNegocioException.class)
+	public void naoDeveLerCsvSemAsColunasObrigatorias() throws IOException {
+		leitor("data;valor\n01/03/2021;2,00\n").proxima();
+	}
+
+	private static LeitorCsv leitor(String conteudo) {
+		return new LeitorCsv(new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+	}
+
+}
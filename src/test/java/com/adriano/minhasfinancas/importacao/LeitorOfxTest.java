@@ -0,0 +1,50 @@
+package com.adriano.minhasfinancas.importacao;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class LeitorOfxTest {
+
+	@Test
+	public void deveLerOfxSgmlNoCharsetDoCabecalho() throws IOException {
+		//cenario
+		String ofx = "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\nENCODING:USASCII\nCHARSET:1252\n\n"
+				+ "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+				+ "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20210105120000[-3:BRT]\n<TRNAMT>-45,90\n<FITID>0001\n<MEMO>Padaria São João\n</STMTTRN>\n"
+				+ "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20210106\n<TRNAMT>100.00\n<FITID>0002\n<NAME>PIX &amp; TED\n</STMTTRN>\n"
+				+ "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+		LeitorOfx leitor = new LeitorOfx(new ByteArrayInputStream(ofx.getBytes(Charset.forName("windows-1252"))), null);
+
+		//acao
+		LinhaExtrato debito = leitor.proxima();
+		LinhaExtrato credito = leitor.proxima();
+
+		//verificacao
+		Assertions.assertThat(debito.getData()).isEqualTo(LocalDate.of(2021, 1, 5));
+		Assertions.assertThat(debito.getValor()).isEqualByComparingTo("-45.90");
+		Assertions.assertThat(debito.getDescricao()).isEqualTo("Padaria São João");
+		Assertions.assertThat(debito.getIdentificador()).isEqualTo("0001");
+		Assertions.assertThat(credito.getDescricao()).isEqualTo("PIX & TED");
+		Assertions.assertThat(leitor.proxima()).isNull();
+	}
+
+	@Test
+	public void deveLerOfxXmlEmUmaUnicaLinha() throws IOException {
+		String ofx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><OFX><STMTTRN><DTPOSTED>20211231</DTPOSTED>"
+				+ "<TRNAMT>-10.00</TRNAMT><FITID>A1</FITID><MEMO>Café</MEMO></STMTTRN></OFX>";
+		LeitorOfx leitor = new LeitorOfx(new ByteArrayInputStream(ofx.getBytes(StandardCharsets.UTF_8)), null);
+
+		LinhaExtrato linha = leitor.proxima();
+
+		Assertions.assertThat(linha.getData()).isEqualTo(LocalDate.of(2021, 12, 31));
+		Assertions.assertThat(linha.getDescricao()).isEqualTo("Café");
+		Assertions.assertThat(leitor.proxima()).isNull();
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+public class BarramentoInvalidacaoTest {
+
+	TransporteMemoria transporte = new TransporteMemoria();
+
+	List<Object> eventos = new ArrayList<>();
+
+	BarramentoInvalidacao barramento = new BarramentoInvalidacao(transporte, eventos::add, 500, 3600000, 100);
+
+	@Test
+	public void deveJuntarAsGravacoesDoMesmoUsuarioNumaInvalidacao() {
+		//cenario
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 1L);
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 1L);
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 1L);
+		barramento.invalidar(EscopoInvalidacao.USUARIO, 1L);
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 2L);
+
+		//acao
+		barramento.enviar();
+		barramento.enviar();
+
+		//verificacao
+		Assertions.assertThat(transporte.publicados).hasSize(1);
+		Assertions.assertThat(transporte.publicados.get(0)).hasSize(3)
+				.allMatch(invalidacao -> invalidacao.getOrigem().equals(barramento.getOrigem()))
+				.anyMatch(invalidacao -> invalidacao.getEscopo() == EscopoInvalidacao.LANCAMENTOS
+						&& invalidacao.getIdUsuario() == 1L && invalidacao.getVersao() == 3);
+	}
+
+	@Test
+	public void deveEnviarEmLotesDoTamanhoConfigurado() {
+		//cenario
+		BarramentoInvalidacao loteDeDois = new BarramentoInvalidacao(transporte, eventos::add, 2, 3600000, 100);
+		for (long idUsuario = 1; idUsuario <= 5; idUsuario++) {
+			loteDeDois.invalidar(EscopoInvalidacao.LANCAMENTOS, idUsuario);
+		}
+
+		//acao
+		loteDeDois.enviar();
+
+		//verificacao
+		Assertions.assertThat(transporte.publicados.stream().map(List::size).collect(Collectors.toList())).containsExactly(2, 2, 1);
+	}
+
+	@Test
+	public void deveDescartarInvalidacaoRepetidaOuForaDeOrdem() {
+		//acao
+		barramento.receber(Arrays.asList(invalidacao("no-a", 1L, 5)));
+		barramento.receber(Arrays.asList(invalidacao("no-a", 1L, 3), invalidacao("no-a", 1L, 5)));
+		barramento.receber(Arrays.asList(invalidacao("no-a", 1L, 6), invalidacao("no-a", 1L, 7)));
+		barramento.receber(Arrays.asList(invalidacao("no-b", 1L, 1)));
+
+		//verificacao
+		Assertions.assertThat(eventos).hasSize(3).allMatch(evento -> ((CacheInvalidadoEvent) evento).getIdUsuario() == 1L);
+	}
+
+	@Test
+	public void naoDeveAplicarAsPropriasInvalidacoes() {
+		//acao
+		barramento.receber(Arrays.asList(invalidacao(barramento.getOrigem(), 1L, 1)));
+
+		//verificacao
+		Assertions.assertThat(eventos).isEmpty();
+	}
+
+	@Test
+	public void deveDevolverAsInvalidacoesParaAFilaQuandoOEnvioFalhar() {
+		//cenario
+		transporte.falhar = true;
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 1L);
+		barramento.enviar();
+		transporte.falhar = false;
+		barramento.invalidar(EscopoInvalidacao.LANCAMENTOS, 2L);
+
+		//acao
+		barramento.enviar();
+
+		//verificacao
+		Assertions.assertThat(transporte.publicados).hasSize(1);
+		Assertions.assertThat(transporte.publicados.get(0)).extracting(Invalidacao::getIdUsuario).containsExactlyInAnyOrder(1L, 2L);
+	}
+
+	@Test
+	public void deveLevarAInvalidacaoAOutroNoPeloTransporteLocal() {
+		//cenario
+		String canal = UUID.randomUUID().toString();
+		TransporteLocal transporteA = new TransporteLocal(canal);
+		TransporteLocal transporteB = new TransporteLocal(canal);
+		List<Object> eventosA = new ArrayList<>();
+		List<Object> eventosB = new ArrayList<>();
+		BarramentoInvalidacao noA = new BarramentoInvalidacao(transporteA, eventosA::add, 500, 3600000, 100);
+		new BarramentoInvalidacao(transporteB, eventosB::add, 500, 3600000, 100);
+
+		//acao
+		noA.invalidar(EscopoInvalidacao.USUARIO, 7L);
+		noA.enviar();
+		transporteA.encerrar();
+		transporteB.encerrar();
+
+		//verificacao
+		Assertions.assertThat(eventosA).isEmpty();
+		Assertions.assertThat(eventosB).hasSize(1);
+		CacheInvalidadoEvent evento = (CacheInvalidadoEvent) eventosB.get(0);
+		Assertions.assertThat(evento.getEscopo()).isEqualTo(EscopoInvalidacao.USUARIO);
+		Assertions.assertThat(evento.getIdUsuario()).isEqualTo(7L);
+	}
+
+	private static Invalidacao invalidacao(String origem, Long idUsuario, long versao) {
+		return Invalidacao.builder().origem(origem).escopo(EscopoInvalidacao.LANCAMENTOS).idUsuario(idUsuario).versao(versao).build();
+	}
+
+	static class TransporteMemoria implements TransporteInvalidacao {
+
+		List<List<Invalidacao>> publicados = new ArrayList<>();
+
+		boolean falhar;
+
+		@Override
+		public void publicar(List<Invalidacao> lote) {
+			if (falhar) {
+				throw new IllegalStateException("transporte indisponível");
+			}
+			publicados.add(new ArrayList<>(lote));
+		}
+
+		@Override
+		public void assinar(Consumer<List<Invalidacao>> receptor) {
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.MinhasfinancasApplication;
+import com.adriano.minhasfinancas.dto.ArquivoExtratoDTO;
+import com.adriano.minhasfinancas.event.CacheInvalidadoEvent;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.ExtratoMensalService;
+import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.UsuarioService;
+import com.adriano.minhasfinancas.suporte.ContadorSql;
+import com.adriano.minhasfinancas.suporte.ContadorSqlConfig;
+
+/**
+ * O contexto de teste é um nó; o outro nó é um barramento no mesmo canal, e as gravações dele
+ * vão direto ao repositório, sem passar pelos serviços deste.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@Import(ContadorSqlConfig.class)
+public class InvalidacaoEntreNosTest {
+
+	static final YearMonth MES = YearMonth.of(2021, 1);
+
+	@Autowired
+	TransporteInvalidacao transporte;
+
+	@Autowired
+	BarramentoInvalidacao barramento;
+
+	@Autowired
+	UsuarioService usuarioService;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	ExtratoMensalService extratoMensalService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	ThreadPoolTaskScheduler taskScheduler;
+
+	TransporteLocal transporteOutroNo;
+
+	BarramentoInvalidacao outroNo;
+
+	List<Object> eventosOutroNo = new CopyOnWriteArrayList<>();
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		transporteOutroNo = new TransporteLocal(((TransporteLocal) transporte).getCanal());
+		outroNo = new BarramentoInvalidacao(transporteOutroNo, eventosOutroNo::add, 500, 3600000, 100);
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+	}
+
+	@After
+	public void tearDown() {
+		transporteOutroNo.encerrar();
+	}
+
+	@Test
+	public void deveGerarDeNovoOExtratoAlteradoEmOutroNo() throws InterruptedException {
+		//cenario
+		lancamentoService.salvar(lancamento("salário"));
+		String hashAnterior = aguardarExtrato(null).getHash();
+		lancamentoRepository.save(lancamento("aluguel"));
+		Assertions.assertThat(extratoMensalService.obter(usuario.getId(), MES, FormatoExtratoMensal.CSV).get().getHash())
+				.isEqualTo(hashAnterior);
+
+		//acao
+		outroNo.invalidar(EscopoInvalidacao.LANCAMENTOS, usuario.getId());
+		outroNo.enviar();
+
+		//verificacao
+		Assertions.assertThat(aguardarExtrato(hashAnterior).getHash()).isNotEqualTo(hashAnterior);
+	}
+
+	@Test
+	public void deveRecusarOEmailCadastradoEmOutroNo() throws Exception {
+		//cenario
+		String email = emailForaDoFiltro();
+		Usuario cadastrado = usuarioRepository.save(Usuario.builder().nome("outro").email(email).senha("senha").build());
+		usuarioService.validarEmail(email);
+
+		//acao
+		outroNo.invalidar(EscopoInvalidacao.USUARIO, cadastrado.getId());
+		outroNo.enviar();
+
+		//verificacao
+		Assertions.assertThatThrownBy(() -> usuarioService.validarEmail(email)).isInstanceOf(RegraNegocioException.class);
+	}
+
+	@Test
+	public void deveAvisarOsOutrosNosDasGravacoesConfirmadasAqui() throws InterruptedException {
+		//acao
+		Usuario novo = usuarioService.salvarUsuario(Usuario.builder().nome("novo")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		lancamentoService.salvar(lancamento("salário"));
+		barramento.enviar();
+
+		//verificacao
+		aguardarEvento(EscopoInvalidacao.USUARIO, novo.getId());
+		aguardarEvento(EscopoInvalidacao.LANCAMENTOS, usuario.getId());
+	}
+
+	@Test
+	public void deveEnviarMesmoComOAgendadorDoSpringOcupado() throws InterruptedException {
+		//cenario: um job longo (snapshot, extrato do mês) segura a thread do agendador
+		CountDownLatch ocupado = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		taskScheduler.execute(() -> {
+			ocupado.countDown();
+			try {
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Assertions.assertThat(ocupado.await(5, TimeUnit.SECONDS)).isTrue();
+
+		try {
+			//acao: sem chamar o envio; só o agendamento do barramento leva a invalidação
+			lancamentoService.salvar(lancamento("salário"));
+
+			//verificacao
+			aguardarEvento(EscopoInvalidacao.LANCAMENTOS, usuario.getId());
+		} finally {
+			liberar.countDown();
+		}
+	}
+
+	@Test
+	public void deveReceberAsInvalidacoesNoNoQueSobeComOPerfilRapido() throws InterruptedException {
+		//cenario: no perfil rapido os beans são lazy e nenhum deste nó é pedido antes do envio
+		String canal = UUID.randomUUID().toString();
+		List<Object> recebidos = new CopyOnWriteArrayList<>();
+		try (ConfigurableApplicationContext rapido = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test", "rapido").web(WebApplicationType.NONE)
+				.listeners(evento -> {
+					if (evento instanceof PayloadApplicationEvent && ((PayloadApplicationEvent<?>) evento).getPayload() instanceof CacheInvalidadoEvent) {
+						recebidos.add(((PayloadApplicationEvent<?>) evento).getPayload());
+					}
+				})
+				.run("--minhasfinancas.invalidacao.canal=" + canal)) {
+			TransporteLocal transporteRemetente = new TransporteLocal(canal);
+			try {
+				//acao
+				BarramentoInvalidacao remetente = new BarramentoInvalidacao(transporteRemetente, evento -> { }, 500, 3600000, 100);
+				remetente.invalidar(EscopoInvalidacao.LANCAMENTOS, usuario.getId());
+				remetente.enviar();
+
+				//verificacao
+				long limite = System.currentTimeMillis() + 5000;
+				while (recebidos.isEmpty() && System.currentTimeMillis() < limite) {
+					Thread.sleep(10);
+				}
+				Assertions.assertThat(recebidos).extracting("idUsuario").containsExactly(usuario.getId());
+			} finally {
+				transporteRemetente.encerrar();
+			}
+		}
+	}
+
+	// e-mail que o filtro deste nó garante ser novo: a validação não vai ao banco
+	private String emailForaDoFiltro() throws Exception {
+		while (true) {
+			String email = UUID.randomUUID() + "@email.com";
+			if (ContadorSql.medir(() -> usuarioService.validarEmail(email)).total() == 0) {
+				return email;
+			}
+		}
+	}
+
+	// o envio agendado pode ter levado a fila antes da chamada do teste
+	private void aguardarEvento(EscopoInvalidacao escopo, Long idUsuario) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (eventosOutroNo.stream().map(CacheInvalidadoEvent.class::cast)
+				.noneMatch(evento -> evento.getEscopo() == escopo && evento.getIdUsuario().equals(idUsuario))) {
+			if (System.currentTimeMillis() > limite) {
+				Assertions.fail("invalidação não chegou ao outro nó: " + escopo + " " + idUsuario);
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	// o extrato é gerado em segundo plano: espera um arquivo pronto com conteúdo diferente do anterior
+	private ArquivoExtratoDTO aguardarExtrato(String hashAnterior) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (true) {
+			Optional<ArquivoExtratoDTO> extrato = extratoMensalService.obter(usuario.getId(), MES, FormatoExtratoMensal.CSV);
+			if (extrato.isPresent() && !extrato.get().getHash().equals(hashAnterior)) {
+				return extrato.get();
+			}
+			if (System.currentTimeMillis() > limite) {
+				return Assertions.fail("extrato não foi gerado de novo no prazo");
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	private Lancamento lancamento(String descricao) {
+		return Lancamento.builder().descricao(descricao).ano(MES.getYear()).mes(MES.getMonthValue()).valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.RECEITA).status(StatusLancamento.PENDENTE).usuario(usuario).build();
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.adriano.minhasfinancas.invalidacao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.model.enums.EscopoInvalidacao;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class TransporteTabelaTest {
+
+	static final String CONTAGEM = "select count(*) from financas.invalidacao_cache where origem = ?";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	String origem = UUID.randomUUID().toString();
+
+	List<Invalidacao> recebidas = new ArrayList<>();
+
+	@Test
+	public void deveEntregarAsInvalidacoesGravadasPorOutroNo() throws InterruptedException {
+		//cenario
+		TransporteTabela noA = new TransporteTabela(jdbcTemplate, 0, 3600000, 1000, 1000);
+		TransporteTabela noB = new TransporteTabela(jdbcTemplate, 0, 3600000, 1000, 1000);
+		noB.assinar(recebidas::addAll);
+		noB.consultar();
+
+		//acao
+		noA.publicar(Arrays.asList(invalidacao(1L, 1), invalidacao(2L, 2)));
+		Thread.sleep(20);
+		noB.consultar();
+		noB.consultar();
+
+		//verificacao
+		Assertions.assertThat(recebidas).hasSize(2);
+		Assertions.assertThat(recebidas.get(0)).isEqualTo(invalidacao(1L, 1));
+		Assertions.assertThat(recebidas.get(1)).isEqualTo(invalidacao(2L, 2));
+	}
+
+	@Test
+	public void deveLerDeNovoAsLinhasAindaDentroDaJanela() {
+		//cenario
+		TransporteTabela noA = new TransporteTabela(jdbcTemplate, 0, 3600000, 1000, 1000);
+		TransporteTabela noB = new TransporteTabela(jdbcTemplate, 3600000, 3600000, 1000, 1000);
+		noB.assinar(recebidas::addAll);
+		noB.consultar();
+		noA.publicar(Arrays.asList(invalidacao(1L, 1)));
+
+		//acao
+		noB.consultar();
+		noB.consultar();
+
+		//verificacao
+		Assertions.assertThat(recebidas).hasSize(2).containsOnly(invalidacao(1L, 1));
+	}
+
+	@Test
+	public void deveExpurgarAsLinhasMaisAntigasQueARetencao() throws InterruptedException {
+		//cenario
+		TransporteTabela transporte = new TransporteTabela(jdbcTemplate, 0, 0, 1000, 1000);
+		transporte.publicar(Arrays.asList(invalidacao(1L, 1)));
+		Assertions.assertThat(jdbcTemplate.queryForObject(CONTAGEM, Integer.class, origem)).isEqualTo(1);
+		Thread.sleep(20);
+
+		//acao
+		transporte.expurgar();
+
+		//verificacao
+		Assertions.assertThat(jdbcTemplate.queryForObject(CONTAGEM, Integer.class, origem)).isZero();
+	}
+
+	private Invalidacao invalidacao(Long idUsuario, long versao) {
+		return Invalidacao.builder().origem(origem).escopo(EscopoInvalidacao.LANCAMENTOS).idUsuario(idUsuario).versao(versao).build();
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.adriano.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.dto.SaldoMensalDTO;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.LancamentoDTO;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@Transactional
+public class LancamentoRepositoryImplTest {
+
+	@Autowired
+	LancamentoRepositoryImpl repositoryImpl;
+
+	@Autowired
+	LancamentoRepository repository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		List<Lancamento> lancamentos = new ArrayList<>();
+		lancamentos.add(criarLancamento(2020, 11, "100.00", TipoLancamento.RECEITA));
+		lancamentos.add(criarLancamento(2021, 1, "300.00", TipoLancamento.RECEITA));
+		lancamentos.add(criarLancamento(2021, 1, "50.00", TipoLancamento.DESPESA));
+		lancamentos.add(criarLancamento(2021, 3, "20.00", TipoLancamento.DESPESA));
+		lancamentos.add(criarLancamento(2021, 6, "999.00", TipoLancamento.RECEITA));
+		repository.inserirEmLote(lancamentos);
+	}
+
+	@After
+	public void tearDown() {
+		repositoryImpl.usarFuncaoJanela(true);
+	}
+
+	@Test
+	public void deveInserirEmLoteRecuperandoOsIds() {
+		//cenario
+		List<Lancamento> lancamentos = new ArrayList<>();
+		lancamentos.add(criarLancamento(2021, 2, "10.00", TipoLancamento.RECEITA));
+		lancamentos.add(criarLancamento(2021, 2, "20.00", TipoLancamento.RECEITA));
+
+		//acao
+		repository.inserirEmLote(lancamentos);
+
+		//verificacao
+		Assertions.assertThat(lancamentos).extracting(Lancamento::getId).doesNotContainNull().doesNotHaveDuplicates();
+		Assertions.assertThat(repository.findById(lancamentos.get(1).getId()).get().getValor()).isEqualByComparingTo("20.00");
+	}
+
+	@Test
+	public void deveCalcularASerieDeSaldoComFuncaoDeJanela() {
+		repositoryImpl.usarFuncaoJanela(true);
+
+		verificarSerie(repository.obterSerieSaldo(usuario.getId(), YearMonth.of(2020, 12), YearMonth.of(2021, 4)));
+	}
+
+	@Test
+	public void deveCalcularASerieDeSaldoEmPassadaUnica() {
+		repositoryImpl.usarFuncaoJanela(false);
+
+		verificarSerie(repository.obterSerieSaldo(usuario.getId(), YearMonth.of(2020, 12), YearMonth.of(2021, 4)));
+	}
+
+	@Test
+	public void deveRetornarOSaldoAnteriorQuandoNaoHouverLancamentosNoPeriodo() {
+		List<SaldoMensalDTO> serie = repository.obterSerieSaldo(usuario.getId(), YearMonth.of(2021, 4), YearMonth.of(2021, 5));
+
+		Assertions.assertThat(serie).hasSize(2);
+		Assertions.assertThat(serie.get(1).getAcumulado()).isEqualByComparingTo("330.00");
+		Assertions.assertThat(serie.get(1).getLiquido()).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveDeletarPorFiltro() {
+		//acao
+		int removidos = repository.deletarPorFiltro(usuario.getId(), 2021, 1, StatusLancamento.PENDENTE, LocalDateTime.now());
+
+		//verificacao
+		Assertions.assertThat(removidos).isEqualTo(2);
+		Assertions.assertThat(repository.obterColunasPorUsuario(usuario.getId())).hasSize(3);
+	}
+
+	@Test
+	public void deveDeletarPorIdsApenasDoUsuario() {
+		//cenario
+		List<Long> ids = new ArrayList<>();
+		repository.obterColunasPorUsuario(usuario.getId()).forEach(linha -> ids.add((Long) linha[0]));
+		Usuario outro = usuarioRepository.save(Usuario.builder().nome("outro").email("outro@email.com").senha("s").build());
+
+		//acao
+		int removidosOutro = repository.deletarPorIds(outro.getId(), ids, LocalDateTime.now());
+		int removidos = repository.deletarPorIds(usuario.getId(), ids.subList(0, 2), LocalDateTime.now());
+
+		//verificacao
+		Assertions.assertThat(removidosOutro).isZero();
+		Assertions.assertThat(removidos).isEqualTo(2);
+		Assertions.assertThat(repository.findAllById(ids)).hasSize(3);
+	}
+
+	@Test
+	public void deveBuscarPorIdsApenasDoUsuario() {
+		//cenario
+		List<Long> ids = new ArrayList<>();
+		repository.obterColunasPorUsuario(usuario.getId()).forEach(linha -> ids.add((Long) linha[0]));
+		Usuario outro = usuarioRepository.save(Usuario.builder().nome("outro").email("outro@email.com").senha("s").build());
+
+		//acao
+		List<LancamentoDTO> doOutro = repository.buscarPorIds(outro.getId(), ids);
+		List<LancamentoDTO> doUsuario = repository.buscarPorIds(usuario.getId(), ids.subList(1, 3));
+
+		//verificacao
+		Assertions.assertThat(doOutro).isEmpty();
+		Assertions.assertThat(doUsuario).extracting(LancamentoDTO::getId).containsExactly(ids.get(1), ids.get(2));
+		Assertions.assertThat(doUsuario.get(1).getTipo()).isEqualTo("DESPESA");
+		Assertions.assertThat(doUsuario.get(1).getUsuario()).isEqualTo(usuario.getId());
+	}
+
+	@Test
+	public void deveBuscarPorPeriodoEntreAnosFaixaDeValorETipos() {
+		//cenario
+		FiltroLancamentoDTO filtro = FiltroLancamentoDTO.builder().usuario(usuario.getId())
+				.de(YearMonth.of(2020, 12)).ate(YearMonth.of(2021, 3))
+				.valorMinimo(new BigDecimal("20.00")).valorMaximo(new BigDecimal("300.00"))
+				.tipos(Collections.singleton(TipoLancamento.DESPESA)).build();
+
+		//acao
+		List<Lancamento> lancamentos = repository.buscar(usuario.getId(), LancamentoSpecifications.de(filtro),
+				Sort.by(Sort.Order.desc("valor")));
+
+		//verificacao
+		Assertions.assertThat(lancamentos).extracting(Lancamento::getValor)
+				.usingElementComparator(BigDecimal::compareTo)
+				.containsExactly(new BigDecimal("50.00"), new BigDecimal("20.00"));
+	}
+
+	@Test
+	public void deveBuscarPorDescricaoTratandoCuringasComoTexto() {
+		//cenario
+		FiltroLancamentoDTO filtro = FiltroLancamentoDTO.builder().usuario(usuario.getId()).descricao("%").build();
+
+		//acao
+		List<Lancamento> lancamentos = repository.buscar(usuario.getId(), LancamentoSpecifications.de(filtro), Sort.unsorted());
+
+		//verificacao
+		Assertions.assertThat(lancamentos).isEmpty();
+	}
+
+	@Test
+	public void deveBuscarPorAlgumaOuTodasAsCategorias() {
+		//cenario
+		List<Lancamento> lancamentos = new ArrayList<>();
+		lancamentos.add(criarLancamento(2022, 1, "1.00", TipoLancamento.DESPESA));
+		lancamentos.add(criarLancamento(2022, 1, "2.00", TipoLancamento.DESPESA));
+		lancamentos.get(0).setCategorias(0b011L);
+		lancamentos.get(1).setCategorias(0b110L);
+		repository.inserirEmLote(lancamentos);
+		List<Long> categorias = Arrays.asList(Categoria.idDe(usuario.getId(), 0), Categoria.idDe(usuario.getId(), 1));
+
+		//acao
+		List<Lancamento> alguma = repository.buscar(usuario.getId(), LancamentoSpecifications.de(FiltroLancamentoDTO.builder()
+				.categorias(new HashSet<>(categorias)).build()), Sort.by("valor"));
+		List<Lancamento> todas = repository.buscar(usuario.getId(), LancamentoSpecifications.de(FiltroLancamentoDTO.builder()
+				.categorias(new HashSet<>(categorias)).todasCategorias(true).build()), Sort.by("valor"));
+
+		//verificacao
+		Assertions.assertThat(alguma).extracting(Lancamento::getId).containsExactly(lancamentos.get(0).getId(), lancamentos.get(1).getId());
+		Assertions.assertThat(todas).extracting(Lancamento::getId).containsExactly(lancamentos.get(0).getId());
+	}
+
+	private void verificarSerie(List<SaldoMensalDTO> serie) {
+		Assertions.assertThat(serie).extracting(SaldoMensalDTO::getMes).containsExactly(12, 1, 2, 3, 4);
+		Assertions.assertThat(serie.get(0).getAcumulado()).isEqualByComparingTo("100.00");
+		Assertions.assertThat(serie.get(1).getLiquido()).isEqualByComparingTo("250.00");
+		Assertions.assertThat(serie.get(1).getAcumulado()).isEqualByComparingTo("350.00");
+		Assertions.assertThat(serie.get(2).getAcumulado()).isEqualByComparingTo("350.00");
+		Assertions.assertThat(serie.get(3).getAcumulado()).isEqualByComparingTo("330.00");
+		Assertions.assertThat(serie.get(4).getAcumulado()).isEqualByComparingTo("330.00");
+	}
+
+	private Lancamento criarLancamento(int ano, int mes, String valor, TipoLancamento tipo) {
+		return Lancamento.builder().descricao("lancamento").ano(ano).mes(mes).valor(new BigDecimal(valor))
+				.tipo(tipo).status(StatusLancamento.PENDENTE).usuario(usuario).build();
+	}
+}
@@ -0,0 +1,145 @@
+package com.adriano.minhasfinancas.monitoramento;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.dto.FiltroLancamentoDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.LancamentoService;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class EventosJfrAspectTest {
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	Path arquivo;
+
+	@Before
+	public void setUp() throws IOException {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		lancamentoService.salvar(Lancamento.builder().descricao("salário").ano(2021).mes(1).valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.RECEITA).usuario(usuario).build());
+		arquivo = Files.createTempFile("minhasfinancas", ".jfr");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(arquivo);
+	}
+
+	@Test
+	public void deveGravarAsOperacoesComUsuarioFiltroELinhas() throws IOException, ParseException {
+		//cenario
+		FiltroLancamentoDTO filtro = FiltroLancamentoDTO.builder().usuario(usuario.getId()).ano(2021)
+				.tipos(Collections.singleton(TipoLancamento.RECEITA)).build();
+
+		//acao
+		try (Recording gravacao = new Recording(perfil())) {
+			// limite zero só no teste, para gravar também as chamadas rápidas
+			gravacao.enable(OperacaoServicoEvent.class).withThreshold(Duration.ZERO);
+			gravacao.enable(ConsultaRepositorioEvent.class).withThreshold(Duration.ZERO);
+			gravacao.start();
+			lancamentoService.buscar(filtro);
+			gravacao.stop();
+			gravacao.dump(arquivo);
+		}
+
+		//verificacao
+		List<RecordedEvent> eventos = RecordingFile.readAllEvents(arquivo);
+		RecordedEvent servico = evento(eventos, "minhasfinancas.OperacaoServico", "buscar");
+		Assertions.assertThat(servico.getString("classe")).isEqualTo("LancamentoServiceImpl");
+		Assertions.assertThat(servico.getLong("idUsuario")).isEqualTo(usuario.getId());
+		Assertions.assertThat(servico.getString("filtro")).isEqualTo("ano,tipos");
+		Assertions.assertThat(servico.getLong("linhas")).isEqualTo(1);
+		Assertions.assertThat(servico.getString("erro")).isNull();
+		RecordedEvent consulta = evento(eventos, "minhasfinancas.ConsultaRepositorio", "buscar");
+		Assertions.assertThat(consulta.getLong("idUsuario")).isEqualTo(usuario.getId());
+		Assertions.assertThat(consulta.getLong("linhas")).isEqualTo(1);
+		Assertions.assertThat(consulta.getDuration()).isLessThanOrEqualTo(servico.getDuration());
+	}
+
+	@Test
+	public void naoDeveGravarOperacoesMaisRapidasQueOLimite() throws IOException {
+		//acao
+		// sem o perfil: com duas configurações o JFR fica com o limite menor
+		try (Recording gravacao = new Recording()) {
+			gravacao.enable(OperacaoServicoEvent.class).withThreshold(Duration.ofHours(1));
+			gravacao.enable(ConsultaRepositorioEvent.class).withThreshold(Duration.ofHours(1));
+			gravacao.start();
+			lancamentoService.obterPorId(0L);
+			gravacao.stop();
+			gravacao.dump(arquivo);
+		}
+
+		//verificacao
+		Assertions.assertThat(RecordingFile.readAllEvents(arquivo))
+				.noneMatch(evento -> evento.getEventType().getName().startsWith("minhasfinancas."));
+	}
+
+	@Test
+	public void deveTrazerOsLimitesNoPerfilDeGravacao() throws IOException, ParseException {
+		//acao
+		Configuration perfil = perfil();
+
+		//verificacao
+		Assertions.assertThat(perfil.getSettings())
+				.containsEntry("minhasfinancas.OperacaoServico#threshold", "20 ms")
+				.containsEntry("minhasfinancas.ConsultaRepositorio#threshold", "10 ms")
+				.containsEntry("jdk.ExecutionSample#enabled", "true");
+		Assertions.assertThat(new OperacaoServicoEvent().isEnabled()).isFalse();
+	}
+
+	private static RecordedEvent evento(List<RecordedEvent> eventos, String tipo, String metodo) {
+		List<RecordedEvent> encontrados = eventos.stream()
+				.filter(evento -> evento.getEventType().getName().equals(tipo) && metodo.equals(evento.getString("metodo")))
+				.collect(Collectors.toList());
+		Assertions.assertThat(encontrados).as(tipo + " " + metodo).hasSize(1);
+		return encontrados.get(0);
+	}
+
+	private static Configuration perfil() throws IOException, ParseException {
+		try (Reader leitor = new InputStreamReader(EventosJfrAspectTest.class.getResourceAsStream("/jfr/minhasfinancas.jfc"),
+				StandardCharsets.UTF_8)) {
+			return Configuration.create(leitor);
+		}
+	}
+
+}
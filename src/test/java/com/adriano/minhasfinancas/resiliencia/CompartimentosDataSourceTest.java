@@ -0,0 +1,167 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.adriano.minhasfinancas.exception.BancoIndisponivelException;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.EstadoDisjuntor;
+import com.zaxxer.hikari.HikariDataSource;
+
+public class CompartimentosDataSourceTest {
+
+	// consulta lenta no H2: só termina pelo tempo limite
+	private static final String CONSULTA_LENTA = "select sum(x) from system_range(1, 100000000000)";
+
+	List<HikariDataSource> pools = new ArrayList<>();
+
+	ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	Disjuntor disjuntor = new Disjuntor(2, 10000, 300);
+
+	CompartimentosDataSource dataSource;
+
+	@Before
+	public void setUp() {
+		Map<Compartimento, DataSource> compartimentos = new EnumMap<>(Compartimento.class);
+		for (Compartimento compartimento : Compartimento.values()) {
+			HikariDataSource pool = new HikariDataSource();
+			pool.setJdbcUrl("jdbc:h2:mem:compartimentos;DB_CLOSE_DELAY=-1");
+			pool.setUsername("sa");
+			pool.setMaximumPoolSize(1);
+			pool.setConnectionTimeout(250);
+			pools.add(pool);
+			compartimentos.put(compartimento, pool);
+		}
+		dataSource = new CompartimentosDataSource(compartimentos, disjuntor);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@Test
+	public void deveCancelarAConsultaLentaPeloTempoLimite() {
+		//cenario
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.setQueryTimeout(1);
+		long inicio = System.nanoTime();
+
+		//acao / verificacao
+		Assertions.assertThatThrownBy(() -> jdbcTemplate.queryForObject(CONSULTA_LENTA, Long.class))
+				.isInstanceOf(QueryTimeoutException.class)
+				.matches(Disjuntor::tempoEsgotado);
+		Assertions.assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio)).isLessThan(10);
+	}
+
+	@Test
+	public void deveManterALeituraDisponivelComOLoteOcupadoPorUmaConsultaLenta() throws Exception {
+		//cenario
+		JdbcTemplate lenta = new JdbcTemplate(dataSource);
+		lenta.setQueryTimeout(2);
+		Future<?> lote = executor.submit(() -> ContextoCompartimento.executar(Compartimento.LOTE,
+				() -> lenta.queryForObject(CONSULTA_LENTA, Long.class)));
+		aguardarEmUso(Compartimento.LOTE);
+
+		//acao
+		Integer leitura = ContextoCompartimento.executar(Compartimento.LEITURA,
+				() -> new JdbcTemplate(dataSource).queryForObject("select 1", Integer.class));
+
+		//verificacao
+		Assertions.assertThat(leitura).isEqualTo(1);
+		Assertions.assertThatThrownBy(() -> ContextoCompartimento.executar(Compartimento.LOTE, () -> conectar()))
+				.hasCauseInstanceOf(SQLTransientConnectionException.class);
+		Assertions.assertThatThrownBy(() -> lote.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+	}
+
+	@Test
+	public void deveAbrirODisjuntorERecusarConexoesNaHora() throws Exception {
+		//cenario
+		Connection ocupada = ContextoCompartimento.executar(Compartimento.LOTE, () -> conectar());
+		for (int i = 0; i < 2; i++) {
+			Assertions.assertThatThrownBy(() -> ContextoCompartimento.executar(Compartimento.LOTE, () -> conectar()))
+					.hasCauseInstanceOf(SQLTransientConnectionException.class);
+		}
+
+		//acao
+		long inicio = System.nanoTime();
+		Throwable recusa = Assertions.catchThrowable(() -> ContextoCompartimento.executar(Compartimento.LEITURA, () -> conectar()));
+		long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+		//verificacao
+		Assertions.assertThat(disjuntor.obterEstado()).isEqualTo(EstadoDisjuntor.ABERTO);
+		Assertions.assertThat(recusa).isInstanceOf(BancoIndisponivelException.class);
+		Assertions.assertThat(duracaoMs).isLessThan(100);
+
+		ocupada.close();
+		Thread.sleep(350);
+		ContextoCompartimento.executar(Compartimento.LEITURA, () -> conectar()).close();
+		Assertions.assertThat(disjuntor.obterEstado()).isEqualTo(EstadoDisjuntor.MEIO_ABERTO);
+		disjuntor.registrarSucesso();
+		Assertions.assertThat(disjuntor.obterEstado()).isEqualTo(EstadoDisjuntor.FECHADO);
+	}
+
+	@Test
+	public void deveResponder503ComODisjuntorAberto() throws Exception {
+		//cenario
+		Filter filtro = new CompartimentosConfig().disjuntorFilter(disjuntor).getFilter();
+		disjuntor.registrarFalha();
+		disjuntor.registrarFalha();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		//acao
+		filtro.doFilter(new MockHttpServletRequest("GET", "/api/lancamentos"), response, chain);
+
+		//verificacao
+		Assertions.assertThat(response.getStatus()).isEqualTo(503);
+		Assertions.assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		Assertions.assertThat(chain.getRequest()).isNull();
+	}
+
+	private Connection conectar() {
+		try {
+			return dataSource.getConnection();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void aguardarEmUso(Compartimento compartimento) throws InterruptedException {
+		HikariDataSource pool = pools.get(compartimento.ordinal());
+		long limite = System.currentTimeMillis() + 5000;
+		while (pool.getHikariPoolMXBean() == null || pool.getHikariPoolMXBean().getActiveConnections() == 0) {
+			if (System.currentTimeMillis() > limite) {
+				Assertions.fail("consulta lenta não começou");
+			}
+			Thread.sleep(10);
+		}
+		Thread.sleep(50);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.adriano.minhasfinancas.resiliencia;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.Compartimento;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+
+/**
+ * Compartimento usado numa requisição inteira, com a sessão aberta na view: a gravação que vem
+ * depois de uma leitura somente leitura precisa sair do pool de escrita, não da conexão da leitura.
+ */
+@SpringBootTest(properties = { "minhasfinancas.banco.compartimentos.escrita=1",
+		"minhasfinancas.banco.compartimentos.espera-conexao-ms=250" })
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class CompartimentosRequisicaoTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Test
+	public void deveGravarNoPoolDeEscritaDepoisDeUmaLeituraNaMesmaRequisicao() throws Exception {
+		//cenario
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		Lancamento lancamento = lancamentoRepository.save(Lancamento.builder().descricao("lancamento").ano(2021).mes(1)
+				.valor(BigDecimal.TEN).tipo(TipoLancamento.RECEITA).status(StatusLancamento.PENDENTE).usuario(usuario).build());
+		DataSource compartimentos = ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+
+		//acao / verificacao
+		try (Connection ocupada = ContextoCompartimento.executar(Compartimento.ESCRITA, () -> conectar(compartimentos))) {
+			// com a única conexão de escrita ocupada, a exclusão espera por ela e desiste
+			mvc.perform(delete("/api/lancamentos/" + lancamento.getId())).andExpect(status().isServiceUnavailable());
+		}
+		Assertions.assertThat(lancamentoRepository.findById(lancamento.getId())).isPresent();
+		mvc.perform(delete("/api/lancamentos/" + lancamento.getId())).andExpect(status().isNoContent());
+		Assertions.assertThat(lancamentoRepository.findById(lancamento.getId())).isNotPresent();
+	}
+
+	private static Connection conectar(DataSource dataSource) {
+		try {
+			return dataSource.getConnection();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
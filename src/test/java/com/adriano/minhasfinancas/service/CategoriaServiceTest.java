@@ -0,0 +1,119 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@Transactional
+public class CategoriaServiceTest {
+
+	@Autowired
+	CategoriaService service;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	Categoria mercado;
+
+	Categoria lazer;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		mercado = service.salvar(Categoria.builder().usuario(usuario).nome("Mercado").build());
+		lazer = service.salvar(Categoria.builder().usuario(usuario).nome("Lazer").build());
+	}
+
+	@Test
+	public void deveOcuparOMenorBitLivre() {
+		//cenario
+		service.deletar(mercado);
+
+		//acao
+		Categoria viagem = service.salvar(Categoria.builder().usuario(usuario).nome("Viagem").build());
+
+		//verificacao
+		Assertions.assertThat(lazer.getBit()).isEqualTo(1);
+		Assertions.assertThat(viagem.getBit()).isEqualTo(0);
+		Assertions.assertThat(viagem.getId()).isEqualTo(Categoria.idDe(usuario.getId(), 0));
+	}
+
+	@Test(expected = RegraNegocioException.class)
+	public void naoDeveSalvarCategoriaComNomeRepetido() {
+		service.salvar(Categoria.builder().usuario(usuario).nome("mercado").build());
+	}
+
+	@Test(expected = RegraNegocioException.class)
+	public void naoDeveAceitarCategoriaDeOutroUsuario() {
+		service.obterMascara(usuario.getId(), Collections.singleton(Categoria.idDe(usuario.getId() + 1, 0)));
+	}
+
+	@Test
+	public void deveTotalizarPorCategoriaEmUmaConsulta() {
+		//cenario
+		long ambas = service.obterMascara(usuario.getId(), Arrays.asList(mercado.getId(), lazer.getId()));
+		lancamentoRepository.inserirEmLote(Arrays.asList(
+				lancamento("100.00", TipoLancamento.RECEITA, ambas),
+				lancamento("30.00", TipoLancamento.DESPESA, 1L << mercado.getBit()),
+				lancamento("5.00", TipoLancamento.DESPESA, 0L)));
+
+		//acao
+		Map<String, BigDecimal> totais = service.obterTotais(usuario.getId());
+
+		//verificacao
+		Assertions.assertThat(totais.keySet()).containsExactly("Mercado", "Lazer");
+		Assertions.assertThat(totais.get("Mercado")).isEqualByComparingTo("70.00");
+		Assertions.assertThat(totais.get("Lazer")).isEqualByComparingTo("100.00");
+	}
+
+	@Test
+	public void deveLiberarOBitNosLancamentosAoDeletar() {
+		//cenario
+		long ambas = service.obterMascara(usuario.getId(), Arrays.asList(mercado.getId(), lazer.getId()));
+		Lancamento lancamento = lancamentoRepository.inserirEmLote(Collections.singletonList(
+				lancamento("10.00", TipoLancamento.DESPESA, ambas))).get(0);
+
+		//acao
+		service.deletar(mercado);
+
+		//verificacao
+		Assertions.assertThat(lancamentoRepository.findById(lancamento.getId()).get().getCategorias())
+				.isEqualTo(1L << lazer.getBit());
+	}
+
+	private Lancamento lancamento(String valor, TipoLancamento tipo, long categorias) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(new BigDecimal(valor))
+				.tipo(tipo).status(StatusLancamento.PENDENTE).usuario(usuario).categorias(categorias).build();
+	}
+
+}
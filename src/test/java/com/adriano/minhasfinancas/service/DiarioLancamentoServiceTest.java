@@ -0,0 +1,146 @@
+package com.adriano.minhasfinancas.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.diario.RegistroDiario;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoRegistroDiario;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.DiarioLancamentoServiceImpl;
+
+// sem @Transactional: o diário só recebe as alterações confirmadas
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class DiarioLancamentoServiceTest {
+
+	@Autowired
+	DiarioLancamentoService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void deveObterOSaldoDeCadaMomento() throws InterruptedException {
+		//cenario
+		Instant inicio = instante();
+		Lancamento receita = lancamentoService.salvar(lancamento("100.00", TipoLancamento.RECEITA));
+		Lancamento despesa = lancamentoService.salvar(lancamento("30.00", TipoLancamento.DESPESA));
+		Instant depoisDasInclusoes = instante();
+		receita.setValor(new BigDecimal("150.00"));
+		lancamentoService.atualizar(receita);
+		lancamentoService.atualizarStatus(despesa, StatusLancamento.CANCELADO);
+		Instant depoisDaAtualizacao = instante();
+
+		//acao
+		lancamentoService.deletar(despesa);
+
+		//verificacao
+		Assertions.assertThat(service.obterSaldoEm(usuario.getId(), inicio)).isEqualByComparingTo("0");
+		Assertions.assertThat(service.obterSaldoEm(usuario.getId(), depoisDasInclusoes)).isEqualByComparingTo("70.00");
+		Assertions.assertThat(service.obterSaldoEm(usuario.getId(), depoisDaAtualizacao)).isEqualByComparingTo("120.00");
+		Assertions.assertThat(service.obterSaldoEm(usuario.getId(), Instant.now()))
+				.isEqualByComparingTo(lancamentoService.obterSaldoPorUsuario(usuario.getId()));
+		Assertions.assertThat(service.obterRegistros(usuario.getId(), inicio, Instant.now()))
+				.extracting(RegistroDiario::getTipo).containsExactly(TipoRegistroDiario.CRIADO, TipoRegistroDiario.CRIADO,
+						TipoRegistroDiario.ATUALIZADO, TipoRegistroDiario.STATUS_ALTERADO, TipoRegistroDiario.DELETADO);
+	}
+
+	@Test
+	public void deveRelerOSaldoDepoisDeUmaExclusaoEmLote() {
+		//cenario
+		lancamentoService.salvar(lancamento("80.00", TipoLancamento.RECEITA));
+		lancamentoService.salvar(lancamento("20.00", TipoLancamento.DESPESA));
+
+		//acao
+		lancamentoService.deletarPorFiltro(usuario.getId(), 2021, 1, null);
+
+		//verificacao
+		Assertions.assertThat(service.obterSaldoEm(usuario.getId(), Instant.now())).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveFalharNaSubidaSemOsSaldosDoRetratoInicial() throws IOException {
+		//cenario
+		LancamentoRepository repository = Mockito.mock(LancamentoRepository.class);
+		Mockito.when(repository.obterSaldosPorUsuario(TipoLancamento.RECEITA)).thenThrow(new IllegalStateException("banco fora do ar"));
+		DiarioLancamentoServiceImpl novo = new DiarioLancamentoServiceImpl(repository,
+				Files.createTempDirectory("diario").toString(), 1000, 100000, 0);
+
+		//acao
+		Assertions.assertThatThrownBy(novo::iniciar).isInstanceOf(IllegalStateException.class);
+
+		//verificacao
+		Mockito.verify(repository, Mockito.times(3)).obterSaldosPorUsuario(TipoLancamento.RECEITA);
+	}
+
+	@Test
+	public void naoDeveSomarDeNovoAInclusaoJaLidaNoRetratoInicial() throws Exception {
+		//cenario: o lançamento 5 foi confirmado antes da leitura do retrato, mas o evento chega depois
+		LancamentoRepository repository = Mockito.mock(LancamentoRepository.class);
+		Mockito.when(repository.obterSaldosPorUsuario(TipoLancamento.RECEITA)).thenReturn(
+				Collections.singletonList(new Object[] { 1l, new BigDecimal("100.00"), 5l }));
+		DiarioLancamentoServiceImpl novo = new DiarioLancamentoServiceImpl(repository,
+				Files.createTempDirectory("diario").toString(), 1000, 100000, 0);
+		novo.iniciar();
+		Usuario dono = Usuario.builder().id(1l).build();
+		try {
+			//acao
+			novo.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, Lancamento.builder().id(5l)
+					.valor(new BigDecimal("100.00")).tipo(TipoLancamento.RECEITA).usuario(dono).build()));
+			novo.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, Lancamento.builder().id(6l)
+					.valor(new BigDecimal("30.00")).tipo(TipoLancamento.RECEITA).usuario(dono).build()));
+
+			//verificacao
+			Assertions.assertThat(novo.obterSaldoEm(1l, Instant.now().plusSeconds(1))).isEqualByComparingTo("130.00");
+		} finally {
+			novo.encerrar();
+		}
+	}
+
+	// os registros do diário têm precisão de milissegundos
+	private Instant instante() throws InterruptedException {
+		Thread.sleep(5);
+		Instant instante = Instant.now();
+		Thread.sleep(5);
+		return instante;
+	}
+
+	private Lancamento lancamento(String valor, TipoLancamento tipo) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(new BigDecimal(valor))
+				.tipo(tipo).usuario(usuario).build();
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class ExpurgoLancamentoServiceTest {
+
+	@Autowired
+	ExpurgoLancamentoService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void deveEsconderOExcluidoEPermitirDesfazer() {
+		//cenario
+		lancamentoService.salvar(lancamento("100.00", TipoLancamento.RECEITA));
+		Lancamento despesa = lancamentoService.salvar(lancamento("30.00", TipoLancamento.DESPESA));
+
+		//acao
+		lancamentoService.deletar(despesa);
+
+		//verificacao
+		Assertions.assertThat(lancamentoRepository.findById(despesa.getId())).isEmpty();
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("100.00");
+		Assertions.assertThat(linhas(despesa)).isEqualTo(1);
+
+		Lancamento restaurado = lancamentoService.restaurar(usuario.getId(), despesa.getId());
+		Assertions.assertThat(restaurado.getDeletadoEm()).isNull();
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("70.00");
+	}
+
+	@Test
+	public void naoDeveDesfazerDepoisDoPrazo() {
+		//cenario
+		Lancamento despesa = lancamentoService.salvar(lancamento("30.00", TipoLancamento.DESPESA));
+		lancamentoService.deletar(despesa);
+		envelhecer(despesa);
+
+		//acao / verificacao
+		Assertions.assertThatThrownBy(() -> lancamentoService.restaurar(usuario.getId(), despesa.getId()))
+				.isInstanceOf(RegraNegocioException.class);
+	}
+
+	@Test
+	public void deveExpurgarApenasOsExcluidosForaDoPrazo() {
+		//cenario
+		Lancamento mantido = lancamentoService.salvar(lancamento("100.00", TipoLancamento.RECEITA));
+		Lancamento recente = lancamentoService.salvar(lancamento("20.00", TipoLancamento.DESPESA));
+		Lancamento antigo = lancamentoService.salvar(lancamento("30.00", TipoLancamento.DESPESA));
+		lancamentoService.deletar(recente);
+		lancamentoService.deletar(antigo);
+		envelhecer(antigo);
+
+		//acao
+		int removidos = service.expurgar();
+
+		//verificacao
+		Assertions.assertThat(removidos).isGreaterThanOrEqualTo(1);
+		Assertions.assertThat(linhas(antigo)).isZero();
+		Assertions.assertThat(linhas(recente)).isEqualTo(1);
+		Assertions.assertThat(linhas(mantido)).isEqualTo(1);
+	}
+
+	// simula uma exclusão feita antes do prazo para desfazer
+	private void envelhecer(Lancamento lancamento) {
+		jdbcTemplate.update("update financas.lancamento set deletado_em = ? where id = ?",
+				Timestamp.valueOf(LocalDateTime.now().minusDays(1)), lancamento.getId());
+	}
+
+	private int linhas(Lancamento lancamento) {
+		return jdbcTemplate.queryForObject("select count(*) from financas.lancamento where id = ?", Integer.class, lancamento.getId());
+	}
+
+	private Lancamento lancamento(String valor, TipoLancamento tipo) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(new BigDecimal(valor))
+				.tipo(tipo).usuario(usuario).build();
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.adriano.minhasfinancas.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+import com.adriano.minhasfinancas.dto.ArquivoExtratoDTO;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.FormatoExtratoMensal;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.ExtratoMensalServiceImpl;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class ExtratoMensalServiceTest {
+
+	static final YearMonth MES = YearMonth.of(2021, 1);
+
+	@Autowired
+	ExtratoMensalService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		lancamentoService.salvar(lancamento("salário; janeiro", "1000.00", TipoLancamento.RECEITA, 1));
+		lancamentoService.salvar(lancamento("<aluguel>", "400.00", TipoLancamento.DESPESA, 1));
+	}
+
+	@Test
+	public void deveGerarOsDoisFormatosComprimidos() throws Exception {
+		//acao
+		ArquivoExtratoDTO csv = aguardar(service, MES, FormatoExtratoMensal.CSV);
+		ArquivoExtratoDTO html = aguardar(service, MES, FormatoExtratoMensal.HTML);
+
+		//verificacao
+		Assertions.assertThat(ler(csv)).startsWith("id;descricao;tipo;status;valor\n")
+				.contains(";\"salário; janeiro\";RECEITA;PENDENTE;1000.00\n").contains(";<aluguel>;DESPESA;PENDENTE;400.00\n");
+		Assertions.assertThat(ler(html)).contains("&lt;aluguel&gt;").contains("Saldo: 600.00");
+		Assertions.assertThat(csv.getNome()).isEqualTo("extrato-2021-01.csv");
+		Assertions.assertThat(csv.getHash()).hasSize(64).isNotEqualTo(html.getHash());
+	}
+
+	@Test
+	public void deveResponderSemEsperarAGeracao() throws Exception {
+		//acao
+		Optional<ArquivoExtratoDTO> primeiroPedido = service.obter(usuario.getId(), MES, FormatoExtratoMensal.CSV);
+
+		//verificacao: a geração segue em segundo plano e o próximo pedido encontra o arquivo
+		Assertions.assertThat(primeiroPedido).isEmpty();
+		Assertions.assertThat(ler(aguardar(service, MES, FormatoExtratoMensal.CSV))).contains(";<aluguel>;DESPESA;PENDENTE;400.00\n");
+	}
+
+	@Test
+	public void deveReaproveitarOExtratoEnquantoOMesNaoMudar() throws Exception {
+		//cenario
+		ArquivoExtratoDTO gerado = aguardar(service, MES, FormatoExtratoMensal.CSV);
+		Object arquivoGerado = identificador(gerado);
+		lancamentoService.salvar(lancamento("outro mês", "50.00", TipoLancamento.DESPESA, 2));
+
+		//acao
+		ArquivoExtratoDTO obtido = service.obter(usuario.getId(), MES, FormatoExtratoMensal.CSV).get();
+
+		//verificacao
+		Assertions.assertThat(obtido.getHash()).isEqualTo(gerado.getHash());
+		Assertions.assertThat(identificador(obtido)).isEqualTo(arquivoGerado);
+	}
+
+	@Test
+	public void deveRegerarQuandoUmLancamentoDoMesMudar() throws Exception {
+		//cenario
+		ArquivoExtratoDTO gerado = aguardar(service, MES, FormatoExtratoMensal.CSV);
+		lancamentoService.salvar(lancamento("mercado", "80.00", TipoLancamento.DESPESA, 1));
+
+		//acao
+		ArquivoExtratoDTO regerado = aguardar(service, MES, FormatoExtratoMensal.CSV);
+
+		//verificacao
+		Assertions.assertThat(regerado.getHash()).isNotEqualTo(gerado.getHash());
+		Assertions.assertThat(ler(regerado)).contains(";mercado;DESPESA;PENDENTE;80.00\n");
+		Assertions.assertThat(Files.exists(gerado.getArquivo())).isFalse();
+	}
+
+	@Test
+	public void deveGerarOsExtratosDoMesFechadoEmSegundoPlano() throws IOException {
+		//cenario
+		YearMonth mes = YearMonth.of(1999, 12);
+		lancamentoService.salvar(lancamento("fechamento", "10.00", TipoLancamento.RECEITA, mes));
+
+		//acao
+		int gerados = service.gerarMes(mes);
+
+		//verificacao
+		Assertions.assertThat(gerados).isGreaterThanOrEqualTo(1);
+		ArquivoExtratoDTO extrato = service.obter(usuario.getId(), mes, FormatoExtratoMensal.CSV).get();
+		Object arquivoGerado = identificador(extrato);
+		Assertions.assertThat(service.gerarMes(mes)).isEqualTo(gerados);
+		Assertions.assertThat(identificador(service.obter(usuario.getId(), mes, FormatoExtratoMensal.CSV).get())).isEqualTo(arquivoGerado);
+	}
+
+	@Test
+	public void deveExpurgarOsExtratosDoUsuarioSemUsoAlemDaRetencao() throws Exception {
+		//cenario: retenção zero, todo usuário fica vencido no primeiro expurgo
+		ExtratoMensalServiceImpl semRetencao = new ExtratoMensalServiceImpl(lancamentoRepository,
+				Files.createTempDirectory("extrato").toString(), 1, 10, 0);
+		semRetencao.iniciar();
+		try {
+			ArquivoExtratoDTO gerado = aguardar(semRetencao, MES, FormatoExtratoMensal.CSV);
+			Thread.sleep(5);
+
+			//acao
+			int removidos = semRetencao.expurgar();
+
+			//verificacao
+			Assertions.assertThat(removidos).isEqualTo(1);
+			Assertions.assertThat(Files.exists(gerado.getArquivo())).isFalse();
+			Assertions.assertThat(semRetencao.obter(usuario.getId(), MES, FormatoExtratoMensal.CSV)).isEmpty();
+		} finally {
+			semRetencao.encerrar();
+		}
+	}
+
+	private ArquivoExtratoDTO aguardar(ExtratoMensalService servico, YearMonth mes, FormatoExtratoMensal formato) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < limite) {
+			Optional<ArquivoExtratoDTO> arquivo = servico.obter(usuario.getId(), mes, formato);
+			if (arquivo.isPresent()) {
+				return arquivo.get();
+			}
+			Thread.sleep(20);
+		}
+		return Assertions.fail("extrato de " + mes + " não foi gerado no prazo");
+	}
+
+	private static String ler(ArquivoExtratoDTO arquivo) throws IOException {
+		try (InputStream entrada = new GZIPInputStream(Files.newInputStream(arquivo.getArquivo()))) {
+			return StreamUtils.copyToString(entrada, StandardCharsets.UTF_8);
+		}
+	}
+
+	// muda quando o arquivo é regravado, mesmo com o mesmo conteúdo
+	private static Object identificador(ArquivoExtratoDTO arquivo) throws IOException {
+		return Files.readAttributes(arquivo.getArquivo(), BasicFileAttributes.class).fileKey();
+	}
+
+	private Lancamento lancamento(String descricao, String valor, TipoLancamento tipo, int mes) {
+		return lancamento(descricao, valor, tipo, YearMonth.of(2021, mes));
+	}
+
+	private Lancamento lancamento(String descricao, String valor, TipoLancamento tipo, YearMonth mes) {
+		return Lancamento.builder().descricao(descricao).ano(mes.getYear()).mes(mes.getMonthValue()).valor(new BigDecimal(valor))
+				.tipo(tipo).usuario(usuario).build();
+	}
+
+}
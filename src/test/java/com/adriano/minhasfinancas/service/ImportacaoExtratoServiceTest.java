@@ -0,0 +1,134 @@
+package com.adriano.minhasfinancas.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.dto.ImportacaoExtratoDTO;
+import com.adriano.minhasfinancas.importacao.FormatoExtrato;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class ImportacaoExtratoServiceTest {
+
+	@Autowired
+	ImportacaoExtratoService service;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void deveIgnorarAsLinhasJaImportadas() {
+		//cenario
+		String csv = "data;descricao;valor\n"
+				+ "05/01/2021;Café;-5,00\n"
+				+ "05/01/2021;Café;-5,00\n"
+				+ "06/01/2021;Salário;100,00\n"
+				+ "07/01/2021;Estorno;0,00\n";
+
+		//acao
+		ImportacaoExtratoDTO primeira = service.importar(usuario, csv(csv), FormatoExtrato.CSV, null);
+		ImportacaoExtratoDTO segunda = service.importar(usuario, csv(csv), FormatoExtrato.CSV, null);
+
+		//verificacao
+		Assertions.assertThat(primeira.getLidas()).isEqualTo(4);
+		Assertions.assertThat(primeira.getImportadas()).isEqualTo(3);
+		Assertions.assertThat(primeira.getRejeitadas()).isEqualTo(1);
+		Assertions.assertThat(primeira.getErros()).containsExactly("Linha 5: Informe um valor válido.");
+		Assertions.assertThat(segunda.getImportadas()).isZero();
+		Assertions.assertThat(segunda.getDuplicadas()).isEqualTo(3);
+		Assertions.assertThat(lancamentoRepository.obterColunasPorUsuario(usuario.getId())).hasSize(3);
+	}
+
+	@Test
+	public void deveContarAsRepeticoesDoDiaNoExtratoForaDeOrdem() {
+		//cenario: os dois cafés do dia 5 estão separados por outra data
+		String foraDeOrdem = "data;descricao;valor\n"
+				+ "05/01/2021;Café;-5,00\n"
+				+ "06/01/2021;Salário;100,00\n"
+				+ "05/01/2021;Café;-5,00\n";
+		String ordenado = "data;descricao;valor\n"
+				+ "05/01/2021;Café;-5,00\n"
+				+ "05/01/2021;Café;-5,00\n"
+				+ "06/01/2021;Salário;100,00\n";
+
+		//acao
+		ImportacaoExtratoDTO primeira = service.importar(usuario, csv(foraDeOrdem), FormatoExtrato.CSV, null);
+		ImportacaoExtratoDTO segunda = service.importar(usuario, csv(ordenado), FormatoExtrato.CSV, null);
+
+		//verificacao
+		Assertions.assertThat(primeira.getImportadas()).isEqualTo(3);
+		Assertions.assertThat(primeira.getDuplicadas()).isZero();
+		Assertions.assertThat(segunda.getImportadas()).isZero();
+		Assertions.assertThat(segunda.getDuplicadas()).isEqualTo(3);
+		Assertions.assertThat(lancamentoRepository.obterColunasPorUsuario(usuario.getId())).hasSize(3);
+	}
+
+	@Test
+	public void deveImportarExtratoGrandeEmFluxo() {
+		//cenario
+		int linhas = 20_000;
+
+		//acao
+		ImportacaoExtratoDTO resultado = service.importar(usuario, extratoGerado(linhas), FormatoExtrato.CSV, null);
+
+		//verificacao
+		Assertions.assertThat(resultado.getImportadas()).isEqualTo(linhas);
+		Assertions.assertThat(resultado.getRejeitadas()).isZero();
+		Assertions.assertThat(lancamentoRepository.obterColunasPorUsuario(usuario.getId())).hasSize(linhas);
+	}
+
+	private static InputStream csv(String conteudo) {
+		return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// gera as linhas sob demanda, sem montar o arquivo em memória
+	private static InputStream extratoGerado(int linhas) {
+		return new InputStream() {
+
+			private int linha = -1;
+			private byte[] atual = "data;descricao;valor\n".getBytes(StandardCharsets.UTF_8);
+			private int posicao;
+
+			@Override
+			public int read() {
+				if (posicao == atual.length) {
+					if (++linha >= linhas) {
+						return -1;
+					}
+					int dia = 1 + linha % 28;
+					atual = (dia + "/" + (1 + linha / 28 % 12) + "/2021;Compra " + linha + ";-" + (1 + linha % 500) + ",99\n")
+							.replaceFirst("^(\\d)/", "0$1/").replaceFirst("/(\\d)/", "/0$1/").getBytes(StandardCharsets.UTF_8);
+					posicao = 0;
+				}
+				return atual[posicao++];
+			}
+		};
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.IngestaoDTO;
+import com.adriano.minhasfinancas.exception.IngestaoSaturadaException;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.IngestaoLancamento;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.SituacaoIngestao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.IngestaoLancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.IngestaoLancamentoServiceImpl;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class IngestaoLancamentoServiceTest {
+
+	@Autowired
+	IngestaoLancamentoService service;
+
+	@Autowired
+	IngestaoLancamentoRepository repository;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void deveGravarOItemAntesDeResponderEProcessarDepois() throws Exception {
+		//acao
+		IngestaoDTO ingestao = service.enfileirar(criarLancamento(1));
+
+		//verificacao
+		Assertions.assertThat(ingestao.getSituacao()).isEqualTo(SituacaoIngestao.PENDENTE.name());
+		Assertions.assertThat(repository.findByProtocolo(ingestao.getProtocolo())).isPresent();
+		IngestaoDTO situacao = aguardarConclusao(ingestao.getProtocolo());
+		Assertions.assertThat(situacao.getSituacao()).isEqualTo(SituacaoIngestao.PROCESSADO.name());
+		Assertions.assertThat(lancamentoRepository.findById(situacao.getIdLancamento())).isPresent();
+	}
+
+	@Test
+	public void deveProcessarOQueFicouPendenteAntesDeUmaQueda() throws Exception {
+		//cenario: linha aceita por um processo que caiu antes de gravar o lançamento
+		IngestaoLancamento pendente = repository.save(item(1));
+		IngestaoLancamentoServiceImpl reiniciado = novoServico(10);
+
+		//acao
+		reiniciado.iniciar();
+		IngestaoDTO situacao;
+		try {
+			situacao = aguardarConclusao(pendente.getProtocolo());
+		} finally {
+			reiniciado.encerrar();
+		}
+
+		//verificacao
+		Assertions.assertThat(situacao.getSituacao()).isEqualTo(SituacaoIngestao.PROCESSADO.name());
+		Assertions.assertThat(lancamentoRepository.findById(situacao.getIdLancamento())).isPresent();
+	}
+
+	@Test
+	public void deveMarcarErroSoNoItemInvalidoDoLote() throws Exception {
+		//cenario
+		IngestaoLancamento invalido = repository.save(item(13));
+		IngestaoLancamento valido = repository.save(item(2));
+
+		//acao
+		IngestaoDTO situacaoInvalido = aguardarConclusao(invalido.getProtocolo());
+		IngestaoDTO situacaoValido = aguardarConclusao(valido.getProtocolo());
+
+		//verificacao
+		Assertions.assertThat(situacaoInvalido.getSituacao()).isEqualTo(SituacaoIngestao.ERRO.name());
+		Assertions.assertThat(situacaoInvalido.getMensagem()).isEqualTo("Informe um mês válido");
+		Assertions.assertThat(situacaoValido.getSituacao()).isEqualTo(SituacaoIngestao.PROCESSADO.name());
+	}
+
+	@Test
+	public void deveRecusarQuandoAFilaEstiverCheia() {
+		//cenario
+		IngestaoLancamentoServiceImpl semConsumidor = novoServico(1);
+		semConsumidor.enfileirar(criarLancamento(1));
+
+		//acao
+		Throwable exception = Assertions.catchThrowable(() -> semConsumidor.enfileirar(criarLancamento(1)));
+
+		//verificacao
+		Assertions.assertThat(exception).isInstanceOf(IngestaoSaturadaException.class);
+	}
+
+	@Test
+	public void naoDeveEnfileirarLancamentoInvalido() {
+		//cenario
+		long antes = repository.count();
+
+		//acao
+		Throwable exception = Assertions.catchThrowable(() -> service.enfileirar(criarLancamento(13)));
+
+		//verificacao
+		Assertions.assertThat(exception).isInstanceOf(RegraNegocioException.class);
+		Assertions.assertThat(repository.count()).isEqualTo(antes);
+	}
+
+	@Test
+	public void deveExpurgarSoOsConcluidosForaDaRetencao() {
+		//cenario
+		IngestaoLancamento antigo = item(1);
+		antigo.setSituacao(SituacaoIngestao.PROCESSADO);
+		antigo.setConcluidoEm(LocalDateTime.now().minusHours(2));
+		antigo = repository.save(antigo);
+		IngestaoLancamento recente = item(1);
+		recente.setSituacao(SituacaoIngestao.PROCESSADO);
+		recente.setConcluidoEm(LocalDateTime.now());
+		recente = repository.save(recente);
+
+		//acao
+		novoServico(10).expurgar();
+
+		//verificacao
+		Assertions.assertThat(repository.findById(antigo.getId())).isEmpty();
+		Assertions.assertThat(repository.findById(recente.getId())).isPresent();
+	}
+
+	private IngestaoLancamentoServiceImpl novoServico(int capacidade) {
+		return new IngestaoLancamentoServiceImpl(repository, lancamentoService, transactionTemplate, capacidade, 5, 50, 30);
+	}
+
+	private IngestaoDTO aguardarConclusao(String protocolo) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < limite) {
+			IngestaoDTO situacao = service.obterSituacao(protocolo).get();
+			if (!SituacaoIngestao.PENDENTE.name().equals(situacao.getSituacao())) {
+				return situacao;
+			}
+			Thread.sleep(20);
+		}
+		return Assertions.fail("ingestão " + protocolo + " não foi concluída");
+	}
+
+	private IngestaoLancamento item(int mes) {
+		return IngestaoLancamento.builder().protocolo(UUID.randomUUID().toString()).situacao(SituacaoIngestao.PENDENTE)
+				.idUsuario(usuario.getId()).descricao("lancamento").ano(2021).mes(mes).valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.DESPESA).dataCadastro(LocalDateTime.now()).build();
+	}
+
+	private Lancamento criarLancamento(int mes) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(mes)
+				.valor(BigDecimal.TEN).tipo(TipoLancamento.DESPESA).usuario(usuario).build();
+	}
+}
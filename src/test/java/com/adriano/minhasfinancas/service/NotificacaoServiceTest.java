@@ -0,0 +1,203 @@
+package com.adriano.minhasfinancas.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.service.impl.NotificacaoServiceImpl;
+
+public class NotificacaoServiceTest {
+
+	static final long PRAZO_ENVIO_MS = 200;
+
+	LancamentoService lancamentoService = Mockito.mock(LancamentoService.class);
+
+	Deque<EmitterFalso> proximos = new ArrayDeque<>();
+
+	NotificacaoServiceImpl service;
+
+	@Before
+	public void setUp() {
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(Mockito.anyLong())).thenReturn(BigDecimal.TEN);
+		service = new NotificacaoServiceImpl(lancamentoService, 60000, 64, 2, 2, 100, 8, PRAZO_ENVIO_MS) {
+			@Override
+			protected SseEmitter criarEmitter(long timeoutMs) {
+				return proximos.poll();
+			}
+		};
+		service.iniciar();
+	}
+
+	@After
+	public void tearDown() {
+		service.encerrar();
+	}
+
+	@Test
+	public void deveEntregarOEventoSoAosAssinantesDoUsuario() throws Exception {
+		//cenario
+		EmitterFalso primeiro = assinar(1l, new EmitterFalso());
+		EmitterFalso segundo = assinar(1l, new EmitterFalso());
+		EmitterFalso outroUsuario = assinar(2l, new EmitterFalso());
+
+		//acao
+		publicar(1l);
+
+		//verificacao
+		aguardar(() -> primeiro.enviados.size() == 1 && segundo.enviados.size() == 1);
+		Assertions.assertThat(outroUsuario.tentativas.get()).isZero();
+	}
+
+	@Test
+	public void naoDeveAtrasarOsOutrosAssinantesPorUmClienteLento() throws Exception {
+		//cenario
+		CountDownLatch liberar = new CountDownLatch(1);
+		EmitterFalso lento = assinar(1l, new EmitterFalso(liberar));
+		EmitterFalso rapido = assinar(1l, new EmitterFalso());
+
+		try {
+			//acao
+			publicar(1l);
+
+			//verificacao: o rápido recebe enquanto o envio do lento está parado
+			aguardar(() -> rapido.enviados.size() == 1);
+			aguardar(() -> lento.completo);
+
+			publicar(1l);
+			aguardar(() -> rapido.enviados.size() == 2);
+			Assertions.assertThat(lento.tentativas.get()).isEqualTo(1);
+		} finally {
+			liberar.countDown();
+		}
+	}
+
+	@Test
+	public void deveRemoverOAssinanteQuandoOEnvioFalhar() throws Exception {
+		//cenario
+		EmitterFalso desconectado = assinar(1l, new EmitterFalso());
+		desconectado.falhar = true;
+		EmitterFalso conectado = assinar(1l, new EmitterFalso());
+		publicar(1l);
+		aguardar(() -> desconectado.tentativas.get() == 1 && conectado.enviados.size() == 1);
+
+		//acao
+		publicar(1l);
+
+		//verificacao
+		aguardar(() -> conectado.enviados.size() == 2);
+		Assertions.assertThat(desconectado.tentativas.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void deveRemoverOAssinanteQuandoOEmitterForConcluido() throws Exception {
+		//cenario
+		EmitterFalso emitter = assinar(1l, new EmitterFalso());
+
+		//acao: o cliente fechou a conexão
+		emitter.aoConcluir.run();
+		publicar(1l);
+
+		//verificacao: sem assinantes o saldo nem é calculado
+		Thread.sleep(PRAZO_ENVIO_MS);
+		Assertions.assertThat(emitter.tentativas.get()).isZero();
+		Mockito.verify(lancamentoService, Mockito.never()).obterSaldoPorUsuario(Mockito.anyLong());
+	}
+
+	@Test
+	public void deveEncerrarAConexaoMaisAntigaAcimaDoLimiteDoUsuario() {
+		//cenario
+		EmitterFalso primeiro = assinar(1l, new EmitterFalso());
+		EmitterFalso segundo = assinar(1l, new EmitterFalso());
+
+		//acao
+		assinar(1l, new EmitterFalso());
+
+		//verificacao
+		Assertions.assertThat(primeiro.completo).isTrue();
+		Assertions.assertThat(segundo.completo).isFalse();
+	}
+
+	private EmitterFalso assinar(Long idUsuario, EmitterFalso emitter) {
+		proximos.add(emitter);
+		service.assinar(idUsuario);
+		return emitter;
+	}
+
+	private void publicar(Long idUsuario) {
+		Lancamento lancamento = Lancamento.builder().id(10l).descricao("lancamento").ano(2021).mes(1)
+				.valor(BigDecimal.TEN).tipo(TipoLancamento.DESPESA).usuario(Usuario.builder().id(idUsuario).build()).build();
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, lancamento));
+	}
+
+	private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (!condicao.getAsBoolean()) {
+			if (System.currentTimeMillis() > limite) {
+				Assertions.fail("condição não atendida no prazo");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	// no lugar da conexão HTTP: registra os envios e pode travar ou falhar como um cliente real
+	static class EmitterFalso extends SseEmitter {
+
+		final List<SseEventBuilder> enviados = new CopyOnWriteArrayList<>();
+		final AtomicInteger tentativas = new AtomicInteger();
+		final CountDownLatch liberar;
+		volatile boolean falhar;
+		volatile boolean completo;
+		volatile Runnable aoConcluir;
+
+		EmitterFalso() {
+			this(new CountDownLatch(0));
+		}
+
+		EmitterFalso(CountDownLatch liberar) {
+			this.liberar = liberar;
+		}
+
+		@Override
+		public void send(SseEventBuilder mensagem) throws IOException {
+			tentativas.incrementAndGet();
+			if (falhar) {
+				throw new IOException("conexão fechada pelo cliente");
+			}
+			try {
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			enviados.add(mensagem);
+		}
+
+		@Override
+		public synchronized void complete() {
+			completo = true;
+		}
+
+		@Override
+		public synchronized void onCompletion(Runnable callback) {
+			aoConcluir = callback;
+		}
+	}
+}
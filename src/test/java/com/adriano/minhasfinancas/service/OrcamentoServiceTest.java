@@ -0,0 +1,165 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.Categoria;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Orcamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.CategoriaRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.OrcamentoRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.OrcamentoServiceImpl;
+
+// sem @Transactional: os contadores só mudam depois da confirmação de cada gravação
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class OrcamentoServiceTest {
+
+	@Autowired
+	OrcamentoService service;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	CategoriaService categoriaService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	Orcamento orcamento;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(UUID.randomUUID() + "@email.com").senha("senha").build());
+		orcamento = service.salvar(Orcamento.builder().usuario(usuario).ano(2021).mes(1).limite(new BigDecimal("100.00")).build());
+	}
+
+	@Test
+	public void deveAvisarSoNaDespesaQueUltrapassaOLimite() {
+		//cenario
+		Lancamento primeira = lancamentoService.salvar(despesa("60.00", 0L));
+		Assertions.assertThat(service.verificar(null, primeira)).isEmpty();
+		Lancamento receita = lancamentoService.salvar(lancamento("500.00", TipoLancamento.RECEITA, 0L));
+		Assertions.assertThat(service.verificar(null, receita)).isEmpty();
+
+		//acao
+		Lancamento segunda = lancamentoService.salvar(despesa("50.00", 0L));
+
+		//verificacao
+		Assertions.assertThat(service.verificar(null, segunda)).extracting(Orcamento::getId).containsExactly(orcamento.getId());
+		Lancamento terceira = lancamentoService.salvar(despesa("10.00", 0L));
+		Assertions.assertThat(service.verificar(null, terceira)).isEmpty();
+		Assertions.assertThat(service.obterGasto(orcamento)).isEqualByComparingTo("120.00");
+	}
+
+	@Test
+	public void deveAplicarSoADiferencaNasAtualizacoes() {
+		//cenario
+		Lancamento lancamento = lancamentoService.salvar(despesa("80.00", 0L));
+		service.obterGasto(orcamento);
+
+		//acao
+		Lancamento anterior = LancamentoAlteradoEvent.copiar(lancamento);
+		lancamento.setValor(new BigDecimal("120.00"));
+		Lancamento atualizado = lancamentoService.atualizar(lancamento);
+
+		//verificacao
+		Assertions.assertThat(service.verificar(anterior, atualizado)).extracting(Orcamento::getId).containsExactly(orcamento.getId());
+		Assertions.assertThat(service.obterGasto(orcamento)).isEqualByComparingTo("120.00");
+
+		//acao
+		lancamentoService.atualizarStatus(atualizado, StatusLancamento.CANCELADO);
+
+		//verificacao
+		Assertions.assertThat(service.obterGasto(orcamento)).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveSepararOLimiteDaCategoria() {
+		//cenario
+		Categoria mercado = categoriaService.salvar(Categoria.builder().usuario(usuario).nome("Mercado").build());
+		Orcamento doMercado = service.salvar(Orcamento.builder().usuario(usuario).ano(2021).mes(1)
+				.idCategoria(mercado.getId()).limite(new BigDecimal("15.00")).build());
+		lancamentoService.salvar(despesa("20.00", 0L));
+
+		//acao
+		Lancamento comCategoria = lancamentoService.salvar(despesa("20.00", 1L << mercado.getBit()));
+
+		//verificacao
+		Assertions.assertThat(service.verificar(null, comCategoria)).extracting(Orcamento::getId).containsExactly(doMercado.getId());
+		Assertions.assertThat(service.obterGasto(doMercado)).isEqualByComparingTo("20.00");
+		Assertions.assertThat(service.obterGasto(orcamento)).isEqualByComparingTo("40.00");
+	}
+
+	@Test(expected = RegraNegocioException.class)
+	public void naoDeveSalvarDoisOrcamentosParaOMesmoMes() {
+		service.salvar(Orcamento.builder().usuario(usuario).ano(2021).mes(1).limite(BigDecimal.TEN).build());
+	}
+
+	@Test
+	public void deveDescartarOGastoLidoEnquantoUmaEscritaConfirmava() {
+		//cenario: a leitura do mês já vê a despesa, mas a diferença dela só chega depois
+		OrcamentoRepository orcamentoRepository = Mockito.mock(OrcamentoRepository.class);
+		LancamentoRepository lancamentoRepository = Mockito.mock(LancamentoRepository.class);
+		OrcamentoServiceImpl isolado = new OrcamentoServiceImpl(orcamentoRepository, lancamentoRepository, Mockito.mock(CategoriaRepository.class));
+		Usuario dono = Usuario.builder().id(1l).build();
+		Orcamento doMes = Orcamento.builder().id(1l).usuario(dono).ano(2021).mes(1).limite(new BigDecimal("100.00")).build();
+		Mockito.when(orcamentoRepository.findByUsuarioId(1l)).thenReturn(Collections.singletonList(doMes));
+		LancamentoAlteradoEvent criacao = new LancamentoAlteradoEvent(TipoAlteracao.CRIADO,
+				Lancamento.builder().id(1l).ano(2021).mes(1).valor(new BigDecimal("30.00")).tipo(TipoLancamento.DESPESA)
+						.status(StatusLancamento.PENDENTE).usuario(dono).categorias(0L).build());
+		AtomicBoolean commitDuranteALeitura = new AtomicBoolean(true);
+		Mockito.when(lancamentoRepository.obterDespesasDoMesPorCategorias(1l, 2021, 1, TipoLancamento.DESPESA, StatusLancamento.CANCELADO))
+				.thenAnswer(invocacao -> {
+					if (commitDuranteALeitura.getAndSet(false)) {
+						isolado.antesDeConfirmarLancamento(criacao);
+					}
+					return Collections.singletonList(new Object[] { 0L, new BigDecimal("30.00") });
+				});
+		Assertions.assertThat(isolado.obterGasto(doMes)).isEqualByComparingTo("30.00");
+
+		//acao: o commit termina depois da carga
+		isolado.aoAlterarLancamento(criacao);
+		isolado.aoConcluirLancamento(criacao);
+
+		//verificacao: a despesa conta uma vez só
+		Assertions.assertThat(isolado.obterGasto(doMes)).isEqualByComparingTo("30.00");
+		Mockito.verify(lancamentoRepository, Mockito.times(2))
+				.obterDespesasDoMesPorCategorias(1l, 2021, 1, TipoLancamento.DESPESA, StatusLancamento.CANCELADO);
+	}
+
+	private Lancamento despesa(String valor, long categorias) {
+		return lancamento(valor, TipoLancamento.DESPESA, categorias);
+	}
+
+	private Lancamento lancamento(String valor, TipoLancamento tipo, long categorias) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(new BigDecimal(valor))
+				.tipo(tipo).usuario(usuario).categorias(categorias).build();
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collections;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import com.adriano.minhasfinancas.dto.PainelDTO;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.service.impl.PainelServiceImpl;
+
+public class PainelServiceTest {
+
+	LancamentoService lancamentoService = Mockito.mock(LancamentoService.class);
+
+	LancamentoRepository repository = Mockito.mock(LancamentoRepository.class);
+
+	PainelServiceImpl service = new PainelServiceImpl(lancamentoService, repository, 4, 10, 300);
+
+	@After
+	public void encerrar() {
+		service.encerrar();
+	}
+
+	@Test
+	public void deveResponderNoPrazoSemASecaoLenta() {
+		//cenario
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenAnswer(invocacao -> {
+			Thread.sleep(5000);
+			return BigDecimal.TEN;
+		});
+		Mockito.when(repository.obterTotaisDoMesPorTipo(1l, 2021, 1)).thenReturn(Collections.emptyList());
+		Mockito.when(repository.buscarUltimos(Mockito.eq(1l), Mockito.any(Pageable.class))).thenReturn(Collections.emptyList());
+		Mockito.when(repository.obterQuantidadesPorTipoNoStatus(1l, StatusLancamento.PENDENTE)).thenThrow(new IllegalStateException("falhou"));
+
+		//acao
+		long inicio = System.currentTimeMillis();
+		PainelDTO painel = service.obterPainel(1l, YearMonth.of(2021, 1), 10);
+
+		//verificacao
+		Assertions.assertThat(System.currentTimeMillis() - inicio).isLessThan(2000);
+		Assertions.assertThat(painel.getSecoesAusentes()).containsExactly("saldo", "pendentes");
+		Assertions.assertThat(painel.getSaldo()).isNull();
+		Assertions.assertThat(painel.getResumoMes()).containsEntry("RECEITA", BigDecimal.ZERO);
+		Assertions.assertThat(painel.getUltimosLancamentos()).isEmpty();
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.adriano.minhasfinancas.coalescencia.ChamadasUnicas;
+import com.adriano.minhasfinancas.event.LancamentoAlteradoEvent;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoAlteracao;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.service.impl.ResumoLancamentoServiceImpl;
+
+public class ResumoLancamentoServiceTest {
+
+	static final YearMonth FEVEREIRO = YearMonth.of(2021, 2);
+
+	LancamentoRepository repository = Mockito.mock(LancamentoRepository.class);
+
+	ResumoLancamentoServiceImpl service = new ResumoLancamentoServiceImpl(repository, new ChamadasUnicas(2000), 100);
+
+	@After
+	public void encerrar() {
+		service.encerrar();
+	}
+
+	@Test
+	public void deveResponderPeloBancoEnquantoORetratoNaoEstiverCarregado() {
+		//cenario
+		List<Object[]> totais = new ArrayList<>();
+		totais.add(new Object[] { TipoLancamento.RECEITA, new BigDecimal("150.00") });
+		Mockito.when(repository.obterTotaisPorTipo(1l)).thenReturn(totais);
+
+		//acao
+		BigDecimal receitas = service.obterTotaisPorTipo(1l).get(TipoLancamento.RECEITA.name());
+
+		//verificacao
+		Assertions.assertThat(receitas).isEqualByComparingTo("150.00");
+		Assertions.assertThat(service.obterTotaisPorTipo(1l).get(TipoLancamento.DESPESA.name())).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveManterORetratoAtualizadoNasEscritas() {
+		//cenario
+		Mockito.when(repository.obterColunasPorUsuario(1l)).thenReturn(Arrays.asList(
+				new Object[] { 1l, 2021, 1, new BigDecimal("100.00"), TipoLancamento.RECEITA, StatusLancamento.PENDENTE },
+				new Object[] { 2l, 2021, 2, new BigDecimal("30.50"), TipoLancamento.DESPESA, StatusLancamento.EFETIVADO }));
+		Mockito.when(repository.obterTotaisPorTipo(1l)).thenReturn(Collections.emptyList());
+		service.obterTotaisPorTipo(1l);
+		Mockito.verify(repository, Mockito.timeout(2000)).obterColunasPorUsuario(1l);
+		aguardarRetrato();
+
+		//acao
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, lancamento(3l, 2, "20.00", TipoLancamento.DESPESA)));
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.DELETADO, lancamento(1l, 1, "100.00", TipoLancamento.RECEITA)));
+
+		//verificacao
+		Assertions.assertThat(service.obterTotaisPorTipo(1l).get(TipoLancamento.DESPESA.name())).isEqualByComparingTo("50.50");
+		Assertions.assertThat(service.obterTotaisPorTipo(1l).get(TipoLancamento.RECEITA.name())).isEqualByComparingTo("0");
+		Assertions.assertThat(service.obterTotaisPorMes(1l, 2021).get(2)).isEqualByComparingTo("-50.50");
+		Assertions.assertThat(service.obterTotaisPorStatus(1l).get(StatusLancamento.EFETIVADO.name())).isEqualByComparingTo("30.50");
+	}
+
+	@Test
+	public void deveSomarQualquerPeriodoDepoisDeCarregarOsMeses() {
+		//cenario
+		Mockito.when(repository.obterSaldoDoPeriodo(1l, 2019, 3, 2022, 8, TipoLancamento.RECEITA)).thenReturn(new BigDecimal("69.50"));
+		Mockito.when(repository.obterColunasPorUsuario(1l)).thenReturn(Arrays.asList(
+				new Object[] { 1l, 2019, 3, new BigDecimal("100.00"), TipoLancamento.RECEITA, StatusLancamento.PENDENTE },
+				new Object[] { 2l, 2021, 2, new BigDecimal("30.50"), TipoLancamento.DESPESA, StatusLancamento.EFETIVADO },
+				new Object[] { 3l, 2022, 9, new BigDecimal("10.00"), TipoLancamento.DESPESA, StatusLancamento.PENDENTE }));
+		Assertions.assertThat(service.obterSaldoDoPeriodo(1l, YearMonth.of(2019, 3), YearMonth.of(2022, 8))).isEqualByComparingTo("69.50");
+		Mockito.verify(repository, Mockito.timeout(2000)).obterColunasPorUsuario(1l);
+		aguardarSaldos();
+
+		//acao
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.CRIADO,
+				Lancamento.builder().id(4l).ano(2030).mes(1).valor(new BigDecimal("5.00")).tipo(TipoLancamento.RECEITA)
+						.usuario(Usuario.builder().id(1l).build()).build()));
+		Lancamento anterior = lancamento(2l, 2, "30.50", TipoLancamento.DESPESA);
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(TipoAlteracao.ATUALIZADO, anterior,
+				lancamento(2l, 5, "40.00", TipoLancamento.DESPESA)));
+
+		//verificacao
+		Assertions.assertThat(service.obterSaldoDoPeriodo(1l, YearMonth.of(2019, 3), YearMonth.of(2022, 8))).isEqualByComparingTo("60.00");
+		Assertions.assertThat(service.obterSaldoDoPeriodo(1l, YearMonth.of(2021, 3), YearMonth.of(2021, 12))).isEqualByComparingTo("-40.00");
+		Assertions.assertThat(service.obterSaldoDoPeriodo(1l, YearMonth.of(2021, 2), YearMonth.of(2021, 2))).isEqualByComparingTo("0");
+		Assertions.assertThat(service.obterSaldoDoPeriodo(1l, YearMonth.of(1000, 1), YearMonth.of(9999, 12))).isEqualByComparingTo("55.00");
+		Mockito.verify(repository, Mockito.times(1)).obterSaldoDoPeriodo(1l, 2019, 3, 2022, 8, TipoLancamento.RECEITA);
+	}
+
+	@Test
+	public void deveDescartarACargaLidaEnquantoUmaEscritaConfirmava() throws InterruptedException {
+		//cenario: a leitura já vê o lançamento 2, mas a diferença dele só chega depois da instalação
+		LancamentoAlteradoEvent criacao = new LancamentoAlteradoEvent(TipoAlteracao.CRIADO, lancamento(2l, 2, "30.00", TipoLancamento.DESPESA));
+		AtomicBoolean commitDuranteALeitura = new AtomicBoolean(true);
+		Mockito.when(repository.obterColunasPorUsuario(1l)).thenAnswer(invocacao -> {
+			if (commitDuranteALeitura.getAndSet(false)) {
+				service.antesDeConfirmarLancamento(criacao);
+			}
+			return Arrays.asList(
+					new Object[] { 1l, 2021, 1, new BigDecimal("100.00"), TipoLancamento.RECEITA, StatusLancamento.PENDENTE },
+					new Object[] { 2l, 2021, 2, new BigDecimal("30.00"), TipoLancamento.DESPESA, StatusLancamento.PENDENTE });
+		});
+		service.obterSaldoDoPeriodo(1l, FEVEREIRO, FEVEREIRO);
+		Mockito.verify(repository, Mockito.timeout(2000)).obterColunasPorUsuario(1l);
+		Thread.sleep(100);
+
+		//acao: o commit termina depois da tentativa de instalar a carga
+		service.aoAlterarLancamento(criacao);
+		service.aoConcluirLancamento(criacao);
+
+		//verificacao: a carga seguinte vale e o lançamento conta uma vez só
+		long limite = System.currentTimeMillis() + 2000;
+		BigDecimal saldo = BigDecimal.ZERO;
+		while (saldo.signum() == 0 && System.currentTimeMillis() < limite) {
+			saldo = service.obterSaldoDoPeriodo(1l, FEVEREIRO, FEVEREIRO);
+			Thread.yield();
+		}
+		Assertions.assertThat(saldo).isEqualByComparingTo("-30.00");
+		Mockito.verify(repository, Mockito.times(2)).obterColunasPorUsuario(1l);
+	}
+
+	@Test
+	public void deveDescartarOUsuarioMenosUsadoAoPassarDoMaximo() {
+		//cenario: cabem dois usuários na memória
+		ResumoLancamentoServiceImpl limitado = new ResumoLancamentoServiceImpl(repository, new ChamadasUnicas(2000), 2);
+		Mockito.when(repository.obterColunasPorUsuario(Mockito.anyLong())).thenReturn(Collections.singletonList(
+				new Object[] { 1l, 2021, 1, new BigDecimal("10.00"), TipoLancamento.RECEITA, StatusLancamento.PENDENTE }));
+		Mockito.when(repository.obterTotaisPorTipo(Mockito.anyLong())).thenReturn(Collections.emptyList());
+		try {
+			aguardarRetrato(limitado, 1l);
+			aguardarRetrato(limitado, 2l);
+			limitado.obterTotaisPorTipo(1l);
+
+			//acao
+			aguardarRetrato(limitado, 3l);
+
+			//verificacao: o usuário 2 saiu da memória e volta a ser respondido pelo banco
+			Assertions.assertThat(limitado.obterTotaisPorTipo(1l).get(TipoLancamento.RECEITA.name())).isEqualByComparingTo("10.00");
+			Assertions.assertThat(limitado.obterTotaisPorTipo(2l).get(TipoLancamento.RECEITA.name())).isEqualByComparingTo("0");
+		} finally {
+			limitado.encerrar();
+		}
+	}
+
+	private void aguardarRetrato(ResumoLancamentoServiceImpl servico, Long idUsuario) {
+		long limite = System.currentTimeMillis() + 2000;
+		while (System.currentTimeMillis() < limite) {
+			if (servico.obterTotaisPorTipo(idUsuario).get(TipoLancamento.RECEITA.name()).signum() > 0) {
+				return;
+			}
+			Thread.yield();
+		}
+		Assertions.fail("retrato não foi carregado: " + idUsuario);
+	}
+
+	private void aguardarSaldos() {
+		long limite = System.currentTimeMillis() + 2000;
+		while (System.currentTimeMillis() < limite) {
+			if (service.obterSaldoDoPeriodo(1l, YearMonth.of(2022, 9), YearMonth.of(2022, 9)).signum() < 0) {
+				return;
+			}
+			Thread.yield();
+		}
+		Assertions.fail("saldos por mês não foram carregados");
+	}
+
+	private void aguardarRetrato() {
+		long limite = System.currentTimeMillis() + 2000;
+		while (System.currentTimeMillis() < limite) {
+			if (service.obterTotaisPorTipo(1l).get(TipoLancamento.RECEITA.name()).signum() > 0) {
+				return;
+			}
+			Thread.yield();
+		}
+		Assertions.fail("retrato não foi carregado");
+	}
+
+	private Lancamento lancamento(Long id, Integer mes, String valor, TipoLancamento tipo) {
+		return Lancamento.builder().id(id).ano(2021).mes(mes).valor(new BigDecimal(valor)).tipo(tipo)
+				.status(StatusLancamento.PENDENTE).usuario(Usuario.builder().id(1l).build()).build();
+	}
+}
@@ -0,0 +1,158 @@
+package com.adriano.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.adriano.minhasfinancas.dto.ProgressoSnapshotDTO;
+import com.adriano.minhasfinancas.exception.RegraNegocioException;
+import com.adriano.minhasfinancas.model.entity.ExecucaoSnapshot;
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.SaldoSnapshot;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.model.repository.ExecucaoSnapshotRepository;
+import com.adriano.minhasfinancas.model.repository.LancamentoRepository;
+import com.adriano.minhasfinancas.model.repository.SaldoSnapshotRepository;
+import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.SnapshotSaldoServiceImpl;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class SnapshotSaldoServiceTest {
+
+	static final LocalDate DATA = LocalDate.of(2001, 1, 1);
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	ExecucaoSnapshotRepository execucaoRepository;
+
+	@Autowired
+	SaldoSnapshotRepository snapshotRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	SnapshotSaldoServiceImpl service;
+
+	Usuario comLancamentos;
+
+	Usuario semLancamentos;
+
+	List<Lancamento> lancamentos = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		// janelas de produção: a geração completa percorre a faixa de ids de todos os testes no banco compartilhado
+		service = new SnapshotSaldoServiceImpl(jdbcTemplate, transactionTemplate, execucaoRepository, 100000, 10000, 2, 3);
+		comLancamentos = usuarioRepository.save(Usuario.builder().nome("a").email("a@snapshot.com").senha("s").build());
+		semLancamentos = usuarioRepository.save(Usuario.builder().nome("b").email("b@snapshot.com").senha("s").build());
+		lancamentos.add(criarLancamento("100.10", TipoLancamento.RECEITA));
+		lancamentos.add(criarLancamento("40.00", TipoLancamento.DESPESA));
+		lancamentos.add(criarLancamento("10.05", TipoLancamento.RECEITA));
+		lancamentos.add(criarLancamento("5.00", TipoLancamento.DESPESA));
+		lancamentos.add(criarLancamento("1.00", TipoLancamento.RECEITA));
+	}
+
+	@After
+	public void tearDown() {
+		jdbcTemplate.update("delete from financas.saldo_snapshot where data_referencia = ?", java.sql.Date.valueOf(DATA));
+		execucaoRepository.deleteById(DATA);
+		lancamentoRepository.deleteAll(lancamentos);
+		usuarioRepository.delete(comLancamentos);
+		usuarioRepository.delete(semLancamentos);
+		service.encerrar();
+	}
+
+	@Test
+	public void deveGerarOSnapshotDeTodosOsUsuarios() {
+		//acao
+		ProgressoSnapshotDTO progresso = service.gerar(DATA);
+
+		//verificacao
+		Assertions.assertThat(progresso.getSituacao()).isEqualTo(SituacaoExecucao.CONCLUIDO.name());
+		Assertions.assertThat(progresso.getPercentual()).isEqualTo(100);
+		SaldoSnapshot snapshot = snapshotRepository.findByDataReferenciaAndIdUsuario(DATA, comLancamentos.getId()).get(0);
+		Assertions.assertThat(snapshot.getReceitas()).isEqualByComparingTo("111.15");
+		Assertions.assertThat(snapshot.getDespesas()).isEqualByComparingTo("45.00");
+		Assertions.assertThat(snapshot.getSaldo()).isEqualByComparingTo("66.15");
+		Assertions.assertThat(snapshotRepository.findByDataReferenciaAndIdUsuario(DATA, semLancamentos.getId()).get(0).getSaldo())
+				.isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveRetomarAExecucaoAPartirDoUltimoCheckpoint() {
+		//cenario: execução interrompida depois de somar os dois primeiros lançamentos; a retomada vai só até o
+		// último lançamento deste teste, então janelas pequenas cobrem vários checkpoints sem percorrer o banco
+		SnapshotSaldoServiceImpl janelasPequenas = new SnapshotSaldoServiceImpl(jdbcTemplate, transactionTemplate, execucaoRepository, 2, 1, 2, 3);
+		Long checkpoint = lancamentos.get(1).getId();
+		execucaoRepository.save(ExecucaoSnapshot.builder().dataReferencia(DATA).ultimoId(checkpoint)
+				.maximoId(lancamentos.get(4).getId()).situacao(SituacaoExecucao.EM_ANDAMENTO).build());
+		snapshotRepository.save(SaldoSnapshot.builder().dataReferencia(DATA).idUsuario(comLancamentos.getId())
+				.receitas(new BigDecimal("100.10")).despesas(new BigDecimal("40.00")).saldo(new BigDecimal("60.10")).build());
+
+		try {
+			//acao
+			janelasPequenas.gerar(DATA);
+		} finally {
+			janelasPequenas.encerrar();
+		}
+
+		//verificacao
+		SaldoSnapshot snapshot = snapshotRepository.findByDataReferenciaAndIdUsuario(DATA, comLancamentos.getId()).get(0);
+		Assertions.assertThat(snapshot.getSaldo()).isEqualByComparingTo("66.15");
+	}
+
+	@Test
+	public void deveAceitarSoUmDisparoPorVezELiberarAoTerminar() throws InterruptedException {
+		//acao
+		boolean primeiro = service.iniciar(DATA);
+		boolean segundo = service.iniciar(DATA);
+
+		//verificacao: a vaga volta ao terminar, e um novo disparo sobre a data concluída não refaz nada
+		Assertions.assertThat(primeiro).isTrue();
+		Assertions.assertThat(segundo).isFalse();
+		Assertions.assertThat(aguardarVaga().getSituacao()).isEqualTo(SituacaoExecucao.CONCLUIDO.name());
+	}
+
+	private ProgressoSnapshotDTO aguardarVaga() throws InterruptedException {
+		long limite = System.currentTimeMillis() + 30000;
+		while (System.currentTimeMillis() < limite) {
+			try {
+				return service.gerar(DATA);
+			} catch (RegraNegocioException e) {
+				Thread.sleep(20);
+			}
+		}
+		return Assertions.fail("a geração não liberou a vaga no prazo");
+	}
+
+	private Lancamento criarLancamento(String valor, TipoLancamento tipo) {
+		return lancamentoRepository.save(Lancamento.builder().descricao("snapshot").ano(2001).mes(1)
+				.valor(new BigDecimal(valor)).tipo(tipo).status(StatusLancamento.PENDENTE).usuario(comLancamentos).build());
+	}
+}
@@ -1,9 +1,13 @@
 package com.adriano.minhasfinancas.service;
 
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.assertj.core.api.Assertions;
 import org.hamcrest.core.IsInstanceOf;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -19,6 +24,7 @@ import com.adriano.minhasfinancas.exception.ErroAutenticacao;
 import com.adriano.minhasfinancas.exception.RegraNegocioException;
 import com.adriano.minhasfinancas.model.entity.Usuario;
 import com.adriano.minhasfinancas.model.repository.UsuarioRepository;
+import com.adriano.minhasfinancas.service.impl.FiltroBloom;
 import com.adriano.minhasfinancas.service.impl.UsuarioServiceImpl;
 
 @SpringBootTest
@@ -127,9 +133,79 @@ public class UsuarioServiceTest {
 	@Test(expected = RegraNegocioException.class)
 	public void deveLancarErroAoValidarEmailQuandoExistirEmail() {
 		//cenario
+		Mockito.when(repository.obterEmails()).thenReturn(Arrays.asList("email@email.com"));
+		service.carregarEmails();
 		Mockito.when(repository.existsByEmail(Mockito.anyString())).thenReturn(true);
 		
 		//acao
 		service.validarEmail("email@email.com");
 	}
+
+	@Test
+	public void deveValidarEmailCertamenteNovoSemConsultarOBanco() {
+		//cenario
+		Mockito.when(repository.obterEmails()).thenReturn(Arrays.asList("email@email.com"));
+		service.carregarEmails();
+
+		//acao
+		service.validarEmail("novo@email.com");
+
+		//verificacao
+		Mockito.verify(repository, Mockito.never()).existsByEmail(Mockito.anyString());
+	}
+
+	@Test
+	public void deveLancarErroQuandoOIndiceUnicoRecusarOEmail() {
+		//cenario
+		Mockito.doNothing().when(service).validarEmail(Mockito.anyString());
+		Mockito.when(repository.save(Mockito.any(Usuario.class))).thenThrow(violacao("\"FINANCAS.UK_USUARIO_EMAIL_INDEX_2 ON FINANCAS.USUARIO(EMAIL)\""));
+
+		//acao
+		Throwable exception = Assertions.catchThrowable(() -> service.salvarUsuario(Usuario.builder().email("email@email.com").build()));
+
+		//verificacao
+		Assertions.assertThat(exception).isInstanceOf(RegraNegocioException.class).hasMessage("Já existe um usuario cadastrado com este email");
+	}
+
+	@Test
+	public void naoDeveTraduzirOutraRestricaoVioladaComoEmailDuplicado() {
+		//cenario
+		Mockito.doNothing().when(service).validarEmail(Mockito.anyString());
+		DataIntegrityViolationException violacao = violacao("\"FINANCAS.NOME_NOT_NULL\"");
+		Mockito.when(repository.save(Mockito.any(Usuario.class))).thenThrow(violacao);
+
+		//acao
+		Throwable exception = Assertions.catchThrowable(() -> service.salvarUsuario(Usuario.builder().email("email@email.com").build()));
+
+		//verificacao
+		Assertions.assertThat(exception).isSameAs(violacao);
+	}
+
+	@Test
+	public void deveManterOFiltroDeEmailsSemFalsoNegativoEComPoucosFalsosPositivos() {
+		//cenario
+		FiltroBloom filtro = new FiltroBloom(10000, 0.01);
+		String[] cadastrados = new String[10000];
+		for (int i = 0; i < cadastrados.length; i++) {
+			cadastrados[i] = UUID.randomUUID() + "@email.com";
+			filtro.adicionar(cadastrados[i]);
+		}
+
+		//acao
+		int falsosPositivos = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (filtro.talvezContenha(UUID.randomUUID() + "@email.com")) {
+				falsosPositivos++;
+			}
+		}
+
+		//verificacao
+		Assertions.assertThat(cadastrados).allMatch(filtro::talvezContenha);
+		Assertions.assertThat(falsosPositivos).isLessThan(300);
+	}
+
+	private static DataIntegrityViolationException violacao(String restricao) {
+		return new DataIntegrityViolationException("could not execute statement",
+				new ConstraintViolationException("could not execute statement", new SQLException("violação"), restricao));
+	}
 }
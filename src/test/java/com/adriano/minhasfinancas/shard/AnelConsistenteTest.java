@@ -0,0 +1,50 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class AnelConsistenteTest {
+
+	private static final int USUARIOS = 30000;
+
+	@Test
+	public void deveDistribuirOsUsuariosEntreOsShards() {
+		//cenario
+		AnelConsistente anel = new AnelConsistente(Arrays.asList("shard0", "shard1", "shard2"), 160);
+
+		//acao
+		Map<String, Integer> contagem = new HashMap<>();
+		for (long id = 1; id <= USUARIOS; id++) {
+			contagem.merge(anel.localizar(id), 1, Integer::sum);
+		}
+
+		//verificacao
+		Assertions.assertThat(contagem).containsOnlyKeys("shard0", "shard1", "shard2");
+		Assertions.assertThat(contagem.values()).allSatisfy(quantidade -> Assertions.assertThat(quantidade).isBetween(8000, 12000));
+	}
+
+	@Test
+	public void deveMoverApenasOsUsuariosDoNovoShard() {
+		//cenario
+		AnelConsistente atual = new AnelConsistente(Arrays.asList("shard0", "shard1"), 160);
+		AnelConsistente destino = new AnelConsistente(Arrays.asList("shard0", "shard1", "shard2"), 160);
+
+		//acao
+		int movidos = 0;
+		for (long id = 1; id <= USUARIOS; id++) {
+			String novo = destino.localizar(id);
+			if (!novo.equals(atual.localizar(id))) {
+				Assertions.assertThat(novo).isEqualTo("shard2");
+				movidos++;
+			}
+		}
+
+		//verificacao
+		Assertions.assertThat(movidos).isBetween(USUARIOS / 4, USUARIOS / 2);
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.adriano.minhasfinancas.shard;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.adriano.minhasfinancas.model.entity.Lancamento;
+import com.adriano.minhasfinancas.model.entity.Usuario;
+import com.adriano.minhasfinancas.model.enums.SituacaoExecucao;
+import com.adriano.minhasfinancas.model.enums.StatusLancamento;
+import com.adriano.minhasfinancas.model.enums.TipoLancamento;
+import com.adriano.minhasfinancas.service.LancamentoService;
+import com.adriano.minhasfinancas.service.UsuarioService;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@ActiveProfiles({ "test", "sharding" })
+@DirtiesContext
+public class ShardingTest {
+
+	@Autowired
+	UsuarioService usuarioService;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	RoteadorShard roteador;
+
+	@Autowired
+	DataSourcesShard dataSources;
+
+	@Autowired
+	PropriedadesSharding propriedades;
+
+	@Test
+	public void deveRotearPorUsuarioERebalancearSemPerderDados() throws InterruptedException {
+		//cenario
+		List<Usuario> usuarios = new ArrayList<>();
+		List<Lancamento> lancamentos = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Usuario usuario = usuarioService.salvarUsuario(Usuario.builder().nome("usuario" + i)
+					.email("shard" + i + "@email.com").senha("senha").build());
+			usuarios.add(usuario);
+			lancamentos.add(lancamentoService.salvar(criarLancamento(usuario, "10.00")));
+		}
+		lancamentoService.salvarEmLote(Arrays.asList(criarLancamento(usuarios.get(0), "5.00"), criarLancamento(usuarios.get(1), "5.00")));
+
+		//verificacao: cada usuário e seus lançamentos estão só no shard dono
+		Assertions.assertThat(shardsComUsuarios(usuarios)).containsExactlyInAnyOrder("shard0", "shard1");
+		verificarDados(usuarios, lancamentos);
+
+		//acao
+		roteador.rebalancear(Arrays.asList("shard0", "shard1", "shard2"));
+		for (int i = 0; i < 100 && SituacaoExecucao.EM_ANDAMENTO.name().equals(roteador.obterProgresso().getSituacao()); i++) {
+			Thread.sleep(100);
+		}
+
+		//verificacao
+		Assertions.assertThat(roteador.obterProgresso().getSituacao()).isEqualTo(SituacaoExecucao.CONCLUIDO.name());
+		Assertions.assertThat(shardsComUsuarios(usuarios)).contains("shard2");
+		verificarDados(usuarios, lancamentos);
+	}
+
+	@Test
+	public void deveRetomarORebalanceamentoDepoisDeReiniciar() throws InterruptedException {
+		//cenario
+		List<Usuario> usuarios = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Usuario usuario = usuarioService.salvarUsuario(Usuario.builder().nome("reinicio" + i)
+					.email("reinicio" + i + "@email.com").senha("senha").build());
+			usuarios.add(usuario);
+			lancamentoService.salvar(criarLancamento(usuario, "10.00"));
+		}
+		List<String> atuais = roteador.obterProgresso().getShardsAtivos();
+		List<String> outros = atuais.contains("shard2") ? Arrays.asList("shard0", "shard1") : Arrays.asList("shard0", "shard1", "shard2");
+
+		//acao: a terceira migração cai depois de copiar e gravar o novo dono, antes de limpar a origem
+		AtomicInteger remocoes = new AtomicInteger();
+		RoteadorShard interrompido = new RoteadorShard(dataSources, new MigracaoShard() {
+			@Override
+			public void removerOrigem(long idUsuario, DataSource origem) {
+				if (remocoes.incrementAndGet() == 3) {
+					throw new IllegalStateException("queda simulada");
+				}
+				super.removerOrigem(idUsuario, origem);
+			}
+		}, propriedades);
+		interrompido.rebalancear(outros);
+		aguardar(interrompido);
+		interrompido.close();
+
+		//verificacao: ao reiniciar, os usuários já migrados são encontrados no destino
+		RoteadorShard reiniciado = new RoteadorShard(dataSources, new MigracaoShard(), propriedades);
+		Assertions.assertThat(reiniciado.obterProgresso().getSituacao()).isEqualTo(SituacaoExecucao.ERRO.name());
+		Assertions.assertThat(reiniciado.obterProgresso().getShardsAtivos()).isEqualTo(atuais);
+		Assertions.assertThat(reiniciado.obterProgresso().getShardsDestino()).isEqualTo(outros);
+		for (Usuario usuario : usuarios) {
+			Assertions.assertThat(contar(reiniciado.localizar(usuario.getId()), "select count(*) from financas.lancamento where id_usuario = ?", usuario.getId())).isEqualTo(1);
+		}
+
+		//acao
+		reiniciado.rebalancear(outros);
+		aguardar(reiniciado);
+		reiniciado.close();
+
+		//verificacao: depois de concluído, um novo reinício já sobe com o anel de destino
+		RoteadorShard concluido = new RoteadorShard(dataSources, new MigracaoShard(), propriedades);
+		Assertions.assertThat(concluido.obterProgresso().getShardsAtivos()).isEqualTo(outros);
+		Assertions.assertThat(concluido.obterProgresso().getShardsDestino()).isNull();
+		for (Usuario usuario : usuarios) {
+			Assertions.assertThat(contar(concluido.localizar(usuario.getId()), "select count(*) from financas.usuario where id = ?", usuario.getId())).isEqualTo(1);
+			Assertions.assertThat(contarEmTodos("select count(*) from financas.usuario where id = ?", usuario.getId())).isEqualTo(1);
+			Assertions.assertThat(contarEmTodos("select count(*) from financas.lancamento where id_usuario = ?", usuario.getId())).isEqualTo(1);
+		}
+
+		// volta ao anel do roteador da aplicação, que segue com ele em memória
+		concluido.rebalancear(atuais);
+		aguardar(concluido);
+		concluido.close();
+		for (Usuario usuario : usuarios) {
+			Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("10.00");
+		}
+	}
+
+	private void aguardar(RoteadorShard roteadorShard) throws InterruptedException {
+		for (int i = 0; i < 100 && SituacaoExecucao.EM_ANDAMENTO.name().equals(roteadorShard.obterProgresso().getSituacao()); i++) {
+			Thread.sleep(100);
+		}
+	}
+
+	private void verificarDados(List<Usuario> usuarios, List<Lancamento> lancamentos) {
+		for (int i = 0; i < usuarios.size(); i++) {
+			Usuario usuario = usuarios.get(i);
+			String dono = roteador.localizar(usuario.getId());
+			Assertions.assertThat(contar(dono, "select count(*) from financas.usuario where id = ?", usuario.getId())).isEqualTo(1);
+			Assertions.assertThat(contarEmTodos("select count(*) from financas.usuario where id = ?", usuario.getId())).isEqualTo(1);
+			Assertions.assertThat(usuarioService.autenticar(usuario.getEmail(), "senha").getId()).isEqualTo(usuario.getId());
+			Assertions.assertThat(lancamentoService.obterPorId(lancamentos.get(i).getId())).isPresent();
+			BigDecimal esperado = new BigDecimal(i < 2 ? "15.00" : "10.00");
+			Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo(esperado);
+		}
+	}
+
+	private Set<String> shardsComUsuarios(List<Usuario> usuarios) {
+		Set<String> shards = new HashSet<>();
+		for (String shard : dataSources.getNomes()) {
+			for (Usuario usuario : usuarios) {
+				if (contar(shard, "select count(*) from financas.usuario where id = ?", usuario.getId()) > 0) {
+					shards.add(shard);
+				}
+			}
+		}
+		return shards;
+	}
+
+	private long contarEmTodos(String sql, Long id) {
+		long total = 0;
+		for (String shard : dataSources.getNomes()) {
+			total += contar(shard, sql, id);
+		}
+		return total;
+	}
+
+	private long contar(String shard, String sql, Long id) {
+		return new JdbcTemplate(dataSources.obter(shard)).queryForObject(sql, Long.class, id);
+	}
+
+	private Lancamento criarLancamento(Usuario usuario, String valor) {
+		return Lancamento.builder().descricao("lancamento").ano(2021).mes(1).valor(new BigDecimal(valor))
+				.tipo(TipoLancamento.RECEITA).status(StatusLancamento.PENDENTE).usuario(usuario).build();
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.adriano.minhasfinancas.suporte;
+
+/**
+ * Mede os comandos SQL executados pela thread atual (a da requisição no MockMvc). Comandos de
+ * outras threads, como ouvintes assíncronos e aquecimento de cache, não entram na conta.
+ */
+public final class ContadorSql {
+
+	private static final ThreadLocal<RelatorioSql> ATUAL = new ThreadLocal<>();
+
+	private ContadorSql() {
+	}
+
+	public static RelatorioSql medir(Medicao medicao) throws Exception {
+		RelatorioSql relatorio = new RelatorioSql();
+		ATUAL.set(relatorio);
+		try {
+			medicao.executar();
+		} finally {
+			ATUAL.remove();
+		}
+		return relatorio;
+	}
+
+	static void registrarComando(String sql, long nanos) {
+		RelatorioSql relatorio = ATUAL.get();
+		if (relatorio != null) {
+			relatorio.registrarComando(sql, nanos);
+		}
+	}
+
+	static void registrarLinha() {
+		RelatorioSql relatorio = ATUAL.get();
+		if (relatorio != null) {
+			relatorio.registrarLinha();
+		}
+	}
+
+	@FunctionalInterface
+	public interface Medicao {
+
+		void executar() throws Exception;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.adriano.minhasfinancas.suporte;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Importar nos testes que usam {@link ContadorSql}: envolve o DataSource da aplicação no proxy de contagem.
+ */
+@TestConfiguration
+public class ContadorSqlConfig {
+
+	@Bean
+	public static BeanPostProcessor contadorSqlPostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+				return bean instanceof DataSource ? DataSourceContador.envolver((DataSource) bean) : bean;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.adriano.minhasfinancas.suporte;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * Proxy JDBC que repassa tudo ao DataSource real e informa ao {@link ContadorSql} cada comando
+ * executado e cada linha lida.
+ */
+final class DataSourceContador {
+
+	private DataSourceContador() {
+	}
+
+	static DataSource envolver(DataSource dataSource) {
+		return proxy(DataSource.class, dataSource, (alvo, metodo, argumentos) -> {
+			Object resultado = invocar(alvo, metodo, argumentos);
+			return resultado instanceof Connection ? envolver((Connection) resultado) : resultado;
+		});
+	}
+
+	private static Connection envolver(Connection conexao) {
+		return proxy(Connection.class, conexao, (alvo, metodo, argumentos) -> {
+			Object resultado = invocar(alvo, metodo, argumentos);
+			if (resultado instanceof CallableStatement) {
+				return envolver(CallableStatement.class, (Statement) resultado, (String) argumentos[0]);
+			}
+			if (resultado instanceof PreparedStatement) {
+				return envolver(PreparedStatement.class, (Statement) resultado, (String) argumentos[0]);
+			}
+			if (resultado instanceof Statement) {
+				return envolver(Statement.class, (Statement) resultado, null);
+			}
+			return resultado;
+		});
+	}
+
+	private static <T extends Statement> T envolver(Class<T> tipo, Statement comando, String sqlPreparado) {
+		return proxy(tipo, comando, (alvo, metodo, argumentos) -> {
+			if (!metodo.getName().startsWith("execute")) {
+				Object resultado = invocar(alvo, metodo, argumentos);
+				return "getResultSet".equals(metodo.getName()) ? envolver((ResultSet) resultado) : resultado;
+			}
+			String sql = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String
+					? (String) argumentos[0] : sqlPreparado;
+			long inicio = System.nanoTime();
+			Object resultado = invocar(alvo, metodo, argumentos);
+			ContadorSql.registrarComando(sql == null ? "batch" : sql, System.nanoTime() - inicio);
+			return resultado instanceof ResultSet ? envolver((ResultSet) resultado) : resultado;
+		});
+	}
+
+	private static ResultSet envolver(ResultSet resultSet) {
+		if (resultSet == null) {
+			return null;
+		}
+		return proxy(ResultSet.class, resultSet, (alvo, metodo, argumentos) -> {
+			Object resultado = invocar(alvo, metodo, argumentos);
+			if ("next".equals(metodo.getName()) && Boolean.TRUE.equals(resultado)) {
+				ContadorSql.registrarLinha();
+			}
+			return resultado;
+		});
+	}
+
+	private static Object invocar(Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+		try {
+			return metodo.invoke(alvo, argumentos);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> tipo, Object alvo, Interceptador interceptador) {
+		return (T) Proxy.newProxyInstance(DataSourceContador.class.getClassLoader(), new Class<?>[] { tipo },
+				(InvocationHandler) (proxy, metodo, argumentos) -> interceptador.interceptar(alvo, metodo, argumentos));
+	}
+
+	@FunctionalInterface
+	private interface Interceptador {
+
+		Object interceptar(Object alvo, Method metodo, Object[] argumentos) throws Throwable;
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.adriano.minhasfinancas.suporte;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comandos SQL executados na thread medida por {@link ContadorSql#medir}: quantidade por tipo,
+ * linhas lidas e tempo gasto no banco.
+ */
+public class RelatorioSql {
+
+	private final Map<TipoComandoSql, Integer> comandos = new EnumMap<>(TipoComandoSql.class);
+
+	private final List<String> sqls = new ArrayList<>();
+
+	private long linhas;
+
+	private long tempoNanos;
+
+	void registrarComando(String sql, long nanos) {
+		comandos.merge(TipoComandoSql.de(sql), 1, Integer::sum);
+		sqls.add(sql);
+		tempoNanos += nanos;
+	}
+
+	void registrarLinha() {
+		linhas++;
+	}
+
+	public int quantidade(TipoComandoSql tipo) {
+		return comandos.getOrDefault(tipo, 0);
+	}
+
+	public int total() {
+		return sqls.size();
+	}
+
+	public long getLinhas() {
+		return linhas;
+	}
+
+	public long getTempoMs() {
+		return TimeUnit.NANOSECONDS.toMillis(tempoNanos);
+	}
+
+	public List<String> getSqls() {
+		return Collections.unmodifiableList(sqls);
+	}
+
+	/** Falha se o tipo de comando passou do orçamento, listando os comandos executados. */
+	public RelatorioSql noMaximo(TipoComandoSql tipo, int orcamento) {
+		if (quantidade(tipo) > orcamento) {
+			throw new AssertionError("Esperado no máximo " + orcamento + " " + tipo + ", executados "
+					+ quantidade(tipo) + ":\n" + this);
+		}
+		return this;
+	}
+
+	public RelatorioSql noMaximoComandos(int orcamento) {
+		if (total() > orcamento) {
+			throw new AssertionError("Esperado no máximo " + orcamento + " comandos, executados " + total() + ":\n" + this);
+		}
+		return this;
+	}
+
+	public RelatorioSql noMaximoLinhas(long orcamento) {
+		if (linhas > orcamento) {
+			throw new AssertionError("Esperado ler no máximo " + orcamento + " linhas, lidas " + linhas + ":\n" + this);
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder().append(comandos).append(", linhas=").append(linhas)
+				.append(", tempoMs=").append(getTempoMs());
+		sqls.forEach(sql -> texto.append("\n  ").append(sql));
+		return texto.toString();
+	}
+
+}
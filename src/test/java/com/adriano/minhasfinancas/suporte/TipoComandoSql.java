@@ -0,0 +1,20 @@
+package com.adriano.minhasfinancas.suporte;
+
+public enum TipoComandoSql {
+
+	SELECT,
+	INSERT,
+	UPDATE,
+	DELETE,
+	OUTRO;
+
+	static TipoComandoSql de(String sql) {
+		String inicio = sql.trim().toLowerCase();
+		for (TipoComandoSql tipo : values()) {
+			if (inicio.startsWith(tipo.name().toLowerCase())) {
+				return tipo;
+			}
+		}
+		return inicio.startsWith("with") ? SELECT : OUTRO;
+	}
+}